@@ -28,6 +28,7 @@ import org.junit.Before;
 import org.junit.Test;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertTrue;
 
 public class MyAccountTest {
@@ -76,4 +77,13 @@ public class MyAccountTest {
         builder.saveSilently();
     }
 
+    @Test
+    public void testSyncPeriodHysteresis() {
+        assertFalse("The same period", MyAccount.isSyncPeriodChangeNeeded(900, 900));
+        assertFalse("A bit shorter", MyAccount.isSyncPeriodChangeNeeded(900, 700));
+        assertFalse("A bit longer", MyAccount.isSyncPeriodChangeNeeded(900, 1200));
+        assertTrue("Much shorter", MyAccount.isSyncPeriodChangeNeeded(900, 300));
+        assertTrue("Restored", MyAccount.isSyncPeriodChangeNeeded(300, 900));
+        assertTrue("Not registered", MyAccount.isSyncPeriodChangeNeeded(0, 900));
+    }
 }
@@ -0,0 +1,168 @@
+/*
+ * Copyright (c) 2017 yvolk (Yuri Volkov), http://yurivolkov.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.andstatus.app.benchmark;
+
+import org.andstatus.app.account.MyAccount;
+import org.andstatus.app.data.DownloadStatus;
+import org.andstatus.app.data.MyContentType;
+import org.andstatus.app.net.social.MbActivity;
+import org.andstatus.app.net.social.MbAttachment;
+import org.andstatus.app.net.social.MbMessage;
+import org.andstatus.app.net.social.MbUser;
+import org.andstatus.app.origin.OriginType;
+import org.andstatus.app.util.TriState;
+import org.andstatus.app.util.UrlUtils;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Generates messages for one account, which resemble messages downloaded from a server:
+ * a limited set of authors, conversations, mentions of the account, favorites and attached images.
+ * Sent dates grow evenly through the period, so replies are younger than the messages they reply to.
+ * Unlike the demo inserters, it doesn't wait and doesn't check anything, so it may be used to fill a large database
+ * @author yvolk@yurivolkov.com
+ */
+public class BenchmarkDataGenerator {
+    public static final String[] WORDS = {"android", "sync", "timeline", "weather", "coffee", "music", "release",
+            "travel", "book", "garden", "football", "server", "privacy", "photo", "movie", "recipe", "bicycle",
+            "election", "science", "holiday", "keyboard", "network", "federation", "kitten", "mountain"};
+    private static final int AUTHORS_COUNT = 300;
+    private static final int RECENT_MESSAGES_COUNT = 50;
+    private static final int REPLIES_PERCENT = 20;
+    private static final int MENTIONS_PERCENT = 10;
+    private static final int FAVORITES_PERCENT = 3;
+    private static final int IMAGES_PERCENT = 10;
+    private static final int SUBSCRIBED_PERCENT = 70;
+
+    private final MyAccount ma;
+    private final MbUser accountUser;
+    private final OriginType originType;
+    private final String runId;
+    private final Random random;
+    private final List<MbUser> authors = new ArrayList<>();
+    private final List<MbMessage> recentMessages = new ArrayList<>();
+    private final long startDate;
+    private final long stepMs;
+    private long counter = 0;
+
+    /**
+     * @param messagesCount number of messages to be generated, they are spread through the period evenly
+     * @param periodMs the period, ending now
+     */
+    public BenchmarkDataGenerator(MyAccount ma, String runId, long seed, long messagesCount, long periodMs) {
+        this.ma = ma;
+        accountUser = ma.toPartialUser();
+        originType = ma.getOrigin().getOriginType();
+        this.runId = runId;
+        random = new Random(seed);
+        startDate = System.currentTimeMillis() - periodMs;
+        stepMs = Math.max(1, periodMs / Math.max(1, messagesCount));
+        for (int ind = 0; ind < AUTHORS_COUNT; ind++) {
+            authors.add(buildAuthor(ind));
+        }
+    }
+
+    public MyAccount getMyAccount() {
+        return ma;
+    }
+
+    private MbUser buildAuthor(int ind) {
+        String username = "bench" + runId + "u" + ind;
+        String host = ma.getOrigin().getUrl() == null ? "example.com" : ma.getOrigin().getUrl().getHost();
+        String userOid = originType == OriginType.PUMPIO ? "acct:" + username + "@" + host : username + "-oid";
+        MbUser author = MbUser.fromOriginAndUserOid(ma.getOriginId(), userOid);
+        author.setUserName(originType == OriginType.PUMPIO ? username + "@" + host : username);
+        author.setRealName(capitalize(randomWord()) + " " + capitalize(randomWord()) + " " + ind);
+        author.setProfileUrl("https://" + host + "/" + username);
+        author.setHomepage("https://" + host + "/" + username + "/home/");
+        author.setDescription(randomText(12));
+        author.avatarUrl = "https://" + host + "/" + username + "/avatar.png";
+        return author;
+    }
+
+    public MbActivity next() {
+        counter++;
+        MbUser author = authors.get(random.nextInt(authors.size()));
+        String oid = "bench" + runId + "m" + counter;
+        if (originType == OriginType.PUMPIO) {
+            oid = author.getProfileUrl() + "/note/" + oid;
+        }
+        MbMessage message = MbMessage.fromOriginAndOid(ma.getOriginId(), accountUser.oid, oid, DownloadStatus.LOADED);
+        message.setUpdatedDate(startDate + counter * stepMs);
+        message.setAuthor(author);
+        message.via = "benchmark";
+        message.setPublic(random.nextBoolean());
+
+        StringBuilder body = new StringBuilder();
+        if (percent(MENTIONS_PERCENT)) {
+            body.append("@" + ma.getUsername() + " ");
+        }
+        if (!recentMessages.isEmpty() && percent(REPLIES_PERCENT)) {
+            MbMessage inReplyTo = recentMessages.get(random.nextInt(recentMessages.size()));
+            message.setInReplyTo(inReplyTo);
+            body.append("@" + inReplyTo.getAuthor().getUserName() + " ");
+        }
+        body.append(randomText(5 + random.nextInt(35)));
+        if (random.nextInt(4) == 0) {
+            body.append(" #" + randomWord());
+        }
+        message.setBody(body.toString());
+
+        if (percent(FAVORITES_PERCENT)) {
+            message.setFavoritedByMe(TriState.TRUE);
+        }
+        if (percent(SUBSCRIBED_PERCENT)) {
+            message.setSubscribedByMe(TriState.TRUE);
+        }
+        if (percent(IMAGES_PERCENT)) {
+            message.attachments.add(MbAttachment.fromUrlAndContentType(
+                    UrlUtils.fromString(author.getProfileUrl() + "/image/" + counter + ".jpg"), MyContentType.IMAGE));
+        }
+
+        rememberRecent(message);
+        return message.update(accountUser);
+    }
+
+    private void rememberRecent(MbMessage message) {
+        if (recentMessages.size() >= RECENT_MESSAGES_COUNT) {
+            recentMessages.remove(random.nextInt(recentMessages.size()));
+        }
+        recentMessages.add(message);
+    }
+
+    private boolean percent(int percent) {
+        return random.nextInt(100) < percent;
+    }
+
+    public String randomWord() {
+        return WORDS[random.nextInt(WORDS.length)];
+    }
+
+    private String randomText(int wordsCount) {
+        StringBuilder builder = new StringBuilder();
+        for (int ind = 0; ind < wordsCount; ind++) {
+            builder.append(ind == 0 ? "" : " ").append(randomWord());
+        }
+        return builder.toString();
+    }
+
+    private static String capitalize(String word) {
+        return word.substring(0, 1).toUpperCase() + word.substring(1);
+    }
+}
@@ -0,0 +1,174 @@
+/*
+ * Copyright (c) 2017 yvolk (Yuri Volkov), http://yurivolkov.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.andstatus.app.benchmark;
+
+import android.os.Build;
+import android.support.annotation.NonNull;
+
+import org.andstatus.app.context.MyStorage;
+import org.andstatus.app.data.DbUtils;
+import org.andstatus.app.util.MyLog;
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Durations, measured by a benchmark, written to a JSON file,
+ * so that the numbers of different runs and builds could be compared by a script
+ * @author yvolk@yurivolkov.com
+ */
+public class BenchmarkReport {
+    public static final String DIRECTORY_BENCHMARKS = "benchmarks";
+
+    private final String name;
+    private final long startedAt = System.currentTimeMillis();
+    private final Map<String, Object> parameters = new LinkedHashMap<>();
+    private final Map<String, Metric> metrics = new LinkedHashMap<>();
+
+    /** Samples of one measured operation. An item is e.g. a message saved or a row loaded */
+    public static class Metric {
+        final String name;
+        private final List<Long> durationsNanos = new ArrayList<>();
+        private long itemsCount = 0;
+
+        Metric(String name) {
+            this.name = name;
+        }
+
+        public synchronized void add(long durationNanos, long items) {
+            durationsNanos.add(durationNanos);
+            itemsCount += items;
+        }
+
+        /** Adds a sample, which started at the startedNanos, see {@link System#nanoTime()} */
+        public void addSince(long startedNanos, long items) {
+            add(System.nanoTime() - startedNanos, items);
+        }
+
+        synchronized int getCount() {
+            return durationsNanos.size();
+        }
+
+        synchronized JSONObject toJson() throws JSONException {
+            List<Long> sorted = new ArrayList<>(durationsNanos);
+            Collections.sort(sorted);
+            long totalNanos = 0;
+            for (long duration : sorted) {
+                totalNanos += duration;
+            }
+            JSONObject jso = new JSONObject();
+            jso.put("count", sorted.size());
+            jso.put("items", itemsCount);
+            jso.put("totalMs", toMs(totalNanos));
+            if (!sorted.isEmpty()) {
+                jso.put("minMs", toMs(sorted.get(0)));
+                jso.put("medianMs", toMs(percentile(sorted, 50)));
+                jso.put("p90Ms", toMs(percentile(sorted, 90)));
+                jso.put("maxMs", toMs(sorted.get(sorted.size() - 1)));
+            }
+            if (totalNanos > 0 && itemsCount > 0) {
+                jso.put("itemsPerSecond", Math.round(itemsCount * (double) TimeUnit.SECONDS.toNanos(1) / totalNanos));
+            }
+            return jso;
+        }
+
+        private static long percentile(List<Long> sorted, int percent) {
+            int ind = (int) Math.ceil(sorted.size() * percent / 100.0) - 1;
+            return sorted.get(Math.max(0, Math.min(ind, sorted.size() - 1)));
+        }
+
+        private static double toMs(long nanos) {
+            return Math.round(nanos / 1000.0) / 1000.0;
+        }
+    }
+
+    public BenchmarkReport(String name) {
+        this.name = name;
+    }
+
+    public BenchmarkReport setParameter(String key, Object value) {
+        parameters.put(key, value);
+        return this;
+    }
+
+    @NonNull
+    public synchronized Metric metric(String metricName) {
+        Metric metric = metrics.get(metricName);
+        if (metric == null) {
+            metric = new Metric(metricName);
+            metrics.put(metricName, metric);
+        }
+        return metric;
+    }
+
+    public synchronized JSONObject toJson() throws JSONException {
+        JSONObject jso = new JSONObject();
+        jso.put("benchmark", name);
+        jso.put("startedAt", startedAt);
+        jso.put("durationMs", System.currentTimeMillis() - startedAt);
+        jso.put("device", Build.MANUFACTURER + " " + Build.MODEL);
+        jso.put("sdk", Build.VERSION.SDK_INT);
+        JSONObject jsoParameters = new JSONObject();
+        for (Map.Entry<String, Object> entry : parameters.entrySet()) {
+            jsoParameters.put(entry.getKey(), entry.getValue());
+        }
+        jso.put("parameters", jsoParameters);
+        JSONObject jsoMetrics = new JSONObject();
+        for (Metric metric : metrics.values()) {
+            if (metric.getCount() > 0) {
+                jsoMetrics.put(metric.name, metric.toJson());
+            }
+        }
+        jso.put("metrics", jsoMetrics);
+        return jso;
+    }
+
+    /** @return the file written, or null in a case of an error */
+    public File save() {
+        final String method = "save";
+        File dir = MyStorage.getDataFilesDir(DIRECTORY_BENCHMARKS);
+        if (dir == null) {
+            MyLog.e(this, method + "; No directory for benchmark reports");
+            return null;
+        }
+        File file = new File(dir, name + "_" + MyLog.uniqueDateTimeFormatted() + ".json");
+        Writer writer = null;
+        try {
+            String content = toJson().toString(2);
+            writer = new OutputStreamWriter(new FileOutputStream(file), "UTF-8");
+            writer.write(content);
+            MyLog.i(this, method + "; Benchmark report written to " + file.getAbsolutePath() + "\n" + content);
+            return file;
+        } catch (IOException | JSONException e) {
+            MyLog.e(this, method + "; Failed to write " + file.getAbsolutePath(), e);
+            return null;
+        } finally {
+            DbUtils.closeSilently(writer);
+        }
+    }
+}
@@ -0,0 +1,268 @@
+/*
+ * Copyright (c) 2017 yvolk (Yuri Volkov), http://yurivolkov.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.andstatus.app.benchmark;
+
+import android.database.Cursor;
+import android.database.sqlite.SQLiteDatabase;
+import android.support.test.InstrumentationRegistry;
+import android.text.TextUtils;
+
+import org.andstatus.app.LoadableListActivity.ProgressPublisher;
+import org.andstatus.app.WhichPage;
+import org.andstatus.app.account.MyAccount;
+import org.andstatus.app.context.MyContext;
+import org.andstatus.app.context.MyContextHolder;
+import org.andstatus.app.context.MyPreferences;
+import org.andstatus.app.context.TestSuite;
+import org.andstatus.app.data.DataPruner;
+import org.andstatus.app.data.DataUpdater;
+import org.andstatus.app.data.DbUtils;
+import org.andstatus.app.data.MyQuery;
+import org.andstatus.app.database.MsgTable;
+import org.andstatus.app.msg.ConversationLoader;
+import org.andstatus.app.msg.ConversationLoaderFactory;
+import org.andstatus.app.msg.ConversationViewItem;
+import org.andstatus.app.msg.TimelineListParameters;
+import org.andstatus.app.msg.TimelineLoader;
+import org.andstatus.app.origin.Origin;
+import org.andstatus.app.service.CommandData;
+import org.andstatus.app.service.CommandEnum;
+import org.andstatus.app.service.CommandExecutionContext;
+import org.andstatus.app.timeline.Timeline;
+import org.andstatus.app.timeline.TimelineType;
+import org.andstatus.app.util.InstanceId;
+import org.andstatus.app.util.MyLog;
+import org.andstatus.app.util.SharedPreferencesUtil;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assume.assumeTrue;
+
+/**
+ * Measures the data layer on a large generated database: saving of downloaded messages,
+ * loading of timeline pages and conversations, search and pruning.
+ * Skipped, unless the number of messages to generate is passed as an instrumentation argument, e.g.
+ * "-e benchmarkMessages 100000". Generated messages are added to the test database and pruning
+ * deletes messages, so run it alone, on a fresh installation, and not together with functional tests.
+ * The report is written to the "benchmarks" data directory, see {@link BenchmarkReport}
+ * @author yvolk@yurivolkov.com
+ */
+public class DataLayerBenchmark implements ProgressPublisher {
+    public static final String ARGUMENT_MESSAGES = "benchmarkMessages";
+    private static final int BATCH_SIZE = 500;
+    private static final long PERIOD_DAYS = 60;
+    private static final int OLDER_PAGES_TO_LOAD = 3;
+    private static final int CONVERSATIONS_PER_ACCOUNT = 20;
+    private static final int SEARCHES_COUNT = 10;
+    private static final TimelineType[] TIMELINE_TYPES = {TimelineType.HOME, TimelineType.MENTIONS,
+            TimelineType.FAVORITES, TimelineType.PUBLIC, TimelineType.EVERYTHING, TimelineType.SENT};
+
+    private MyContext myContext;
+    private long messagesCount = 0;
+    private final List<MyAccount> accounts = new ArrayList<>();
+    private BenchmarkReport report;
+
+    @Before
+    public void setUp() throws Exception {
+        String argument = InstrumentationRegistry.getArguments().getString(ARGUMENT_MESSAGES);
+        messagesCount = TextUtils.isEmpty(argument) ? 0 : Long.parseLong(argument);
+        assumeTrue("Benchmark is turned on by the '" + ARGUMENT_MESSAGES + "' argument", messagesCount > 0);
+
+        TestSuite.initializeWithData(this);
+        myContext = MyContextHolder.get();
+        for (MyAccount ma : myContext.persistentAccounts().list()) {
+            if (ma.isValidAndSucceeded()) {
+                accounts.add(ma);
+            }
+        }
+        assertTrue("No accounts", !accounts.isEmpty());
+    }
+
+    @Test
+    public void testDataLayer() {
+        report = new BenchmarkReport("data_layer")
+                .setParameter("messages", messagesCount)
+                .setParameter("accounts", accounts.size())
+                .setParameter("periodDays", PERIOD_DAYS);
+        ingest();
+        report.setParameter("messagesInDatabase", countMessages());
+        loadTimelines();
+        loadConversations();
+        search();
+        prune();
+        File file = report.save();
+        assertNotNull("Report saved", file);
+    }
+
+    private void ingest() {
+        String runId = Long.toString(System.currentTimeMillis() % 1000000, 36);
+        List<BenchmarkDataGenerator> generators = new ArrayList<>();
+        long perAccount = (messagesCount + accounts.size() - 1) / accounts.size();
+        for (int ind = 0; ind < accounts.size(); ind++) {
+            generators.add(new BenchmarkDataGenerator(accounts.get(ind), runId, ind, perAccount,
+                    TimeUnit.DAYS.toMillis(PERIOD_DAYS)));
+        }
+        BenchmarkReport.Metric total = report.metric("ingest");
+        long generated = 0;
+        while (generated < messagesCount) {
+            for (BenchmarkDataGenerator generator : generators) {
+                int batchSize = (int) Math.min(BATCH_SIZE, messagesCount - generated);
+                if (batchSize <= 0) {
+                    break;
+                }
+                MyAccount ma = generator.getMyAccount();
+                DataUpdater dataUpdater = new DataUpdater(new CommandExecutionContext(
+                        CommandData.newTimelineCommand(CommandEnum.EMPTY, ma, TimelineType.HOME)));
+                long startedNanos = System.nanoTime();
+                for (int ind = 0; ind < batchSize; ind++) {
+                    dataUpdater.onActivity(generator.next(), false);
+                }
+                dataUpdater.saveLum();
+                total.addSince(startedNanos, batchSize);
+                report.metric("ingest " + ma.getOrigin().getOriginType().getTitle()).addSince(startedNanos, batchSize);
+                generated += batchSize;
+            }
+            MyLog.v(this, "Ingested " + generated + " of " + messagesCount + " messages");
+        }
+    }
+
+    private void loadTimelines() {
+        for (MyAccount ma : accounts) {
+            for (TimelineType timelineType : TIMELINE_TYPES) {
+                Timeline timeline = Timeline.getTimeline(timelineType, ma, 0, ma.getOrigin());
+                loadPages(timeline, "timeline " + timelineType.save());
+            }
+        }
+        Timeline combined = Timeline.getTimeline(myContext, 0, TimelineType.HOME, MyAccount.EMPTY, 0,
+                Origin.getEmpty(), "");
+        loadPages(combined, "timeline combined " + TimelineType.HOME.save());
+    }
+
+    private void loadPages(Timeline timeline, String metricName) {
+        TimelineListParameters params = new TimelineListParameters(myContext);
+        params.setTimeline(timeline);
+        params = TimelineListParameters.clone(params, WhichPage.YOUNGEST);
+        for (int pageIndex = 0; pageIndex <= OLDER_PAGES_TO_LOAD; pageIndex++) {
+            TimelineLoader loader = new TimelineLoader(params, InstanceId.next());
+            long startedNanos = System.nanoTime();
+            loader.load(this);
+            report.metric(metricName + (pageIndex == 0 ? " youngest" : " older"))
+                    .addSince(startedNanos, loader.getList().size());
+            if (loader.getList().isEmpty() || !loader.getParams().mayHaveOlderPage()) {
+                break;
+            }
+            params = TimelineListParameters.clone(loader.getParams(), WhichPage.OLDER);
+        }
+    }
+
+    private void loadConversations() {
+        for (MyAccount ma : accounts) {
+            for (long msgId : selectReplies(ma, CONVERSATIONS_PER_ACCOUNT)) {
+                ConversationLoader<ConversationViewItem> loader =
+                        new ConversationLoaderFactory<ConversationViewItem>().getLoader(
+                                ConversationViewItem.class, myContext, ma, msgId, false);
+                long startedNanos = System.nanoTime();
+                loader.load(this);
+                report.metric("conversation").addSince(startedNanos, loader.getList().size());
+            }
+        }
+    }
+
+    /** The same replies for the same generated data: from the middle of the replies, ordered by id */
+    private List<Long> selectReplies(MyAccount ma, int count) {
+        List<Long> msgIds = new ArrayList<>();
+        String where = " WHERE " + MsgTable.ORIGIN_ID + "=" + ma.getOriginId()
+                + " AND " + MsgTable.IN_REPLY_TO_MSG_ID + " NOT NULL";
+        long repliesCount = MyQuery.sqlToLong(getDatabase(), "repliesCount",
+                "SELECT COUNT(*) FROM " + MsgTable.TABLE_NAME + where);
+        String sql = "SELECT " + MsgTable._ID + " FROM " + MsgTable.TABLE_NAME + where
+                + " ORDER BY " + MsgTable._ID + " LIMIT " + count
+                + " OFFSET " + Math.max(0, (repliesCount - count) / 2);
+        Cursor cursor = null;
+        try {
+            cursor = getDatabase().rawQuery(sql, null);
+            while (cursor.moveToNext()) {
+                msgIds.add(cursor.getLong(0));
+            }
+        } finally {
+            DbUtils.closeSilently(cursor);
+        }
+        return msgIds;
+    }
+
+    private void search() {
+        for (int ind = 0; ind < SEARCHES_COUNT; ind++) {
+            String word = BenchmarkDataGenerator.WORDS[ind % BenchmarkDataGenerator.WORDS.length];
+            Timeline timeline = Timeline.getTimeline(myContext, 0, TimelineType.EVERYTHING, MyAccount.EMPTY, 0,
+                    Origin.getEmpty(), word);
+            TimelineListParameters params = new TimelineListParameters(myContext);
+            params.setTimeline(timeline);
+            TimelineLoader loader = new TimelineLoader(TimelineListParameters.clone(params, WhichPage.YOUNGEST),
+                    InstanceId.next());
+            long startedNanos = System.nanoTime();
+            loader.load(this);
+            report.metric("search").addSince(startedNanos, loader.getList().size());
+        }
+    }
+
+    /** Prunes the oldest tenth of the messages by the size limit */
+    private void prune() {
+        String historySize = SharedPreferencesUtil.getString(MyPreferences.KEY_HISTORY_SIZE, "2000");
+        String historyTime = SharedPreferencesUtil.getString(MyPreferences.KEY_HISTORY_TIME, "3");
+        try {
+            SharedPreferencesUtil.putString(MyPreferences.KEY_HISTORY_SIZE, Long.toString(countMessages() * 9 / 10));
+            SharedPreferencesUtil.putString(MyPreferences.KEY_HISTORY_TIME, "0");
+            SharedPreferencesUtil.putLong(MyPreferences.KEY_DATA_PRUNED_DATE, 0);
+            assertTrue(TestSuite.setAndWaitForIsInForeground(false));
+            DataPruner pruner = new DataPruner(myContext);
+            long startedNanos = System.nanoTime();
+            assertTrue("Pruned", pruner.prune());
+            report.metric("prune").addSince(startedNanos, pruner.getDeleted());
+        } finally {
+            SharedPreferencesUtil.putString(MyPreferences.KEY_HISTORY_SIZE, historySize);
+            SharedPreferencesUtil.putString(MyPreferences.KEY_HISTORY_TIME, historyTime);
+        }
+    }
+
+    private long countMessages() {
+        Cursor cursor = null;
+        try {
+            cursor = getDatabase().rawQuery("SELECT COUNT(*) FROM " + MsgTable.TABLE_NAME, null);
+            return cursor.moveToFirst() ? cursor.getLong(0) : 0;
+        } finally {
+            DbUtils.closeSilently(cursor);
+        }
+    }
+
+    private SQLiteDatabase getDatabase() {
+        SQLiteDatabase db = myContext.getDatabase();
+        assertNotNull("Database", db);
+        return db;
+    }
+
+    @Override
+    public void publish(String progress) {
+        // Not needed
+    }
+}
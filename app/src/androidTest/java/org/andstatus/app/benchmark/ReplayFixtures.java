@@ -0,0 +1,239 @@
+/*
+ * Copyright (c) 2017 yvolk (Yuri Volkov), http://yurivolkov.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.andstatus.app.benchmark;
+
+import android.content.Context;
+import android.net.Uri;
+import android.support.annotation.NonNull;
+import android.text.TextUtils;
+
+import org.andstatus.app.origin.OriginType;
+import org.andstatus.app.util.MyLog;
+import org.andstatus.app.util.RawResourceUtils;
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+import org.json.JSONTokener;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Recorded responses of Twitter-like, Mastodon and Pump.io servers, which are served by {@link ReplayHttpConnection}.
+ * Every time a timeline is requested, ids of its messages are changed, so each response brings new messages,
+ * while authors are the same, as on a real server
+ * @author yvolk@yurivolkov.com
+ */
+public class ReplayFixtures {
+    /** Ids of messages of different responses don't intersect for this number of responses */
+    private static final long ID_STEP = 1000000000L;
+    private static final Set<String> ID_KEYS = new HashSet<>(Arrays.asList("id", "id_str",
+            "in_reply_to_status_id", "in_reply_to_status_id_str", "in_reply_to_id"));
+    /** Objects under these keys are users or links, their ids are kept */
+    private static final Set<String> KEYS_TO_KEEP = new HashSet<>(Arrays.asList("user", "account", "actor",
+            "author", "mentions", "entities", "to", "cc", "bto", "bcc", "links", "generator", "application"));
+    private static final String EMPTY_ARRAY = "[]";
+
+    private static volatile ReplayFixtures instance = null;
+
+    private final List<Route> routes = new ArrayList<>();
+    private final AtomicLong responsesCounter = new AtomicLong();
+    private final AtomicLong unmatchedCounter = new AtomicLong();
+
+    private static class Route {
+        final OriginType originType;
+        final String pathPart;
+        final String fixture;
+        final boolean isUser;
+        final AtomicLong counter = new AtomicLong();
+
+        Route(OriginType originType, String pathPart, String fixture, boolean isUser) {
+            this.originType = originType;
+            this.pathPart = pathPart;
+            this.fixture = fixture;
+            this.isUser = isUser;
+        }
+
+        String getName() {
+            return originType.getTitle() + " " + pathPart;
+        }
+    }
+
+    private ReplayFixtures() {
+        // Use load()
+    }
+
+    /** @param context of the test application, which contains the raw resources */
+    public static ReplayFixtures load(Context context) throws IOException {
+        ReplayFixtures fixtures = new ReplayFixtures();
+        fixtures.add(OriginType.TWITTER, "statuses/home_timeline",
+                RawResourceUtils.getString(context, org.andstatus.app.tests.R.raw.twitter_home_timeline), false);
+        fixtures.add(OriginType.TWITTER, "statuses/mentions",
+                RawResourceUtils.getString(context, org.andstatus.app.tests.R.raw.twitter_home_timeline), false);
+        fixtures.add(OriginType.GNUSOCIAL, "statuses/home_timeline",
+                RawResourceUtils.getString(context, org.andstatus.app.tests.R.raw.quitter_home), false);
+        fixtures.add(OriginType.GNUSOCIAL, "statuses/mentions",
+                RawResourceUtils.getString(context, org.andstatus.app.tests.R.raw.quitter_home), false);
+        fixtures.add(OriginType.GNUSOCIAL, "statusnet/conversation",
+                RawResourceUtils.getString(context, org.andstatus.app.tests.R.raw.quitter_conversation), false);
+        fixtures.add(OriginType.GNUSOCIAL, "followers/ids",
+                RawResourceUtils.getString(context, org.andstatus.app.tests.R.raw.twitter_followers_ids), false);
+        fixtures.add(OriginType.GNUSOCIAL, "users/show",
+                RawResourceUtils.getString(context, org.andstatus.app.tests.R.raw.verify_credentials_twitter), true);
+        fixtures.add(OriginType.MASTODON, "timelines/home",
+                RawResourceUtils.getString(context, org.andstatus.app.tests.R.raw.mastodon_home_timeline), false);
+        fixtures.add(OriginType.MASTODON, "notifications",
+                RawResourceUtils.getString(context, org.andstatus.app.tests.R.raw.mastodon_notifications), false);
+        fixtures.add(OriginType.MASTODON, "/context",
+                RawResourceUtils.getString(context, org.andstatus.app.tests.R.raw.mastodon_get_conversation), false);
+        fixtures.add(OriginType.PUMPIO, "/inbox",
+                RawResourceUtils.getString(context, org.andstatus.app.tests.R.raw.pumpio_user_t131t_inbox), false);
+        fixtures.add(OriginType.PUMPIO, "/followers",
+                RawResourceUtils.getString(context, org.andstatus.app.tests.R.raw.pumpio_user_t131t_following), false);
+        fixtures.add(OriginType.PUMPIO, "/following",
+                RawResourceUtils.getString(context, org.andstatus.app.tests.R.raw.pumpio_user_t131t_following), false);
+        instance = fixtures;
+        return fixtures;
+    }
+
+    private void add(OriginType originType, String pathPart, String fixture, boolean isUser) {
+        routes.add(new Route(originType, pathPart, fixture, isUser));
+    }
+
+    @NonNull
+    static ReplayFixtures get() {
+        ReplayFixtures fixtures = instance;
+        if (fixtures == null) {
+            throw new IllegalStateException("Replay fixtures are not loaded");
+        }
+        return fixtures;
+    }
+
+    public static void forget() {
+        instance = null;
+    }
+
+    @NonNull
+    String respond(OriginType originType, String url) {
+        for (Route route : routes) {
+            if (route.originType == originType && url.contains(route.pathPart)) {
+                route.counter.incrementAndGet();
+                long responseNumber = responsesCounter.incrementAndGet();
+                return route.isUser ? userResponse(route.fixture, url) : rewriteIds(route.fixture, responseNumber);
+            }
+        }
+        unmatchedCounter.incrementAndGet();
+        MyLog.v(this, "No recorded response for " + originType.getTitle() + " " + url);
+        return EMPTY_ARRAY;
+    }
+
+    /** The recorded user with the id and the name, requested in the url */
+    private String userResponse(String fixture, String url) {
+        String userId = Uri.parse(url).getQueryParameter("user_id");
+        if (TextUtils.isEmpty(userId)) {
+            return fixture;
+        }
+        try {
+            JSONObject jso = new JSONObject(fixture);
+            jso.put("id", Long.parseLong(userId));
+            jso.put("id_str", userId);
+            jso.put("screen_name", "replayed" + userId);
+            jso.put("name", "Replayed " + userId);
+            return jso.toString();
+        } catch (JSONException | NumberFormatException e) {
+            MyLog.d(this, "userResponse " + url, e);
+            return fixture;
+        }
+    }
+
+    private String rewriteIds(String fixture, long responseNumber) {
+        try {
+            Object json = new JSONTokener(fixture).nextValue();
+            rewriteIds(json, responseNumber);
+            return json.toString();
+        } catch (JSONException e) {
+            MyLog.d(this, "rewriteIds", e);
+            return fixture;
+        }
+    }
+
+    private static void rewriteIds(Object json, long responseNumber) throws JSONException {
+        if (json instanceof JSONArray) {
+            JSONArray array = (JSONArray) json;
+            for (int ind = 0; ind < array.length(); ind++) {
+                rewriteIds(array.get(ind), responseNumber);
+            }
+        } else if (json instanceof JSONObject) {
+            JSONObject jso = (JSONObject) json;
+            List<String> keys = new ArrayList<>();
+            for (java.util.Iterator<String> iterator = jso.keys(); iterator.hasNext(); ) {
+                keys.add(iterator.next());
+            }
+            for (String key : keys) {
+                if (KEYS_TO_KEEP.contains(key) || jso.isNull(key)) {
+                    continue;
+                }
+                Object value = jso.get(key);
+                if (ID_KEYS.contains(key)) {
+                    jso.put(key, rewriteId(value, responseNumber));
+                } else {
+                    rewriteIds(value, responseNumber);
+                }
+            }
+        }
+    }
+
+    private static Object rewriteId(Object value, long responseNumber) {
+        if (value instanceof Number) {
+            return ((Number) value).longValue() + responseNumber * ID_STEP;
+        }
+        String id = value.toString();
+        if (TextUtils.isDigitsOnly(id) && !TextUtils.isEmpty(id)) {
+            try {
+                return String.valueOf(Long.parseLong(id) + responseNumber * ID_STEP);
+            } catch (NumberFormatException e) {
+                // Use the suffix below
+            }
+        }
+        return id + "-r" + responseNumber;
+    }
+
+    long getResponsesCount() {
+        return responsesCounter.get();
+    }
+
+    /** Number of responses by route and the number of requests, which had no recorded response */
+    JSONObject toJson() throws JSONException {
+        Map<String, Long> counts = new LinkedHashMap<>();
+        for (Route route : routes) {
+            counts.put(route.getName(), route.counter.get());
+        }
+        JSONObject jso = new JSONObject();
+        for (Map.Entry<String, Long> entry : counts.entrySet()) {
+            jso.put(entry.getKey(), entry.getValue());
+        }
+        jso.put("unmatched", unmatchedCounter.get());
+        return jso;
+    }
+}
@@ -0,0 +1,39 @@
+/*
+ * Copyright (c) 2017 yvolk (Yuri Volkov), http://yurivolkov.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.andstatus.app.benchmark;
+
+import org.andstatus.app.net.http.HttpConnectionMock;
+import org.andstatus.app.net.http.HttpReadResult;
+
+/**
+ * Serves {@link ReplayFixtures} without a network delay.
+ * A new instance is created for each account, see {@link org.andstatus.app.context.TestSuite#setHttpConnectionMockClass(Class)}
+ * @author yvolk@yurivolkov.com
+ */
+public class ReplayHttpConnection extends HttpConnectionMock {
+
+    public ReplayHttpConnection() {
+        setNetworkDelayMs(0);
+    }
+
+    @Override
+    protected String getResponse(HttpReadResult result) {
+        // Results of previous requests are not needed, and they would accumulate during a long run
+        clearPostedData();
+        return ReplayFixtures.get().respond(data.getOriginType(), result.getUrl());
+    }
+}
@@ -0,0 +1,238 @@
+/*
+ * Copyright (c) 2017 yvolk (Yuri Volkov), http://yurivolkov.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.andstatus.app.benchmark;
+
+import android.database.Cursor;
+import android.support.test.InstrumentationRegistry;
+import android.text.TextUtils;
+import android.util.Log;
+
+import org.andstatus.app.account.MyAccount;
+import org.andstatus.app.context.MyContext;
+import org.andstatus.app.context.MyContextHolder;
+import org.andstatus.app.context.MyPreferences;
+import org.andstatus.app.context.TestSuite;
+import org.andstatus.app.data.DbUtils;
+import org.andstatus.app.database.MsgTable;
+import org.andstatus.app.origin.OriginType;
+import org.andstatus.app.os.ExecutionMetrics;
+import org.andstatus.app.service.CommandData;
+import org.andstatus.app.service.CommandEnum;
+import org.andstatus.app.service.CommandQueue;
+import org.andstatus.app.service.ConnectionState;
+import org.andstatus.app.service.MyServiceEvent;
+import org.andstatus.app.service.MyServiceEventsListener;
+import org.andstatus.app.service.MyServiceEventsReceiver;
+import org.andstatus.app.service.MyServiceManager;
+import org.andstatus.app.timeline.TimelineType;
+import org.andstatus.app.util.MyLog;
+import org.andstatus.app.util.SharedPreferencesUtil;
+import org.json.JSONException;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assume.assumeTrue;
+
+/**
+ * Measures synchronization end to end: commands go through {@link org.andstatus.app.service.MyService},
+ * responses are parsed and saved, as during real sync, but they are served from recorded JSON,
+ * see {@link ReplayFixtures}, so no network is needed and the numbers are repeatable.
+ * Skipped, unless the number of sync cycles is passed as an instrumentation argument, e.g. "-e replayCycles 50".
+ * Downloaded messages are added to the test database, so run it alone, and not together with functional tests.
+ * The report has messages saved per second and timing of each phase of the command execution,
+ * collected by {@link ExecutionMetrics}
+ * @author yvolk@yurivolkov.com
+ */
+public class SyncReplayBenchmark implements MyServiceEventsListener {
+    public static final String ARGUMENT_CYCLES = "replayCycles";
+    /** Followers and conversations are requested in every n-th cycle only, as during real usage */
+    private static final int OTHER_COMMANDS_EVERY_CYCLES = 5;
+    private static final long CYCLE_TIMEOUT_MS = TimeUnit.MINUTES.toMillis(3);
+
+    private MyContext myContext;
+    private int cyclesCount = 0;
+    private final List<MyAccount> accounts = new ArrayList<>();
+    private final Set<CommandData> commandsInProgress = new HashSet<>();
+    private MyServiceEventsReceiver serviceConnector = null;
+    private String minLogLevel = "";
+    private ReplayFixtures fixtures;
+    private BenchmarkReport report;
+
+    @Before
+    public void setUp() throws Exception {
+        String argument = InstrumentationRegistry.getArguments().getString(ARGUMENT_CYCLES);
+        cyclesCount = TextUtils.isEmpty(argument) ? 0 : Integer.parseInt(argument);
+        assumeTrue("Benchmark is turned on by the '" + ARGUMENT_CYCLES + "' argument", cyclesCount > 0);
+
+        TestSuite.initializeWithData(this);
+        minLogLevel = SharedPreferencesUtil.getString(MyPreferences.KEY_MIN_LOG_LEVEL, "");
+        MyLog.setMinLogLevel(Log.INFO);
+        fixtures = ReplayFixtures.load(InstrumentationRegistry.getInstrumentation().getContext());
+
+        MyServiceManager.setServiceUnavailable();
+        MyServiceManager.stopService();
+        TestSuite.setHttpConnectionMockClass(ReplayHttpConnection.class);
+        TestSuite.getMyContextForTest().setConnectionState(ConnectionState.WIFI);
+        MyContextHolder.get().setExpired();
+        myContext = MyContextHolder.initialize(MyContextHolder.get().context(), this);
+        assertTrue("Context is ready " + myContext, myContext.isReady());
+        for (MyAccount ma : myContext.persistentAccounts().list()) {
+            if (ma.isValidAndSucceeded()) {
+                accounts.add(ma);
+            }
+        }
+        assertTrue("No accounts", !accounts.isEmpty());
+
+        new CommandQueue().clear();
+        serviceConnector = new MyServiceEventsReceiver(myContext, this);
+        serviceConnector.registerReceiver(myContext.context());
+        assertTrue(TestSuite.setAndWaitForIsInForeground(false));
+        MyServiceManager.setServiceAvailable();
+        ExecutionMetrics.forget();
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        if (cyclesCount <= 0) {
+            return;
+        }
+        new CommandQueue().clear();
+        if (serviceConnector != null) {
+            serviceConnector.unregisterReceiver(myContext.context());
+        }
+        TestSuite.setHttpConnectionMockClass(null);
+        TestSuite.getMyContextForTest().setConnectionState(ConnectionState.UNKNOWN);
+        ReplayFixtures.forget();
+        SharedPreferencesUtil.putString(MyPreferences.KEY_MIN_LOG_LEVEL, minLogLevel);
+        MyLog.forget();
+        MyContextHolder.get().setExpired();
+        MyContextHolder.initialize(myContext.context(), this);
+    }
+
+    @Test
+    public void testSync() throws JSONException {
+        report = new BenchmarkReport("sync_replay")
+                .setParameter("cycles", cyclesCount)
+                .setParameter("accounts", accounts.size());
+        long messagesBefore = countMessages();
+        long startedNanos = System.nanoTime();
+        for (int cycle = 0; cycle < cyclesCount; cycle++) {
+            long responsesBefore = fixtures.getResponsesCount();
+            long cycleStartedNanos = System.nanoTime();
+            for (MyAccount ma : accounts) {
+                send(CommandData.newTimelineCommand(CommandEnum.FETCH_TIMELINE, ma, TimelineType.HOME));
+                send(CommandData.newTimelineCommand(CommandEnum.FETCH_TIMELINE, ma, TimelineType.MENTIONS));
+                if (cycle % OTHER_COMMANDS_EVERY_CYCLES == 0) {
+                    sendOtherCommands(ma);
+                }
+            }
+            assertTrue("Cycle " + cycle + " completed in " + CYCLE_TIMEOUT_MS + " ms", waitForCommandsCompleted());
+            report.metric("cycle").addSince(cycleStartedNanos, fixtures.getResponsesCount() - responsesBefore);
+            MyLog.i(this, "Cycle " + cycle + " of " + cyclesCount + " completed");
+        }
+        long durationNanos = System.nanoTime() - startedNanos;
+        long messagesSaved = countMessages() - messagesBefore;
+        report.metric("messages saved").add(durationNanos, messagesSaved);
+        report.setParameter("messagesSaved", messagesSaved)
+                .setParameter("responses", fixtures.toJson())
+                .setParameter("phases", ExecutionMetrics.toJson());
+        assertTrue("No messages saved", messagesSaved > 0);
+        File file = report.save();
+        assertNotNull("Report saved", file);
+    }
+
+    private void sendOtherCommands(MyAccount ma) {
+        OriginType originType = ma.getOrigin().getOriginType();
+        if (originType == OriginType.PUMPIO || originType == OriginType.GNUSOCIAL) {
+            send(CommandData.newUserCommand(CommandEnum.GET_FOLLOWERS, ma, ma.getOrigin(), ma.getUserId(),
+                    ma.getUsername()));
+        }
+        if (originType == OriginType.MASTODON || originType == OriginType.GNUSOCIAL) {
+            long msgId = selectLatestMessage(ma);
+            if (msgId != 0) {
+                send(CommandData.newItemCommand(CommandEnum.GET_CONVERSATION, ma, msgId));
+            }
+        }
+    }
+
+    private void send(CommandData commandData) {
+        synchronized (commandsInProgress) {
+            commandsInProgress.add(commandData);
+        }
+        MyServiceManager.sendCommand(commandData);
+    }
+
+    private boolean waitForCommandsCompleted() {
+        final String method = "waitForCommandsCompleted";
+        long endTime = System.currentTimeMillis() + CYCLE_TIMEOUT_MS;
+        while (System.currentTimeMillis() < endTime) {
+            synchronized (commandsInProgress) {
+                if (commandsInProgress.isEmpty()) {
+                    return true;
+                }
+            }
+            if (DbUtils.waitMs(method, 20)) {
+                break;
+            }
+        }
+        MyLog.i(this, method + "; not completed: " + commandsInProgress);
+        return false;
+    }
+
+    @Override
+    public void onReceive(CommandData commandData, MyServiceEvent myServiceEvent) {
+        if (myServiceEvent == MyServiceEvent.AFTER_EXECUTING_COMMAND) {
+            synchronized (commandsInProgress) {
+                commandsInProgress.remove(commandData);
+            }
+        }
+    }
+
+    /** The replayed responses are the same in each run, so is the latest message */
+    private long selectLatestMessage(MyAccount ma) {
+        String sql = "SELECT " + MsgTable._ID + " FROM " + MsgTable.TABLE_NAME
+                + " WHERE " + MsgTable.ORIGIN_ID + "=" + ma.getOriginId()
+                + " ORDER BY " + MsgTable._ID + " DESC LIMIT 1";
+        Cursor cursor = null;
+        try {
+            cursor = myContext.getDatabase().rawQuery(sql, null);
+            return cursor.moveToFirst() ? cursor.getLong(0) : 0;
+        } finally {
+            DbUtils.closeSilently(cursor);
+        }
+    }
+
+    private long countMessages() {
+        Cursor cursor = null;
+        try {
+            cursor = myContext.getDatabase().rawQuery("SELECT COUNT(*) FROM " + MsgTable.TABLE_NAME, null);
+            return cursor.moveToFirst() ? cursor.getLong(0) : 0;
+        } finally {
+            DbUtils.closeSilently(cursor);
+        }
+    }
+}
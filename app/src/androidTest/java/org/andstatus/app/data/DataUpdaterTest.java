@@ -41,13 +41,12 @@ import org.andstatus.app.service.CommandEnum;
 import org.andstatus.app.service.CommandExecutionContext;
 import org.andstatus.app.timeline.Timeline;
 import org.andstatus.app.timeline.TimelineType;
+import org.andstatus.app.util.LongSet;
 import org.andstatus.app.util.SelectionAndArgs;
 import org.andstatus.app.util.TriState;
 import org.junit.Before;
 import org.junit.Test;
 
-import java.util.Set;
-
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertTrue;
@@ -143,9 +142,9 @@ public class DataUpdaterTest {
                 cursor != null && cursor.getCount() > 0);
         cursor.close();
 
-        Set<Long> friendsIds = MyQuery.getFriendsIds(ma.getUserId());
+        LongSet friendsIds = MyQuery.getFriendsIds(ma.getUserId());
         MyContextHolder.get().persistentAccounts().initialize();
-        for (long id : friendsIds) {
+        for (long id : friendsIds.toArray()) {
             assertTrue("isFriend: " + id, MyContextHolder.get().persistentAccounts().isMeOrMyFriend(id));
         }
     }
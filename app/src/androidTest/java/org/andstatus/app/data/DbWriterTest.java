@@ -0,0 +1,104 @@
+package org.andstatus.app.data;
+
+import android.content.ContentValues;
+import android.database.Cursor;
+import android.database.sqlite.SQLiteDatabase;
+import android.database.sqlite.SQLiteException;
+
+import org.andstatus.app.context.MyContext;
+import org.andstatus.app.context.MyContextHolder;
+import org.andstatus.app.context.TestSuite;
+import org.andstatus.app.database.TimelineTable;
+import org.andstatus.app.timeline.Timeline;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class DbWriterTest {
+    private MyContext myContext;
+
+    @Before
+    public void setUp() throws Exception {
+        TestSuite.initializeWithData(this);
+        myContext = MyContextHolder.get();
+    }
+
+    @Test
+    public void testCoalescedUpdates() {
+        long timelineId = getSavedTimelineId();
+        long visibleY = getVisibleY(timelineId);
+
+        DbWriter.Handle handle1 = DbWriter.update(myContext, TimelineTable.TABLE_NAME, timelineId,
+                visibleYValues(visibleY + 1));
+        DbWriter.Handle handle2 = DbWriter.update(myContext, TimelineTable.TABLE_NAME, timelineId,
+                visibleYValues(visibleY + 2));
+        assertSame("Updates of the same row are coalesced", handle1, handle2);
+        assertTrue("Written", handle2.await(10, TimeUnit.SECONDS));
+        assertEquals("The latest value is written", visibleY + 2, getVisibleY(timelineId));
+
+        DbWriter.update(myContext, TimelineTable.TABLE_NAME, timelineId, visibleYValues(visibleY));
+        DbWriter.flush();
+        assertEquals("Flushed", visibleY, getVisibleY(timelineId));
+    }
+
+    @Test
+    public void testFailedWriteDoesNotRollBackOthers() {
+        long timelineId = getSavedTimelineId();
+        long visibleY = getVisibleY(timelineId);
+        final AtomicBoolean failureReported = new AtomicBoolean();
+        DbWriter.Handle failing = DbWriter.submit(new DbWriter.Write(myContext, "failing") {
+            @Override
+            protected boolean write(SQLiteDatabase db) {
+                throw new SQLiteException("Write failed");
+            }
+
+            @Override
+            protected void onFailed() {
+                failureReported.set(true);
+            }
+        });
+        DbWriter.Handle handle = DbWriter.update(myContext, TimelineTable.TABLE_NAME, timelineId,
+                visibleYValues(visibleY + 3));
+        assertTrue("Written after the failure of the other write", handle.await(10, TimeUnit.SECONDS));
+        assertFalse("Failed", failing.await(10, TimeUnit.SECONDS));
+        assertTrue("Failure reported", failureReported.get());
+        assertEquals(visibleY + 3, getVisibleY(timelineId));
+
+        assertTrue("Synchronous update", DbWriter.updateNow(myContext, TimelineTable.TABLE_NAME, timelineId,
+                visibleYValues(visibleY)));
+        assertEquals(visibleY, getVisibleY(timelineId));
+    }
+
+    private long getSavedTimelineId() {
+        for (Timeline timeline : myContext.persistentTimelines().values()) {
+            if (timeline.getId() != 0) {
+                return timeline.getId();
+            }
+        }
+        throw new AssertionError("No saved timelines");
+    }
+
+    private static ContentValues visibleYValues(long visibleY) {
+        ContentValues values = new ContentValues();
+        values.put(TimelineTable.VISIBLE_Y, visibleY);
+        return values;
+    }
+
+    private long getVisibleY(long timelineId) {
+        Cursor cursor = null;
+        try {
+            cursor = myContext.getDatabase().rawQuery("SELECT " + TimelineTable.VISIBLE_Y
+                    + " FROM " + TimelineTable.TABLE_NAME + " WHERE " + TimelineTable._ID + "=" + timelineId, null);
+            return cursor.moveToFirst() ? cursor.getLong(0) : 0;
+        } finally {
+            DbUtils.closeSilently(cursor);
+        }
+    }
+}
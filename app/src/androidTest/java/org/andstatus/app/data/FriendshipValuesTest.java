@@ -0,0 +1,106 @@
+package org.andstatus.app.data;
+
+import android.database.Cursor;
+import android.database.sqlite.SQLiteDatabase;
+
+import org.andstatus.app.context.MyContextHolder;
+import org.andstatus.app.context.TestSuite;
+import org.andstatus.app.database.FriendshipTable;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+
+public class FriendshipValuesTest {
+    /** Ids of users, which don't exist */
+    private static final long USER_ID_BASE = 2000000000L;
+    private static final int FRIENDS_COUNT = 200;
+    private static final int THREADS_COUNT = 2;
+    private static final int PASSES = 5;
+    private SQLiteDatabase db;
+
+    @Before
+    public void setUp() throws Exception {
+        TestSuite.initializeWithData(this);
+        db = MyContextHolder.get().getDatabase();
+        assertNotNull(db);
+        deleteTestRows();
+    }
+
+    @After
+    public void tearDown() {
+        deleteTestRows();
+    }
+
+    @Test
+    public void testConcurrentUpdates() throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS_COUNT);
+        try {
+            List<Future<Void>> futures = new ArrayList<>();
+            for (int threadIndex = 0; threadIndex < THREADS_COUNT; threadIndex++) {
+                final long userId = USER_ID_BASE + threadIndex;
+                futures.add(executor.submit(new Callable<Void>() {
+                    @Override
+                    public Void call() throws Exception {
+                        for (int pass = 0; pass < PASSES; pass++) {
+                            boolean followed = pass % 2 == 0;
+                            FriendshipValues.update(db, newFriendships(userId, followed));
+                            // Single updates, concurrent with bulk updates of the other thread
+                            FriendshipValues single = new FriendshipValues(userId, USER_ID_BASE + 1000);
+                            single.setFollowed(followed);
+                            single.update(db);
+                        }
+                        return null;
+                    }
+                }));
+            }
+            for (Future<Void> future : futures) {
+                future.get(60, TimeUnit.SECONDS);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+        boolean followedAtLastPass = (PASSES - 1) % 2 == 0;
+        for (int threadIndex = 0; threadIndex < THREADS_COUNT; threadIndex++) {
+            assertEquals("Friends of the thread " + threadIndex, followedAtLastPass ? FRIENDS_COUNT + 1 : 0,
+                    countFollowed(USER_ID_BASE + threadIndex));
+        }
+    }
+
+    private static List<FriendshipValues> newFriendships(long userId, boolean followed) {
+        List<FriendshipValues> friendships = new ArrayList<>();
+        for (int ind = 1; ind <= FRIENDS_COUNT; ind++) {
+            FriendshipValues friendship = new FriendshipValues(userId, USER_ID_BASE + 100 + ind);
+            friendship.setFollowed(followed);
+            friendships.add(friendship);
+        }
+        return friendships;
+    }
+
+    private long countFollowed(long userId) {
+        Cursor cursor = null;
+        try {
+            cursor = db.rawQuery("SELECT COUNT(*) FROM " + FriendshipTable.TABLE_NAME
+                    + " WHERE " + FriendshipTable.USER_ID + "=" + userId
+                    + " AND " + FriendshipTable.FOLLOWED + "=1", null);
+            return cursor.moveToFirst() ? cursor.getLong(0) : 0;
+        } finally {
+            DbUtils.closeSilently(cursor);
+        }
+    }
+
+    private void deleteTestRows() {
+        db.execSQL("DELETE FROM " + FriendshipTable.TABLE_NAME
+                + " WHERE " + FriendshipTable.USER_ID + ">=" + USER_ID_BASE);
+    }
+}
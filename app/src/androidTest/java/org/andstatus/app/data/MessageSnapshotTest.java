@@ -0,0 +1,65 @@
+package org.andstatus.app.data;
+
+import android.content.ContentValues;
+
+import org.andstatus.app.account.MyAccount;
+import org.andstatus.app.context.DemoData;
+import org.andstatus.app.context.MyContextHolder;
+import org.andstatus.app.context.TestSuite;
+import org.andstatus.app.database.UserTable;
+import org.andstatus.app.net.social.MbMessage;
+import org.andstatus.app.net.social.MbUser;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class MessageSnapshotTest {
+
+    @Before
+    public void setUp() throws Exception {
+        TestSuite.initializeWithData(this);
+    }
+
+    @Test
+    public void testReplySnapshot() {
+        MyAccount ma = DemoData.getMyAccount(DemoData.CONVERSATION_ACCOUNT_NAME);
+        assertTrue(ma.isValid());
+        DemoMessageInserter mi = new DemoMessageInserter(ma);
+        MbUser accountUser = ma.toPartialUser();
+        MbMessage msg1 = mi.buildMessage(accountUser, "Message to be replied", null, null, DownloadStatus.LOADED);
+        long msg1Id = mi.onActivity(msg1.update(accountUser));
+
+        MbUser author2 = mi.buildUserFromOid("acct:s2." + DemoData.TESTRUN_UID + "@pump.example.com");
+        MbMessage reply = mi.buildMessage(author2, "@" + accountUser.getUserName()
+                + " Replying to the snapshot", msg1, null, DownloadStatus.LOADED);
+        long replyId = mi.onActivity(reply.update(accountUser));
+
+        MessageSnapshot snapshot = MessageSnapshot.get(replyId);
+        assertEquals(snapshot.toString(), replyId, snapshot.msgId);
+        assertEquals(snapshot.toString(), ma.getOriginId(), snapshot.originId);
+        assertEquals(snapshot.toString(), DownloadStatus.LOADED, snapshot.status);
+        assertEquals(snapshot.toString(), reply.getBody(), snapshot.body);
+        assertEquals(snapshot.toString(), author2.getWebFingerId(), snapshot.authorWebFingerId);
+        assertEquals(snapshot.toString(), msg1Id, snapshot.inReplyToMsgId);
+        assertEquals(snapshot.toString(), msg1.getBody(), snapshot.inReplyToBody);
+        assertSame("Cached", snapshot, MessageSnapshot.get(replyId));
+
+        MessageSnapshot.forget(msg1Id);
+        MessageSnapshot snapshot2 = MessageSnapshot.get(replyId);
+        assertNotSame("A reply is forgotten with its in-reply-to message", snapshot, snapshot2);
+
+        ContentValues values = new ContentValues();
+        String webFingerId = "renamed." + author2.getWebFingerId();
+        values.put(UserTable.WEBFINGER_ID, webFingerId);
+        MyContextHolder.get().context().getContentResolver().update(
+                MatchedUri.getUserUri(ma.getUserId(), snapshot2.authorId), values, null, null);
+        assertEquals("Author was updated", webFingerId, MessageSnapshot.get(replyId).authorWebFingerId);
+
+        MyContextHolder.get().context().getContentResolver().delete(MatchedUri.getMsgUri(0, replyId), null, null);
+        assertTrue("Deleted message", MessageSnapshot.get(replyId).isEmpty());
+    }
+}
@@ -0,0 +1,54 @@
+package org.andstatus.app.data;
+
+import android.database.Cursor;
+import android.database.sqlite.SQLiteDatabase;
+
+import org.andstatus.app.backup.ProgressLogger;
+import org.andstatus.app.context.MyContextHolder;
+import org.andstatus.app.context.TestSuite;
+import org.andstatus.app.database.MsgTable;
+import org.andstatus.app.util.MyHtml;
+import org.andstatus.app.util.SharedPreferencesUtil;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class MyDataCheckerSearchIndexTest {
+
+    @Before
+    public void setUp() throws Exception {
+        TestSuite.initializeWithData(this);
+    }
+
+    @Test
+    public void testFixAndContinueAfterCheckpoint() {
+        SQLiteDatabase db = MyContextHolder.get().getDatabase();
+        long msgId = 0;
+        Cursor cursor = null;
+        try {
+            cursor = db.rawQuery("SELECT MAX(" + MsgTable._ID + ") FROM " + MsgTable.TABLE_NAME
+                    + " WHERE " + MsgTable.BODY + " NOT NULL", null);
+            if (cursor.moveToFirst()) {
+                msgId = cursor.getLong(0);
+            }
+        } finally {
+            DbUtils.closeSilently(cursor);
+        }
+        assertTrue("No messages", msgId > 0);
+        String expected = MyHtml.getBodyToSearch(MyQuery.msgIdToStringColumnValue(MsgTable.BODY, msgId));
+        String wrong = "wrong body to search";
+        db.execSQL("UPDATE " + MsgTable.TABLE_NAME + " SET " + MsgTable.BODY_TO_SEARCH + "='" + wrong + "'"
+                + " WHERE " + MsgTable._ID + "=" + msgId);
+
+        SharedPreferencesUtil.putLong(MyDataCheckerSearchIndex.KEY_CHECKED_ID, msgId);
+        new MyDataCheckerSearchIndex(MyContextHolder.get(), ProgressLogger.getEmpty()).fixData();
+        assertEquals("Checked messages are skipped", wrong,
+                MyQuery.msgIdToStringColumnValue(MsgTable.BODY_TO_SEARCH, msgId));
+        assertEquals("Checkpoint is removed", 0, SharedPreferencesUtil.getLong(MyDataCheckerSearchIndex.KEY_CHECKED_ID));
+
+        new MyDataCheckerSearchIndex(MyContextHolder.get(), ProgressLogger.getEmpty()).fixData();
+        assertEquals("Fixed", expected, MyQuery.msgIdToStringColumnValue(MsgTable.BODY_TO_SEARCH, msgId));
+    }
+}
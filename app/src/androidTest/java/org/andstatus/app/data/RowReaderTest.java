@@ -0,0 +1,111 @@
+package org.andstatus.app.data;
+
+import android.database.Cursor;
+import android.net.Uri;
+import android.provider.BaseColumns;
+
+import org.andstatus.app.account.MyAccount;
+import org.andstatus.app.context.DemoData;
+import org.andstatus.app.context.TestSuite;
+import org.andstatus.app.database.UserTable;
+import org.andstatus.app.user.UserListType;
+import org.andstatus.app.util.SelectionAndArgs;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class RowReaderTest {
+    private static final int CHUNK_SIZE = 3;
+    private Uri uri;
+    private final String[] projection = new String[]{BaseColumns._ID, UserTable.USERNAME};
+
+    private static class UserRow {
+        final long userId;
+        final String userName;
+
+        UserRow(long userId, String userName) {
+            this.userId = userId;
+            this.userName = userName;
+        }
+    }
+
+    @Before
+    public void setUp() throws Exception {
+        TestSuite.initializeWithData(this);
+        MyAccount ma = DemoData.getMyAccount(DemoData.CONVERSATION_ACCOUNT_NAME);
+        assertTrue(ma.isValid());
+        uri = MatchedUri.getUserListUri(ma.getUserId(), UserListType.USERS, ma.getOriginId(), 0, "");
+    }
+
+    @Test
+    public void testReadInChunks() {
+        List<Long> all = new ArrayList<>();
+        Cursor cursor = null;
+        try {
+            cursor = MyProvider.queryDatabase(uri, projection, null, null, UserListSql.getSortOrder(), null);
+            while (cursor.moveToNext()) {
+                all.add(DbUtils.getLong(cursor, BaseColumns._ID));
+            }
+        } finally {
+            DbUtils.closeSilently(cursor);
+        }
+        assertTrue("Users: " + all.size(), all.size() > CHUNK_SIZE * 2);
+
+        final List<Long> chunked = new ArrayList<>();
+        long rowsCount = newReader().read(0, new RowReader.RowConsumer<UserRow>() {
+            @Override
+            public boolean accept(UserRow row) {
+                chunked.add(row.userId);
+                return true;
+            }
+        });
+        assertEquals("Users read in chunks", all, chunked);
+        assertEquals(all.size(), rowsCount);
+
+        chunked.clear();
+        rowsCount = newReader().read(CHUNK_SIZE + 1, new RowReader.RowConsumer<UserRow>() {
+            @Override
+            public boolean accept(UserRow row) {
+                chunked.add(row.userId);
+                return true;
+            }
+        });
+        assertEquals("Limited number of rows", CHUNK_SIZE + 1, rowsCount);
+        assertEquals(all.subList(0, CHUNK_SIZE + 1), chunked);
+
+        chunked.clear();
+        newReader().read(0, new RowReader.RowConsumer<UserRow>() {
+            @Override
+            public boolean accept(UserRow row) {
+                chunked.add(row.userId);
+                return chunked.size() < CHUNK_SIZE * 2;
+            }
+        });
+        assertEquals("Stopped by the consumer", all.subList(0, CHUNK_SIZE * 2), chunked);
+    }
+
+    private RowReader<UserRow> newReader() {
+        return new RowReader<UserRow>(CHUNK_SIZE) {
+            @Override
+            protected Cursor queryChunk(UserRow lastRow, int limit) {
+                SelectionAndArgs sa = new SelectionAndArgs();
+                if (lastRow != null) {
+                    UserListSql.addLowerBound(sa, lastRow.userName, lastRow.userId);
+                }
+                return MyProvider.queryDatabase(uri, projection, sa.selection, sa.selectionArgs,
+                        UserListSql.getSortOrder(), String.valueOf(limit));
+            }
+
+            @Override
+            protected UserRow fromCursor(Cursor cursor) {
+                return new UserRow(DbUtils.getLong(cursor, BaseColumns._ID),
+                        DbUtils.getString(cursor, UserTable.USERNAME));
+            }
+        };
+    }
+}
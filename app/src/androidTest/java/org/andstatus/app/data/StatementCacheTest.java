@@ -0,0 +1,49 @@
+package org.andstatus.app.data;
+
+import android.database.sqlite.SQLiteDatabase;
+
+import org.andstatus.app.context.MyContextHolder;
+import org.andstatus.app.context.TestSuite;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+
+public class StatementCacheTest {
+    private static final String SQL = "UPDATE friendship SET followed=? WHERE user_id=? AND friend_id=?";
+    private SQLiteDatabase db;
+
+    @Before
+    public void setUp() throws Exception {
+        TestSuite.initializeWithData(this);
+        db = MyContextHolder.get().getDatabase();
+        assertNotNull(db);
+    }
+
+    @Test
+    public void testCacheOfThread() throws Exception {
+        final StatementCache cache = StatementCache.ofThread(db);
+        assertSame("Cache of the thread", cache, StatementCache.ofThread(db));
+        assertSame("Statement is compiled once", cache.get(SQL), StatementCache.ofThread(db).get(SQL));
+
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            StatementCache otherCache = executor.submit(new Callable<StatementCache>() {
+                @Override
+                public StatementCache call() throws Exception {
+                    return StatementCache.ofThread(db);
+                }
+            }).get(10, TimeUnit.SECONDS);
+            assertNotSame("Cache of another thread", cache, otherCache);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+}
@@ -0,0 +1,165 @@
+package org.andstatus.app.data;
+
+import android.database.Cursor;
+import android.database.sqlite.SQLiteDatabase;
+import android.database.sqlite.SQLiteQueryBuilder;
+import android.provider.BaseColumns;
+
+import org.andstatus.app.account.MyAccount;
+import org.andstatus.app.context.DemoData;
+import org.andstatus.app.context.MyContextHolder;
+import org.andstatus.app.context.TestSuite;
+import org.andstatus.app.database.MsgTable;
+import org.andstatus.app.timeline.Timeline;
+import org.andstatus.app.timeline.TimelineType;
+import org.andstatus.app.util.SelectionAndArgs;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class TimelineSqlTest {
+    private static final int PAGE_SIZE = 5;
+    /** "SCAN TABLE msg AS msg1 USING INDEX ..." or, in newer SQLite, "SCAN msg1 USING INDEX ..." */
+    private static final Pattern PLAN_TABLE = Pattern.compile("^(SCAN|SEARCH)( TABLE)? (\\w+)");
+    private MyAccount ma;
+
+    @Before
+    public void setUp() throws Exception {
+        TestSuite.initializeWithData(this);
+        ma = DemoData.getMyAccount(DemoData.CONVERSATION_ACCOUNT_NAME);
+        assertTrue(ma.isValid());
+    }
+
+    @Test
+    public void testKeysetPages() {
+        Timeline timeline = Timeline.getTimeline(TimelineType.HOME, ma, 0, null);
+        List<Long> all = queryMsgIds(timeline, new SelectionAndArgs(), "");
+        assertTrue("Messages in " + timeline, all.size() > PAGE_SIZE);
+
+        List<Long> paged = new ArrayList<>();
+        long sentDate = 0;
+        long msgId = 0;
+        for (int pageIndex = 0; pageIndex <= all.size() / PAGE_SIZE; pageIndex++) {
+            SelectionAndArgs sa = new SelectionAndArgs();
+            if (sentDate > 0) {
+                TimelineSql.addUpperBound(sa, sentDate, msgId);
+            }
+            List<Long> page = queryMsgIds(timeline, sa, String.valueOf(PAGE_SIZE));
+            if (page.isEmpty()) {
+                break;
+            }
+            for (long id : page) {
+                assertFalse("Duplicated message " + id + " on page " + pageIndex, paged.contains(id));
+            }
+            paged.addAll(page);
+            msgId = page.get(page.size() - 1);
+            sentDate = MyQuery.msgIdToLongColumnValue(MsgTable.SENT_DATE, msgId);
+        }
+        assertEquals("Messages loaded by pages", all, paged);
+    }
+
+    @Test
+    public void testTimelineQueryPlans() {
+        for (TimelineType timelineType : new TimelineType[]{TimelineType.HOME, TimelineType.MENTIONS,
+                TimelineType.FAVORITES, TimelineType.PUBLIC}) {
+            Timeline timeline = Timeline.getTimeline(timelineType, ma, 0, ma.getOrigin());
+            SelectionAndArgs sa = new SelectionAndArgs();
+            TimelineSql.addLowerBound(sa, 1, 0);
+            TimelineSql.addUpperBound(sa, System.currentTimeMillis(), Long.MAX_VALUE);
+            for (String detail : explain(timeline, sa, String.valueOf(PAGE_SIZE))) {
+                Matcher matcher = PLAN_TABLE.matcher(detail);
+                if (!matcher.find()) {
+                    continue;
+                }
+                String table = matcher.group(3);
+                String message = timelineType + " plan: " + detail;
+                if (table.equals(MsgTable.TABLE_NAME) || table.equals(ProjectionMap.MSG_TABLE_ALIAS)) {
+                    assertTrue(message, detail.contains(" USING "));
+                } else if (table.equals("msgofuser") || table.equals("mou")
+                        || table.equals("download") || table.equals(ProjectionMap.AVATAR_IMAGE_TABLE_ALIAS)
+                        || table.equals(ProjectionMap.ATTACHMENT_IMAGE_TABLE_ALIAS)) {
+                    assertTrue(message, detail.contains("COVERING INDEX") || detail.contains("PRIMARY KEY"));
+                }
+            }
+        }
+    }
+
+    @Test
+    public void testTablesAreCached() {
+        Timeline timeline = Timeline.getTimeline(TimelineType.HOME, ma, 0, null);
+        String[] projection = TimelineSql.getTimelineProjection();
+        String tables = TimelineSql.tablesForTimeline(MatchedUri.getTimelineUri(timeline), projection);
+        assertSame(tables, TimelineSql.tablesForTimeline(MatchedUri.getTimelineUri(timeline), projection));
+        assertSame("The same clause for any message of the timeline", tables,
+                TimelineSql.tablesForTimeline(MatchedUri.getTimelineItemUri(timeline, 1), projection));
+        assertSame(tables, TimelineSql.tablesForTimeline(MatchedUri.getTimelineItemUri(timeline, 2), projection));
+
+        String conversationTables = TimelineSql.tablesForTimeline(MatchedUri.getTimelineUri(timeline),
+                TimelineSql.getConversationProjection());
+        assertFalse("Different projections", tables.equals(conversationTables));
+
+        Timeline mentions = Timeline.getTimeline(TimelineType.MENTIONS, ma, 0, null);
+        assertFalse("Different timelines", tables.equals(
+                TimelineSql.tablesForTimeline(MatchedUri.getTimelineUri(mentions), projection)));
+    }
+
+    private List<Long> queryMsgIds(Timeline timeline, SelectionAndArgs sa, String limit) {
+        List<Long> msgIds = new ArrayList<>();
+        Cursor cursor = null;
+        try {
+            cursor = getDatabase().rawQuery(buildQuery(timeline, sa, limit), sa.selectionArgs);
+            while (cursor.moveToNext()) {
+                long msgId = DbUtils.getLong(cursor, BaseColumns._ID);
+                if (!msgIds.contains(msgId)) {
+                    msgIds.add(msgId);
+                }
+            }
+        } finally {
+            DbUtils.closeSilently(cursor);
+        }
+        return msgIds;
+    }
+
+    private List<String> explain(Timeline timeline, SelectionAndArgs sa, String limit) {
+        List<String> details = new ArrayList<>();
+        Cursor cursor = null;
+        try {
+            cursor = getDatabase().rawQuery("EXPLAIN QUERY PLAN " + buildQuery(timeline, sa, limit),
+                    sa.selectionArgs);
+            int detailIndex = cursor.getColumnIndex("detail");
+            while (cursor.moveToNext()) {
+                details.add(cursor.getString(detailIndex));
+            }
+        } finally {
+            DbUtils.closeSilently(cursor);
+        }
+        assertFalse("No query plan for " + timeline, details.isEmpty());
+        return details;
+    }
+
+    /** The same query, as built by {@link MyProvider} for the timeline */
+    private String buildQuery(Timeline timeline, SelectionAndArgs sa, String limit) {
+        String[] projection = TimelineSql.getTimelineProjection();
+        SQLiteQueryBuilder qb = new SQLiteQueryBuilder();
+        qb.setDistinct(true);
+        qb.setTables(TimelineSql.tablesForTimeline(MatchedUri.getTimelineUri(timeline), projection));
+        qb.setProjectionMap(ProjectionMap.MSG);
+        return qb.buildQuery(projection, sa.selection, null, null, TimelineSql.getSortOrder(false), limit);
+    }
+
+    private SQLiteDatabase getDatabase() {
+        SQLiteDatabase db = MyContextHolder.get().getDatabase();
+        assertNotNull(db);
+        return db;
+    }
+}
@@ -0,0 +1,69 @@
+package org.andstatus.app.database;
+
+import android.database.Cursor;
+import android.database.sqlite.SQLiteDatabase;
+
+import org.andstatus.app.context.MyContextHolder;
+import org.andstatus.app.context.TestSuite;
+import org.andstatus.app.data.DbUtils;
+import org.andstatus.app.util.MyLog;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertNotNull;
+
+public class DatabaseHolderTest {
+
+    @Before
+    public void setUp() throws Exception {
+        TestSuite.initializeWithData(this);
+    }
+
+    @Test
+    public void testConnectionProfile() throws InterruptedException {
+        final SQLiteDatabase db = MyContextHolder.get().getDatabase();
+        assertNotNull(db);
+        DatabaseHolder.ConnectionProfile profile = db.isWriteAheadLoggingEnabled()
+                ? DatabaseHolder.ConnectionProfile.WAL : DatabaseHolder.ConnectionProfile.COMPATIBLE;
+        db.beginTransaction();
+        try {
+            // The transaction holds the primary connection
+            assertEquals("Cache size of the primary connection, " + profile,
+                    -profile.cacheSizeKb, getPragma(db, "cache_size"));
+            if (profile.mmapSize > 0) {
+                assertEquals("Mapped memory of the primary connection, " + profile,
+                        profile.mmapSize, getPragma(db, "mmap_size"));
+            }
+            if (profile.writeAheadLogging) {
+                // While the primary connection is busy, a reader of another thread gets a read-only connection
+                final AtomicLong cacheSize = new AtomicLong();
+                Thread reader = new Thread(new Runnable() {
+                    @Override
+                    public void run() {
+                        cacheSize.set(getPragma(db, "cache_size"));
+                    }
+                });
+                reader.start();
+                reader.join(5000);
+                MyLog.v(this, "Cache size of a read-only connection: " + cacheSize.get());
+                assertNotEquals("Read-only connection has SQLite's default cache", 0, cacheSize.get());
+            }
+        } finally {
+            db.endTransaction();
+        }
+    }
+
+    private static long getPragma(SQLiteDatabase db, String pragma) {
+        Cursor cursor = null;
+        try {
+            cursor = db.rawQuery("PRAGMA " + pragma, null);
+            return cursor.moveToFirst() ? cursor.getLong(0) : 0;
+        } finally {
+            DbUtils.closeSilently(cursor);
+        }
+    }
+}
@@ -21,7 +21,7 @@ public class AttachedImageScalingTest {
     @Test
     public void testScaling() {
         MyImageCache.initialize(MyContextHolder.get().context());
-        MyDrawableCache cache = MyImageCache.attachedImagesCache;
+        MyDrawableCache cache = MyImageCache.getAttachedImagesCache();
         Point exactlyMaxSize = new Point(cache.getMaxBitmapWidth(), cache.getMaxBitmapWidth());
         BitmapFactory.Options options = cache.calculateScaling(this, exactlyMaxSize);
         assertEquals(0, options.inSampleSize);
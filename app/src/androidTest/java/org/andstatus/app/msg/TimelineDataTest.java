@@ -0,0 +1,113 @@
+package org.andstatus.app.msg;
+
+import org.andstatus.app.context.MyContextHolder;
+import org.andstatus.app.context.TestSuite;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class TimelineDataTest {
+    private static final long UPDATED_DATE = 1468509659000L;
+    private static final String LONG_BODY = "Conference about decentralized social networks starts tomorrow in Berlin," +
+            " everybody is welcome to join us there";
+
+    @Before
+    public void setUp() throws Exception {
+        TestSuite.initialize(this);
+    }
+
+    @Test
+    public void testCollapseSimilarAndContained() {
+        List<TimelineViewItem> items = new ArrayList<>();
+        items.add(newItem(1, LONG_BODY));
+        items.add(newItem(2, "Weather is sunny and warm in the city of Kyiv today"));
+        TimelineViewItem similar = newItem(3, LONG_BODY.replace("there", "here"));
+        items.add(similar);
+        TimelineViewItem contained = newItem(4, "Meeting notes are published");
+        items.add(contained);
+        items.add(newItem(5, "RT @peter: Meeting notes are published"));
+        TimelinePage page = new TimelinePage(new TimelineListParameters(MyContextHolder.get()), items);
+        TimelineData data = new TimelineData(null, page);
+
+        data.collapseDuplicates(true, 0);
+        assertEquals("Collapsed " + page.items, 3, page.items.size());
+        assertEquals(2, page.items.get(0).getMsgId());
+        assertEquals("Not adjacent similar message", 3, page.items.get(1).getMsgId());
+        assertTrue(similar.isCollapsed());
+        assertEquals(1, similar.getChildren().get(0).getMsgId());
+        assertEquals("Contained message", 4, page.items.get(2).getMsgId());
+        assertTrue(contained.isCollapsed());
+        assertEquals(5, contained.getChildren().get(0).getMsgId());
+    }
+
+    @Test
+    public void testApplyChanges() {
+        List<TimelineViewItem> items = new ArrayList<>();
+        items.add(newItem(11, "First message of the page", 5000));
+        items.add(newItem(12, "Second message of the page", 3000));
+        items.add(newItem(13, "Third message of the page", 1000));
+        TimelinePage page = newPage(items);
+        TimelineData data = new TimelineData(null, page);
+
+        TimelineViewItem changed = newItem(12, "Second message, edited", 3000);
+        TimelineViewItem inserted = newItem(14, "New message between the second and the third", 2000);
+        assertTrue(data.applyChanges(Arrays.asList(changed, inserted)));
+        assertEquals("Items " + page.items, 4, page.items.size());
+        assertEquals(11, page.items.get(0).getMsgId());
+        assertSame("Replaced in place", changed, page.items.get(1));
+        assertSame("Inserted in the sort order", inserted, page.items.get(2));
+        assertEquals(13, page.items.get(3).getMsgId());
+
+        TimelineViewItem youngest = newItem(15, "The youngest message", 6000);
+        assertTrue(data.applyChanges(Collections.singletonList(youngest)));
+        assertSame("The page contains the youngest messages", youngest, page.items.get(0));
+    }
+
+    @Test
+    public void testChangesOutsideOfThePageAreIgnored() {
+        List<TimelineViewItem> items = new ArrayList<>();
+        items.add(newItem(21, "First message of the middle page", 5000));
+        items.add(newItem(22, "Second message of the middle page", 3000));
+        TimelinePage page = newPage(items);
+        page.params.maxSentDate = 8000;
+        page.params.minSentDate = 2000;
+        TimelineData data = new TimelineData(null, page);
+
+        assertTrue(data.applyChanges(Arrays.asList(
+                newItem(23, "Younger than the page", 9000),
+                newItem(24, "Older than the page", 1000))));
+        assertEquals("Items " + page.items, 2, page.items.size());
+        assertEquals(21, page.items.get(0).getMsgId());
+        assertEquals(22, page.items.get(1).getMsgId());
+    }
+
+    private static TimelinePage newPage(List<TimelineViewItem> items) {
+        TimelineListParameters params = new TimelineListParameters(MyContextHolder.get());
+        for (TimelineViewItem item : items) {
+            params.rememberSentDateLoaded(item.sentDate, item.getMsgId());
+        }
+        return new TimelinePage(params, items);
+    }
+
+    private static TimelineViewItem newItem(long msgId, String body, long sentDate) {
+        TimelineViewItem item = newItem(msgId, body);
+        item.sentDate = sentDate;
+        return item;
+    }
+
+    private static TimelineViewItem newItem(long msgId, String body) {
+        TimelineViewItem item = new TimelineViewItem();
+        item.setMsgId(msgId);
+        item.setBody(body);
+        item.updatedDate = UPDATED_DATE;
+        return item;
+    }
+}
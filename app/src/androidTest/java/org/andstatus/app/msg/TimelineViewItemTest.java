@@ -93,6 +93,38 @@ public class TimelineViewItemTest {
         assertDuplicates(item1, DuplicationLink.IS_DUPLICATED, item2);
     }
 
+    @Test
+    public void testContainedText() {
+        TimelineViewItem item1 = new TimelineViewItem();
+        item1.setMsgId(1);
+        item1.setBody("Meeting notes are published");
+        TimelineViewItem item2 = new TimelineViewItem();
+        item2.setMsgId(2);
+        item2.setBody("RT @peter: Meeting notes are published");
+        assertDuplicates(item2, DuplicationLink.DUPLICATES, item1);
+        assertDuplicates(item1, DuplicationLink.IS_DUPLICATED, item2);
+
+        item2.setBody("Meeting notes are not published yet");
+        assertDuplicates(item1, DuplicationLink.NONE, item2);
+    }
+
+    @Test
+    public void testTextsOfTheSameLength() {
+        TimelineViewItem item1 = new TimelineViewItem();
+        item1.setMsgId(1);
+        item1.setBody("The meeting is on Monday at ten, see you there");
+        TimelineViewItem item2 = new TimelineViewItem();
+        item2.setMsgId(2);
+        item2.setBody("The meeting is on Friday at ten, see you there");
+        assertDuplicates(item1, DuplicationLink.NONE, item2);
+        assertDuplicates(item2, DuplicationLink.NONE, item1);
+
+        item2.setBody("The meeting is on <b>Monday</b> at ten, see you there");
+        item2.updatedDate = item1.updatedDate + 1000;
+        assertDuplicates(item1, DuplicationLink.IS_DUPLICATED, item2);
+        assertDuplicates(item2, DuplicationLink.DUPLICATES, item1);
+    }
+
     private void assertDuplicates(TimelineViewItem item1, DuplicationLink duplicates, TimelineViewItem item2) {
         assertEquals(item1.toString() + " vs " + item2, duplicates, item1.duplicates(item2));
     }
@@ -16,6 +16,7 @@
 
 package org.andstatus.app.net.http;
 
+import org.andstatus.app.net.social.MbRateLimitStatus;
 import org.json.JSONArray;
 import org.json.JSONException;
 import org.json.JSONObject;
@@ -49,4 +50,27 @@ public class HttpReadResultTest {
         assertEquals(true, result.hasFormParams());
         assertTrue(result.toString(), result.toString().contains("posted"));
     }
+
+    @Test
+    public void testRateLimitHeaders() throws ConnectionException {
+        HttpReadResult result = new HttpReadResult("https://api.twitter.com/1.1/statuses/home_timeline.json");
+        result.onHeader(null, "HTTP/1.1 200 OK");
+        result.onHeader("x-rate-limit-limit", "15");
+        result.onHeader("x-rate-limit-remaining", "7");
+        result.onHeader("x-rate-limit-reset", "1500000000");
+        MbRateLimitStatus status = result.getRateLimitStatus();
+        assertEquals(15, status.limit);
+        assertEquals(7, status.remaining);
+        assertEquals(1500000000000L, status.resetDate);
+        assertTrue(status.isExpired());
+
+        result = new HttpReadResult("https://mastodon.social/api/v1/timelines/home");
+        result.onHeader("X-RateLimit-Limit", "300");
+        result.onHeader("X-RateLimit-Remaining", "299");
+        result.onHeader("X-RateLimit-Reset", "2017-04-12T18:05:00.219283Z");
+        status = result.getRateLimitStatus();
+        assertEquals(300, status.limit);
+        assertEquals(299, status.remaining);
+        assertEquals(1492020300000L, status.resetDate);
+    }
 }
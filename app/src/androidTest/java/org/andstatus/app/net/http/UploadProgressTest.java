@@ -0,0 +1,76 @@
+package org.andstatus.app.net.http;
+
+import android.support.test.InstrumentationRegistry;
+
+import org.andstatus.app.context.DemoData;
+import org.andstatus.app.context.TestSuite;
+import org.andstatus.app.net.social.ConnectionTwitterGnuSocialMock;
+import org.andstatus.app.util.RawResourceUtils;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class UploadProgressTest {
+
+    private static class ProgressRecorder implements UploadProgressListener {
+        final List<Long> bytesSent = new ArrayList<>();
+        long bytesTotal = 0;
+
+        @Override
+        public void onUploadProgress(long bytesSent, long bytesTotal) {
+            this.bytesSent.add(bytesSent);
+            this.bytesTotal = bytesTotal;
+        }
+    }
+
+    @Before
+    public void setUp() throws Exception {
+        TestSuite.initializeWithData(this);
+    }
+
+    @Test
+    public void testProgressCallbacks() throws IOException {
+        ProgressRecorder recorder = new ProgressRecorder();
+        MediaContentBody body = new MediaContentBody(DemoData.LOCAL_IMAGE_TEST_URI, recorder);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        body.writeTo(out);
+
+        assertTrue("Image was written", out.size() > 0);
+        assertTrue("Progress reported", !recorder.bytesSent.isEmpty());
+        long previous = 0;
+        for (long bytesSent : recorder.bytesSent) {
+            assertTrue("Progress grows: " + recorder.bytesSent, bytesSent > previous);
+            previous = bytesSent;
+        }
+        assertEquals("All bytes sent", out.size(), previous);
+        assertEquals("Total bytes", body.getContentLength(), recorder.bytesTotal);
+        if (body.getContentLength() >= 0) {
+            assertEquals("Content length", out.size(), body.getContentLength());
+        }
+    }
+
+    @Test
+    public void testListenerOfTheRequestOnly() throws IOException {
+        ConnectionTwitterGnuSocialMock connection = new ConnectionTwitterGnuSocialMock();
+        HttpConnectionMock httpMock = connection.getHttpMock();
+        httpMock.setResponse(RawResourceUtils.getString(InstrumentationRegistry.getInstrumentation().getContext(),
+                org.andstatus.app.tests.R.raw.quitter_message_with_attachment));
+
+        ProgressRecorder recorder = new ProgressRecorder();
+        connection.updateStatus("Test post message with media", "", "", DemoData.LOCAL_IMAGE_TEST_URI, recorder);
+        connection.updateStatus("Test post message without media", "", "", null, null);
+
+        assertEquals("Requests " + httpMock, 2, httpMock.getResults().size());
+        assertSame("Listener of the media upload", recorder, httpMock.getResults().get(0).getUploadProgressListener());
+        assertNull("No listener of the next request", httpMock.getResults().get(1).getUploadProgressListener());
+    }
+}
@@ -268,7 +268,7 @@ public class ConnectionPumpioTest {
         String inReplyToId = "https://identi.ca/api/note/94893FsdsdfFdgtjuk38ErKv";
         httpConnectionMock.setResponse("");
         connection.getData().setAccountUserOid("acct:mytester@" + originUrl.getHost());
-        connection.updateStatus(body, "", inReplyToId, null);
+        connection.updateStatus(body, "", inReplyToId, null, null);
         JSONObject activity = httpConnectionMock.getPostedJSONObject();
         assertTrue("Object present", activity.has("object"));
         JSONObject obj = activity.getJSONObject("object");
@@ -281,7 +281,7 @@ public class ConnectionPumpioTest {
 
         body = "Testing the application...";
         inReplyToId = "";
-        connection.updateStatus(body, "", inReplyToId, null);
+        connection.updateStatus(body, "", inReplyToId, null, null);
         activity = httpConnectionMock.getPostedJSONObject();
         assertTrue("Object present", activity.has("object"));
         obj = activity.getJSONObject("object");
@@ -354,7 +354,7 @@ public class ConnectionPumpioTest {
         httpConnectionMock.setResponse(jso);
         
         connection.getData().setAccountUserOid("acct:mymediatester@" + originUrl.getHost());
-        MbActivity activity = connection.updateStatus("Test post message with media", "", "", DemoData.LOCAL_IMAGE_TEST_URI);
+        MbActivity activity = connection.updateStatus("Test post message with media", "", "", DemoData.LOCAL_IMAGE_TEST_URI, null);
         activity.getMessage().setPublic(true);
         assertEquals("Message returned", privateGetMessageWithAttachment(
                 InstrumentationRegistry.getInstrumentation().getContext(), false), activity.getMessage());
@@ -0,0 +1,64 @@
+/*
+ * Copyright (c) 2017 yvolk (Yuri Volkov), http://yurivolkov.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.andstatus.app.os;
+
+import org.json.JSONException;
+import org.json.JSONObject;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class ExecutionMetricsTest {
+
+    @Test
+    public void testHistogram() {
+        ExecutionMetrics.Histogram histogram = new ExecutionMetrics.Histogram("test");
+        for (int i = 0; i < 8; i++) {
+            histogram.add(5, true);
+        }
+        histogram.add(200, true);
+        histogram.add(50000, false);
+        assertEquals(10, histogram.getCount());
+        assertEquals(10, histogram.getPercentileMs(50));
+        assertEquals(300, histogram.getPercentileMs(90));
+        assertEquals(50000, histogram.getPercentileMs(100));
+        String info = histogram.toInfo();
+        assertTrue(info, info.contains("1 failed"));
+        assertTrue(info, info.contains("max 50000ms"));
+    }
+
+    @Test
+    public void testSavedState() throws JSONException {
+        ExecutionMetrics.Histogram histogram = new ExecutionMetrics.Histogram("test");
+        histogram.add(5, true);
+        histogram.add(2000, false);
+        ExecutionMetrics.Histogram restored = new ExecutionMetrics.Histogram("test");
+        restored.addState(new JSONObject(histogram.toState().toString()));
+        assertEquals(histogram.toInfo(), restored.toInfo());
+
+        restored.addState(histogram.toState());
+        assertEquals("Added to the current counters", 4, restored.getCount());
+    }
+
+    @Test
+    public void testOnEnded() {
+        ExecutionMetrics.onEnded(ExecutionMetrics.Phase.PARSE, "testOrigin", ExecutionMetrics.now() - 20);
+        String info = ExecutionMetrics.getInfo();
+        assertTrue(info, info.contains("PARSE testOrigin: "));
+    }
+}
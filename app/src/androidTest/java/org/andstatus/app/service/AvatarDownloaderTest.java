@@ -38,6 +38,7 @@ import org.junit.Test;
 import java.io.IOException;
 import java.net.MalformedURLException;
 import java.net.URL;
+import java.util.concurrent.TimeUnit;
 
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
@@ -134,6 +135,63 @@ public class AvatarDownloaderTest {
         assertTrue(data.getFile().exists());
     }
     
+    @Test
+    public void testSameAvatarIsStoredOnce() throws IOException {
+        MyAccount ma1 = DemoData.getMyAccount(DemoData.CONVERSATION_ACCOUNT_NAME);
+        MyAccount ma2 = DemoData.getMyAccount(DemoData.GNUSOCIAL_TEST_ACCOUNT_NAME);
+        try {
+            changeAvatarUrl(ma1, DemoData.CONVERSATION_ACCOUNT_AVATAR_URL);
+            changeAvatarUrl(ma2, DemoData.CONVERSATION_ACCOUNT_AVATAR_URL);
+            AvatarData.deleteAllOfThisUser(ma1.getUserId());
+            AvatarData.deleteAllOfThisUser(ma2.getUserId());
+
+            ma = ma1;
+            loadAndAssertStatusForMa(DownloadStatus.LOADED, false);
+            DownloadData data1 = AvatarData.getForUser(ma1.getUserId());
+
+            ma = ma2;
+            // The file of the first user is reused
+            loadAndAssertStatusForMa(DownloadStatus.LOADED, false);
+            DownloadData data2 = AvatarData.getForUser(ma2.getUserId());
+            assertEquals("The same file for the same content", data1.getFile(), data2.getFile());
+            assertTrue(data1.getDownloadId() != data2.getDownloadId());
+
+            AvatarData.deleteAllOfThisUser(ma1.getUserId());
+            assertTrue("Still referenced " + data2.getFile(), data2.getFile().exists());
+            AvatarData.deleteAllOfThisUser(ma2.getUserId());
+            assertFalse("Not referenced any more " + data2.getFile(), data2.getFile().exists());
+        } finally {
+            changeAvatarUrl(ma2, DemoData.GNUSOCIAL_TEST_ACCOUNT_AVATAR_URL);
+        }
+    }
+
+    @Test
+    public void testOldAvatarIsNotReused() throws IOException {
+        MyAccount ma1 = DemoData.getMyAccount(DemoData.CONVERSATION_ACCOUNT_NAME);
+        MyAccount ma2 = DemoData.getMyAccount(DemoData.GNUSOCIAL_TEST_ACCOUNT_NAME);
+        try {
+            changeAvatarUrl(ma1, DemoData.CONVERSATION_ACCOUNT_AVATAR_URL);
+            changeAvatarUrl(ma2, DemoData.CONVERSATION_ACCOUNT_AVATAR_URL);
+            AvatarData.deleteAllOfThisUser(ma2.getUserId());
+            ma = ma1;
+            loadAndAssertStatusForMa(DownloadStatus.LOADED, false);
+
+            DownloadData data2 = AvatarData.getForUser(ma2.getUserId());
+            data2.onNewDownload();
+            assertTrue("Recent avatar is reused", data2.reuseFileOfTheSameUri());
+
+            ContentValues values = new ContentValues();
+            values.put(DownloadTable.VALID_FROM, System.currentTimeMillis() - TimeUnit.DAYS.toMillis(2));
+            MyContextHolder.get().getDatabase().update(DownloadTable.TABLE_NAME, values,
+                    DownloadTable.USER_ID + "=" + ma1.getUserId(), null);
+            data2 = AvatarData.getForUser(ma2.getUserId());
+            data2.onNewDownload();
+            assertFalse("The avatar may have changed since then", data2.reuseFileOfTheSameUri());
+        } finally {
+            changeAvatarUrl(ma2, DemoData.GNUSOCIAL_TEST_ACCOUNT_AVATAR_URL);
+        }
+    }
+
     private int changeMaAvatarUrl(String urlString) {
         return changeAvatarUrl(ma, urlString);
     }
@@ -16,12 +16,16 @@
 
 package org.andstatus.app.service;
 
+import android.content.Intent;
+import android.os.Parcel;
+
 import org.andstatus.app.account.MyAccount;
 import org.andstatus.app.context.MyContextHolder;
 import org.andstatus.app.context.TestSuite;
 import org.andstatus.app.data.DbUtils;
 import org.andstatus.app.data.MyQuery;
 import org.andstatus.app.data.OidEnum;
+import org.andstatus.app.timeline.TimelineType;
 import org.andstatus.app.context.DemoData;
 import org.andstatus.app.util.MyLog;
 import org.junit.Before;
@@ -130,6 +134,72 @@ public class CommandDataTest {
         assertEquals(CommandEnum.GET_TIMELINE, queue.poll().getCommand());
     }
 
+    @Test
+    public void testChangedMessages() {
+        CommandResult result = new CommandResult();
+        CommandResult oneStep = result.forOneExecStep();
+        oneStep.onMessageChanged(11);
+        oneStep.onMessageChanged(0);
+        oneStep.onMessageChanged(12);
+        oneStep.onMessageChanged(11);
+        Parcel parcel = Parcel.obtain();
+        oneStep.writeToParcel(parcel, 0);
+        parcel.setDataPosition(0);
+        CommandResult fromParcel = CommandResult.CREATOR.createFromParcel(parcel);
+        parcel.recycle();
+        assertEquals(fromParcel.toString(), oneStep.getChangedMessageIds(), fromParcel.getChangedMessageIds());
+        result.accumulateOneStep(oneStep);
+        assertEquals(result.toString(), 2, result.getChangedMessageIds().size());
+        assertTrue(result.toString(), result.getChangedMessageIds().contains(12L));
+        assertFalse(result.hasTooManyChangedMessages());
+
+        for (long msgId = 100; msgId <= 100 + CommandResult.MAX_CHANGED_MESSAGES; msgId++) {
+            result.onMessageChanged(msgId);
+        }
+        assertTrue(result.toString(), result.hasTooManyChangedMessages());
+        assertTrue(result.toString(), result.getChangedMessageIds().isEmpty());
+    }
+
+    @Test
+    public void testPrefetchPriority() {
+        MyAccount ma = DemoData.getMyAccount(DemoData.CONVERSATION_ACCOUNT_NAME);
+        CommandData prefetch = CommandData.newItemCommand(CommandEnum.GET_CONVERSATION, ma, 1);
+        assertTrue(prefetch.isPrefetch());
+        CommandData opened = CommandData.newItemCommand(CommandEnum.GET_CONVERSATION, ma, 2).setInForeground(true);
+        assertFalse(opened.isPrefetch());
+        CommandData avatar = CommandData.newUserCommand(CommandEnum.FETCH_AVATAR, null, null, ma.getUserId(), "");
+
+        Queue<CommandData> queue = new PriorityBlockingQueue<>(10);
+        queue.add(prefetch);
+        queue.add(avatar);
+        queue.add(opened);
+        assertEquals(opened, queue.poll());
+        assertEquals(avatar, queue.poll());
+        assertEquals(prefetch, queue.poll());
+    }
+
+    @Test
+    public void testVisibleDownloadPriority() {
+        MyAccount ma = DemoData.getMyAccount(DemoData.CONVERSATION_ACCOUNT_NAME);
+        CommandData timeline = CommandData.newTimelineCommand(CommandEnum.GET_TIMELINE, ma, TimelineType.HOME);
+        CommandData avatar = CommandData.newUserCommand(CommandEnum.FETCH_AVATAR, null, null, ma.getUserId(), "");
+        assertFalse(avatar.isVisibleDownload());
+        CommandData shownAvatar = CommandData.newUserCommand(CommandEnum.FETCH_AVATAR, null, null,
+                ma.getUserId() + 1, "").setVisible(true);
+        assertTrue(shownAvatar.isVisibleDownload());
+        assertFalse("Visible download is not a foreground command", shownAvatar.isInForeground());
+        assertTrue("Visible flag is sent to the service",
+                CommandData.fromIntent(MyContextHolder.get(), shownAvatar.toIntent(new Intent())).isVisibleDownload());
+
+        Queue<CommandData> queue = new PriorityBlockingQueue<>(10);
+        queue.add(avatar);
+        queue.add(timeline);
+        queue.add(shownAvatar);
+        assertEquals(shownAvatar, queue.poll());
+        assertEquals(timeline, queue.poll());
+        assertEquals(avatar, queue.poll());
+    }
+
     @Test
     public void testSummary() {
         followUnfollowSummary(CommandEnum.FOLLOW_USER);
@@ -0,0 +1,53 @@
+package org.andstatus.app.service;
+
+import org.andstatus.app.account.MyAccount;
+import org.andstatus.app.context.DemoData;
+import org.andstatus.app.context.MyContextHolder;
+import org.andstatus.app.context.TestSuite;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class CommandQueueTest {
+    private static final long MSG_ID = 1000000000L;
+    private MyAccount ma;
+
+    @Before
+    public void setUp() throws Exception {
+        TestSuite.initializeWithData(this);
+        ma = DemoData.getMyAccount(DemoData.CONVERSATION_ACCOUNT_NAME);
+        assertTrue(ma.isValid());
+    }
+
+    @Test
+    public void testPromoteQueuedPrefetch() {
+        CommandQueue queues = new CommandQueue(MyContextHolder.get().context());
+        CommandData avatar = CommandData.newUserCommand(CommandEnum.FETCH_AVATAR, null, null, ma.getUserId(), "");
+        CommandData prefetch = CommandData.newItemCommand(CommandEnum.GET_STATUS, ma, MSG_ID);
+        assertTrue(prefetch.isPrefetch());
+        queues.addToQueue(QueueType.CURRENT, prefetch);
+        queues.addToQueue(QueueType.CURRENT, avatar);
+        assertSame("Prefetch waits for avatars", avatar, queues.get(QueueType.CURRENT).peek());
+
+        CommandData notQueued = CommandData.newItemCommand(CommandEnum.GET_STATUS, ma, MSG_ID + 1)
+                .setInForeground(true);
+        assertFalse(queues.promoteIfQueued(QueueType.CURRENT, notQueued));
+
+        CommandData sameInBackground = CommandData.newItemCommand(CommandEnum.GET_STATUS, ma, MSG_ID);
+        assertTrue(queues.promoteIfQueued(QueueType.CURRENT, sameInBackground));
+        assertSame("Not promoted", avatar, queues.get(QueueType.CURRENT).peek());
+
+        CommandData inForeground = CommandData.newItemCommand(CommandEnum.GET_STATUS, ma, MSG_ID)
+                .setInForeground(true);
+        assertTrue(queues.promoteIfQueued(QueueType.CURRENT, inForeground));
+        assertEquals("No duplicates", 2, queues.get(QueueType.CURRENT).size());
+        CommandData head = queues.get(QueueType.CURRENT).peek();
+        assertSame("Promoted the queued command", prefetch, head);
+        assertTrue(head.isInForeground());
+        assertFalse(head.isPrefetch());
+    }
+}
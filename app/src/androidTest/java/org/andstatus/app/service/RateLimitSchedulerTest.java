@@ -0,0 +1,154 @@
+package org.andstatus.app.service;
+
+import org.andstatus.app.account.MyAccount;
+import org.andstatus.app.context.DemoData;
+import org.andstatus.app.context.MyContext;
+import org.andstatus.app.context.MyContextHolder;
+import org.andstatus.app.context.TestSuite;
+import org.andstatus.app.data.DbUtils;
+import org.andstatus.app.net.http.RateLimits;
+import org.andstatus.app.net.social.MbRateLimitStatus;
+import org.andstatus.app.timeline.TimelineType;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class RateLimitSchedulerTest {
+    private static final long RESET_IN_MS = 2000;
+    private MyContext myContext;
+    private MyAccount ma;
+
+    @Before
+    public void setUp() throws Exception {
+        TestSuite.initializeWithData(this);
+        myContext = MyContextHolder.get();
+        ma = DemoData.getMyAccount(DemoData.CONVERSATION_ACCOUNT_NAME);
+        assertTrue(ma.isValid());
+        RateLimits.clear();
+    }
+
+    @After
+    public void tearDown() {
+        RateLimits.clear();
+    }
+
+    @Test
+    public void testAccountOfUserCommand() {
+        CommandData commandData = newFetchAvatar();
+        MyAccount resolved = RateLimitScheduler.getMyAccount(myContext, commandData);
+        assertTrue("Account for " + commandData, resolved.isValid());
+        assertEquals("Origin of the user", ma.getOriginId(), resolved.getOriginId());
+    }
+
+    @Test
+    public void testDeferTillReset() {
+        RateLimitScheduler scheduler = new RateLimitScheduler();
+        CommandData avatar = newFetchAvatar();
+        assertFalse("Nothing is known about the limit", scheduler.shouldDefer(myContext, avatar));
+
+        setRemaining(50, System.currentTimeMillis() + RESET_IN_MS);
+        assertFalse("Many requests remain", scheduler.shouldDefer(myContext, avatar));
+
+        long resetDate = System.currentTimeMillis() + RESET_IN_MS;
+        setRemaining(2, resetDate);
+        CommandData timeline = CommandData.newTimelineCommand(CommandEnum.FETCH_TIMELINE, ma, TimelineType.HOME);
+        assertFalse("High priority command", scheduler.shouldDefer(myContext, timeline));
+        CommandData foreground = newFetchAvatar().setInForeground(true);
+        assertFalse("Foreground command", scheduler.shouldDefer(myContext, foreground));
+        CommandData visible = newFetchAvatar().setVisible(true);
+        assertTrue("Visible download is rate limited", scheduler.shouldDefer(myContext, visible));
+
+        assertTrue("Low priority command, " + RateLimits.get(accountName()),
+                scheduler.shouldDefer(myContext, avatar));
+        assertFalse("Deferred till reset", scheduler.isDeferralOver(avatar));
+        assertFalse("Deferred till reset", scheduler.isAnyDeferralOver());
+
+        while (System.currentTimeMillis() <= resetDate) {
+            DbUtils.waitMs(this, 100);
+        }
+        assertTrue("Reset time passed", scheduler.isDeferralOver(avatar));
+        assertTrue("Reset time passed", scheduler.isAnyDeferralOver());
+        assertFalse("The limit was reset", scheduler.shouldDefer(myContext, avatar));
+
+        scheduler.forgetDeferralsOver();
+        assertFalse("Forgotten", scheduler.isDeferralOver(avatar));
+        assertFalse("Forgotten", scheduler.isAnyDeferralOver());
+    }
+
+    @Test
+    public void testCommandsArePaced() {
+        RateLimitScheduler scheduler = new RateLimitScheduler();
+        long resetDate = System.currentTimeMillis() + 60000;
+        MbRateLimitStatus status = setRemaining(RateLimitScheduler.MIN_RESERVED + 2, resetDate);
+        CommandData avatar1 = newFetchAvatar();
+        assertFalse(scheduler.shouldDefer(myContext, avatar1));
+        scheduler.onExecuting(myContext, avatar1);
+        CommandData avatar2 = newFetchAvatar();
+        assertFalse(scheduler.shouldDefer(myContext, avatar2));
+        scheduler.onExecuting(myContext, avatar2);
+
+        CommandData avatar3 = newFetchAvatar();
+        assertTrue("The bucket is empty, " + status, scheduler.shouldDefer(myContext, avatar3));
+        assertTrue(scheduler.isDeferred(avatar3));
+        assertFalse(scheduler.isDeferralOver(avatar3));
+        assertFalse("Deferred till the next token, not till the reset", scheduler.isAnyDeferralOver());
+        scheduler.onExecuting(myContext, avatar3);
+        assertFalse("Executed command is not deferred", scheduler.isDeferred(avatar3));
+    }
+
+    @Test
+    public void testHighPriorityCommandTakesToken() {
+        RateLimitScheduler scheduler = new RateLimitScheduler();
+        setRemaining(RateLimitScheduler.MIN_RESERVED + 2, System.currentTimeMillis() + 60000);
+        CommandData timeline = CommandData.newTimelineCommand(CommandEnum.FETCH_TIMELINE,
+                RateLimitScheduler.getMyAccount(myContext, newFetchAvatar()), TimelineType.HOME);
+        assertFalse("High priority command", scheduler.shouldDefer(myContext, timeline));
+        scheduler.onExecuting(myContext, timeline);
+        scheduler.onExecuting(myContext, timeline);
+        assertTrue("High priority commands took the tokens", scheduler.shouldDefer(myContext, newFetchAvatar()));
+    }
+
+    @Test
+    public void testTokenBucket() {
+        long now = System.currentTimeMillis();
+        MbRateLimitStatus status = new MbRateLimitStatus();
+        status.limit = 100;
+        status.remaining = 20 + 10;
+        status.resetDate = now + 10000;
+        RateLimitScheduler.TokenBucket bucket = new RateLimitScheduler.TokenBucket(status, null, now);
+        assertEquals(RateLimitScheduler.TokenBucket.CAPACITY_MAX, bucket.capacity, 0.001);
+        for (int i = 0; i < RateLimitScheduler.TokenBucket.CAPACITY_MAX; i++) {
+            assertTrue("Token " + i, bucket.tryTake(now));
+        }
+        assertFalse(bucket.tryTake(now));
+        assertEquals("Ten requests in ten seconds", now + 1000, bucket.nextTokenDate(now));
+        assertTrue("Refilled", bucket.tryTake(now + 1000));
+
+        status.remaining = 20 + 1;
+        RateLimitScheduler.TokenBucket bucket2 = new RateLimitScheduler.TokenBucket(status, bucket, now + 1000);
+        assertEquals("Tokens are kept", 0, bucket2.getTokens(now + 1000), 0.001);
+        assertEquals("The last request waits for the reset", status.resetDate, bucket2.nextTokenDate(now + 1000));
+    }
+
+    private CommandData newFetchAvatar() {
+        return CommandData.newUserCommand(CommandEnum.FETCH_AVATAR, null, null, ma.getUserId(), "");
+    }
+
+    private String accountName() {
+        return RateLimitScheduler.getMyAccount(myContext, newFetchAvatar()).getAccountName();
+    }
+
+    private MbRateLimitStatus setRemaining(int remaining, long resetDate) {
+        MbRateLimitStatus status = new MbRateLimitStatus();
+        status.limit = 10;
+        status.remaining = remaining;
+        status.resetDate = resetDate;
+        status.updatedDate = System.currentTimeMillis();
+        RateLimits.put(accountName(), status);
+        return status;
+    }
+}
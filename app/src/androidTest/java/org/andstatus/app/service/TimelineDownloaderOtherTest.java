@@ -0,0 +1,221 @@
+package org.andstatus.app.service;
+
+import android.support.test.InstrumentationRegistry;
+
+import org.andstatus.app.account.MyAccount;
+import org.andstatus.app.context.DemoData;
+import org.andstatus.app.context.MyContextHolder;
+import org.andstatus.app.context.TestSuite;
+import org.andstatus.app.data.DataUpdater;
+import org.andstatus.app.data.MatchedUri;
+import org.andstatus.app.data.MyQuery;
+import org.andstatus.app.data.OidEnum;
+import org.andstatus.app.database.MsgTable;
+import org.andstatus.app.net.http.ConnectionException;
+import org.andstatus.app.net.http.ConnectionException.StatusCode;
+import org.andstatus.app.net.http.HttpConnectionMock;
+import org.andstatus.app.net.http.HttpReadResult;
+import org.andstatus.app.net.social.MbActivity;
+import org.andstatus.app.timeline.Timeline;
+import org.andstatus.app.timeline.TimelineType;
+import org.andstatus.app.util.RawResourceUtils;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class TimelineDownloaderOtherTest {
+    private static final String YOUNGEST_OID = "2664446";
+    private static final String[] PAGE_OIDS = {YOUNGEST_OID, "2664346", "2663077"};
+    /** Sent date of messages in the page is in 2014 */
+    private static final long OLD_ITEM_DATE = 1356998400000L;
+    private static final String OLD_POSITION = "2600000";
+    private static final String WRITER_ERROR = "Writer failed";
+
+    private PagesHttpMock http;
+    private MyAccount ma;
+    private String page;
+
+    /** Responds with the pages in the order of requests. A page may be an exception. No more pages after them */
+    private static class PagesHttpMock extends HttpConnectionMock {
+        final List<Object> pages = new CopyOnWriteArrayList<>();
+
+        @Override
+        protected String getResponse(HttpReadResult result) {
+            Object page = getPage(getRequestsCounter());
+            return page instanceof String ? (String) page : "[]";
+        }
+
+        @Override
+        protected void getRequest(HttpReadResult result) throws ConnectionException {
+            Object page = getPage(getRequestsCounter());
+            super.getRequest(result);
+            if (page instanceof ConnectionException) {
+                throw (ConnectionException) page;
+            } else if (page instanceof Error) {
+                throw (Error) page;
+            }
+        }
+
+        private Object getPage(int index) {
+            return index < pages.size() ? pages.get(index) : null;
+        }
+    }
+
+    @Before
+    public void setUp() throws Exception {
+        TestSuite.initializeWithData(this);
+        http = new PagesHttpMock();
+        http.setNetworkDelayMs(0);
+        TestSuite.setHttpConnectionMockInstance(http);
+        MyContextHolder.get().persistentAccounts().initialize();
+        MyContextHolder.get().persistentTimelines().initialize();
+        ma = MyContextHolder.get().persistentAccounts().getFirstSucceededForOrigin(
+                MyContextHolder.get().persistentOrigins().fromName(DemoData.GNUSOCIAL_TEST_ORIGIN_NAME));
+        assertTrue(ma.toString(), ma.isValidAndSucceeded());
+        page = RawResourceUtils.getString(InstrumentationRegistry.getInstrumentation().getContext(),
+                org.andstatus.app.tests.R.raw.quitter_home);
+        deletePageMessages();
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        deletePageMessages();
+        TestSuite.setHttpConnectionMockInstance(null);
+        MyContextHolder.get().persistentAccounts().initialize();
+    }
+
+    @Test
+    public void testPagesBeforeErrorAreStored() {
+        http.pages.add(page);
+        http.pages.add(new ConnectionException(StatusCode.UNKNOWN, "Second page failed"));
+        CommandData commandData = newHomeTimelineCommand();
+        commandData.getTimeline().forgetPositionsAndDates();
+
+        try {
+            newDownloader(commandData).download();
+            fail("The error should be rethrown " + http);
+        } catch (ConnectionException e) {
+            assertTrue(e.toString(), e.getMessage().contains("Second page failed"));
+        }
+        assertEquals(http.toString(), 2, http.getRequestsCounter());
+        for (String oid : PAGE_OIDS) {
+            assertNotEquals("Message " + oid + " stored", 0,
+                    MyQuery.oidToId(OidEnum.MSG_OID, ma.getOriginId(), oid));
+        }
+        assertEquals("Position of the stored page", YOUNGEST_OID, commandData.getTimeline().getYoungestPosition());
+    }
+
+    @Test
+    public void testRestartAfterNotFound() {
+        http.pages.add(new ConnectionException(StatusCode.NOT_FOUND, "The position is not found"));
+        http.pages.add(page);
+        CommandData commandData = newHomeTimelineCommand();
+        Timeline timeline = commandData.getTimeline();
+        timeline.forgetPositionsAndDates();
+        timeline.onNewMsg(OLD_ITEM_DATE, OLD_POSITION);
+        timeline.setYoungestSyncedDate(System.currentTimeMillis());
+
+        CommandExecutorStrategy.executeCommand(commandData, null);
+        assertFalse(commandData.toString(), commandData.getResult().hasError());
+        assertTrue(http.toString(), http.getRequestsCounter() >= 2);
+        String url = http.getResults().get(0).getUrl();
+        assertTrue("From the last position: " + url, url.contains("since_id=" + OLD_POSITION));
+        url = http.getResults().get(1).getUrl();
+        assertFalse("From the empty position: " + url, url.contains("since_id"));
+        assertEquals("Position of the stored page", YOUNGEST_OID, timeline.getYoungestPosition());
+    }
+
+    @Test
+    public void testFetcherErrorEndsDownload() {
+        http.pages.add(page);
+        http.pages.add(new StackOverflowError("Parsing failed"));
+        CommandData commandData = newHomeTimelineCommand();
+        commandData.getTimeline().forgetPositionsAndDates();
+
+        try {
+            newDownloader(commandData).download();
+            fail("The error should be rethrown " + http);
+        } catch (ConnectionException e) {
+            fail("Unexpected " + e);
+        } catch (StackOverflowError e) {
+            assertEquals("Parsing failed", e.getMessage());
+        }
+        assertEquals("Position of the stored page", YOUNGEST_OID, commandData.getTimeline().getYoungestPosition());
+    }
+
+    @Test
+    public void testWriterErrorCancelsFetcher() throws InterruptedException {
+        // Each page moves the position, so the fetcher would fill the queue of pages and wait
+        for (int ind = 0; ind < 10; ind++) {
+            http.pages.add(page.replace("\"id\":" + YOUNGEST_OID, "\"id\":" + (Long.parseLong(YOUNGEST_OID) + ind)));
+        }
+        CommandData commandData = newHomeTimelineCommand();
+        commandData.getTimeline().forgetPositionsAndDates();
+        TimelineDownloaderOther downloader = new TimelineDownloaderOther() {
+            @Override
+            DataUpdater newDataUpdater() {
+                return new DataUpdater(execContext) {
+                    @Override
+                    public long onActivity(MbActivity activity, boolean saveLum) {
+                        throw new IllegalStateException(WRITER_ERROR);
+                    }
+                };
+            }
+        };
+        downloader.execContext = new CommandExecutionContext(commandData);
+
+        try {
+            downloader.download();
+            fail("The writer error should be thrown " + http);
+        } catch (ConnectionException e) {
+            fail("Unexpected " + e);
+        } catch (IllegalStateException e) {
+            assertEquals(WRITER_ERROR, e.getMessage());
+        }
+        for (int ind = 0; ind < 50 && isFetcherRunning(); ind++) {
+            Thread.sleep(100);
+        }
+        assertFalse("Page fetcher is still running, " + http, isFetcherRunning());
+    }
+
+    private CommandData newHomeTimelineCommand() {
+        return CommandData.newTimelineCommand(CommandEnum.GET_TIMELINE, ma, TimelineType.HOME);
+    }
+
+    private TimelineDownloaderOther newDownloader(CommandData commandData) {
+        CommandExecutorStrategy strategy = CommandExecutorStrategy.getStrategy(commandData, null);
+        assertEquals(TimelineDownloaderOther.class, strategy.getClass());
+        return (TimelineDownloaderOther) strategy;
+    }
+
+    private static boolean isFetcherRunning() {
+        String fetcherClassName = TimelineDownloaderOther.class.getName() + "$PageFetcher";
+        for (StackTraceElement[] stack : Thread.getAllStackTraces().values()) {
+            for (StackTraceElement element : stack) {
+                if (element.getClassName().equals(fetcherClassName)) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    private void deletePageMessages() {
+        StringBuilder oids = new StringBuilder();
+        for (String oid : PAGE_OIDS) {
+            oids.append(oids.length() == 0 ? "'" : ", '").append(oid).append("'");
+        }
+        MyContextHolder.get().context().getContentResolver().delete(MatchedUri.MSG_CONTENT_URI,
+                MsgTable.ORIGIN_ID + "=" + ma.getOriginId() + " AND " + MsgTable.MSG_OID + " IN (" + oids + ")",
+                null);
+    }
+}
@@ -33,6 +33,7 @@ import java.util.List;
 import static org.hamcrest.CoreMatchers.is;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
 import static org.junit.Assert.assertThat;
 import static org.junit.Assert.assertTrue;
 
@@ -105,6 +106,28 @@ public class PersistentTimelinesTest {
         }
     }
 
+    @Test
+    public void testIndexedLookups() {
+        MyAccount ma = DemoData.getMyAccount(DemoData.CONVERSATION_ACCOUNT_NAME);
+        assertEquals(ma, MyContextHolder.get().persistentAccounts().fromUserId(ma.getUserId()));
+        assertEquals(ma, MyContextHolder.get().persistentAccounts().fromOriginAndOid(ma.getOriginId(),
+                ma.getUserOid()));
+        assertEquals(ma, MyContextHolder.get().persistentAccounts().fromAccountName(ma.getAccountName()));
+        assertFalse(MyContextHolder.get().persistentAccounts().fromUserId(-1).isValid());
+        assertEquals(ma.getOrigin(), MyContextHolder.get().persistentOrigins().fromId(ma.getOriginId()));
+
+        Timeline stored = null;
+        for (Timeline timeline : MyContextHolder.get().persistentTimelines().values()) {
+            if (timeline.getTimelineType() == TimelineType.HOME && timeline.getMyAccount().equals(ma)) {
+                stored = timeline;
+                break;
+            }
+        }
+        assertTrue("No stored Home timeline for " + ma, stored != null);
+        assertSame(stored, Timeline.getTimeline(TimelineType.HOME, ma, 0, null));
+        assertSame(stored, MyContextHolder.get().persistentTimelines().fromId(stored.getId()));
+    }
+
     @Test
     public void testDefaultTimelinesForAccounts() {
         DemoAccountInserter.checkDefaultTimelinesForAccounts();
@@ -12,6 +12,7 @@ import org.junit.Before;
 import org.junit.Test;
 
 import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
 
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertTrue;
@@ -85,6 +86,42 @@ public class TimelineSyncTrackerTest {
         }
     }
 
+    @Test
+    public void testSyncFrequency() {
+        final long base = TimeUnit.MINUTES.toMillis(30);
+        assertEquals("Unknown rate", base, TimelineSyncFrequency.getFrequencyMs(base, -1));
+        assertEquals("Normal rate", base, TimelineSyncFrequency.getFrequencyMs(base, 4));
+        assertEquals("Busy timeline", base / 2, TimelineSyncFrequency.getFrequencyMs(base, 30));
+        assertEquals("Very busy timeline", base / TimelineSyncFrequency.MAX_SPEEDUP_FACTOR,
+                TimelineSyncFrequency.getFrequencyMs(base, 100));
+        assertEquals("Not more often than once a minute", TimelineSyncFrequency.MIN_FREQUENCY_MS,
+                TimelineSyncFrequency.getFrequencyMs(TimeUnit.MINUTES.toMillis(2), 10000));
+        assertEquals("Quiet timeline", base * 4, TimelineSyncFrequency.getFrequencyMs(base, 0.5));
+        assertEquals("Silent timeline", base * TimelineSyncFrequency.MAX_BACKOFF_FACTOR,
+                TimelineSyncFrequency.getFrequencyMs(base, 0));
+
+        double rate = TimelineSyncFrequency.smoothRate(-1, 10, TimeUnit.HOURS.toMillis(2));
+        assertEquals(5, rate, 0.001);
+        rate = TimelineSyncFrequency.smoothRate(rate, 0, TimeUnit.HOURS.toMillis(1));
+        assertEquals(5 * (1 - TimelineSyncFrequency.SMOOTHING_FACTOR), rate, 0.001);
+    }
+
+    @Test
+    public void testNewItemsPerHourIsPersisted() {
+        MyContext myContext = MyContextHolder.get();
+        MyAccount ma = DemoData.getMyAccount(DemoData.GNUSOCIAL_TEST_ACCOUNT_NAME);
+        Timeline timeline = getTimeline(myContext, TimelineType.HOME, ma);
+        assertTrue("Timeline persistence " + timeline, timeline.getId() != 0);
+        timeline.onNewItemsObserved(6, System.currentTimeMillis() - TimeUnit.HOURS.toMillis(2));
+        double rate = timeline.getNewItemsPerHour();
+        assertTrue("Rate observed " + timeline, rate >= 0);
+        timeline.save(myContext);
+
+        myContext.persistentTimelines().initialize();
+        timeline = getTimeline(myContext, TimelineType.HOME, ma);
+        assertEquals("Rate loaded " + timeline, rate, timeline.getNewItemsPerHour(), 0.001);
+    }
+
     @NonNull
     private Timeline getTimeline(MyContext myContext, TimelineType timelineType, MyAccount ma) {
         return Timeline.getTimeline(myContext, 0, timelineType, ma, 0, null, "");
@@ -0,0 +1,116 @@
+package org.andstatus.app.user;
+
+import org.andstatus.app.account.MyAccount;
+import org.andstatus.app.context.DemoData;
+import org.andstatus.app.context.MyContextHolder;
+import org.andstatus.app.context.TestSuite;
+import org.andstatus.app.data.DataUpdater;
+import org.andstatus.app.data.MyQuery;
+import org.andstatus.app.database.UserTable;
+import org.andstatus.app.net.social.MbUser;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertTrue;
+
+public class UserPrefixIndexTest {
+    private static final int MAX_COUNT = 1000;
+    private MyAccount ma;
+
+    @Before
+    public void setUp() throws Exception {
+        TestSuite.initializeWithData(this);
+        ma = DemoData.getMyAccount(DemoData.CONVERSATION_ACCOUNT_NAME);
+        assertTrue(ma.isValid());
+        UserPrefixIndex.forget();
+    }
+
+    @After
+    public void tearDown() {
+        UserPrefixIndex.forget();
+    }
+
+    @Test
+    public void testPrefixLookup() {
+        UserPrefixIndex index = getIndex();
+        String userName = MyQuery.userIdToStringColumnValue(UserTable.USERNAME, ma.getUserId());
+        String webFingerId = MyQuery.userIdToWebfingerId(ma.getUserId());
+        assertTrue("User name of " + ma, userName.length() > 2);
+
+        assertFound(index, userName.substring(0, 2), ma.getUserId());
+        assertFound(index, userName, ma.getUserId());
+        assertFound(index, webFingerId, ma.getUserId());
+        assertTrue("Empty prefix", index.getUserIds("", MAX_COUNT).isEmpty());
+        assertTrue("Limited count", index.getUserIds(userName.substring(0, 1), 1).size() <= 1);
+    }
+
+    @Test
+    public void testCaseFolding() {
+        UserPrefixIndex index = getIndex();
+        String userName = MyQuery.userIdToStringColumnValue(UserTable.USERNAME, ma.getUserId());
+        assertFound(index, userName.toUpperCase(), ma.getUserId());
+        assertFound(index, userName.toLowerCase(), ma.getUserId());
+    }
+
+    @Test
+    public void testUserAddedAndRenamed() {
+        UserPrefixIndex index = getIndex();
+        String oid = "prefixIndexUser" + DemoData.TESTRUN_UID;
+        long userId = saveUser(oid, "Qwzx" + DemoData.TESTRUN_UID, "Vbnm Person");
+        assertFound(index, "qwzx" + DemoData.TESTRUN_UID, userId);
+        assertFound(index, "Vbn", userId);
+        assertFound(index, "person", userId);
+
+        assertEquals("The same user", userId, saveUser(oid, "Plok" + DemoData.TESTRUN_UID, "Vbnm Person"));
+        assertFound(index, "plok" + DemoData.TESTRUN_UID, userId);
+        assertFalse("The old name is forgotten",
+                index.getUserIds("qwzx" + DemoData.TESTRUN_UID, MAX_COUNT).contains(userId));
+    }
+
+    @Test
+    public void testIndexIsBuiltFromTheDatabase() {
+        // The index is not built, so the update is not indexed. The user is loaded with the index later
+        long userId = saveUser("notIndexedUser" + DemoData.TESTRUN_UID, "Mnbv" + DemoData.TESTRUN_UID, "");
+        assertFound(getIndex(), "mnbv" + DemoData.TESTRUN_UID, userId);
+    }
+
+    @Test
+    public void testNewMessagesRankUsers() {
+        UserPrefixIndex index = getIndex();
+        String prefix = "Zxcq" + DemoData.TESTRUN_UID;
+        long userId1 = saveUser("rankedUser1" + DemoData.TESTRUN_UID, prefix + "a", "");
+        long userId2 = saveUser("rankedUser2" + DemoData.TESTRUN_UID, prefix + "b", "");
+        assertEquals("Index order", userId1, (long) index.getUserIds(prefix, 1).get(0));
+
+        UserPrefixIndex.onMessageAdded(MyContextHolder.get(), ma.getOriginId(), userId2, ma.getUserId());
+        List<Long> userIds = index.getUserIds(prefix, MAX_COUNT);
+        assertEquals("Replied to me " + userIds, userId2, (long) userIds.get(0));
+        assertEquals(userId1, (long) userIds.get(1));
+        assertEquals("The best user", userId2, (long) index.getUserIds(prefix, 1).get(0));
+    }
+
+    private UserPrefixIndex getIndex() {
+        return UserPrefixIndex.getIndex(MyContextHolder.get(), ma.getOriginId());
+    }
+
+    private long saveUser(String oid, String userName, String realName) {
+        MbUser user = MbUser.fromOriginAndUserOid(ma.getOriginId(), oid);
+        user.setUserName(userName);
+        user.setWebFingerId(userName.toLowerCase() + "@prefix.example.com");
+        user.setRealName(realName);
+        new DataUpdater(ma).onActivity(user.update(ma.toPartialUser()));
+        assertNotEquals("User saved " + user, 0, user.userId);
+        return user.userId;
+    }
+
+    private static void assertFound(UserPrefixIndex index, String prefix, long userId) {
+        List<Long> userIds = index.getUserIds(prefix, MAX_COUNT);
+        assertTrue("User " + userId + " not found by '" + prefix + "': " + userIds, userIds.contains(userId));
+    }
+}
@@ -0,0 +1,42 @@
+/*
+ * Copyright (c) 2017 yvolk (Yuri Volkov), http://yurivolkov.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.andstatus.app.util;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+
+public class LongMapTest {
+
+    @Test
+    public void testPutGetRemove() {
+        LongMap<String> map = new LongMap<>();
+        for (long key = 0; key < 1000; key++) {
+            assertNull(map.put(key * 31, Long.toString(key)));
+        }
+        assertEquals(1000, map.size());
+        assertEquals("7", map.get(7 * 31));
+        assertEquals("7", map.put(7 * 31, "seven"));
+        assertEquals("seven", map.remove(7 * 31));
+        assertFalse(map.containsKey(7 * 31));
+        assertEquals("0", map.get(0));
+        assertNull(map.get(1));
+        assertEquals(999, map.values().size());
+    }
+}
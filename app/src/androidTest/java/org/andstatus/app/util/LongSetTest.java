@@ -0,0 +1,73 @@
+/*
+ * Copyright (c) 2017 yvolk (Yuri Volkov), http://yurivolkov.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.andstatus.app.util;
+
+import org.junit.Test;
+
+import java.util.HashSet;
+import java.util.Random;
+import java.util.Set;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class LongSetTest {
+
+    @Test
+    public void testAddRemove() {
+        LongSet set = new LongSet();
+        assertTrue(set.isEmpty());
+        assertTrue(set.add(0));
+        assertTrue(set.add(5));
+        assertFalse(set.add(5));
+        assertTrue(set.contains(0));
+        assertTrue(set.contains(5));
+        assertFalse(set.contains(6));
+        assertEquals(2, set.size());
+        assertTrue(set.remove(0));
+        assertFalse(set.remove(0));
+        assertEquals(1, set.size());
+        set.clear();
+        assertFalse(set.contains(5));
+        assertTrue(set.isEmpty());
+    }
+
+    @Test
+    public void testSameAsHashSet() {
+        Random random = new Random(1);
+        LongSet set = new LongSet();
+        Set<Long> expected = new HashSet<>();
+        for (int ind = 0; ind < 20000; ind++) {
+            long value = random.nextInt(3000) - 100;
+            if (random.nextInt(3) == 0) {
+                assertEquals("remove " + value, expected.remove(value), set.remove(value));
+            } else {
+                assertEquals("add " + value, expected.add(value), set.add(value));
+            }
+            assertEquals(expected.size(), set.size());
+        }
+        for (long value = -200; value < 3000; value++) {
+            assertEquals("contains " + value, expected.contains(value), set.contains(value));
+        }
+        Set<Long> values = new HashSet<>();
+        for (long value : set.toArray()) {
+            values.add(value);
+        }
+        assertEquals(expected, values);
+    }
+}
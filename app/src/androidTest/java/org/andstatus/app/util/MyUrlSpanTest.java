@@ -17,6 +17,7 @@
 package org.andstatus.app.util;
 
 import android.text.SpannableString;
+import android.text.Spanned;
 import android.text.style.URLSpan;
 import android.widget.TextView;
 import android.widget.ViewFlipper;
@@ -27,6 +28,7 @@ import org.andstatus.app.context.ActivityTest;
 import org.andstatus.app.data.DbUtils;
 import org.junit.Test;
 
+import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertTrue;
 
 /** See https://github.com/andstatus/andstatus/issues/300 */
@@ -72,6 +74,24 @@ public class MyUrlSpanTest extends ActivityTest<HelpActivity> {
         DbUtils.waitMs(method, 1000);
     }
 
+    @Test
+    public void testToSpanned() {
+        Spanned spanned = MyUrlSpan.toSpanned("Html <a href=\"https://example.com/one\">link</a>", true);
+        URLSpan[] spans = spanned.getSpans(0, spanned.length(), URLSpan.class);
+        assertEquals(1, spans.length);
+        assertTrue(spans[0] instanceof MyUrlSpan);
+        assertEquals("https://example.com/one", spans[0].getURL());
+
+        spanned = MyUrlSpan.toSpanned("Plain text link https://example.com/two", true);
+        spans = spanned.getSpans(0, spanned.length(), URLSpan.class);
+        assertEquals("Linkified " + spanned, 1, spans.length);
+        assertTrue(spans[0] instanceof MyUrlSpan);
+
+        spanned = MyUrlSpan.toSpanned("Plain text link https://example.com/two", false);
+        assertEquals(0, spanned.getSpans(0, spanned.length(), URLSpan.class).length);
+        assertEquals("-", MyUrlSpan.toSpanned(MyUrlSpan.SOFT_HYPHEN, true).toString());
+    }
+
     @Test
     public void testSoftHyphen() {
         String text = MyUrlSpan.SOFT_HYPHEN;
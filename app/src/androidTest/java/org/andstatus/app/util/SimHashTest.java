@@ -0,0 +1,48 @@
+/*
+ * Copyright (c) 2017 yvolk (Yuri Volkov), http://yurivolkov.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.andstatus.app.util;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertTrue;
+
+public class SimHashTest {
+
+    @Test
+    public void testFingerprint() {
+        assertEquals(SimHash.EMPTY, SimHash.of(""));
+        assertEquals(SimHash.EMPTY, SimHash.of("ok"));
+
+        final String text = "what is good about android is that i can use quitter.se via andstatus";
+        long fingerprint = SimHash.of(text);
+        assertNotEquals(SimHash.EMPTY, fingerprint);
+        assertEquals(fingerprint, SimHash.of(text));
+        assertEquals("Punctuation and spaces are ignored",
+                fingerprint, SimHash.of("What is good about Android,  is that I can use Quitter.se via AndStatus!"
+                        .toLowerCase()));
+        assertEquals(fingerprint, SimHash.fromBody("What is good about Android is that I can use " +
+                "<a href=\"https://quitter.se/\" class=\"attachment\">Quitter.se</a> via AndStatus."));
+
+        long other = SimHash.of("the weather is fine today and we are going for a walk in the park");
+        assertTrue(SimHash.distance(fingerprint, other) > SimHash.MAX_DISTANCE_OF_SIMILAR);
+        assertFalse(SimHash.areSimilar(fingerprint, other));
+        assertFalse(SimHash.areSimilar(SimHash.EMPTY, SimHash.EMPTY));
+    }
+}
@@ -0,0 +1,36 @@
+/*
+ * Copyright (c) 2017 yvolk (Yuri Volkov), http://yurivolkov.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.andstatus.app.util;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class SortedLongsTest {
+
+    @Test
+    public void testSortedWithoutDuplicates() {
+        SortedLongs sorted = SortedLongs.of(new long[]{7, 3, 7, -1, 100});
+        assertEquals(4, sorted.size());
+        assertEquals(-1, sorted.get(0));
+        assertTrue(sorted.contains(7));
+        assertFalse(sorted.contains(4));
+        assertTrue(SortedLongs.of(new long[0]).isEmpty());
+    }
+}
@@ -112,6 +112,7 @@ public enum IntentExtra{
     DOWNLOADED_COUNT("DOWNLOADED_COUNT"),
     IN_FOREGROUND("IN_FOREGROUND"),
     MANUALLY_LAUNCHED("MANUALLY_LAUNCHED"),
+    VISIBLE("VISIBLE"),
     IS_STEP("IS_STEP"),
     CHAINED_REQUEST("CHAINED_REQUEST"),
     COLLAPSE_DUPLICATES("COLLAPSE_DUPLICATES"),
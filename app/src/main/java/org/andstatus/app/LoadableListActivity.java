@@ -488,10 +488,15 @@ public abstract class LoadableListActivity extends MyBaseListActivity implements
             if (MyLog.isVerboseEnabled()) {
                 MyLog.v(this, "Auto refresh on content change");
             }
-            showList(WhichPage.CURRENT);
+            refreshOnContentChange();
         }
     }
 
+    /** Reloads the list by default. Subclasses may refresh only the changed items */
+    protected void refreshOnContentChange() {
+        showList(WhichPage.CURRENT);
+    }
+
     private void showSyncing(final CommandData commandData) {
         new AsyncTaskLauncher<CommandData>().execute(this, true,
                 new MyAsyncTask<CommandData, Void, String>("ShowSyncing" + getInstanceId(), MyAsyncTask.PoolEnum.QUICK_UI) {
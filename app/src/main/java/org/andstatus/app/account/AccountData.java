@@ -66,7 +66,7 @@ public class AccountData implements Parcelable, AccountDataWriter {
         return accountData;
     }
 
-    private static long getSyncFrequencySeconds(Account account) {
+    static long getSyncFrequencySeconds(Account account) {
         long syncFrequencySeconds = 0;
         List<PeriodicSync> syncs = ContentResolver.getPeriodicSyncs(account, MatchedUri.AUTHORITY);
         if (!syncs.isEmpty()) {
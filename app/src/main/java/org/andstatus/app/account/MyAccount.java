@@ -111,6 +111,8 @@ public final class MyAccount implements Comparable<MyAccount> {
      * @see {@link android.content.ContentResolver#getSyncAutomatically(Account, String)} */
     public static final String KEY_IS_SYNCED_AUTOMATICALLY = "sync_automatically";
     public static final String KEY_ORDER = "order";
+    /** Ratio of sync periods, which is large enough to re-register the periodic sync */
+    static final double SYNC_PERIOD_HYSTERESIS = 1.5;
 
     public AccountName getOAccountName() {
         return oAccountName;
@@ -314,6 +316,10 @@ public final class MyAccount implements Comparable<MyAccount> {
                 }
                 MyLog.v(this, (result.savedToAccountManager ? " Saved "
                         : (result.changed ? " Didn't save?! " : " Didn't change ")) + this.toString());
+                if (result.changed && myContext.isReady()) {
+                    myContext.persistentAccounts().reindex();
+                    myContext.persistentTimelines().reindex();
+                }
                 if (myContext.isReady() && !myAccount.hasAnyTimelines(myContext)) {
                     new TimelineSaver(myContext).setAddDefaults(true).setAccount(myAccount).executeNotOnUiThread();
                 }
@@ -862,6 +868,32 @@ public final class MyAccount implements Comparable<MyAccount> {
         return syncFrequencySeconds;
     }
 
+    /**
+     * Android syncs the account as often, as its busiest timeline needs, but not less often,
+     * than the account's sync period. Saving the account restores the period.
+     * Re-registering the periodic sync restarts Android's timer, so the period is changed
+     * only when it differs from the registered one by {@link #SYNC_PERIOD_HYSTERESIS} times
+     */
+    public void adaptSyncFrequency(long syncFrequencySeconds) {
+        if (!isPersistent() || syncFrequencySeconds <= 0) {
+            return;
+        }
+        Account androidAccount = getExistingAndroidAccount();
+        if (androidAccount != null) {
+            long newPeriod = Math.min(syncFrequencySeconds, getEffectiveSyncFrequencySeconds());
+            if (isSyncPeriodChangeNeeded(AccountData.getSyncFrequencySeconds(androidAccount), newPeriod)) {
+                AccountData.setSyncFrequencySeconds(androidAccount, newPeriod);
+            }
+        }
+    }
+
+    static boolean isSyncPeriodChangeNeeded(long registeredPeriod, long newPeriod) {
+        if (registeredPeriod <= 0 || newPeriod <= 0) {
+            return registeredPeriod != newPeriod;
+        }
+        return Math.max(registeredPeriod, newPeriod) >= SYNC_PERIOD_HYSTERESIS * Math.min(registeredPeriod, newPeriod);
+    }
+
     public long getEffectiveSyncFrequencySeconds() {
         long effectiveSyncFrequencySeconds = getSyncFrequencySeconds();
         if (effectiveSyncFrequencySeconds <= 0) {
@@ -18,10 +18,11 @@ import org.andstatus.app.context.MyPreferences;
 import org.andstatus.app.data.DbUtils;
 import org.andstatus.app.database.FriendshipTable;
 import org.andstatus.app.origin.Origin;
-import org.andstatus.app.util.CollectionsUtil;
 import org.andstatus.app.util.I18n;
+import org.andstatus.app.util.LongSet;
 import org.andstatus.app.util.MyLog;
 import org.andstatus.app.util.Permissions;
+import org.andstatus.app.util.SortedLongs;
 import org.json.JSONArray;
 import org.json.JSONException;
 import org.json.JSONObject;
@@ -29,10 +30,10 @@ import org.json.JSONObject;
 import java.io.FileNotFoundException;
 import java.io.IOException;
 import java.util.ArrayList;
-import java.util.HashSet;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
-import java.util.Set;
-import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.Map;
 
 public class PersistentAccounts {
     /**
@@ -41,9 +42,57 @@ public class PersistentAccounts {
     private volatile String currentAccountName = "";
 
     private final MyContext myContext;
-    private final List<MyAccount> mAccounts = new CopyOnWriteArrayList<>();
-    private int distinctOriginsCount = 0;
-    private volatile Set<Long> myFriends = null;
+    /** Replaced on any change of the list, so it is read without locking */
+    private volatile Snapshot snapshot = new Snapshot(Collections.<MyAccount>emptyList());
+    private volatile SortedLongs myFriends = null;
+
+    /** Immutable sorted list of accounts with indexes to it */
+    private static class Snapshot {
+        final List<MyAccount> accounts;
+        final Map<String, MyAccount> byAccountName = new HashMap<>();
+        final Map<Long, MyAccount> byUserId = new HashMap<>();
+        final Map<String, MyAccount> byOriginAndOid = new HashMap<>();
+        final Map<Long, List<MyAccount>> byOriginId = new HashMap<>();
+
+        Snapshot(List<MyAccount> accountsIn) {
+            List<MyAccount> sorted = new ArrayList<>(accountsIn);
+            Collections.sort(sorted);
+            accounts = Collections.unmodifiableList(sorted);
+            for (MyAccount ma : accounts) {
+                putIfAbsent(byAccountName, ma.getAccountName(), ma);
+                if (ma.getUserId() != 0) {
+                    putIfAbsent(byUserId, ma.getUserId(), ma);
+                }
+                putIfAbsent(byOriginAndOid, originAndOid(ma.getOriginId(), ma.getUserOid()), ma);
+                List<MyAccount> ofOrigin = byOriginId.get(ma.getOriginId());
+                if (ofOrigin == null) {
+                    ofOrigin = new ArrayList<>();
+                    byOriginId.put(ma.getOriginId(), ofOrigin);
+                }
+                ofOrigin.add(ma);
+            }
+        }
+
+        /** The first account in the sorted list wins, as during a sequential search */
+        private static <K> void putIfAbsent(Map<K, MyAccount> map, K key, MyAccount ma) {
+            if (!map.containsKey(key)) {
+                map.put(key, ma);
+            }
+        }
+
+        static String originAndOid(long originId, String userOid) {
+            return Long.toString(originId) + ";" + userOid;
+        }
+
+        @NonNull
+        List<MyAccount> ofOrigin(long originId) {
+            if (originId == 0) {
+                return accounts;
+            }
+            List<MyAccount> ofOrigin = byOriginId.get(originId);
+            return ofOrigin == null ? Collections.<MyAccount>emptyList() : ofOrigin;
+        }
+    }
 
     private PersistentAccounts(MyContext myContext) {
         this.myContext = myContext;
@@ -57,15 +106,15 @@ public class PersistentAccounts {
      * @return not null 
      */
     public List<MyAccount> list() {
-        return mAccounts;
+        return snapshot.accounts;
     }
     
     public boolean isEmpty() {
-        return mAccounts.isEmpty();
+        return list().isEmpty();
     }
     
     public int size() {
-        return mAccounts.size();
+        return list().size();
     }
     
     public PersistentAccounts initialize() {
@@ -80,28 +129,28 @@ public class PersistentAccounts {
                 MyLog.e(this, "The account is not valid: " + ma);
             }
         }
-        CollectionsUtil.sort(myAccounts);
-        mAccounts.clear();
-        mAccounts.addAll(myAccounts);
-        calculateDistinctOriginsCount();
-        MyLog.v(this, "Account list initialized, " + mAccounts.size() + " accounts in " + distinctOriginsCount + " origins");
+        synchronized (this) {
+            snapshot = new Snapshot(myAccounts);
+        }
+        MyLog.v(this, "Account list initialized, " + size() + " accounts in " + getDistinctOriginsCount() + " origins");
         return this;
     }
 
+    /**
+     * Rebuilds indexes to the accounts, e.g. after a change of a User ID of an account,
+     * see {@link MyAccount.Builder}
+     */
+    public synchronized void reindex() {
+        snapshot = new Snapshot(snapshot.accounts);
+    }
+
     public MyAccount getDefaultAccount() {
-        return mAccounts.isEmpty() ? MyAccount.EMPTY : list().get(0);
+        List<MyAccount> accounts = list();
+        return accounts.isEmpty() ? MyAccount.EMPTY : accounts.get(0);
     }
 
     public int getDistinctOriginsCount() {
-        return distinctOriginsCount;
-    }
-    
-    private void calculateDistinctOriginsCount() {
-        Set<Long> originIds = new HashSet<>();
-        for (MyAccount ma : mAccounts) {
-            originIds.add(ma.getOriginId());
-        }
-        distinctOriginsCount = originIds.size();
+        return snapshot.byOriginId.size();
     }
     
     public static PersistentAccounts newEmpty(MyContext myContext) {
@@ -118,7 +167,7 @@ public class PersistentAccounts {
 
         // Delete the User's object from the list
         MyAccount toDelete = null;
-        for (MyAccount persistentAccount : mAccounts) {
+        for (MyAccount persistentAccount : list()) {
             if (persistentAccount.equals(ma)) {
                 toDelete = persistentAccount;
                 break;
@@ -128,7 +177,11 @@ public class PersistentAccounts {
             MyAccount.Builder.fromMyAccount(myContext, ma, "delete", false).deleteData();
 
             // And delete the object from the list
-            mAccounts.remove(toDelete);
+            synchronized (this) {
+                List<MyAccount> accounts = new ArrayList<>(snapshot.accounts);
+                accounts.remove(toDelete);
+                snapshot = new Snapshot(accounts);
+            }
 
             isDeleted = true;
             MyPreferences.onPreferencesChanged();
@@ -148,16 +201,18 @@ public class PersistentAccounts {
         if (!accountName.isValid()) {
             return MyAccount.EMPTY;
         }
-        for (MyAccount persistentAccount : mAccounts) {
-            if (persistentAccount.getAccountName().equals(accountName.toString())) {
-                return persistentAccount;
-            }
+        MyAccount persistentAccount = snapshot.byAccountName.get(accountName.toString());
+        if (persistentAccount != null && persistentAccount.getAccountName().equals(accountName.toString())) {
+            return persistentAccount;
         }
         for (android.accounts.Account androidAccount : getAccounts(myContext.context())) {
             if (accountName.toString().equals(androidAccount.name)) {
                 MyAccount myAccount = Builder.fromAndroidAccount(myContext, androidAccount).getAccount();
-                mAccounts.add(myAccount);
-                CollectionsUtil.sort(mAccounts);
+                synchronized (this) {
+                    List<MyAccount> accounts = new ArrayList<>(snapshot.accounts);
+                    accounts.add(myAccount);
+                    snapshot = new Snapshot(accounts);
+                }
                 MyPreferences.onPreferencesChanged();
                 return myAccount;
             }
@@ -167,10 +222,10 @@ public class PersistentAccounts {
 
     @NonNull
     public MyAccount fromOriginAndOid(long originId, String myUserOid) {
-        for (MyAccount persistentAccount : mAccounts) {
-            if (persistentAccount.getOriginId() == originId && persistentAccount.getUserOid().equals(myUserOid)) {
-                return persistentAccount;
-            }
+        MyAccount persistentAccount = snapshot.byOriginAndOid.get(Snapshot.originAndOid(originId, myUserOid));
+        if (persistentAccount != null && persistentAccount.getOriginId() == originId
+                && persistentAccount.getUserOid().equals(myUserOid)) {
+            return persistentAccount;
         }
         return MyAccount.EMPTY;
     }
@@ -189,7 +244,7 @@ public class PersistentAccounts {
         currentAccountName = "";
         ma = getDefaultAccount();
         if (!ma.isValid()) {
-            for (MyAccount myAccount : mAccounts) {
+            for (MyAccount myAccount : list()) {
                 if (myAccount.isValid()) {
                     ma = myAccount;
                     break;
@@ -233,16 +288,13 @@ public class PersistentAccounts {
      */
     @NonNull
     public MyAccount fromUserId(long userId) {
-        MyAccount ma = MyAccount.EMPTY;
         if (userId != 0) {
-            for (MyAccount persistentAccount : mAccounts) {
-                if (persistentAccount.getUserId() == userId) {
-                    ma = persistentAccount;
-                    break;
-                }
+            MyAccount persistentAccount = snapshot.byUserId.get(userId);
+            if (persistentAccount != null && persistentAccount.getUserId() == userId) {
+                return persistentAccount;
             }
         }
-        return ma;
+        return MyAccount.EMPTY;
     }
 
     @NonNull
@@ -266,19 +318,17 @@ public class PersistentAccounts {
     @NonNull
     public MyAccount getFirstSucceededForOriginId(long originId) {
         MyAccount ma = MyAccount.EMPTY;
-        for (MyAccount persistentAccount : mAccounts) {
-            if (originId==0 || persistentAccount.getOriginId() == originId) {
-                if (!ma.isValid()) {
+        for (MyAccount persistentAccount : snapshot.ofOrigin(originId)) {
+            if (!ma.isValid()) {
+                ma = persistentAccount;
+            }
+            if (persistentAccount.isValidAndSucceeded()) {
+                if (!ma.isValidAndSucceeded()) {
                     ma = persistentAccount;
                 }
-                if (persistentAccount.isValidAndSucceeded()) {
-                    if (!ma.isValidAndSucceeded()) {
-                        ma = persistentAccount;
-                    }
-                    if (persistentAccount.isSyncedAutomatically()) {
-                        ma = persistentAccount;
-                        break;
-                    }
+                if (persistentAccount.isSyncedAutomatically()) {
+                    ma = persistentAccount;
+                    break;
                 }
             }
         }
@@ -286,7 +336,7 @@ public class PersistentAccounts {
     }
 
     public boolean hasSyncedAutomatically() {
-        for (MyAccount ma : mAccounts) {
+        for (MyAccount ma : list()) {
             if (ma.isValidAndSucceeded() && ma.isSyncedAutomatically()) {
                 return true;
             }
@@ -349,7 +399,7 @@ public class PersistentAccounts {
 
     public void onDefaultSyncFrequencyChanged() {
         long syncFrequencySeconds = MyPreferences.getSyncFrequencySeconds();
-        for (MyAccount ma : mAccounts) {
+        for (MyAccount ma : list()) {
             if (ma.getSyncFrequencySeconds() <= 0) {
                 Account account = ma.getExistingAndroidAccount();
                 if (account != null) {
@@ -389,7 +439,7 @@ public class PersistentAccounts {
         long backedUpCount = 0;
         JSONArray jsa = new JSONArray();
         try {
-            for (MyAccount ma : mAccounts) {
+            for (MyAccount ma : list()) {
                 jsa.put(ma.toJson());
                 backedUpCount++;
             }
@@ -444,13 +494,13 @@ public class PersistentAccounts {
     @Override
     public String toString() {
         return "PersistentAccounts{" +
-                "mAccounts=" + mAccounts +
+                "mAccounts=" + list() +
                 '}';
     }
 
     @Override
     public int hashCode() {
-        return mAccounts.hashCode();
+        return list().hashCode();
     }
 
     @Override
@@ -462,7 +512,7 @@ public class PersistentAccounts {
             return false;
         }
         PersistentAccounts other = (PersistentAccounts) o;
-        return mAccounts.equals(other.mAccounts);
+        return list().equals(other.list());
     }
 
     public boolean isMeOrMyFriend(long inReplyToUserId) {
@@ -473,14 +523,15 @@ public class PersistentAccounts {
     }
 
     private boolean isMyFriend(long userId) {
-        if (myFriends == null) {
-            initializeMyFriends();
+        SortedLongs friends = myFriends;
+        if (friends == null) {
+            friends = initializeMyFriends();
         }
-        return myFriends.contains(userId);
+        return friends.contains(userId);
     }
 
-    private void initializeMyFriends() {
-        Set<Long> friends = new HashSet<>();
+    private SortedLongs initializeMyFriends() {
+        LongSet friends = new LongSet();
         String sql = "SELECT DISTINCT " + FriendshipTable.FRIEND_ID + " FROM " + FriendshipTable.TABLE_NAME
                 + " WHERE " + FriendshipTable.FOLLOWED + "=1";
         SQLiteDatabase db = myContext.getDatabase();
@@ -495,7 +546,9 @@ public class PersistentAccounts {
         } finally {
             DbUtils.closeSilently(cursor);
         }
-        myFriends = friends;
+        SortedLongs sorted = SortedLongs.of(friends.toArray());
+        myFriends = sorted;
+        return sorted;
     }
 
     public void reorderAccounts(List<MyAccount> reorderedItems) {
@@ -511,7 +564,7 @@ public class PersistentAccounts {
             }
         }
         if (changed) {
-            CollectionsUtil.sort(mAccounts);
+            reindex();
             MyPreferences.onPreferencesChanged();
         }
     }
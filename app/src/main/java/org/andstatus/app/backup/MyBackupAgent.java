@@ -20,6 +20,7 @@ import android.app.backup.BackupAgent;
 import android.app.backup.BackupDataInput;
 import android.app.backup.BackupDataOutput;
 import android.content.Context;
+import android.database.sqlite.SQLiteDatabase;
 import android.os.ParcelFileDescriptor;
 
 import org.andstatus.app.R;
@@ -141,6 +142,7 @@ public class MyBackupAgent extends BackupAgent {
         sharedPreferencesBackedUp = backupFile(data,
                 SHARED_PREFERENCES_KEY,
                 SharedPreferencesUtil.defaultSharedPreferencesPath(MyContextHolder.get().context()));
+        DatabaseHolder.checkpoint(MyContextHolder.get().getDatabase());
         databasesBackedUp = backupFile(data,
                 DATABASE_KEY + "_" + DatabaseHolder.DATABASE_NAME,
                 MyStorage.getDatabasePath(DatabaseHolder.DATABASE_NAME));
@@ -262,10 +264,10 @@ public class MyBackupAgent extends BackupAgent {
     private void doRestore(MyBackupDataInput data) throws IOException {
         restoreSharedPreferences(data);
         assertNextHeader(data, DATABASE_KEY + "_" + DatabaseHolder.DATABASE_NAME);
-        databasesRestored += restoreFile(data,
+        databasesRestored += restoreDatabase(data,
                     MyStorage.getDatabasePath(DatabaseHolder.DATABASE_NAME));
         if (optionalNextHeader(data, DATABASE_KEY + "_" + TimelineSearchSuggestionsProvider.DATABASE_NAME)) {
-            suggestionsRestored += restoreFile(data,
+            suggestionsRestored += restoreDatabase(data,
                     MyStorage.getDatabasePath(TimelineSearchSuggestionsProvider.DATABASE_NAME));
         }
         MyContextHolder.release();
@@ -328,6 +330,16 @@ public class MyBackupAgent extends BackupAgent {
         return false;
     }
     
+    /** The old database is deleted together with its write-ahead log, shared memory and journal files,
+     * so they are not applied to the restored database */
+    private long restoreDatabase(MyBackupDataInput data, File databaseFile) throws IOException {
+        if (databaseFile.exists() && (!SQLiteDatabase.deleteDatabase(databaseFile) || databaseFile.exists())) {
+            throw new FileNotFoundException("Couldn't delete old database before restore '"
+                    + databaseFile.getName() + "'");
+        }
+        return restoreFile(data, databaseFile);
+    }
+
     /** Returns count of restores files */
     public long restoreFile(MyBackupDataInput data, File dataFile) throws IOException {
         if (dataFile.exists() && !dataFile.delete()) {
@@ -28,9 +28,11 @@ import net.jcip.annotations.GuardedBy;
 import net.jcip.annotations.ThreadSafe;
 
 import org.andstatus.app.FirstActivity;
+import org.andstatus.app.data.DbWriter;
 import org.andstatus.app.database.DatabaseConverterController;
 import org.andstatus.app.graphics.MyImageCache;
 import org.andstatus.app.os.AsyncTaskLauncher;
+import org.andstatus.app.os.ExecutionMetrics;
 import org.andstatus.app.util.I18n;
 import org.andstatus.app.util.MyLog;
 import org.andstatus.app.util.RelativeTime;
@@ -185,6 +187,7 @@ public final class MyContextHolder {
     }
     
     public static void release() {
+        DbWriter.flush();
         if (!get().isExpired()) {
             synchronized(CONTEXT_LOCK) {
                 get().setExpired();
@@ -207,6 +210,8 @@ public final class MyContextHolder {
         builder.append(MyImageCache.getCacheInfo());
         builder.append("\n");
         builder.append(AsyncTaskLauncher.threadPoolInfo());
+        builder.append("\n");
+        builder.append(ExecutionMetrics.getInfo());
         return builder.toString();
     }
 
@@ -36,6 +36,8 @@ import org.andstatus.app.database.DatabaseHolder;
 import org.andstatus.app.graphics.MyImageCache;
 import org.andstatus.app.net.http.HttpConnection;
 import org.andstatus.app.origin.PersistentOrigins;
+import org.andstatus.app.os.AsyncTaskLauncher;
+import org.andstatus.app.os.MyAsyncTask;
 import org.andstatus.app.service.ConnectionState;
 import org.andstatus.app.timeline.PersistentTimelines;
 import org.andstatus.app.timeline.TimelineType;
@@ -123,9 +125,10 @@ public final class MyContextImpl implements MyContext {
                     mState = MyContextState.RESTORING;
                 } else {
                     // Accounts are not restored yet
+                    MyImageCache.initialize(context());
+                    preloadImageCaches();
                     mPersistentAccounts.initialize();
                     persistentTimelines.initialize();
-                    MyImageCache.initialize(context());
                     mState = MyContextState.READY;
                 }
                 break;
@@ -134,6 +137,18 @@ public final class MyContextImpl implements MyContext {
         }
     }
 
+    /** Image caches don't depend on the data, so they are filled in parallel and don't delay readiness */
+    private void preloadImageCaches() {
+        AsyncTaskLauncher.execute(this, false,
+                new MyAsyncTask<Void, Void, Void>("preloadImageCaches", MyAsyncTask.PoolEnum.DEFAULT) {
+                    @Override
+                    protected Void doInBackground2(Void... params) {
+                        MyImageCache.preload();
+                        return null;
+                    }
+                });
+    }
+
     private void initializeDatabase(boolean createApplicationData) {
         final String method = "initializeDatabase";
         DatabaseHolder newDb = new DatabaseHolder(mContext, createApplicationData);
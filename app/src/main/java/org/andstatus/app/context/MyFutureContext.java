@@ -22,10 +22,12 @@ import android.support.annotation.NonNull;
 
 import org.andstatus.app.FirstActivity;
 import org.andstatus.app.HelpActivity;
+import org.andstatus.app.data.MessageSnapshot;
 import org.andstatus.app.net.http.TlsSniSocketFactory;
 import org.andstatus.app.os.AsyncTaskLauncher;
 import org.andstatus.app.os.ExceptionsCounter;
 import org.andstatus.app.os.MyAsyncTask;
+import org.andstatus.app.user.UserPrefixIndex;
 import org.andstatus.app.util.MyLog;
 import org.andstatus.app.util.SharedPreferencesUtil;
 
@@ -81,6 +83,8 @@ public class MyFutureContext extends MyAsyncTask<Void, Void, MyContext> {
         ExceptionsCounter.forget();
         MyLog.forget();
         SharedPreferencesUtil.forget();
+        UserPrefixIndex.forget();
+        MessageSnapshot.forget();
         MyLog.d(this, "releaseGlobal completed");
     }
 
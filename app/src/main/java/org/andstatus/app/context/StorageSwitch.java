@@ -18,6 +18,7 @@ package org.andstatus.app.context;
 
 import android.app.ProgressDialog;
 import android.content.Context;
+import android.database.sqlite.SQLiteDatabase;
 import android.widget.Toast;
 
 import net.jcip.annotations.GuardedBy;
@@ -206,7 +207,7 @@ public class StorageSwitch {
                             succeeded = true;
                         } else if (dbFileNew.exists()) {
                             messageToAppend.insert(0, " Database already exists " + databaseName);
-                            if (!dbFileNew.delete()) {
+                            if (!SQLiteDatabase.deleteDatabase(dbFileNew)) {
                                 messageToAppend
                                         .insert(0, " Couldn't delete already existed files. ");
                                 done = true;
@@ -219,6 +220,9 @@ public class StorageSwitch {
                         MyLog.v(this, method + " from: " + dbFileOld.getPath());
                         MyLog.v(this, method + " to: " + dbFileNew.getPath());
                     }
+                    if (DatabaseHolder.DATABASE_NAME.equals(databaseName)) {
+                        DatabaseHolder.checkpoint(MyContextHolder.get().getDatabase());
+                    }
                     try {
                         if (copyFile(dbFileOld, dbFileNew)) {
                             copied = true;
@@ -240,13 +244,13 @@ public class StorageSwitch {
                     if (succeeded) {
                         if ( copied && dbFileOld != null
                                 && dbFileOld.exists()
-                                && !dbFileOld.delete()) {
+                                && !SQLiteDatabase.deleteDatabase(dbFileOld)) {
                             messageToAppend.append(method + " couldn't delete old files. ");
                         }
                     } else {
                         if (dbFileNew != null
                                 && dbFileNew.exists()
-                                && !dbFileNew.delete()) {
+                                && !SQLiteDatabase.deleteDatabase(dbFileNew)) {
                             messageToAppend.append(method + " couldn't delete new files. ");
                         }
                     }
@@ -23,15 +23,46 @@ import org.andstatus.app.os.AsyncTaskLauncher;
 import org.andstatus.app.os.MyAsyncTask;
 import org.andstatus.app.util.UriUtils;
 
+import java.util.LinkedHashMap;
+import java.util.Map;
+
 public class AvatarData extends DownloadData {
     public static final String TAG = AvatarData.class.getSimpleName();
+    static final int ABSENT_AVATARS_MAX = 2000;
+    /** Users, whose avatars were absent, when they were loaded for a list. Their avatars are requested,
+     * when the users are shown, so avatars of users, which are never seen, are not downloaded.
+     * Users, who were not shown for the longest time, are evicted first */
+    private static final Map<Long, Boolean> absentAvatars = new LinkedHashMap<Long, Boolean>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Long, Boolean> eldest) {
+            return size() > ABSENT_AVATARS_MAX;
+        }
+    };
+
+    public static void onAvatarAbsent(long userId) {
+        synchronized (absentAvatars) {
+            absentAvatars.put(userId, true);
+        }
+    }
+
+    /** A list reports, that it shows the user's avatar now */
+    public static void onUserShown(long userId) {
+        boolean absent;
+        synchronized (absentAvatars) {
+            absent = absentAvatars.remove(userId) != null;
+        }
+        if (absent) {
+            asyncRequestDownload(userId);
+        }
+    }
 
+    /** The avatar is requested for a user, who is shown, so it is downloaded before background downloads */
     public static void asyncRequestDownload(final long userIdIn) {
         AsyncTaskLauncher.execute(TAG, false,
                 new MyAsyncTask<Void, Void, Void>(TAG + userIdIn, MyAsyncTask.PoolEnum.FILE_DOWNLOAD) {
                     @Override
                     protected Void doInBackground2(Void... params) {
-                        getForUser(userIdIn).requestDownload();
+                        getForUser(userIdIn).requestDownload(true);
                         return null;
                     }
                 }
@@ -63,7 +63,7 @@ public class AvatarFile {
             return drawable;
         }
         if (!downloadFile.exists()) {
-            AvatarData.asyncRequestDownload(userId);
+            AvatarData.onAvatarAbsent(userId);
         }
         return getDefaultDrawable();
     }
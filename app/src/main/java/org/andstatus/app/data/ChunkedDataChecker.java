@@ -0,0 +1,197 @@
+/*
+ * Copyright (c) 2017 yvolk (Yuri Volkov), http://yurivolkov.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.andstatus.app.data;
+
+import android.database.Cursor;
+import android.database.sqlite.SQLiteDatabase;
+import android.provider.BaseColumns;
+
+import org.andstatus.app.backup.ProgressLogger;
+import org.andstatus.app.context.MyContext;
+import org.andstatus.app.service.MyServiceManager;
+import org.andstatus.app.util.MyLog;
+import org.andstatus.app.util.SharedPreferencesUtil;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Checks rows of a table in chunks, selected by ranges of their ids.
+ * Rows of a chunk are checked in parallel, and fixes of the chunk are saved in one transaction.
+ * The id of the last saved row is stored, so a check, interrupted e.g. by killing the application,
+ * continues from the next chunk, when started again
+ * @author yvolk@yurivolkov.com
+ */
+abstract class ChunkedDataChecker<T> {
+    static final int CHUNK_SIZE = 1000;
+    private static final int PROGRESS_REPORT_PERIOD_SECONDS = 20;
+    private static final int ROWS_PER_TASK_MIN = 100;
+
+    final MyContext myContext;
+    final ProgressLogger logger;
+    private final String table;
+    private final String columns;
+    private final String checkpointKey;
+
+    long rowsCount = 0;
+    long changedCount = 0;
+
+    /**
+     * @param columns to select, after the {@link BaseColumns#_ID}, comma separated
+     * @param checkpointKey preference key, under which the last checked id is stored
+     */
+    ChunkedDataChecker(MyContext myContext, ProgressLogger logger, String table, String columns,
+                       String checkpointKey) {
+        this.myContext = myContext;
+        this.logger = logger;
+        this.table = table;
+        this.columns = columns;
+        this.checkpointKey = checkpointKey;
+    }
+
+    /** The row is read from the cursor, which has the row id in the first column */
+    abstract T fromCursor(Cursor cursor);
+
+    /**
+     * Is called in parallel for different rows, so it may change the row only
+     * @return true if the row was fixed and needs to be saved
+     */
+    abstract boolean check(T row);
+
+    /** Is called inside a transaction, the statements are compiled for this transaction */
+    abstract void save(StatementCache statements, T row);
+
+    abstract String getName();
+
+    /** @return number of the fixed rows */
+    long fixData() {
+        final String method = getName();
+        long lastId = SharedPreferencesUtil.getLong(checkpointKey);
+        logger.logProgress(method + " started" + (lastId == 0 ? "" : ", continuing after id=" + lastId));
+        int threadsCount = Math.max(1, Runtime.getRuntime().availableProcessors());
+        ExecutorService executor = threadsCount > 1 ? Executors.newFixedThreadPool(threadsCount) : null;
+        try {
+            List<T> chunk;
+            do {
+                List<Long> ids = new ArrayList<>();
+                chunk = loadChunk(lastId, ids);
+                if (!chunk.isEmpty()) {
+                    saveChunk(chunk, checkChunk(chunk, executor, threadsCount));
+                    lastId = ids.get(ids.size() - 1);
+                    SharedPreferencesUtil.putLong(checkpointKey, lastId);
+                    rowsCount += chunk.size();
+                }
+                if (logger.loggedMoreSecondsAgoThan(PROGRESS_REPORT_PERIOD_SECONDS)) {
+                    logger.logProgress(method + (changedCount == 0 ? ". " : ", fixed " + changedCount + " of ")
+                            + rowsCount + " rows");
+                    MyServiceManager.setServiceUnavailable();
+                }
+            } while (chunk.size() == CHUNK_SIZE);
+            SharedPreferencesUtil.removeKey(checkpointKey);
+        } catch (Exception e) {
+            String logMsg = method + " error: " + e.getMessage() + ", after id=" + lastId;
+            logger.logProgress(logMsg);
+            MyLog.e(this, logMsg, e);
+        } finally {
+            if (executor != null) {
+                executor.shutdownNow();
+            }
+        }
+        logger.logProgress(method + " ended, " + (changedCount == 0
+                ? "no changes were needed. " + rowsCount + " rows"
+                : "fixed " + changedCount + " of " + rowsCount + " rows"));
+        return changedCount;
+    }
+
+    private List<T> loadChunk(long afterId, List<Long> ids) {
+        String sql = "SELECT " + BaseColumns._ID + ", " + columns
+                + " FROM " + table
+                + " WHERE " + BaseColumns._ID + ">" + afterId
+                + " ORDER BY " + BaseColumns._ID
+                + " LIMIT " + CHUNK_SIZE;
+        List<T> chunk = new ArrayList<>();
+        Cursor c = null;
+        try {
+            c = myContext.getDatabase().rawQuery(sql, null);
+            while (c.moveToNext()) {
+                ids.add(c.getLong(0));
+                chunk.add(fromCursor(c));
+            }
+        } finally {
+            DbUtils.closeSilently(c);
+        }
+        return chunk;
+    }
+
+    private boolean[] checkChunk(final List<T> chunk, ExecutorService executor, int threadsCount)
+            throws InterruptedException, ExecutionException {
+        final boolean[] changed = new boolean[chunk.size()];
+        int tasksCount = Math.min(threadsCount, chunk.size() / ROWS_PER_TASK_MIN);
+        if (executor == null || tasksCount < 2) {
+            checkRange(chunk, changed, 0, chunk.size());
+            return changed;
+        }
+        List<Future<Void>> futures = new ArrayList<>();
+        int rowsPerTask = (chunk.size() + tasksCount - 1) / tasksCount;
+        for (int from = 0; from < chunk.size(); from += rowsPerTask) {
+            final int fromIndex = from;
+            final int toIndex = Math.min(from + rowsPerTask, chunk.size());
+            futures.add(executor.submit(new Callable<Void>() {
+                @Override
+                public Void call() throws Exception {
+                    checkRange(chunk, changed, fromIndex, toIndex);
+                    return null;
+                }
+            }));
+        }
+        for (Future<Void> future : futures) {
+            future.get();
+        }
+        return changed;
+    }
+
+    private void checkRange(List<T> chunk, boolean[] changed, int fromIndex, int toIndex) {
+        for (int ind = fromIndex; ind < toIndex; ind++) {
+            changed[ind] = check(chunk.get(ind));
+        }
+    }
+
+    private void saveChunk(List<T> chunk, boolean[] changed) {
+        SQLiteDatabase db = myContext.getDatabase();
+        StatementCache statements = new StatementCache(db);
+        db.beginTransaction();
+        try {
+            long count = 0;
+            for (int ind = 0; ind < chunk.size(); ind++) {
+                if (changed[ind]) {
+                    save(statements, chunk.get(ind));
+                    count++;
+                }
+            }
+            db.setTransactionSuccessful();
+            changedCount += count;
+        } finally {
+            db.endTransaction();
+            statements.close();
+        }
+    }
+}
@@ -35,13 +35,16 @@ import org.andstatus.app.net.social.MbAttachment;
 import org.andstatus.app.net.social.MbMessage;
 import org.andstatus.app.net.social.MbUser;
 import org.andstatus.app.net.social.TimelinePosition;
+import org.andstatus.app.os.ExecutionMetrics;
 import org.andstatus.app.service.AttachmentDownloader;
 import org.andstatus.app.service.CommandData;
 import org.andstatus.app.service.CommandEnum;
 import org.andstatus.app.service.CommandExecutionContext;
 import org.andstatus.app.timeline.TimelineType;
+import org.andstatus.app.user.UserPrefixIndex;
 import org.andstatus.app.util.MyLog;
 import org.andstatus.app.util.SharedPreferencesUtil;
+import org.andstatus.app.util.SimHash;
 import org.andstatus.app.util.TriState;
 import org.andstatus.app.util.UriUtils;
 
@@ -80,6 +83,14 @@ public class DataUpdater {
      * @return id of the "MbObject"
      */
     public long onActivity(MbActivity activity, boolean saveLum) {
+        long startedAt = ExecutionMetrics.now();
+        long id = onActivity2(activity, saveLum);
+        ExecutionMetrics.onEnded(ExecutionMetrics.Phase.DB_WRITE,
+                execContext.getMyAccount().getOrigin().getName(), startedAt);
+        return id;
+    }
+
+    private long onActivity2(MbActivity activity, boolean saveLum) {
         if (activity == null || activity.isEmpty()) {
             return 0;
         }
@@ -87,7 +98,7 @@ public class DataUpdater {
         updateUser(activity.getActor().update(activity.accountUser));
         switch (activity.getObjectType()) {
             case ACTIVITY:
-                return onActivity(activity.getActivity(), saveLum);
+                return onActivity2(activity.getActivity(), saveLum);
             case MESSAGE:
                 id = updateMessage(activity, true);
                 break;
@@ -192,6 +203,7 @@ public class DataUpdater {
                 }
                 values.put(MsgTable.BODY, message.getBody());
                 values.put(MsgTable.BODY_TO_SEARCH, message.getBodyToSearch());
+                values.put(MsgTable.BODY_FINGERPRINT, SimHash.fromBody(message.getBody()));
             }
 
             if (message.sentDate > sentDateStored) {
@@ -258,6 +270,10 @@ public class DataUpdater {
                 Uri msgUri = execContext.getContext().getContentResolver().insert(
                         MatchedUri.getMsgUri(me.getUserId(), 0), values);
                 message.msgId = ParsedUri.fromUri(msgUri).getMessageId();
+                if (values.containsKey(MsgTable.IN_REPLY_TO_USER_ID)) {
+                    UserPrefixIndex.onMessageAdded(MyContextHolder.get(), message.originId,
+                            message.getAuthor().userId, values.getAsLong(MsgTable.IN_REPLY_TO_USER_ID));
+                }
 
                 if (message.getConversationId() == 0) {
                     ContentValues values2 = new ContentValues();
@@ -272,6 +288,7 @@ public class DataUpdater {
             if (isFirstTimeLoaded || isDraftUpdated) {
                 saveAttachments(message);
             }
+            execContext.getResult().onMessageChanged(message.msgId);
 
             if (!keywordsFilter.matchedAny(message.getBodyToSearch())) {
                 if (message.getUpdatedDate() > 0) {
@@ -497,6 +514,16 @@ public class DataUpdater {
                 execContext.getContext().getContentResolver().update(userUri, values, null, null);
             }
             mbUser.userId = userId;
+            if (values.containsKey(UserTable.AVATAR_URL) && MyPreferences.getShowAvatars()) {
+                AvatarData avatarData = AvatarData.getForUser(userId);
+                if (avatarData.isDownloadNeeded() && execContext.mayRequestAvatarDownload()) {
+                    avatarData.requestDownload();
+                }
+            }
+            if (values.containsKey(UserTable.USERNAME)) {
+                UserPrefixIndex.onUserUpdated(originId, userId, values.getAsString(UserTable.USERNAME),
+                        values.getAsString(UserTable.WEBFINGER_ID), values.getAsString(UserTable.REAL_NAME));
+            }
             if (mbUser.hasLatestMessage()) {
                 updateMessage(mbUser.getLatestMessage().update(activity.accountUser), false);
             }
@@ -216,6 +216,22 @@ public final class DbUtils {
         return value;
     }
 
+    public static double getDouble(Cursor cursor, String columnName) {
+        if (cursor == null) {
+            return 0;
+        }
+        double value = 0;
+        int columnIndex = cursor.getColumnIndex(columnName);
+        if (columnIndex >= 0) {
+            try {
+                value = cursor.getDouble(columnIndex);
+            } catch (Exception e){
+                MyLog.d(TAG, "getDouble column " + columnName, e);
+            }
+        }
+        return value;
+    }
+
     public static int getInt(Cursor cursor, String columnName) {
         if (cursor == null) {
             return 0;
@@ -0,0 +1,312 @@
+/*
+ * Copyright (c) 2017 yvolk (Yuri Volkov), http://yurivolkov.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.andstatus.app.data;
+
+import android.content.ContentValues;
+import android.database.sqlite.SQLiteDatabase;
+import android.database.sqlite.SQLiteDatabaseLockedException;
+import android.provider.BaseColumns;
+import android.support.annotation.NonNull;
+
+import org.andstatus.app.context.MyContext;
+import org.andstatus.app.os.MyAsyncTask;
+import org.andstatus.app.util.MyLog;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Executes small writes, e.g. saves of timeline positions and counters, in one thread, one after another.
+ * Writes are collected for a short time and then are executed in one transaction, so many small writes
+ * cause a few commits only. A write of a row, which is still waiting, is replaced by a new write of the same row,
+ * so only the latest values are written.
+ * A failed write doesn't prevent other writes of its transaction: they are repeated one by one.
+ * Synchronous writes, which need their results at once, go through the same thread, see {@link #execute(Write)}
+ * @author yvolk@yurivolkov.com
+ */
+public final class DbWriter {
+    private static final String TAG = DbWriter.class.getSimpleName();
+    static final long COALESCE_MS = 300;
+    private static final int WRITES_PER_TRANSACTION_MAX = 100;
+    private static final long FLUSH_TIMEOUT_SECONDS = 10;
+    private static final long EXECUTE_TIMEOUT_SECONDS = 30;
+    private static final int RETRIES_MAX = 3;
+    private static volatile Thread writerThread = null;
+
+    private static final Object lock = new Object();
+    /** Writes, waiting to be executed, by their keys, in the order of their submission */
+    private static final Map<String, Write> pending = new LinkedHashMap<>();
+    private static final AtomicLong uniqueKeyCounter = new AtomicLong();
+    private static boolean scheduled = false;
+    private static final ScheduledExecutorService executor = Executors.newSingleThreadScheduledExecutor(
+            new ThreadFactory() {
+                @Override
+                public Thread newThread(@NonNull Runnable runnable) {
+                    Thread thread = new Thread(runnable, TAG);
+                    thread.setDaemon(true);
+                    writerThread = thread;
+                    return thread;
+                }
+            });
+
+    private DbWriter() {
+        // Non instantiable
+    }
+
+    /** Completion of a write, which may be waited for */
+    public static class Handle {
+        private final CountDownLatch latch = new CountDownLatch(1);
+        private volatile boolean success = false;
+
+        private void complete(boolean success) {
+            this.success = success;
+            latch.countDown();
+        }
+
+        public boolean isDone() {
+            return latch.getCount() == 0;
+        }
+
+        /** @return true if the write succeeded */
+        public boolean await(long timeout, TimeUnit unit) {
+            try {
+                return latch.await(timeout, unit) && success;
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return false;
+            }
+        }
+    }
+
+    /** A write, which is executed in the writer's thread, usually inside a transaction */
+    public abstract static class Write {
+        private final MyContext myContext;
+        private final String key;
+        private Handle handle = null;
+
+        /** @param key writes with the same key are coalesced: a waiting write is replaced by the next one */
+        protected Write(MyContext myContext, String key) {
+            this.myContext = myContext;
+            this.key = key;
+        }
+
+        /** @return true if succeeded */
+        protected abstract boolean write(SQLiteDatabase db);
+
+        /** Is called in the writer's thread, if the write failed, e.g. to repeat it later */
+        protected void onFailed() {
+            // Empty
+        }
+    }
+
+    public static class RowUpdate extends Write {
+        private final String tableName;
+        private final long rowId;
+        private final ContentValues values;
+
+        public RowUpdate(MyContext myContext, String tableName, long rowId, ContentValues values) {
+            super(myContext, tableName + ":" + rowId);
+            this.tableName = tableName;
+            this.rowId = rowId;
+            this.values = values;
+        }
+
+        @Override
+        protected boolean write(SQLiteDatabase db) {
+            return db.update(tableName, values, BaseColumns._ID + "=" + rowId, null) == 1;
+        }
+    }
+
+    private static class RowInsert extends Write {
+        private final String tableName;
+        private final ContentValues values;
+        private volatile long rowId = -1;
+
+        RowInsert(MyContext myContext, String tableName, ContentValues values) {
+            super(myContext, null);
+            this.tableName = tableName;
+            this.values = values;
+        }
+
+        @Override
+        protected boolean write(SQLiteDatabase db) {
+            rowId = db.insertOrThrow(tableName, null, values);
+            return rowId != -1;
+        }
+    }
+
+    /** Updates the row with the values. The values should be complete, as a waiting update of the row is dropped */
+    public static Handle update(MyContext myContext, String tableName, long rowId, ContentValues values) {
+        return submit(new RowUpdate(myContext, tableName, rowId, values));
+    }
+
+    /** Updates the row and waits for the update, see {@link #execute(Write)}
+     * @return true if exactly one row was updated */
+    public static boolean updateNow(MyContext myContext, String tableName, long rowId, ContentValues values) {
+        return execute(new RowUpdate(myContext, tableName, rowId, values));
+    }
+
+    /** Inserts the row and waits for the insert, see {@link #execute(Write)}
+     * @return id of the new row, -1 if failed */
+    public static long insertNow(MyContext myContext, String tableName, ContentValues values) {
+        RowInsert insert = new RowInsert(myContext, tableName, values);
+        return execute(insert) ? insert.rowId : -1;
+    }
+
+    /**
+     * Executes the write in the writer's thread at once, together with waiting writes, and waits for it.
+     * A write of the writer's thread or of a thread inside its own transaction is executed in the calling thread,
+     * as the writer would wait for the transaction
+     * @return true if the write succeeded
+     */
+    public static boolean execute(Write write) {
+        SQLiteDatabase db = write.myContext.getDatabase();
+        if (db == null) {
+            MyLog.v(TAG, "Database is unavailable, write skipped");
+            return false;
+        }
+        if (Thread.currentThread() == writerThread || db.inTransaction()) {
+            return writeWithRetry(db, write);
+        }
+        Handle handle = submit(write);
+        executor.execute(new Runnable() {
+            @Override
+            public void run() {
+                writePending();
+            }
+        });
+        return handle.await(EXECUTE_TIMEOUT_SECONDS, TimeUnit.SECONDS);
+    }
+
+    public static Handle submit(Write write) {
+        String key = write.key == null ? "unique:" + uniqueKeyCounter.incrementAndGet() : write.key;
+        synchronized (lock) {
+            Write replaced = pending.remove(key);
+            write.handle = replaced == null ? new Handle() : replaced.handle;
+            pending.put(key, write);
+            if (!scheduled) {
+                scheduled = true;
+                executor.schedule(new Runnable() {
+                    @Override
+                    public void run() {
+                        writePending();
+                    }
+                }, COALESCE_MS, TimeUnit.MILLISECONDS);
+            }
+            return write.handle;
+        }
+    }
+
+    /** Executes the waiting writes now and waits for them. The UI thread doesn't wait */
+    public static void flush() {
+        final Handle flushed = new Handle();
+        executor.execute(new Runnable() {
+            @Override
+            public void run() {
+                writePending();
+                flushed.complete(true);
+            }
+        });
+        if (MyAsyncTask.isUiThread()) {
+            return;
+        }
+        if (!flushed.await(FLUSH_TIMEOUT_SECONDS, TimeUnit.SECONDS)) {
+            MyLog.i(TAG, "Pending writes were not flushed in " + FLUSH_TIMEOUT_SECONDS + " seconds");
+        }
+    }
+
+    private static void writePending() {
+        List<Write> writes;
+        synchronized (lock) {
+            writes = new ArrayList<>(pending.values());
+            pending.clear();
+            scheduled = false;
+        }
+        int from = 0;
+        while (from < writes.size()) {
+            from = writeInTransaction(writes, from);
+        }
+    }
+
+    /** Writes of the same database, starting from the index, in one transaction
+     * @return index of the first write, which was not executed */
+    private static int writeInTransaction(List<Write> writes, int fromIndex) {
+        MyContext myContext = writes.get(fromIndex).myContext;
+        SQLiteDatabase db = myContext.getDatabase();
+        int toIndex = fromIndex;
+        while (toIndex < writes.size() && toIndex - fromIndex < WRITES_PER_TRANSACTION_MAX
+                && writes.get(toIndex).myContext == myContext) {
+            toIndex++;
+        }
+        boolean[] succeeded = new boolean[toIndex - fromIndex];
+        if (db == null) {
+            MyLog.v(TAG, "Database is unavailable, " + (toIndex - fromIndex) + " writes skipped");
+        } else {
+            try {
+                db.beginTransaction();
+                try {
+                    for (int ind = fromIndex; ind < toIndex; ind++) {
+                        succeeded[ind - fromIndex] = writes.get(ind).write(db);
+                    }
+                    db.setTransactionSuccessful();
+                } finally {
+                    db.endTransaction();
+                }
+            } catch (Exception e) {
+                MyLog.i(TAG, "Failed to write " + (toIndex - fromIndex) + " rows in one transaction,"
+                        + " writing them one by one", e);
+                for (int ind = fromIndex; ind < toIndex; ind++) {
+                    succeeded[ind - fromIndex] = writeWithRetry(db, writes.get(ind));
+                }
+            }
+        }
+        for (int ind = fromIndex; ind < toIndex; ind++) {
+            Write write = writes.get(ind);
+            if (!succeeded[ind - fromIndex]) {
+                write.onFailed();
+            }
+            write.handle.complete(succeeded[ind - fromIndex]);
+        }
+        return toIndex;
+    }
+
+    /** A single write without a transaction of its own, repeated while the database is locked */
+    private static boolean writeWithRetry(SQLiteDatabase db, Write write) {
+        for (int pass = 0; pass < RETRIES_MAX; pass++) {
+            try {
+                return write.write(db);
+            } catch (SQLiteDatabaseLockedException e) {
+                MyLog.i(TAG, "Database is locked, pass=" + pass + ", " + write.key, e);
+            } catch (Exception e) {
+                MyLog.e(TAG, "Failed to write " + write.key, e);
+                return false;
+            }
+            if (DbUtils.waitBetweenRetries(TAG)) {
+                break;
+            }
+        }
+        return false;
+    }
+}
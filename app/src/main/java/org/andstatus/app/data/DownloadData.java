@@ -2,6 +2,7 @@ package org.andstatus.app.data;
 
 import android.content.ContentValues;
 import android.database.Cursor;
+import android.database.DatabaseUtils;
 import android.database.sqlite.SQLiteDatabase;
 import android.database.sqlite.SQLiteException;
 import android.net.Uri;
@@ -19,9 +20,12 @@ import org.andstatus.app.util.MyLog;
 import org.andstatus.app.util.UriUtils;
 
 import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
 public class DownloadData {
     private static final String TAG = DownloadData.class.getSimpleName();
+    static final long AVATAR_REUSE_PERIOD_MS = TimeUnit.DAYS.toMillis(1);
     public static final DownloadData EMPTY = new DownloadData();
 
     private DownloadType downloadType = DownloadType.UNKNOWN;
@@ -110,7 +114,7 @@ public class DownloadData {
         }
         Cursor cursor = null;
         try {
-            cursor = db.rawQuery(sql, null);
+            cursor = db.rawQuery(sql, UriUtils.isEmpty(uri) ? null : new String[]{uri.toString()});
             status = DownloadStatus.ABSENT;
             if (cursor.moveToNext()) {
                 status = DownloadStatus.load(DbUtils.getLong(cursor, DownloadTable.DOWNLOAD_STATUS));
@@ -148,6 +152,7 @@ public class DownloadData {
         return hardError;
     }
 
+    /** The Uri is a parameter of the clause, see {@link #loadOtherFields()} */
     private String getWhereClause() {
         StringBuilder builder = new StringBuilder();
         if (userId != 0) {
@@ -161,7 +166,7 @@ public class DownloadData {
             builder.append(" AND " + DownloadTable.CONTENT_TYPE + "=" + contentType.save());
         }
         if (!UriUtils.isEmpty(uri)) {
-            builder.append(" AND " + DownloadTable.URI + "=" + MyQuery.quoteIfNotQuoted(uri.toString()));
+            builder.append(" AND " + DownloadTable.URI + "=?");
         }
         return builder.toString();
     }
@@ -198,6 +203,73 @@ public class DownloadData {
         return TextUtils.isEmpty(MyContentType.getExtension(uri.toString())) ? "" : "."
                 + (MyContentType.getExtension(uri.toString()));
     }
+
+    /**
+     * Uses an already downloaded file of the same Uri (e.g. the same avatar of a user in another origin)
+     * instead of downloading it again.
+     * A user may change an avatar, keeping its Uri, so only a recently downloaded avatar is reused.
+     * Downloading it again costs traffic only: a file with the same content is stored once, see {@link #onFileDownloaded(DownloadFile)}
+     * @return true if such a file was found
+     */
+    public boolean reuseFileOfTheSameUri() {
+        if (hardError || UriUtils.isEmpty(uri)) {
+            return false;
+        }
+        SQLiteDatabase db = MyContextHolder.get().getDatabase();
+        if (db == null) {
+            MyLog.v(this, "Database is null");
+            return false;
+        }
+        String sql = "SELECT " + DownloadTable.FILE_NAME
+                + " FROM " + DownloadTable.TABLE_NAME
+                + " WHERE " + DownloadTable.URI + "=?"
+                + " AND " + DownloadTable.DOWNLOAD_STATUS + "=" + DownloadStatus.LOADED.save()
+                + " AND " + DownloadTable._ID + "<>" + downloadId
+                + (downloadType == DownloadType.AVATAR ? " AND " + DownloadTable.VALID_FROM + ">"
+                    + (System.currentTimeMillis() - AVATAR_REUSE_PERIOD_MS) : "")
+                + " AND " + DownloadTable.FILE_NAME + " IS NOT NULL";
+        Cursor cursor = null;
+        try {
+            cursor = db.rawQuery(sql, new String[]{uri.toString()});
+            while (cursor.moveToNext()) {
+                DownloadFile file = new DownloadFile(cursor.getString(0));
+                if (file.exists()) {
+                    fileNew = file;
+                    MyLog.v(this, "Reused " + file.getFilename() + " for " + userMsgUriToString());
+                    return true;
+                }
+            }
+        } catch (SQLiteException e) {
+            MyLog.d(this, "reuseFileOfTheSameUri; " + userMsgUriToString(), e);
+        } finally {
+            DbUtils.closeSilently(cursor);
+        }
+        return false;
+    }
+
+    /**
+     * Moves the downloaded file to the content-addressed storage. If a file with the same content
+     * has already been stored, the downloaded copy is simply deleted
+     */
+    public void onFileDownloaded(DownloadFile fileTemp) {
+        final String method = "onFileDownloaded";
+        DownloadFile fileHashed = DownloadFile.fromContentOf(fileTemp.getFile(),
+                MyContentType.getExtension(uri.toString()));
+        if (fileHashed.isEmpty()) {
+            fileTemp.delete();
+            softErrorLogged(method + ", Couldn't compute hash of " + fileTemp, null);
+            return;
+        }
+        if (fileHashed.exists()) {
+            fileTemp.delete();
+            MyLog.v(this, "The same content already stored in " + fileHashed.getFilename());
+        } else if (!fileTemp.getFile().renameTo(fileHashed.getFile())) {
+            fileTemp.delete();
+            softErrorLogged(method + ", Couldn't rename file " + fileTemp + " to " + fileHashed, null);
+            return;
+        }
+        fileNew = fileHashed;
+    }
     
     public void saveToDatabase() {
         if (hardError) {
@@ -238,11 +310,12 @@ public class DownloadData {
        values.put(DownloadTable.DOWNLOAD_STATUS, status.save());
        values.put(DownloadTable.FILE_NAME, fileNew.getFilename());
 
-       downloadId = DbUtils.addRowWithRetry(MyContextHolder.get(), DownloadTable.TABLE_NAME, values, 3);
-       if (downloadId == -1) {
-           softError = true;
-       } else {
+       FileReferenceWrite write = new FileReferenceWrite(0, values, getFileToReference(), DownloadFile.EMPTY);
+       if (DbWriter.execute(write)) {
+           downloadId = write.rowId;
            MyLog.v(this, "Added " + userMsgUriToString());
+       } else {
+           softError = true;
        }
     }
 
@@ -261,19 +334,77 @@ public class DownloadData {
     private void update() {
         ContentValues values = new ContentValues();
         values.put(DownloadTable.DOWNLOAD_STATUS, status.save());
-        boolean changeFile = !isError() && fileNew.exists() && fileStored != fileNew;
+        boolean changeFile = !isError() && fileNew.exists() && !fileStored.equals(fileNew);
         if (changeFile) {
             values.put(DownloadTable.FILE_NAME, fileNew.getFilename());
             values.put(DownloadTable.VALID_FROM, loadTimeNew);
         }
 
-        if (DbUtils.updateRowWithRetry(MyContextHolder.get(), DownloadTable.TABLE_NAME, downloadId, values, 3) != 1) {
-            softError = true;
-        } else {
+        if (DbWriter.execute(new FileReferenceWrite(downloadId, values, getFileToReference(),
+                changeFile ? fileStored : DownloadFile.EMPTY))) {
             MyLog.v(this, "Updated " + userMsgUriToString());
+        } else {
+            softError = true;
+        }
+    }
+
+    private DownloadFile getFileToReference() {
+        return DownloadStatus.LOADED.equals(status) ? fileNew : DownloadFile.EMPTY;
+    }
+
+    /**
+     * Files with the same content are shared between rows, so rows refer to files and unreferenced files
+     * are deleted in the {@link DbWriter}'s thread (or inside a transaction) only, one write after another.
+     * Hence a file, which was checked to exist by the write, cannot be deleted before the write refers to it
+     */
+    private class FileReferenceWrite extends DbWriter.Write {
+        private final ContentValues values;
+        private final DownloadFile fileToReference;
+        private final DownloadFile fileReplaced;
+        private volatile long rowId;
+
+        /** @param rowId 0 for a new row */
+        FileReferenceWrite(long rowId, ContentValues values, DownloadFile fileToReference, DownloadFile fileReplaced) {
+            super(MyContextHolder.get(), rowId == 0 ? null : DownloadTable.TABLE_NAME + ":" + rowId);
+            this.rowId = rowId;
+            this.values = values;
+            this.fileToReference = fileToReference;
+            this.fileReplaced = fileReplaced;
         }
-        if (!isError() && changeFile) {
-            fileStored.delete();
+
+        @Override
+        protected boolean write(SQLiteDatabase db) {
+            if (!fileToReference.isEmpty() && !fileToReference.exists()) {
+                MyLog.v(DownloadData.this, "File " + fileToReference.getFilename() + " was deleted; "
+                        + userMsgUriToString());
+                return false;
+            }
+            if (rowId == 0) {
+                rowId = db.insertOrThrow(DownloadTable.TABLE_NAME, null, values);
+                if (rowId == -1) {
+                    return false;
+                }
+            } else if (db.update(DownloadTable.TABLE_NAME, values, DownloadTable._ID + "=" + rowId, null) != 1) {
+                return false;
+            }
+            deleteFileIfNotReferenced(db, fileReplaced);
+            return true;
+        }
+    }
+
+    /**
+     * As files with the same content are shared between rows, a file is deleted
+     * only when no row of the {@link DownloadTable} refers to it. See {@link FileReferenceWrite}
+     */
+    private static void deleteFileIfNotReferenced(SQLiteDatabase db, DownloadFile file) {
+        if (file.isEmpty()) {
+            return;
+        }
+        long referencesCount = DatabaseUtils.longForQuery(db,
+                "SELECT COUNT(*) FROM " + DownloadTable.TABLE_NAME + " WHERE " + DownloadTable.FILE_NAME + "=?",
+                new String[]{file.getFilename()});
+        if (referencesCount == 0) {
+            file.delete();
         }
     }
 
@@ -319,37 +450,36 @@ public class DownloadData {
         deleteSelected(method, MyContextHolder.get().getDatabase(), where);
     }
 
+    /** Rows are deleted together with the files, they referred to, see {@link FileReferenceWrite} */
     private static void deleteSelected(final String method, SQLiteDatabase db, String where) {
-        String sql = "SELECT " + DownloadTable._ID + ", "
+        if (db == null) {
+            MyLog.v(TAG, "Database is null");
+            return;
+        }
+        final String sql = "SELECT " + DownloadTable._ID + ", "
                 + DownloadTable.FILE_NAME
                 + " FROM " + DownloadTable.TABLE_NAME
                 + " WHERE " + where;
-        int rowsDeleted = 0;
-        boolean done = false;
-        for (int pass=0; !done && pass<3; pass++) {
-            if (db == null) {
-                MyLog.v(TAG, "Database is null");
-                return;
-            }
-            Cursor cursor = null;
-            try {
-                cursor = db.rawQuery(sql, null);
-                while (cursor.moveToNext()) {
-                    long rowIdOld = cursor.getLong(0);
-                    new DownloadFile(cursor.getString(1)).delete();
-                    rowsDeleted += db.delete(DownloadTable.TABLE_NAME, DownloadTable._ID + "=" + Long.toString(rowIdOld), null);
+        final AtomicInteger rowsDeleted = new AtomicInteger();
+        boolean done = DbWriter.execute(new DbWriter.Write(MyContextHolder.get(), null) {
+            @Override
+            protected boolean write(SQLiteDatabase db) {
+                Cursor cursor = null;
+                try {
+                    cursor = db.rawQuery(sql, null);
+                    while (cursor.moveToNext()) {
+                        long rowIdOld = cursor.getLong(0);
+                        rowsDeleted.addAndGet(db.delete(DownloadTable.TABLE_NAME,
+                                DownloadTable._ID + "=" + Long.toString(rowIdOld), null));
+                        deleteFileIfNotReferenced(db, new DownloadFile(cursor.getString(1)));
+                    }
+                } finally {
+                    DbUtils.closeSilently(cursor);
                 }
-                done = true;
-            } catch (SQLiteException e) {
-                MyLog.i(DownloadData.class, method + ", Database is locked, pass=" + pass + "; sql='" + sql + "'", e);
-            } finally {
-                DbUtils.closeSilently(cursor);
-            }
-            if (!done) {
-                DbUtils.waitMs(method, 500);
+                return true;
             }
-        }
-        if (!done || rowsDeleted>0) {
+        });
+        if (!done || rowsDeleted.get() > 0) {
             MyLog.v(DownloadData.class, method + (done ? " succeeded" : " failed") + "; deleted " + rowsDeleted + " rows");
         }
     }
@@ -408,14 +538,24 @@ public class DownloadData {
     }
 
     public void requestDownload() {
+        requestDownload(false);
+    }
+
+    /** @return true if {@link #requestDownload()} would send a download command */
+    public boolean isDownloadNeeded() {
+        return !DownloadStatus.LOADED.equals(status) && !hardError;
+    }
+
+    /** @param visible the image is shown now, so it is downloaded before background downloads */
+    public void requestDownload(boolean visible) {
         if (!hardError && downloadId == 0) {
             saveToDatabase();
         }
-        if (!DownloadStatus.LOADED.equals(status) && !hardError) {
+        if (isDownloadNeeded()) {
             MyServiceManager.sendCommand(
-                    userId != 0 ?
+                    (userId != 0 ?
                             CommandData.newUserCommand(CommandEnum.FETCH_AVATAR, null, null, userId, "")
-                            : CommandData.newFetchAttachment(msgId, downloadId));
+                            : CommandData.newFetchAttachment(msgId, downloadId)).setVisible(visible));
         }
     }
 
@@ -443,12 +583,13 @@ public class DownloadData {
         return MyLog.formatKeyValue(this, builder.toString());
     }
 
+    /** Is called for an attached image, which is shown, see {@link #requestDownload(boolean)} */
     public static void asyncRequestDownload(final long downloadId) {
         AsyncTaskLauncher.execute(TAG, false,
                 new MyAsyncTask<Void, Void, Void>(TAG + downloadId, MyAsyncTask.PoolEnum.FILE_DOWNLOAD) {
                     @Override
                     protected Void doInBackground2(Void... params) {
-                        DownloadData.fromId(downloadId).requestDownload();
+                        DownloadData.fromId(downloadId).requestDownload(true);
                         return null;
                     }
                 }
@@ -23,12 +23,64 @@ import org.andstatus.app.context.MyStorage;
 import org.andstatus.app.util.MyLog;
 
 import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 
 public class DownloadFile {
     private final String filename;
     private final File file;
     public static final DownloadFile EMPTY = new DownloadFile(null);
 
+    /**
+     * Downloaded files are stored under the hash of their content,
+     * so identical images (e.g. the same avatar in several origins) share one file
+     * @return empty DownloadFile in case of an error
+     */
+    @NonNull
+    public static DownloadFile fromContentOf(File file, String extension) {
+        String contentHash = computeContentHash(file);
+        if (TextUtils.isEmpty(contentHash)) {
+            return EMPTY;
+        }
+        return new DownloadFile(contentHash + (TextUtils.isEmpty(extension) ? "" : "." + extension));
+    }
+
+    /** @return SHA-1 of the file's content as a hex string, or empty string in case of an error */
+    @NonNull
+    static String computeContentHash(File file) {
+        if (file == null || !file.isFile()) {
+            return "";
+        }
+        InputStream in = null;
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-1");
+            in = new FileInputStream(file);
+            byte[] buffer = new byte[8192];
+            int count;
+            while ((count = in.read(buffer)) > 0) {
+                digest.update(buffer, 0, count);
+            }
+            return bytesToHex(digest.digest());
+        } catch (IOException | NoSuchAlgorithmException e) {
+            MyLog.d(DownloadFile.class, "Couldn't compute hash of " + file.getAbsolutePath(), e);
+            return "";
+        } finally {
+            DbUtils.closeSilently(in);
+        }
+    }
+
+    private static String bytesToHex(byte[] bytes) {
+        StringBuilder builder = new StringBuilder(bytes.length * 2);
+        for (byte b : bytes) {
+            builder.append(Character.forDigit((b >> 4) & 0xF, 16));
+            builder.append(Character.forDigit(b & 0xF, 16));
+        }
+        return builder.toString();
+    }
+
     public DownloadFile(String filename) {
         this.filename = filename;
         if (!TextUtils.isEmpty(filename)) {
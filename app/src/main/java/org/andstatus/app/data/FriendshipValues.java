@@ -17,9 +17,9 @@
 package org.andstatus.app.data;
 
 import android.content.ContentValues;
-import android.database.Cursor;
 import android.database.sqlite.SQLiteDatabase;
 import android.database.sqlite.SQLiteDatabaseLockedException;
+import android.database.sqlite.SQLiteStatement;
 
 import org.andstatus.app.context.MyContextHolder;
 import org.andstatus.app.database.FriendshipTable;
@@ -27,11 +27,20 @@ import org.andstatus.app.util.ContentValuesUtils;
 import org.andstatus.app.util.MyLog;
 import org.andstatus.app.util.SharedPreferencesUtil;
 
+import java.util.Collection;
+
 /**
  * Helper class to update the "Friendship" information (see {@link FriendshipTable})
  * @author yvolk@yurivolkov.com
  */
 public class FriendshipValues {
+    private static final String SQL_UPDATE = "UPDATE " + FriendshipTable.TABLE_NAME
+            + " SET " + FriendshipTable.FOLLOWED + "=?"
+            + " WHERE " + FriendshipTable.USER_ID + "=? AND " + FriendshipTable.FRIEND_ID + "=?";
+    private static final String SQL_INSERT = "INSERT INTO " + FriendshipTable.TABLE_NAME
+            + " (" + FriendshipTable.USER_ID + ", " + FriendshipTable.FRIEND_ID + ", " + FriendshipTable.FOLLOWED
+            + ") VALUES (?, ?, ?)";
+
     public long userId;
     public long friendId;
     private ContentValues contentValues = new ContentValues();
@@ -63,6 +72,44 @@ public class FriendshipValues {
         fu.update(MyContextHolder.get().getDatabase());
     }
 
+    /**
+     * Update many friendships in one transaction, e.g. all friends of a user after their sync.
+     * The whole transaction is retried, if the database is locked, unless the caller has its own transaction.
+     * As for a single friendship, a failure is logged only
+     */
+    public static void update(SQLiteDatabase db, Collection<FriendshipValues> friendships) {
+        if (db == null || friendships.isEmpty()) {
+            return;
+        }
+        boolean mayRetry = !db.inTransaction();
+        for (int pass=0; pass<5; pass++) {
+            try {
+                updateInTransaction(db, friendships);
+                break;
+            } catch (SQLiteDatabaseLockedException e) {
+                MyLog.i(FriendshipValues.class, "update " + friendships.size()
+                        + " friendships, Database is locked, pass=" + pass, e);
+                if (!mayRetry || DbUtils.waitBetweenRetries("update")) {
+                    MyLog.e(FriendshipValues.class, "Failed to update " + friendships.size() + " friendships", e);
+                    break;
+                }
+            }
+        }
+    }
+
+    private static void updateInTransaction(SQLiteDatabase db, Collection<FriendshipValues> friendships) {
+        StatementCache statements = StatementCache.ofThread(db);
+        db.beginTransaction();
+        try {
+            for (FriendshipValues friendship : friendships) {
+                friendship.update(statements);
+            }
+            db.setTransactionSuccessful();
+        } finally {
+            db.endTransaction();
+        }
+    }
+
     public FriendshipValues(long userId, long friendId) {
         this.userId = userId;
         this.friendId = friendId;
@@ -76,55 +123,51 @@ public class FriendshipValues {
     }
     
     /**
-     * Update information in the database 
+     * Update information in the database.
+     * A locked database is retried only outside of a transaction: inside it the lock cannot be released by waiting.
+     * A failure is logged only
      */
     public void update(SQLiteDatabase db) {
-        boolean followed = false;
-        if (db != null &&  userId != 0 && friendId != 0 && contentValues.containsKey(FriendshipTable.FOLLOWED)) {
-            followed = SharedPreferencesUtil.isTrue(contentValues.get(FriendshipTable.FOLLOWED));
-        } else {
-            // Don't change anything as there is no information
+        if (db == null || !hasInformation()) {
             return;
         }
+        boolean mayRetry = !db.inTransaction();
         for (int pass=0; pass<5; pass++) {
             try {
-                tryToUpdate(db, followed);
+                update(StatementCache.ofThread(db));
                 break;
             } catch (SQLiteDatabaseLockedException e) {
                 MyLog.i(this, "update, Database is locked, pass=" + pass, e);
-                if (DbUtils.waitBetweenRetries("update")) {
+                if (!mayRetry || DbUtils.waitBetweenRetries("update")) {
+                    MyLog.e(this, "Failed to update " + userId + " -> " + friendId, e);
                     break;
                 }
             }
         }
     }
 
-    private void tryToUpdate(SQLiteDatabase db, boolean followed) {
-        // TODO: create universal dExists method...
-        String where = FriendshipTable.USER_ID + "=" + userId
-                + " AND " + FriendshipTable.FRIEND_ID + "=" + friendId;
-        String sql = "SELECT * FROM " + FriendshipTable.TABLE_NAME + " WHERE " + where;
+    private boolean hasInformation() {
+        return userId != 0 && friendId != 0 && contentValues.containsKey(FriendshipTable.FOLLOWED);
+    }
 
-        Cursor cursor = null;
-        boolean exists = false;
-        try {
-            cursor = db.rawQuery(sql, null);
-            exists = cursor.moveToFirst();
-        } finally {
-            DbUtils.closeSilently(cursor);
+    private void update(StatementCache statements) {
+        if (!hasInformation()) {
+            // Don't change anything as there is no information
+            return;
         }
-
-        if (exists) {
-            db.update(FriendshipTable.TABLE_NAME, contentValues, where,
-                    null);
-        } else if (followed) {
+        boolean followed = SharedPreferencesUtil.isTrue(contentValues.get(FriendshipTable.FOLLOWED));
+        SQLiteStatement update = statements.get(SQL_UPDATE);
+        update.bindLong(1, followed ? 1 : 0);
+        update.bindLong(2, userId);
+        update.bindLong(3, friendId);
+        int count = update.executeUpdateDelete();
+        if (count == 0 && followed) {
             // There was no such row
-            ContentValues cv = new ContentValues(contentValues);
-            // Add Key fields
-            cv.put(FriendshipTable.USER_ID, userId);
-            cv.put(FriendshipTable.FRIEND_ID, friendId);
-            
-            db.insert(FriendshipTable.TABLE_NAME, null, cv);
+            SQLiteStatement insert = statements.get(SQL_INSERT);
+            insert.bindLong(1, userId);
+            insert.bindLong(2, friendId);
+            insert.bindLong(3, 1);
+            insert.executeInsert();
         }
     }
 }
@@ -0,0 +1,191 @@
+/*
+ * Copyright (c) 2017 yvolk (Yuri Volkov), http://yurivolkov.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.andstatus.app.data;
+
+import android.database.Cursor;
+import android.database.sqlite.SQLiteDatabase;
+import android.provider.BaseColumns;
+import android.support.annotation.NonNull;
+
+import org.andstatus.app.context.MyContextHolder;
+import org.andstatus.app.database.MsgTable;
+import org.andstatus.app.database.UserTable;
+import org.andstatus.app.util.MyLog;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Copy of the fields of a message, of its author, actor and in-reply-to message,
+ * that are needed to show a context menu or an editor. Loaded with one query
+ * and kept in a small LRU cache, which is invalidated when the message or its users change.
+ * Snapshots are shared through the cache, so they shouldn't be modified after loading
+ * @author yvolk@yurivolkov.com
+ */
+public class MessageSnapshot {
+    public static final MessageSnapshot EMPTY = new MessageSnapshot(0);
+    private static final int CACHE_SIZE_MAX = 64;
+
+    private static final Map<Long, MessageSnapshot> cache =
+            new LinkedHashMap<Long, MessageSnapshot>(CACHE_SIZE_MAX, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<Long, MessageSnapshot> eldest) {
+                    return size() > CACHE_SIZE_MAX;
+                }
+            };
+    /** Incremented on each invalidation, so a snapshot, loaded before it, is not cached */
+    private static long generation = 0;
+
+    public final long msgId;
+    public long originId = 0;
+    public DownloadStatus status = DownloadStatus.UNKNOWN;
+    public String body = "";
+    public long actorId = 0;
+    public String actorWebFingerId = "";
+    public long authorId = 0;
+    public String authorWebFingerId = "";
+    public long inReplyToMsgId = 0;
+    public long inReplyToUserId = 0;
+    public String inReplyToBody = "";
+    public long recipientId = 0;
+
+    private MessageSnapshot(long msgId) {
+        this.msgId = msgId;
+    }
+
+    @NonNull
+    public static MessageSnapshot get(long msgId) {
+        if (msgId == 0) {
+            return EMPTY;
+        }
+        long generationOfLoad;
+        synchronized (cache) {
+            MessageSnapshot snapshot = cache.get(msgId);
+            if (snapshot != null) {
+                return snapshot;
+            }
+            generationOfLoad = generation;
+        }
+        MessageSnapshot snapshot = load(msgId);
+        if (snapshot != EMPTY) {
+            synchronized (cache) {
+                if (generation == generationOfLoad) {
+                    cache.put(msgId, snapshot);
+                }
+            }
+        }
+        return snapshot;
+    }
+
+    @NonNull
+    private static MessageSnapshot load(long msgId) {
+        SQLiteDatabase db = MyContextHolder.get().getDatabase();
+        if (db == null) {
+            MyLog.v(MessageSnapshot.class, "load; Database is null");
+            return EMPTY;
+        }
+        String sql = "SELECT msg." + MsgTable.ORIGIN_ID + ", msg." + MsgTable.MSG_STATUS
+                + ", msg." + MsgTable.BODY
+                + ", msg." + MsgTable.ACTOR_ID + ", actor." + UserTable.WEBFINGER_ID
+                + ", msg." + MsgTable.AUTHOR_ID + ", author." + UserTable.WEBFINGER_ID
+                + ", msg." + MsgTable.IN_REPLY_TO_MSG_ID + ", msg." + MsgTable.IN_REPLY_TO_USER_ID
+                + ", inreplyto." + MsgTable.BODY
+                + ", msg." + MsgTable.RECIPIENT_ID
+                + " FROM " + MsgTable.TABLE_NAME + " AS msg"
+                + " LEFT JOIN " + UserTable.TABLE_NAME + " AS actor"
+                + " ON actor." + BaseColumns._ID + "=msg." + MsgTable.ACTOR_ID
+                + " LEFT JOIN " + UserTable.TABLE_NAME + " AS author"
+                + " ON author." + BaseColumns._ID + "=msg." + MsgTable.AUTHOR_ID
+                + " LEFT JOIN " + MsgTable.TABLE_NAME + " AS inreplyto"
+                + " ON inreplyto." + BaseColumns._ID + "=msg." + MsgTable.IN_REPLY_TO_MSG_ID
+                + " WHERE msg." + BaseColumns._ID + "=" + msgId;
+        Cursor cursor = null;
+        try {
+            cursor = db.rawQuery(sql, null);
+            if (cursor.moveToFirst()) {
+                MessageSnapshot snapshot = new MessageSnapshot(msgId);
+                snapshot.originId = cursor.getLong(0);
+                snapshot.status = DownloadStatus.load(cursor.getLong(1));
+                snapshot.body = nonNull(cursor.getString(2));
+                snapshot.actorId = cursor.getLong(3);
+                snapshot.actorWebFingerId = nonNull(cursor.getString(4));
+                snapshot.authorId = cursor.getLong(5);
+                snapshot.authorWebFingerId = nonNull(cursor.getString(6));
+                snapshot.inReplyToMsgId = cursor.getLong(7);
+                snapshot.inReplyToUserId = cursor.getLong(8);
+                snapshot.inReplyToBody = nonNull(cursor.getString(9));
+                snapshot.recipientId = cursor.getLong(10);
+                return snapshot;
+            }
+        } catch (Exception e) {
+            MyLog.i(MessageSnapshot.class, "load; SQL='" + sql + "'", e);
+        } finally {
+            DbUtils.closeSilently(cursor);
+        }
+        return EMPTY;
+    }
+
+    private static String nonNull(String value) {
+        return value == null ? "" : value;
+    }
+
+    public boolean isEmpty() {
+        return msgId == 0;
+    }
+
+    /** The message was changed or deleted. Replies are forgotten also, because they keep its body */
+    public static void forget(long msgId) {
+        synchronized (cache) {
+            generation++;
+            Iterator<MessageSnapshot> iterator = cache.values().iterator();
+            while (iterator.hasNext()) {
+                MessageSnapshot snapshot = iterator.next();
+                if (snapshot.msgId == msgId || snapshot.inReplyToMsgId == msgId) {
+                    iterator.remove();
+                }
+            }
+        }
+    }
+
+    public static void onUserUpdated(long userId) {
+        synchronized (cache) {
+            generation++;
+            Iterator<MessageSnapshot> iterator = cache.values().iterator();
+            while (iterator.hasNext()) {
+                MessageSnapshot snapshot = iterator.next();
+                if (snapshot.actorId == userId || snapshot.authorId == userId) {
+                    iterator.remove();
+                }
+            }
+        }
+    }
+
+    public static void forget() {
+        synchronized (cache) {
+            generation++;
+            cache.clear();
+        }
+    }
+
+    @Override
+    public String toString() {
+        return MyLog.formatKeyValue(this, "msgId:" + msgId + ", status:" + status
+                + ", actor:" + actorWebFingerId + ", author:" + authorWebFingerId
+                + (inReplyToMsgId == 0 ? "" : ", inReplyTo:" + inReplyToMsgId));
+    }
+}
@@ -17,18 +17,20 @@
 package org.andstatus.app.data;
 
 import android.database.Cursor;
+import android.database.sqlite.SQLiteDatabase;
+import android.database.sqlite.SQLiteStatement;
 import android.text.TextUtils;
 
 import org.andstatus.app.backup.ProgressLogger;
 import org.andstatus.app.context.MyContext;
 import org.andstatus.app.database.MsgTable;
 import org.andstatus.app.service.MyServiceManager;
+import org.andstatus.app.util.LongMap;
 import org.andstatus.app.util.MyLog;
 
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
-import java.util.TreeMap;
 import java.util.concurrent.ConcurrentHashMap;
 
 /**
@@ -36,11 +38,16 @@ import java.util.concurrent.ConcurrentHashMap;
  */
 public class MyDataCheckerConversations {
     private static final int PROGRESS_REPORT_PERIOD_SECONDS = 20;
+    private static final String SQL_UPDATE = "UPDATE " + MsgTable.TABLE_NAME
+            + " SET " + MsgTable.IN_REPLY_TO_MSG_ID + "=?, " + MsgTable.CONVERSATION_ID + "=?"
+            + " WHERE " + MsgTable._ID + "=?";
     private final MyContext myContext;
     private final ProgressLogger logger;
 
-    Map<Long, MsgItem> items = new TreeMap<>();
-    Map<Long, List<MsgItem>> replies = new TreeMap<>();
+    /** Messages in the order of their ids, as they were loaded */
+    final List<MsgItem> itemsInOrder = new ArrayList<>();
+    final LongMap<MsgItem> items = new LongMap<>();
+    final LongMap<List<MsgItem>> replies = new LongMap<>();
 
     private class MsgItem {
         long id = 0;
@@ -106,49 +113,64 @@ public class MyDataCheckerConversations {
         return changedCount;
     }
 
+    /** Messages are loaded in chunks by ranges of their ids, so a cursor window doesn't hold all of them */
     private void loadMessages() {
+        itemsInOrder.clear();
         items.clear();
         replies.clear();
-        String sql = "SELECT " + MsgTable._ID
-                + ", " + MsgTable.ORIGIN_ID
-                + ", " + MsgTable.IN_REPLY_TO_MSG_ID
-                + ", " + MsgTable.CONVERSATION_ID
-                + ", " + MsgTable.CONVERSATION_OID
-                + " FROM " + MsgTable.TABLE_NAME
-                ;
-        Cursor c = null;
         long rowsCount = 0;
-        try {
-            c = myContext.getDatabase().rawQuery(sql, null);
-            while (c.moveToNext()) {
-                rowsCount++;
-                MsgItem item = new MsgItem();
-                item.id = c.getLong(0);
-                item.originId = c.getLong(1);
-                item.inReplyToId = c.getLong(2);
-                item.inReplyToId_initial = item.inReplyToId;
-                item.conversationId = c.getLong(3);
-                item.conversationId_initial = item.conversationId;
-                item.conversationOid = c.getString(4);
-                items.put(item.id, item);
-                if (item.inReplyToId != 0) {
-                    List<MsgItem> replies1 = replies.get(item.inReplyToId);
-                    if (replies1 == null) {
-                        replies1 = new ArrayList<>();
-                        replies.put(item.inReplyToId, replies1);
+        long lastId = 0;
+        int chunkSize;
+        do {
+            String sql = "SELECT " + MsgTable._ID
+                    + ", " + MsgTable.ORIGIN_ID
+                    + ", " + MsgTable.IN_REPLY_TO_MSG_ID
+                    + ", " + MsgTable.CONVERSATION_ID
+                    + ", " + MsgTable.CONVERSATION_OID
+                    + " FROM " + MsgTable.TABLE_NAME
+                    + " WHERE " + MsgTable._ID + ">" + lastId
+                    + " ORDER BY " + MsgTable._ID
+                    + " LIMIT " + ChunkedDataChecker.CHUNK_SIZE;
+            chunkSize = 0;
+            Cursor c = null;
+            try {
+                c = myContext.getDatabase().rawQuery(sql, null);
+                while (c.moveToNext()) {
+                    chunkSize++;
+                    MsgItem item = new MsgItem();
+                    item.id = c.getLong(0);
+                    item.originId = c.getLong(1);
+                    item.inReplyToId = c.getLong(2);
+                    item.inReplyToId_initial = item.inReplyToId;
+                    item.conversationId = c.getLong(3);
+                    item.conversationId_initial = item.conversationId;
+                    item.conversationOid = c.getString(4);
+                    itemsInOrder.add(item);
+                    items.put(item.id, item);
+                    if (item.inReplyToId != 0) {
+                        List<MsgItem> replies1 = replies.get(item.inReplyToId);
+                        if (replies1 == null) {
+                            replies1 = new ArrayList<>();
+                            replies.put(item.inReplyToId, replies1);
+                        }
+                        replies1.add(item);
                     }
-                    replies1.add(item);
+                    lastId = item.id;
                 }
+            } finally {
+                DbUtils.closeSilently(c);
             }
-        } finally {
-            DbUtils.closeSilently(c);
-        }
+            rowsCount += chunkSize;
+            if (logger.loggedMoreSecondsAgoThan(PROGRESS_REPORT_PERIOD_SECONDS)) {
+                logger.logProgress(Long.toString(rowsCount) + " messages loaded...");
+            }
+        } while (chunkSize == ChunkedDataChecker.CHUNK_SIZE);
         logger.logProgress(Long.toString(rowsCount) + " messages loaded");
     }
 
     private void fixConversationsUsingReplies() {
         int counter = 0;
-        for (MsgItem item : items.values()) {
+        for (MsgItem item : itemsInOrder) {
             if (item.inReplyToId != 0) {
                 MsgItem parent = items.get(item.inReplyToId);
                 if (parent == null) {
@@ -172,7 +194,7 @@ public class MyDataCheckerConversations {
     private void fixConversationsUsingConversationOid() {
         int counter = 0;
         Map<Long, Map<String, MsgItem>> origins = new ConcurrentHashMap<>();
-        for (MsgItem item : items.values()) {
+        for (MsgItem item : itemsInOrder) {
             if (!TextUtils.isEmpty(item.conversationOid)) {
                 Map<String, MsgItem> firstConversationMembers = origins.get(item.originId);
                 if (firstConversationMembers == null) {
@@ -212,44 +234,72 @@ public class MyDataCheckerConversations {
         }
     }
 
+    /** Changes are saved in one transaction per chunk of changed messages */
     private int saveChanges(boolean countOnly) {
-        int changedCount = 0;
-        for (MsgItem item : items.values()) {
+        List<MsgItem> changed = new ArrayList<>();
+        for (MsgItem item : itemsInOrder) {
             if (item.isChanged()) {
-                String sql = "";
-                try {
-                    if (changedCount < 5) {
-                        MyLog.v(this, "msgId=" + item.id + "; "
-                            + (item.isInReplyToIdChanged() ? "inReplyToId changed from "
-                                + item.inReplyToId_initial + " to " + item.inReplyToId : "")
-                            + (item.isInReplyToIdChanged() && item.isConversationIdChanged() ? " and " : "")
-                            + (item.isConversationIdChanged() ? "conversationId changed from "
-                                + item.conversationId_initial + " to " + item.conversationId : ""));
-                    }
-                    if (!countOnly) {
-                        sql = "UPDATE " + MsgTable.TABLE_NAME
-                                + " SET "
-                                + (item.isInReplyToIdChanged() ?
-                                    MsgTable.IN_REPLY_TO_MSG_ID + "=" + DbUtils.sqlZeroToNull(item.inReplyToId) : "")
-                                + (item.isInReplyToIdChanged() && item.isConversationIdChanged() ? ", " : "")
-                                + (item.isConversationIdChanged() ?
-                                    MsgTable.CONVERSATION_ID + "=" + DbUtils.sqlZeroToNull(item.conversationId) : "")
-                                + " WHERE " + MsgTable._ID + "=" + item.id;
-                        myContext.getDatabase().execSQL(sql);
-                    }
-                    changedCount++;
-                    if (logger.loggedMoreSecondsAgoThan(PROGRESS_REPORT_PERIOD_SECONDS)) {
-                        logger.logProgress("Saved changes for " + changedCount + " messages");
-                        MyServiceManager.setServiceUnavailable();
-                    }
-                } catch (Exception e) {
-                    String logMsg = "Error: " + e.getMessage() + ", SQL:" + sql;
-                    logger.logProgress(logMsg);
-                    MyLog.e(this, logMsg, e);
+                if (changed.size() < 5) {
+                    MyLog.v(this, "msgId=" + item.id + "; "
+                        + (item.isInReplyToIdChanged() ? "inReplyToId changed from "
+                            + item.inReplyToId_initial + " to " + item.inReplyToId : "")
+                        + (item.isInReplyToIdChanged() && item.isConversationIdChanged() ? " and " : "")
+                        + (item.isConversationIdChanged() ? "conversationId changed from "
+                            + item.conversationId_initial + " to " + item.conversationId : ""));
                 }
+                changed.add(item);
+            }
+        }
+        if (countOnly) {
+            return changed.size();
+        }
+        int changedCount = 0;
+        for (int from = 0; from < changed.size(); from += ChunkedDataChecker.CHUNK_SIZE) {
+            List<MsgItem> chunk = changed.subList(from,
+                    Math.min(from + ChunkedDataChecker.CHUNK_SIZE, changed.size()));
+            try {
+                saveChunk(chunk);
+                changedCount += chunk.size();
+            } catch (Exception e) {
+                String logMsg = "Error: " + e.getMessage() + ", SQL:" + SQL_UPDATE + ", msgIds from "
+                        + chunk.get(0).id + " to " + chunk.get(chunk.size() - 1).id;
+                logger.logProgress(logMsg);
+                MyLog.e(this, logMsg, e);
+            }
+            if (logger.loggedMoreSecondsAgoThan(PROGRESS_REPORT_PERIOD_SECONDS)) {
+                logger.logProgress("Saved changes for " + changedCount + " messages of " + changed.size());
+                MyServiceManager.setServiceUnavailable();
             }
         }
         return changedCount;
     }
 
+    private void saveChunk(List<MsgItem> chunk) {
+        SQLiteDatabase db = myContext.getDatabase();
+        StatementCache statements = new StatementCache(db);
+        db.beginTransaction();
+        try {
+            SQLiteStatement statement = statements.get(SQL_UPDATE);
+            for (MsgItem item : chunk) {
+                bindZeroToNull(statement, 1, item.inReplyToId);
+                bindZeroToNull(statement, 2, item.conversationId);
+                statement.bindLong(3, item.id);
+                statement.executeUpdateDelete();
+            }
+            db.setTransactionSuccessful();
+        } finally {
+            db.endTransaction();
+            statements.close();
+            MessageSnapshot.forget();
+        }
+    }
+
+    private static void bindZeroToNull(SQLiteStatement statement, int index, long value) {
+        if (value == 0) {
+            statement.bindNull(index);
+        } else {
+            statement.bindLong(index, value);
+        }
+    }
+
 }
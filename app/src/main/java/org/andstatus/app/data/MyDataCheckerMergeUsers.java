@@ -17,6 +17,8 @@
 package org.andstatus.app.data;
 
 import android.database.Cursor;
+import android.database.sqlite.SQLiteDatabase;
+import android.database.sqlite.SQLiteStatement;
 import android.support.annotation.NonNull;
 
 import org.andstatus.app.backup.ProgressLogger;
@@ -31,6 +33,8 @@ import org.andstatus.app.net.social.MbActivityType;
 import org.andstatus.app.net.social.MbUser;
 import org.andstatus.app.util.MyLog;
 
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Set;
 import java.util.concurrent.ConcurrentSkipListSet;
 
@@ -38,6 +42,7 @@ import java.util.concurrent.ConcurrentSkipListSet;
  * @author yvolk@yurivolkov.com
  */
 public class MyDataCheckerMergeUsers {
+    private static final int MERGES_PER_TRANSACTION = 100;
     private final MyContext myContext;
     private final ProgressLogger logger;
 
@@ -51,10 +56,14 @@ public class MyDataCheckerMergeUsers {
         logger.logProgress(method + " started");
 
         int changedCount = 0;
+        List<MbActivity> chunk = new ArrayList<>();
         for (MbActivity activity : getUsersToMerge()) {
-            mergeUser(activity);
-            changedCount++;
+            chunk.add(activity);
+            if (chunk.size() >= MERGES_PER_TRANSACTION) {
+                changedCount += mergeUsers(chunk);
+            }
         }
+        changedCount += mergeUsers(chunk);
         logger.logProgress(method + " ended, "
                 + (changedCount > 0 ?  changedCount + " users merged" : " no changes were needed"));
         DbUtils.waitMs(method, changedCount == 0 ? 1000 : 3000);
@@ -124,36 +133,61 @@ public class MyDataCheckerMergeUsers {
         return activity;
     }
 
-    private void mergeUser(MbActivity activity) {
+    /** Merges of the chunk are done in one transaction. The chunk is cleared */
+    private int mergeUsers(List<MbActivity> chunk) {
+        if (chunk.isEmpty()) {
+            return 0;
+        }
+        int count = chunk.size();
+        SQLiteDatabase db = myContext.getDatabase();
+        StatementCache statements = new StatementCache(db);
+        db.beginTransaction();
+        try {
+            for (MbActivity activity : chunk) {
+                mergeUser(statements, activity);
+            }
+            db.setTransactionSuccessful();
+        } finally {
+            db.endTransaction();
+            statements.close();
+            MessageSnapshot.forget();
+        }
+        chunk.clear();
+        return count;
+    }
+
+    private void mergeUser(StatementCache statements, MbActivity activity) {
         MbUser user = activity.getUser();
         String logMsg = "Merging " + user + " with " + activity.getActor();
         logger.logProgress(logMsg);
-        updateColumn(logMsg, activity, MsgTable.TABLE_NAME, MsgTable.ACTOR_ID, false);
-        updateColumn(logMsg, activity, MsgTable.TABLE_NAME, MsgTable.AUTHOR_ID, false);
-        updateColumn(logMsg, activity, MsgTable.TABLE_NAME, MsgTable.RECIPIENT_ID, false);
-        updateColumn(logMsg, activity, MsgTable.TABLE_NAME, MsgTable.IN_REPLY_TO_USER_ID, false);
+        updateColumn(statements, logMsg, activity, MsgTable.TABLE_NAME, MsgTable.ACTOR_ID, false);
+        updateColumn(statements, logMsg, activity, MsgTable.TABLE_NAME, MsgTable.AUTHOR_ID, false);
+        updateColumn(statements, logMsg, activity, MsgTable.TABLE_NAME, MsgTable.RECIPIENT_ID, false);
+        updateColumn(statements, logMsg, activity, MsgTable.TABLE_NAME, MsgTable.IN_REPLY_TO_USER_ID, false);
 
-        updateColumn(logMsg, activity, MsgOfUserTable.TABLE_NAME, MsgOfUserTable.USER_ID, true);
-        deleteRows(logMsg, user, MsgOfUserTable.TABLE_NAME, MsgOfUserTable.USER_ID);
+        updateColumn(statements, logMsg, activity, MsgOfUserTable.TABLE_NAME, MsgOfUserTable.USER_ID, true);
+        deleteRows(statements, logMsg, user, MsgOfUserTable.TABLE_NAME, MsgOfUserTable.USER_ID);
 
-        deleteRows(logMsg, user, FriendshipTable.TABLE_NAME, FriendshipTable.USER_ID);
-        deleteRows(logMsg, user, FriendshipTable.TABLE_NAME, FriendshipTable.FRIEND_ID);
+        deleteRows(statements, logMsg, user, FriendshipTable.TABLE_NAME, FriendshipTable.USER_ID);
+        deleteRows(statements, logMsg, user, FriendshipTable.TABLE_NAME, FriendshipTable.FRIEND_ID);
 
-        deleteRows(logMsg, user, DownloadTable.TABLE_NAME, DownloadTable.USER_ID);
+        deleteRows(statements, logMsg, user, DownloadTable.TABLE_NAME, DownloadTable.USER_ID);
 
-        deleteRows(logMsg, user, UserTable.TABLE_NAME, UserTable._ID);
+        deleteRows(statements, logMsg, user, UserTable.TABLE_NAME, UserTable._ID);
     }
 
-    private void updateColumn(String logMsg, MbActivity activity, String table, String column, boolean ignoreError) {
-        String sql = "";
+    private void updateColumn(StatementCache statements, String logMsg, MbActivity activity, String table, String column, boolean ignoreError) {
+        String sql = "UPDATE "
+                + table
+                + " SET "
+                + column + "=?"
+                + " WHERE "
+                + column + "=?";
         try {
-            sql = "UPDATE "
-                    + table
-                    + " SET "
-                    + column + "=" + activity.getActor().userId
-                    + " WHERE "
-                    + column + "=" + activity.getUser().userId;
-            myContext.getDatabase().execSQL(sql);
+            SQLiteStatement statement = statements.get(sql);
+            statement.bindLong(1, activity.getActor().userId);
+            statement.bindLong(2, activity.getUser().userId);
+            statement.executeUpdateDelete();
         } catch (Exception e) {
             if (!ignoreError) {
                 logger.logProgress("Error: " + e.getMessage() + ", SQL:" + sql);
@@ -162,15 +196,16 @@ public class MyDataCheckerMergeUsers {
         }
     }
 
-    private void deleteRows(String logMsg, MbUser user, String table, String column) {
-        String sql = "";
+    private void deleteRows(StatementCache statements, String logMsg, MbUser user, String table, String column) {
+        String sql = "DELETE "
+                + " FROM "
+                + table
+                + " WHERE "
+                + column + "=?";
         try {
-            sql = "DELETE "
-                    + " FROM "
-                    + table
-                    + " WHERE "
-                    + column + "=" + user.userId;
-            myContext.getDatabase().execSQL(sql);
+            SQLiteStatement statement = statements.get(sql);
+            statement.bindLong(1, user.userId);
+            statement.executeUpdateDelete();
         } catch (Exception e) {
             logger.logProgress("Error: " + e.getMessage() + ", SQL:" + sql);
             MyLog.e(this, logMsg + ", SQL:" + sql, e);
@@ -17,11 +17,11 @@
 package org.andstatus.app.data;
 
 import android.database.Cursor;
+import android.database.sqlite.SQLiteStatement;
 
 import org.andstatus.app.backup.ProgressLogger;
 import org.andstatus.app.context.MyContext;
 import org.andstatus.app.database.MsgTable;
-import org.andstatus.app.service.MyServiceManager;
 import org.andstatus.app.util.MyHtml;
 import org.andstatus.app.util.MyLog;
 
@@ -31,61 +31,64 @@ import static org.andstatus.app.data.MyQuery.quoteIfNotQuoted;
  * @author yvolk@yurivolkov.com
  */
 public class MyDataCheckerSearchIndex {
-    private static final int PROGRESS_REPORT_PERIOD_SECONDS = 20;
+    static final String KEY_CHECKED_ID = "data_checker_search_index_id";
+    private static final String SQL_UPDATE = "UPDATE " + MsgTable.TABLE_NAME
+            + " SET " + MsgTable.BODY_TO_SEARCH + "=?"
+            + " WHERE " + MsgTable._ID + "=?";
     private final MyContext myContext;
     private final ProgressLogger logger;
 
+    private static class MsgItem {
+        long id = 0;
+        String body = "";
+        String bodyToSearch = "";
+    }
+
     public MyDataCheckerSearchIndex(MyContext myContext, ProgressLogger logger) {
         this.myContext = myContext;
         this.logger = logger;
     }
 
     public void fixData() {
-        logger.logProgress("Search index update started");
-        String sql = "SELECT " + MsgTable._ID
-                + ", " + MsgTable.BODY
-                + ", " + MsgTable.BODY_TO_SEARCH
-                + " FROM " + MsgTable.TABLE_NAME
-                ;
-        Cursor c = null;
-        long rowsCount = 0;
-        long changedCount = 0;
-        try {
-            c = myContext.getDatabase().rawQuery(sql, null);
-            while (c.moveToNext()) {
-                rowsCount++;
-                long id = c.getLong(0);
-                String body = c.getString(1);
-                String bodyToSearch = c.getString(2);
-                String bodyToSearchExpected = MyHtml.getBodyToSearch(body);
-                if (!bodyToSearchExpected.equals(bodyToSearch)) {
-                    changedCount++;
-                    MyLog.i(this, "Wrong body to search for " + id + ": " + quoteIfNotQuoted(body));
-                    sql = "UPDATE " + MsgTable.TABLE_NAME
-                            + " SET "
-                            + MsgTable.BODY_TO_SEARCH + "=" + quoteIfNotQuoted(bodyToSearchExpected)
-                            + " WHERE " + MsgTable._ID + "=" + id;
-                    myContext.getDatabase().execSQL(sql);
+        long fixedCount = new ChunkedDataChecker<MsgItem>(myContext, logger, MsgTable.TABLE_NAME,
+                MsgTable.BODY + ", " + MsgTable.BODY_TO_SEARCH, KEY_CHECKED_ID) {
+
+            @Override
+            MsgItem fromCursor(Cursor cursor) {
+                MsgItem item = new MsgItem();
+                item.id = cursor.getLong(0);
+                item.body = cursor.getString(1);
+                item.bodyToSearch = cursor.getString(2);
+                return item;
+            }
+
+            @Override
+            boolean check(MsgItem item) {
+                String bodyToSearchExpected = MyHtml.getBodyToSearch(item.body);
+                if (bodyToSearchExpected.equals(item.bodyToSearch)) {
+                    return false;
                 }
-                if (logger.loggedMoreSecondsAgoThan(PROGRESS_REPORT_PERIOD_SECONDS)) {
-                    logger.logProgress("Updating search index"
-                            + (changedCount == 0 ? ". " : ", changed " + changedCount + " of ")
-                            + rowsCount + " messages"
-                    );
-                    MyServiceManager.setServiceUnavailable();
+                item.bodyToSearch = bodyToSearchExpected;
+                return true;
+            }
+
+            @Override
+            void save(StatementCache statements, MsgItem item) {
+                if (changedCount < 5) {
+                    MyLog.i(this, "Wrong body to search for " + item.id + ": " + quoteIfNotQuoted(item.body));
                 }
+                SQLiteStatement statement = statements.get(SQL_UPDATE);
+                statement.bindString(1, item.bodyToSearch);
+                statement.bindLong(2, item.id);
+                statement.executeUpdateDelete();
+            }
+
+            @Override
+            String getName() {
+                return "Search index update";
             }
-        } catch (Exception e) {
-            String logMsg = "Error: " + e.getMessage() + ", SQL:" + sql;
-            logger.logProgress(logMsg);
-            MyLog.e(this, logMsg, e);
-        } finally {
-            DbUtils.closeSilently(c);
-        }
-        logger.logProgress(changedCount == 0
-                ? "No changes to search index were needed. " + rowsCount + " messages"
-                : "Changed search index for " + changedCount + " of " + rowsCount + " messages");
-        DbUtils.waitMs(this, changedCount == 0 ? 1000 : 3000);
+        }.fixData();
+        DbUtils.waitMs(this, fixedCount == 0 ? 1000 : 3000);
     }
 
 }
@@ -28,7 +28,6 @@ import android.support.annotation.NonNull;
 import android.text.TextUtils;
 
 import org.andstatus.app.context.MyContextHolder;
-import org.andstatus.app.context.MyPreferences;
 import org.andstatus.app.database.MsgOfUserTable;
 import org.andstatus.app.database.MsgTable;
 import org.andstatus.app.database.OriginTable;
@@ -126,6 +125,7 @@ public class MyProvider extends ContentProvider {
             sqlDesc = selection + descSuffix;
             count = db.delete(MsgTable.TABLE_NAME, selection, selectionArgs);
             db.setTransactionSuccessful();
+            MessageSnapshot.forget();
         } catch(Exception e) {
             MyLog.d(TAG, "; SQL='" + sqlDesc + "'", e);
         } finally {
@@ -138,6 +138,7 @@ public class MyProvider extends ContentProvider {
         int count;
         // TODO: Delete related records also... 
         count = db.delete(UserTable.TABLE_NAME, selection, selectionArgs);
+        MessageSnapshot.forget();
         return count;
     }
 
@@ -217,10 +218,6 @@ public class MyProvider extends ContentProvider {
             if (rowId == -1) {
                 throw new SQLException("Failed to insert row into " + uri);
             }
-            if ( UserTable.TABLE_NAME.equals(table)) {
-                optionallyLoadAvatar(rowId, values);
-            }
-            
             msgOfUserValues.setMsgId(rowId);
             msgOfUserValues.insert(db);
             otherUserValues.setMsgId(rowId);
@@ -250,12 +247,6 @@ public class MyProvider extends ContentProvider {
         return newUri;
     }
 
-    private void optionallyLoadAvatar(long userId, ContentValues values) {
-        if (MyPreferences.getShowAvatars() && values.containsKey(UserTable.AVATAR_URL)) {
-            AvatarData.getForUser(userId).requestDownload();
-        }
-    }
-    
     /**
      * Get a cursor to the database
      * 
@@ -266,6 +257,20 @@ public class MyProvider extends ContentProvider {
     @Override
     public Cursor query(@NonNull Uri uri, String[] projection, String selectionIn, String[] selectionArgsIn,
             String sortOrder) {
+        Cursor c = queryDatabase(uri, projection, selectionIn, selectionArgsIn, sortOrder, null);
+        if (c != null) {
+            c.setNotificationUri(getContext().getContentResolver(), uri);
+        }
+        return c;
+    }
+
+    /**
+     * The same query as {@link #query(Uri, String[], String, String[], String)}, which is executed directly,
+     * without the {@link android.content.ContentResolver}, so it may be used by readers in the application's process
+     * @param limitIn if null, the default limit for the uri is used
+     */
+    public static Cursor queryDatabase(@NonNull Uri uri, String[] projection, String selectionIn,
+                                       String[] selectionArgsIn, String sortOrder, String limitIn) {
         final int PAGE_SIZE = 400;
         SQLiteQueryBuilder qb = new SQLiteQueryBuilder();
         boolean built = false;
@@ -339,7 +344,7 @@ public class MyProvider extends ContentProvider {
                     selectionArgs = StringUtils.addBeforeArray(selectionArgs, "%" + rawQuery + "%");
                     selectionArgs = StringUtils.addBeforeArray(selectionArgs, "%" + rawQuery + "%");
                 }
-                limit =  String.valueOf(PAGE_SIZE);
+                limit = String.valueOf(PAGE_SIZE);
                 break;
 
             case USER_ITEM:
@@ -380,6 +385,10 @@ public class MyProvider extends ContentProvider {
             orderBy = sortOrder;
         }
 
+        if (limitIn != null) {
+            limit = limitIn;
+        }
+
         Cursor c = null;
         if (MyContextHolder.get().isReady()) {
             // Get the database and run the query
@@ -393,12 +402,12 @@ public class MyProvider extends ContentProvider {
                 // Here we substitute ?-s in selection with values from selectionArgs
                 c = db.rawQuery(sql, selectionArgs);
                 if (c == null) {
-                    MyLog.e(this, "Null cursor returned");
+                    MyLog.e(TAG, "Null cursor returned");
                     logQuery = true;
                 }
             } catch (Exception e) {
                 logQuery = true;
-                MyLog.e(this, "Database query failed", e);
+                MyLog.e(TAG, "Database query failed", e);
             }
 
             if (logQuery) {
@@ -415,10 +424,6 @@ public class MyProvider extends ContentProvider {
                 }
             }
         }
-
-        if (c != null) {
-            c.setNotificationUri(getContext().getContentResolver(), uri);
-        }
         return c;
     }
 
@@ -438,6 +443,7 @@ public class MyProvider extends ContentProvider {
         switch (uriParser.matched()) {
             case MSG:
                 count = db.update(MsgTable.TABLE_NAME, values, selection, selectionArgs);
+                MessageSnapshot.forget();
                 break;
 
             case MSG_ITEM:
@@ -454,10 +460,12 @@ public class MyProvider extends ContentProvider {
                 }
                 count += msgOfUserValues.update(db);
                 otherUserValues.update(db);
+                MessageSnapshot.forget(rowId);
                 break;
 
             case USER:
                 count = db.update(UserTable.TABLE_NAME, values, selection, selectionArgs);
+                MessageSnapshot.forget();
                 break;
 
             case USER_ITEM:
@@ -468,9 +476,9 @@ public class MyProvider extends ContentProvider {
                     count = db.update(UserTable.TABLE_NAME, values, BaseColumns._ID + "=" + selectedUserId
                                     + (StringUtils.nonEmpty(selection) ? " AND (" + selection + ')' : ""),
                             selectionArgs);
+                    MessageSnapshot.onUserUpdated(selectedUserId);
                 }
                 friendshipValues.update(db);
-                optionallyLoadAvatar(selectedUserId, values);
                 break;
 
             default:
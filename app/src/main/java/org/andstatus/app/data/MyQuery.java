@@ -33,14 +33,13 @@ import org.andstatus.app.database.UserTable;
 import org.andstatus.app.origin.Origin;
 import org.andstatus.app.timeline.Timeline;
 import org.andstatus.app.util.I18n;
+import org.andstatus.app.util.LongSet;
 import org.andstatus.app.util.MyHtml;
 import org.andstatus.app.util.MyLog;
 import org.andstatus.app.util.StringUtils;
 
 import java.util.ArrayList;
-import java.util.HashSet;
 import java.util.List;
-import java.util.Set;
 
 public class MyQuery {
     static final String TAG = MyQuery.class.getSimpleName();
@@ -472,31 +471,31 @@ public class MyQuery {
     }
 
     @NonNull
-    public static Set<Long> getFollowersIds(long userId) {
+    public static LongSet getFollowersIds(long userId) {
         String where = FriendshipTable.FRIEND_ID + "=" + userId
                 + " AND " + FriendshipTable.FOLLOWED + "=1";
         String sql = "SELECT " + FriendshipTable.USER_ID
                 + " FROM " + FriendshipTable.TABLE_NAME
                 + " WHERE " + where;
-        return getLongs(sql);
+        return getLongSet(sql);
     }
 
     @NonNull
-    public static Set<Long> getFriendsIds(long userId) {
+    public static LongSet getFriendsIds(long userId) {
         String where = FriendshipTable.USER_ID + "=" + userId
                 + " AND " + FriendshipTable.FOLLOWED + "=1";
         String sql = "SELECT " + FriendshipTable.FRIEND_ID
                 + " FROM " + FriendshipTable.TABLE_NAME
                 + " WHERE " + where;
-        return getLongs(sql);
+        return getLongSet(sql);
     }
 
     @NonNull
-    private static Set<Long> getLongs(String sql) {
-        Set<Long> ids = new HashSet<>();
+    private static LongSet getLongSet(String sql) {
+        LongSet ids = new LongSet();
         SQLiteDatabase db = MyContextHolder.get().getDatabase();
         if (db == null) {
-            MyLog.v(TAG, "getLongs; Database is null");
+            MyLog.v(TAG, "getLongSet; Database is null");
             return ids;
         }
         Cursor c = null;
@@ -515,7 +514,7 @@ public class MyQuery {
      *  MyAccounts' userIDs, who follow the specified User
      */
     @NonNull
-    public static Set<Long> getMyFollowersOf(long userId) {
+    public static LongSet getMyFollowersOf(long userId) {
         SelectedUserIds selectedAccounts = new SelectedUserIds(Timeline.getEmpty(null));
 
         String where = FriendshipTable.USER_ID + selectedAccounts.getSql()
@@ -525,34 +524,7 @@ public class MyQuery {
                 + " FROM " + FriendshipTable.TABLE_NAME
                 + " WHERE " + where;
 
-        return getLongs(sql);
-    }
-
-    /**
-     * Newest replies are the first
-     */
-    public static List<Long> getReplyIds(long msgId) {
-        List<Long> replies = new ArrayList<>();
-        String sql = "SELECT " + MsgTable._ID
-                + " FROM " + MsgTable.TABLE_NAME
-                + " WHERE " + MsgTable.IN_REPLY_TO_MSG_ID + "=" + msgId
-                + " ORDER BY " + MsgTable.UPDATED_DATE + " DESC";
-        
-        SQLiteDatabase db = MyContextHolder.get().getDatabase();
-        if (db == null) {
-            MyLog.v(TAG, "getReplyIds; Database is null");
-            return replies;
-        }
-        Cursor c = null;
-        try {
-            c = db.rawQuery(sql, null);
-            while (c.moveToNext()) {
-                replies.add(c.getLong(0));
-            }
-        } finally {
-            DbUtils.closeSilently(c);
-        }
-        return replies;
+        return getLongSet(sql);
     }
 
     public static List<Long> getRebloggers(long msgId) {
@@ -54,6 +54,7 @@ public class ProjectionMap {
         MSG.put(MsgTable.ACTOR_ID, MsgTable.ACTOR_ID);
         MSG.put(UserTable.SENDER_NAME, UserTable.SENDER_NAME);
         MSG.put(MsgTable.BODY, MsgTable.BODY);
+        MSG.put(MsgTable.BODY_FINGERPRINT, MsgTable.BODY_FINGERPRINT);
         MSG.put(MsgTable.VIA, MsgTable.VIA);
         MSG.put(MsgTable.URL, MsgTable.URL);
         MSG.put(MsgTable.IN_REPLY_TO_MSG_ID, MsgTable.IN_REPLY_TO_MSG_ID);
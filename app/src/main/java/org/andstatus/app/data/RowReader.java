@@ -0,0 +1,91 @@
+/*
+ * Copyright (c) 2017 yvolk (Yuri Volkov), http://yurivolkov.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.andstatus.app.data;
+
+import android.database.Cursor;
+import android.support.annotation.Nullable;
+
+/**
+ * Reads rows of a query in chunks and passes them to a consumer as typed objects.
+ * Each chunk is a separate query of the rows, which follow the last row read in the sort order
+ * ("keyset pagination"), so a cursor never holds more than one chunk and its window is not refilled
+ * (a refill re-executes the query, skipping all rows before the position), even for rows with long bodies.
+ * Readers in the application's process query the database directly, see {@link MyProvider#queryDatabase}
+ * @author yvolk@yurivolkov.com
+ */
+public abstract class RowReader<T> {
+    public static final int CHUNK_SIZE_DEFAULT = 50;
+    private final int chunkSize;
+
+    public interface RowConsumer<T> {
+        /** @return false to stop reading */
+        boolean accept(T row);
+    }
+
+    public RowReader() {
+        this(CHUNK_SIZE_DEFAULT);
+    }
+
+    public RowReader(int chunkSize) {
+        this.chunkSize = Math.max(1, chunkSize);
+    }
+
+    /**
+     * @param lastRow null for the first chunk, otherwise the chunk should start after this row
+     * @param limit maximum number of rows in the chunk
+     * @return null if the query failed
+     */
+    protected abstract Cursor queryChunk(@Nullable T lastRow, int limit);
+
+    protected abstract T fromCursor(Cursor cursor);
+
+    /**
+     * @param maxRows 0 - read all rows
+     * @return number of the rows read
+     */
+    public long read(long maxRows, RowConsumer<T> consumer) {
+        T lastRow = null;
+        long rowsCount = 0;
+        boolean hasMore = true;
+        while (hasMore) {
+            int limit = maxRows > 0 ? (int) Math.min(chunkSize, maxRows - rowsCount) : chunkSize;
+            if (limit <= 0) {
+                break;
+            }
+            int chunkRowsCount = 0;
+            Cursor cursor = null;
+            try {
+                cursor = queryChunk(lastRow, limit);
+                while (cursor != null && cursor.moveToNext()) {
+                    chunkRowsCount++;
+                    lastRow = fromCursor(cursor);
+                    if (!consumer.accept(lastRow)) {
+                        hasMore = false;
+                        break;
+                    }
+                }
+            } finally {
+                DbUtils.closeSilently(cursor);
+            }
+            rowsCount += chunkRowsCount;
+            if (chunkRowsCount < limit) {
+                hasMore = false;
+            }
+        }
+        return rowsCount;
+    }
+}
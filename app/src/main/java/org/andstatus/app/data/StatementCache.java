@@ -0,0 +1,72 @@
+/*
+ * Copyright (c) 2017 yvolk (Yuri Volkov), http://yurivolkov.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.andstatus.app.data;
+
+import android.database.sqlite.SQLiteDatabase;
+import android.database.sqlite.SQLiteStatement;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Compiled statements of writes, which are executed many times, e.g. in one transaction,
+ * so their SQL is compiled once. A statement keeps its bindings, so a cache is not shared between threads.
+ * Hot write paths use the cache of their thread for the database, see {@link #ofThread(SQLiteDatabase)}.
+ * Other users create a cache for a transaction and close it after
+ * @author yvolk@yurivolkov.com
+ */
+class StatementCache {
+    private static final ThreadLocal<StatementCache> threadCaches = new ThreadLocal<>();
+    private final SQLiteDatabase db;
+    private final Map<String, SQLiteStatement> statements = new HashMap<>();
+
+    StatementCache(SQLiteDatabase db) {
+        this.db = db;
+    }
+
+    /**
+     * The cache of the current thread lives while the database is open:
+     * it is replaced, when the thread gets another database or the database is closed
+     */
+    static StatementCache ofThread(SQLiteDatabase db) {
+        StatementCache cache = threadCaches.get();
+        if (cache == null || cache.db != db || !db.isOpen()) {
+            if (cache != null) {
+                cache.close();
+            }
+            cache = new StatementCache(db);
+            threadCaches.set(cache);
+        }
+        return cache;
+    }
+
+    SQLiteStatement get(String sql) {
+        SQLiteStatement statement = statements.get(sql);
+        if (statement == null) {
+            statement = db.compileStatement(sql);
+            statements.put(sql, statement);
+        }
+        return statement;
+    }
+
+    void close() {
+        for (SQLiteStatement statement : statements.values()) {
+            DbUtils.closeSilently(statement);
+        }
+        statements.clear();
+    }
+}
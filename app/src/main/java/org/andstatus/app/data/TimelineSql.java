@@ -23,6 +23,8 @@ import android.provider.BaseColumns;
 import android.support.annotation.NonNull;
 import android.text.TextUtils;
 
+import org.andstatus.app.account.MyAccount;
+import org.andstatus.app.context.MyContext;
 import org.andstatus.app.context.MyContextHolder;
 import org.andstatus.app.context.MyPreferences;
 import org.andstatus.app.context.UserInTimeline;
@@ -35,26 +37,88 @@ import org.andstatus.app.origin.Origin;
 import org.andstatus.app.origin.OriginType;
 import org.andstatus.app.timeline.Timeline;
 import org.andstatus.app.timeline.TimelineType;
+import org.andstatus.app.util.SelectionAndArgs;
 import org.andstatus.app.util.SharedPreferencesUtil;
 
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 
 public class TimelineSql {
+    private static final int TABLES_CACHE_SIZE = 64;
+    /** Generated "tables" clauses by {@link #tablesKey(ParsedUri, String[])}, the least recently used are evicted */
+    private static final Map<String, String> tablesCache =
+            new LinkedHashMap<String, String>(TABLES_CACHE_SIZE, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<String, String> eldest) {
+                    return size() > TABLES_CACHE_SIZE;
+                }
+            };
+    /** The clauses depend on these, so the cache is cleared, when any of them changes */
+    private static MyContext tablesCacheContext = null;
+    private static List<MyAccount> tablesCacheAccounts = null;
+    private static String tablesCacheUserNameField = "";
+
     private TimelineSql() {
         // Empty
     }
 
     /**
+     * The same clause is built for all messages of a timeline, e.g. for each message of a conversation,
+     * so it is cached
      * @param uri the same as uri for
      *            {@link MyProvider#query(Uri, String[], String, String[], String)}
      * @param projection Projection
      * @return String for {@link SQLiteQueryBuilder#setTables(String)}
      */
     static String tablesForTimeline(Uri uri, String[] projection) {
-        Timeline timeline = Timeline.fromParsedUri(MyContextHolder.get(), ParsedUri.fromUri(uri), "");
+        MyContext myContext = MyContextHolder.get();
+        ParsedUri parsedUri = ParsedUri.fromUri(uri);
+        String key = tablesKey(parsedUri, projection);
+        // Accounts are replaced by a new list on any change, see PersistentAccounts
+        List<MyAccount> accounts = myContext.persistentAccounts().list();
+        String userNameField = userNameField();
+        synchronized (tablesCache) {
+            if (tablesCacheContext != myContext || tablesCacheAccounts != accounts
+                    || !tablesCacheUserNameField.equals(userNameField)) {
+                tablesCache.clear();
+                tablesCacheContext = myContext;
+                tablesCacheAccounts = accounts;
+                tablesCacheUserNameField = userNameField;
+            }
+            String tables = tablesCache.get(key);
+            if (tables != null) {
+                return tables;
+            }
+        }
+        String tables = buildTablesForTimeline(Timeline.fromParsedUri(myContext, parsedUri, ""), projection);
+        synchronized (tablesCache) {
+            if (tablesCacheAccounts == accounts) {
+                tablesCache.put(key, tables);
+            }
+        }
+        return tables;
+    }
+
+    /** The clause doesn't depend on a message ID and on a search query, so they are not in the key */
+    private static String tablesKey(ParsedUri parsedUri, String[] projection) {
+        StringBuilder builder = new StringBuilder();
+        builder.append(parsedUri.getTimelineType().save())
+                .append(';').append(parsedUri.getAccountUserId())
+                .append(';').append(parsedUri.getOriginId())
+                .append(';').append(parsedUri.getUserId());
+        if (projection != null) {
+            for (String column : projection) {
+                builder.append(';').append(column);
+            }
+        }
+        return builder.toString();
+    }
+
+    private static String buildTablesForTimeline(Timeline timeline, String[] projection) {
         SelectedUserIds selectedAccounts = new SelectedUserIds(timeline);
     
         Collection<String> columns = new java.util.HashSet<>(Arrays.asList(projection));
@@ -245,6 +309,47 @@ public class TimelineSql {
         return tables;
     }
 
+    /**
+     * Rows of a timeline are sorted by (sent date, message id), so a page may be bounded by its edge row
+     * even if several messages have the same sent date ("keyset pagination")
+     */
+    public static String getSortOrder(boolean ascending) {
+        String direction = ascending ? " ASC" : " DESC";
+        return ProjectionMap.MSG_TABLE_ALIAS + "." + MsgTable.SENT_DATE + direction + ", "
+                + ProjectionMap.MSG_TABLE_ALIAS + "." + BaseColumns._ID + direction;
+    }
+
+    /**
+     * Selects rows, which are not older than the sentDate, and, if the msgId is not 0,
+     * which follow the (sentDate, msgId) row in the ascending sort order
+     */
+    public static void addLowerBound(SelectionAndArgs sa, long sentDate, long msgId) {
+        String sentDateColumn = ProjectionMap.MSG_TABLE_ALIAS + "." + MsgTable.SENT_DATE;
+        if (msgId == 0) {
+            sa.addSelection(sentDateColumn + " >= ?", String.valueOf(sentDate));
+        } else {
+            // Written without "OR" at the upper level, so that the index on the sent date is used for the range
+            sa.addSelection(sentDateColumn + " >= ? AND (" + sentDateColumn + " > ? OR "
+                    + ProjectionMap.MSG_TABLE_ALIAS + "." + BaseColumns._ID + " > ?)",
+                    new String[]{String.valueOf(sentDate), String.valueOf(sentDate), String.valueOf(msgId)});
+        }
+    }
+
+    /**
+     * Selects rows, which are not younger than the sentDate, and, if the msgId is not 0,
+     * which follow the (sentDate, msgId) row in the descending sort order
+     */
+    public static void addUpperBound(SelectionAndArgs sa, long sentDate, long msgId) {
+        String sentDateColumn = ProjectionMap.MSG_TABLE_ALIAS + "." + MsgTable.SENT_DATE;
+        if (msgId == 0) {
+            sa.addSelection(sentDateColumn + " <= ?", String.valueOf(sentDate));
+        } else {
+            sa.addSelection(sentDateColumn + " <= ? AND (" + sentDateColumn + " < ? OR "
+                    + ProjectionMap.MSG_TABLE_ALIAS + "." + BaseColumns._ID + " < ?)",
+                    new String[]{String.valueOf(sentDate), String.valueOf(sentDate), String.valueOf(msgId)});
+        }
+    }
+
     /** 
      * Table columns to use for the messages content
      */
@@ -266,6 +371,7 @@ public class TimelineSql {
         columnNames.add(MsgTable.ORIGIN_ID);
         columnNames.add(UserTable.AUTHOR_NAME);
         columnNames.add(MsgTable.BODY);
+        columnNames.add(MsgTable.BODY_FINGERPRINT);
         columnNames.add(MsgTable.IN_REPLY_TO_MSG_ID);
         columnNames.add(UserTable.IN_REPLY_TO_NAME);
         columnNames.add(UserTable.RECIPIENT_NAME);
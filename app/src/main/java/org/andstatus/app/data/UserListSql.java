@@ -24,6 +24,8 @@ import org.andstatus.app.context.MyPreferences;
 import org.andstatus.app.database.DownloadTable;
 import org.andstatus.app.database.UserTable;
 import org.andstatus.app.user.UserListType;
+import org.andstatus.app.util.SelectionAndArgs;
+import org.andstatus.app.util.StringUtils;
 
 import java.util.ArrayList;
 import java.util.Arrays;
@@ -60,6 +62,27 @@ public class UserListSql {
         return tables;
     }
 
+    /**
+     * Users are sorted by their names, and users with the same name - by their ids, so a list may be read in chunks,
+     * each starting after its previous row, see {@link #addLowerBound(SelectionAndArgs, String, long)}
+     */
+    public static String getSortOrder() {
+        return userNameSortKey() + " ASC, " + UserTable.TABLE_NAME + "." + BaseColumns._ID + " ASC";
+    }
+
+    /** Selects rows, which follow the (userName, userId) row in the sort order */
+    public static void addLowerBound(SelectionAndArgs sa, String userName, long userId) {
+        String userNameKey = userNameSortKey();
+        sa.addSelection(userNameKey + " > ? OR (" + userNameKey + " = ? AND "
+                        + UserTable.TABLE_NAME + "." + BaseColumns._ID + " > ?)",
+                new String[]{StringUtils.notNull(userName), StringUtils.notNull(userName), String.valueOf(userId)});
+    }
+
+    /** Users without a name are compared as having an empty name */
+    private static String userNameSortKey() {
+        return "IFNULL(" + UserTable.TABLE_NAME + "." + UserTable.USERNAME + ", '')";
+    }
+
     /**
      * Table columns to use for a User item content
      */
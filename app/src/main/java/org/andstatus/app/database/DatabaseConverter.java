@@ -29,6 +29,7 @@ import org.andstatus.app.data.MyQuery;
 import org.andstatus.app.util.FileUtils;
 import org.andstatus.app.util.MyHtml;
 import org.andstatus.app.util.MyLog;
+import org.andstatus.app.util.SimHash;
 
 import java.io.File;
 
@@ -423,4 +424,94 @@ class DatabaseConverter {
         }
     }
 
+    static class Convert26 extends OneStep {
+        Convert26() {
+            versionTo = 27;
+        }
+
+        @Override
+        protected void execute2() {
+            sql = "CREATE INDEX idx_download_url ON download (url, download_status)";
+            DbUtils.execSQL(db, sql);
+            sql = "CREATE INDEX idx_download_file_name ON download (file_name)";
+            DbUtils.execSQL(db, sql);
+        }
+    }
+
+    static class Convert27 extends OneStep {
+        Convert27() {
+            versionTo = 28;
+        }
+
+        @Override
+        protected void execute2() {
+            sql = "ALTER TABLE msg ADD COLUMN body_fingerprint INTEGER DEFAULT 0 NOT NULL";
+            DbUtils.execSQL(db, sql);
+
+            String sql = "SELECT _id, body FROM msg";
+            Cursor c = null;
+            int count = 0;
+            try {
+                c = db.rawQuery(sql, null);
+                while (c.moveToNext()) {
+                    long fingerprint = SimHash.fromBody(c.getString(1));
+                    if (fingerprint != SimHash.EMPTY) {
+                        sql = "UPDATE msg SET body_fingerprint=" + fingerprint + " WHERE _id=" + c.getLong(0);
+                        db.execSQL(sql);
+                    }
+                    count++;
+                    if (progressLogger.loggedMoreSecondsAgoThan(10)) {
+                        progressLogger.logProgress(stepTitle + ": converted " + count + " rows");
+                    }
+                }
+            } finally {
+                DbUtils.closeSilently(c);
+            }
+
+            sql = "CREATE INDEX idx_msg_body_fingerprint ON msg (body_fingerprint)" +
+                    (Build.VERSION.SDK_INT >= PARTIAL_INDEX_SUPPORTED ?
+                            " WHERE body_fingerprint != 0" : "");
+            DbUtils.execSQL(db, sql);
+        }
+    }
+
+    static class Convert28 extends OneStep {
+        Convert28() {
+            versionTo = 29;
+        }
+
+        @Override
+        protected void execute2() {
+            sql = "CREATE INDEX idx_msg_origin_sent_date ON msg (origin_id, msg_sent_date)";
+            DbUtils.execSQL(db, sql);
+            sql = "CREATE INDEX idx_msg_public_sent_date ON msg (public, msg_sent_date)";
+            DbUtils.execSQL(db, sql);
+
+            sql = "CREATE INDEX idx_msgofuser_timeline ON msgofuser"
+                    + " (user_id, msg_id, subscribed, mentioned, favorited, directed, reblogged)";
+            DbUtils.execSQL(db, sql);
+
+            sql = "DROP INDEX idx_download_user";
+            DbUtils.execSQL(db, sql);
+            sql = "CREATE INDEX idx_download_user ON download (user_id, download_status, file_name)";
+            DbUtils.execSQL(db, sql);
+            sql = "DROP INDEX idx_download_msg";
+            DbUtils.execSQL(db, sql);
+            sql = "CREATE INDEX idx_download_msg ON download (msg_id, content_type, download_status, file_name)";
+            DbUtils.execSQL(db, sql);
+        }
+    }
+
+    static class Convert29 extends OneStep {
+        Convert29() {
+            versionTo = 30;
+        }
+
+        @Override
+        protected void execute2() {
+            sql = "ALTER TABLE timeline ADD COLUMN new_items_per_hour REAL DEFAULT -1 NOT NULL";
+            DbUtils.execSQL(db, sql);
+        }
+    }
+
 }
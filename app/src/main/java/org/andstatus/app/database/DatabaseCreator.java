@@ -31,6 +31,10 @@ public class DatabaseCreator {
      * This is used to check (and upgrade if necessary)
      * existing database after application update.
      *
+     * v.30 2017-08-12 app.v.35 Observed arrival rate of new items added to TimelineTable
+     * v.29 2017-08-05 app.v.35 Indices for timeline pages by sent date, covering indices for joins of timeline queries
+     * v.28 2017-07-29 app.v.35 Similarity fingerprint of a message body added to MsgTable
+     * v.27 2017-07-22 app.v.35 Downloaded files are shared by content hash, indices on download url and file name added
      * v.26 2016-11-27 app.v.31 Conversation ID added to MsgTable, see https://github.com/andstatus/andstatus/issues/361
      * v.25 2016-06-07 app.v.27 TimelineTable and CommandTable added
      * v.24 2016-02-27 app.v.23 several attributes added to User, https://github.com/andstatus/andstatus/issues/320
@@ -54,7 +58,7 @@ public class DatabaseCreator {
      *      All messages are in the same table.
      *      Allows to have multiple User Accounts in different Originating systems (twitter.com etc. )
      */
-    public static final int DATABASE_VERSION = 26;
+    public static final int DATABASE_VERSION = 30;
     public static final long ORIGIN_ID_TWITTER =  1L;
 
     private final SQLiteDatabase db;
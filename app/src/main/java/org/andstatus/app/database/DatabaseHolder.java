@@ -17,11 +17,14 @@
 package org.andstatus.app.database;
 
 import android.content.Context;
+import android.database.Cursor;
 import android.database.sqlite.SQLiteDatabase;
+import android.database.sqlite.SQLiteException;
 import android.database.sqlite.SQLiteOpenHelper;
 
 import org.andstatus.app.context.MyContextState;
 import org.andstatus.app.context.MyStorage;
+import org.andstatus.app.data.DbUtils;
 import org.andstatus.app.util.MyLog;
 
 import java.io.File;
@@ -32,6 +35,49 @@ public final class DatabaseHolder extends SQLiteOpenHelper  {
 
     public static final String DATABASE_NAME = "andstatus.sqlite";
 
+    /**
+     * SQLite settings, applied each time a connection is opened.
+     * The journal mode is stored in the database file, so switching between profiles
+     * converts the file on the next opening and doesn't need a schema upgrade.
+     * <p>
+     * Other pragmas are set per connection, and Android calls {@link #onConfigure(SQLiteDatabase)}
+     * for the primary connection only. This connection executes all writes and transactions,
+     * so the cache and the memory mapping are sized for it. Read-only connections of the WAL pool,
+     * which Android opens for concurrent readers, keep SQLite defaults
+     * (Android itself sets their synchronous mode), and API 25 has no hook to configure them
+     */
+    static final class ConnectionProfile {
+        /** Readers (e.g. timeline loaders) aren't blocked by a sync writing to the database */
+        static final ConnectionProfile WAL = new ConnectionProfile(true, "NORMAL", 4 * 1024, 32 * 1024 * 1024);
+        /**
+         * Write-ahead log needs shared memory, which doesn't work on some removable storages,
+         * so there we use the default rollback journal and don't map the file into memory
+         */
+        static final ConnectionProfile COMPATIBLE = new ConnectionProfile(false, "FULL", 4 * 1024, 0);
+
+        final boolean writeAheadLogging;
+        final String synchronous;
+        final int cacheSizeKb;
+        final long mmapSize;
+
+        private ConnectionProfile(boolean writeAheadLogging, String synchronous, int cacheSizeKb, long mmapSize) {
+            this.writeAheadLogging = writeAheadLogging;
+            this.synchronous = synchronous;
+            this.cacheSizeKb = cacheSizeKb;
+            this.mmapSize = mmapSize;
+        }
+
+        static ConnectionProfile forCurrentStorage() {
+            return MyStorage.isStorageExternal() ? COMPATIBLE : WAL;
+        }
+
+        @Override
+        public String toString() {
+            return (writeAheadLogging ? "WAL" : "rollback journal") + ", synchronous=" + synchronous
+                    + ", cache=" + cacheSizeKb + "KiB, mmap=" + mmapSize;
+        }
+    }
+
     public DatabaseHolder(Context context, boolean creationEnabled) {
         super(context, DATABASE_NAME, null, DatabaseCreator.DATABASE_VERSION);
         this.creationEnabled = creationEnabled;
@@ -73,6 +119,63 @@ public final class DatabaseHolder extends SQLiteOpenHelper  {
         return state;
     }
     
+    @Override
+    public void onConfigure(SQLiteDatabase db) {
+        ConnectionProfile profile = ConnectionProfile.forCurrentStorage();
+        boolean walEnabled = false;
+        if (profile.writeAheadLogging) {
+            try {
+                walEnabled = db.enableWriteAheadLogging();
+            } catch (SQLiteException e) {
+                MyLog.i(this, "Write-ahead logging is not supported here", e);
+            }
+        }
+        if (!walEnabled) {
+            db.disableWriteAheadLogging();
+            profile = ConnectionProfile.COMPATIBLE;
+        }
+        // Timeline queries differ by parameters only, so their compiled statements are reused
+        db.setMaxSqlCacheSize(SQLiteDatabase.MAX_SQL_CACHE_SIZE);
+        execPragma(db, "synchronous=" + profile.synchronous);
+        execPragma(db, "cache_size=-" + profile.cacheSizeKb);
+        if (profile.mmapSize > 0) {
+            execPragma(db, "mmap_size=" + profile.mmapSize);
+        }
+        MyLog.v(this, "Connection profile: " + profile);
+    }
+
+    /** Some pragmas return a row, so they cannot be executed with {@link SQLiteDatabase#execSQL(String)} */
+    private void execPragma(SQLiteDatabase db, String pragma) {
+        Cursor cursor = null;
+        try {
+            cursor = db.rawQuery("PRAGMA " + pragma, null);
+            cursor.moveToFirst();
+        } catch (SQLiteException e) {
+            MyLog.d(this, "PRAGMA " + pragma, e);
+        } finally {
+            DbUtils.closeSilently(cursor);
+        }
+    }
+
+    /**
+     * Moves content of the write-ahead log into the database file,
+     * so the file alone may be copied (e.g. moved to another storage or backed up)
+     */
+    public static void checkpoint(SQLiteDatabase db) {
+        if (db == null || !db.isOpen() || !db.isWriteAheadLoggingEnabled()) {
+            return;
+        }
+        Cursor cursor = null;
+        try {
+            cursor = db.rawQuery("PRAGMA wal_checkpoint(FULL)", null);
+            cursor.moveToFirst();
+        } catch (SQLiteException e) {
+            MyLog.i(DatabaseHolder.class, "Checkpoint failed", e);
+        } finally {
+            DbUtils.closeSilently(cursor);
+        }
+    }
+
     @Override
     public void onCreate(SQLiteDatabase db) {
         if (!creationEnabled) {
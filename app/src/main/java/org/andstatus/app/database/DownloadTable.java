@@ -54,6 +54,7 @@ public final class DownloadTable implements BaseColumns {
      * See {@link DownloadStatus}. Defaults to {@link DownloadStatus#UNKNOWN}
      */
     public static final String DOWNLOAD_STATUS = "download_status";
+    /** Files are named by the hash of their content, so several rows may refer to the same file */
     public static final String FILE_NAME = "file_name";
 
     /*
@@ -83,13 +84,24 @@ public final class DownloadTable implements BaseColumns {
 
         DbUtils.execSQL(db, "CREATE INDEX idx_download_user ON " + DownloadTable.TABLE_NAME + " ("
                 + DownloadTable.USER_ID + ", "
-                + DownloadTable.DOWNLOAD_STATUS
+                + DownloadTable.DOWNLOAD_STATUS + ", "
+                + DownloadTable.FILE_NAME
                 + ")");
 
         DbUtils.execSQL(db, "CREATE INDEX idx_download_msg ON " + DownloadTable.TABLE_NAME + " ("
                 + DownloadTable.MSG_ID + ", "
                 + DownloadTable.CONTENT_TYPE  + ", "
+                + DownloadTable.DOWNLOAD_STATUS + ", "
+                + DownloadTable.FILE_NAME
+                + ")");
+
+        DbUtils.execSQL(db, "CREATE INDEX idx_download_url ON " + DownloadTable.TABLE_NAME + " ("
+                + DownloadTable.URI + ", "
                 + DownloadTable.DOWNLOAD_STATUS
                 + ")");
+
+        DbUtils.execSQL(db, "CREATE INDEX idx_download_file_name ON " + DownloadTable.TABLE_NAME + " ("
+                + DownloadTable.FILE_NAME
+                + ")");
     }
 }
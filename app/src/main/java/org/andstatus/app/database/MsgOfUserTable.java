@@ -88,5 +88,16 @@ public final class MsgOfUserTable {
                 + MsgOfUserTable.DIRECTED + " BOOLEAN DEFAULT 0 NOT NULL,"
                 + " CONSTRAINT pk_msgofuser PRIMARY KEY (" + MsgOfUserTable.USER_ID + " ASC, " + MsgOfUserTable.MSG_ID + " ASC)"
                 + ")");
+
+        // Covers the join of timeline queries, so the table rows are not read
+        DbUtils.execSQL(db, "CREATE INDEX idx_msgofuser_timeline ON " + MsgOfUserTable.TABLE_NAME + " ("
+                + MsgOfUserTable.USER_ID + ", "
+                + MsgOfUserTable.MSG_ID + ", "
+                + MsgOfUserTable.SUBSCRIBED + ", "
+                + MsgOfUserTable.MENTIONED + ", "
+                + MsgOfUserTable.FAVORITED + ", "
+                + MsgOfUserTable.DIRECTED + ", "
+                + MsgOfUserTable.REBLOGGED
+                + ")");
     }
 }
@@ -89,6 +89,11 @@ public final class MsgTable implements BaseColumns {
      * Body text, prepared for easy searching in a database
      */
     public static final String BODY_TO_SEARCH = "body_to_search";
+    /**
+     * Similarity fingerprint of the body, see {@link org.andstatus.app.util.SimHash}.
+     * Used to find duplicated messages, 0 if unknown
+     */
+    public static final String BODY_FINGERPRINT = "body_fingerprint";
     /**
      * String generally describing Client's software used to post this message
      * It's like "User Agent" string in the browsers?!: "via ..."
@@ -151,6 +156,7 @@ public final class MsgTable implements BaseColumns {
                 + MsgTable.RECIPIENT_ID + " INTEGER,"
                 + MsgTable.BODY + " TEXT,"
                 + MsgTable.BODY_TO_SEARCH + " TEXT,"
+                + MsgTable.BODY_FINGERPRINT + " INTEGER DEFAULT 0 NOT NULL,"
                 + MsgTable.VIA + " TEXT,"
                 + MsgTable.URL + " TEXT,"
                 + MsgTable.IN_REPLY_TO_MSG_ID + " INTEGER,"
@@ -166,10 +172,21 @@ public final class MsgTable implements BaseColumns {
                 + MsgTable.MSG_OID
                 + ")");
 
+        // The rowid is the last key of any index, so this index serves ordering by (sent date, _id) also
         DbUtils.execSQL(db, "CREATE INDEX idx_msg_sent_date ON " + MsgTable.TABLE_NAME + " ("
                 + MsgTable.SENT_DATE
                 + ")");
 
+        DbUtils.execSQL(db, "CREATE INDEX idx_msg_origin_sent_date ON " + MsgTable.TABLE_NAME + " ("
+                + MsgTable.ORIGIN_ID + ", "
+                + MsgTable.SENT_DATE
+                + ")");
+
+        DbUtils.execSQL(db, "CREATE INDEX idx_msg_public_sent_date ON " + MsgTable.TABLE_NAME + " ("
+                + MsgTable.PUBLIC + ", "
+                + MsgTable.SENT_DATE
+                + ")");
+
         // Index not null rows only, see https://www.sqlite.org/partialindex.html
         DbUtils.execSQL(db, "CREATE INDEX idx_msg_in_reply_to_msg_id ON " + MsgTable.TABLE_NAME + " ("
                 + MsgTable.IN_REPLY_TO_MSG_ID + ")" +
@@ -180,5 +197,10 @@ public final class MsgTable implements BaseColumns {
                 + MsgTable.CONVERSATION_ID + ")" +
                 (Build.VERSION.SDK_INT >= PARTIAL_INDEX_SUPPORTED ?
                         " WHERE " + MsgTable.CONVERSATION_ID + " IS NOT NULL" : ""));
+
+        DbUtils.execSQL(db, "CREATE INDEX idx_msg_body_fingerprint ON " + MsgTable.TABLE_NAME + " ("
+                + MsgTable.BODY_FINGERPRINT + ")" +
+                (Build.VERSION.SDK_INT >= PARTIAL_INDEX_SUPPORTED ?
+                        " WHERE " + MsgTable.BODY_FINGERPRINT + " != 0" : ""));
     }
 }
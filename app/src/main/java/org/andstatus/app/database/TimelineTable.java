@@ -62,6 +62,8 @@ public class TimelineTable implements BaseColumns {
     public static final String DOWNLOADED_ITEMS_COUNT = "downloaded_items_count";
     public static final String NEW_ITEMS_COUNT = "new_items_count";
     public static final String COUNT_SINCE = "count_since";
+    /** Smoothed arrival rate of new items, observed during syncs. Negative if not observed yet */
+    public static final String NEW_ITEMS_PER_HOUR = "new_items_per_hour";
 
     /** Accumulated numbers for statistics. They are reset by a user's request */
     public static final String SYNCED_TIMES_COUNT_TOTAL = "synced_times_count_total";
@@ -115,6 +117,7 @@ public class TimelineTable implements BaseColumns {
                 + TimelineTable.DOWNLOADED_ITEMS_COUNT + " INTEGER DEFAULT 0 NOT NULL,"
                 + TimelineTable.NEW_ITEMS_COUNT + " INTEGER DEFAULT 0 NOT NULL,"
                 + TimelineTable.COUNT_SINCE + " INTEGER,"
+                + TimelineTable.NEW_ITEMS_PER_HOUR + " REAL DEFAULT -1 NOT NULL,"
 
                 + TimelineTable.SYNCED_TIMES_COUNT_TOTAL + " INTEGER DEFAULT 0 NOT NULL,"
                 + TimelineTable.SYNC_FAILED_TIMES_COUNT_TOTAL + " INTEGER DEFAULT 0 NOT NULL,"
@@ -104,6 +104,14 @@ public class MyDrawableCache extends LruCache<String, BitmapSubsetDrawable> {
         }
     }
 
+    /** Frees preallocated bitmaps of the cache, which will not be used */
+    void release() {
+        evictAll();
+        for (Bitmap bitmap = recycledBitmaps.poll(); bitmap != null; bitmap = recycledBitmaps.poll()) {
+            bitmap.recycle();
+        }
+    }
+
     private Bitmap newBlankBitmap() {
         Bitmap bitmap;
         if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.JELLY_BEAN_MR1) {
@@ -49,24 +49,74 @@ public class MyImageCache {
     private static final float AVATARS_CACHE_PART_OF_TOTAL_APP_MEMORY = 0.05f;
     public static final int AVATARS_CACHE_SIZE_MIN = 200;
     public static final int AVATARS_CACHE_SIZE_MAX = 700;
-    static volatile MyDrawableCache attachedImagesCache;
+    private static volatile MyDrawableCache attachedImagesCache;
     private static volatile MyDrawableCache avatarsCache;
+    private static volatile Context cacheContext;
 
     private  MyImageCache() {
         // Empty
     }
 
+    /**
+     * Caches preallocate their bitmaps, so they are created lazily, on the first use
+     * or by {@link #preload()}, and don't delay the application start
+     */
     public static synchronized void initialize(Context context) {
         styledDrawables.clear();
-        if (attachedImagesCache != null) {
-            return;
-        }
-        initializeAttachedImagesCache(context);
-        initializeAvatarsCache(context);
+        cacheContext = context;
+    }
+
+    /** Creates the caches in advance, to be called on a background thread */
+    public static void preload() {
+        getAvatarsCache();
+        getAttachedImagesCache();
         MyLog.i(MyImageCache.class.getSimpleName(), "Cache initialized. " + getCacheInfo());
     }
 
-    private static void initializeAttachedImagesCache(Context context) {
+    /**
+     * A cache is built outside of the lock, so the UI thread doesn't wait for the {@link #preload()}.
+     * If two threads built it at the same time, the first published cache is used and the other is released
+     */
+    static MyDrawableCache getAttachedImagesCache() {
+        MyDrawableCache cache = attachedImagesCache;
+        if (cache != null) {
+            return cache;
+        }
+        MyDrawableCache created = newAttachedImagesCache(getCacheContext());
+        synchronized (MyImageCache.class) {
+            if (attachedImagesCache == null) {
+                attachedImagesCache = created;
+                return created;
+            }
+            cache = attachedImagesCache;
+        }
+        created.release();
+        return cache;
+    }
+
+    private static MyDrawableCache getAvatarsCache() {
+        MyDrawableCache cache = avatarsCache;
+        if (cache != null) {
+            return cache;
+        }
+        MyDrawableCache created = newAvatarsCache(getCacheContext());
+        synchronized (MyImageCache.class) {
+            if (avatarsCache == null) {
+                avatarsCache = created;
+                return created;
+            }
+            cache = avatarsCache;
+        }
+        created.release();
+        return cache;
+    }
+
+    private static Context getCacheContext() {
+        Context context = cacheContext;
+        return context == null ? MyContextHolder.get().context() : context;
+    }
+
+    private static MyDrawableCache newAttachedImagesCache(Context context) {
         // We assume that current display orientation is preferred, so we use "y" size only
         int imageSize = (int) Math.round(AttachedImageView.MAX_ATTACHED_IMAGE_PART *
                 getDisplaySize(context).y);
@@ -82,11 +132,10 @@ public class MyImageCache {
         if (cacheSize > ATTACHED_IMAGES_CACHE_SIZE_MAX) {
             cacheSize = ATTACHED_IMAGES_CACHE_SIZE_MAX;
         }
-        attachedImagesCache = new MyDrawableCache(context, "Attached images", imageSize,
-                cacheSize);
+        return new MyDrawableCache(context, "Attached images", imageSize, cacheSize);
     }
 
-    private static void initializeAvatarsCache(Context context) {
+    private static MyDrawableCache newAvatarsCache(Context context) {
         float displayDensity = context.getResources().getDisplayMetrics().density;
         int imageSize = Math.round(AvatarFile.AVATAR_SIZE_DIP * displayDensity);
         int cacheSize = 0;
@@ -100,13 +149,15 @@ public class MyImageCache {
         if (cacheSize > AVATARS_CACHE_SIZE_MAX) {
             cacheSize = AVATARS_CACHE_SIZE_MAX;
         }
-        avatarsCache = new MyDrawableCache(context, "Avatars", imageSize, cacheSize);
-        setAvatarsRounded();
+        MyDrawableCache cache = new MyDrawableCache(context, "Avatars", imageSize, cacheSize);
+        cache.rounded = SharedPreferencesUtil.getBoolean(MyPreferences.KEY_ROUNDED_AVATARS, true);
+        return cache;
     }
 
     public static void setAvatarsRounded() {
-        avatarsCache.evictAll();
-        avatarsCache.rounded = SharedPreferencesUtil.getBoolean(MyPreferences.KEY_ROUNDED_AVATARS, true);
+        MyDrawableCache cache = getAvatarsCache();
+        cache.evictAll();
+        cache.rounded = SharedPreferencesUtil.getBoolean(MyPreferences.KEY_ROUNDED_AVATARS, true);
     }
 
     private static int calcCacheSize(Context context, int imageSize, float partOfAvailableMemory) {
@@ -137,24 +188,24 @@ public class MyImageCache {
 
     @NonNull
     public static Point getAttachedImageSize(String path) {
-        return attachedImagesCache.getImageSize(path);
+        return getAttachedImagesCache().getImageSize(path);
     }
 
     @Nullable
     public static Drawable getAvatarDrawable(Object objTag, String path) {
-        return avatarsCache.getDrawable(objTag, path);
+        return getAvatarsCache().getDrawable(objTag, path);
     }
 
     public static int getAvatarWidthPixels() {
-        return avatarsCache.getMaxBitmapWidth();
+        return getAvatarsCache().getMaxBitmapWidth();
     }
 
     public static Drawable getCachedAttachedImageDrawable(Object objTag, String path) {
-        return attachedImagesCache.getCachedDrawable(objTag, path);
+        return getAttachedImagesCache().getCachedDrawable(objTag, path);
     }
 
     public static Drawable getAttachedImageDrawable(Object objTag, String path) {
-        return attachedImagesCache.getDrawable(objTag, path);
+        return getAttachedImagesCache().getDrawable(objTag, path);
     }
 
     public static String getCacheInfo() {
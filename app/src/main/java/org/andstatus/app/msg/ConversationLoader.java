@@ -35,6 +35,8 @@ import org.andstatus.app.service.CommandEnum;
 import org.andstatus.app.service.MyServiceManager;
 import org.andstatus.app.timeline.Timeline;
 import org.andstatus.app.timeline.TimelineType;
+import org.andstatus.app.util.LongMap;
+import org.andstatus.app.util.LongSet;
 import org.andstatus.app.util.MyLog;
 import org.andstatus.app.util.TFactory;
 
@@ -43,8 +45,6 @@ import java.util.ArrayList;
 import java.util.Collections;
 import java.util.Comparator;
 import java.util.List;
-import java.util.Map;
-import java.util.concurrent.ConcurrentHashMap;
 
 public abstract class ConversationLoader<T extends ConversationItem> extends SyncLoader<T> {
     private static final int MAX_INDENT_LEVEL = 19;
@@ -58,7 +58,7 @@ public abstract class ConversationLoader<T extends ConversationItem> extends Syn
     private final ReplyLevelComparator<T> replyLevelComparator = new ReplyLevelComparator<>();
     private final TFactory<T> tFactory;
 
-    final Map<Long, T> cachedMessages = new ConcurrentHashMap<>();
+    final LongMap<T> cachedMessages = new LongMap<>();
     final List<T> msgList = new ArrayList<>();
     LoadableListActivity.ProgressPublisher mProgress;
 
@@ -66,7 +66,7 @@ public abstract class ConversationLoader<T extends ConversationItem> extends Syn
         return msgList;
     }
 
-    final List<Long> idsOfTheMessagesToFind = new ArrayList<>();
+    final LongSet idsOfTheMessagesToFind = new LongSet();
 
     public ConversationLoader(
             Class<T> tClass, MyContext myContext, MyAccount ma, long selectedMessageId, boolean sync) {
@@ -89,6 +89,9 @@ public abstract class ConversationLoader<T extends ConversationItem> extends Syn
         load2(newOMsg(selectedMessageId));
         Collections.sort(msgList, replyLevelComparator);
         enumerateMessages();
+        for (T oMsg : msgList) {
+            oMsg.prepareForView(myContext.context());
+        }
     }
 
     protected abstract void load2(T oMsg);
@@ -99,11 +102,10 @@ public abstract class ConversationLoader<T extends ConversationItem> extends Syn
     protected boolean addMessageIdToFind(long msgId) {
         if (msgId == 0) {
             return false;
-        } else if (idsOfTheMessagesToFind.contains(msgId)) {
+        } else if (!idsOfTheMessagesToFind.add(msgId)) {
             MyLog.v(this, "findMessages cycled on the id=" + msgId);
             return false;
         }
-        idsOfTheMessagesToFind.add(msgId);
         return true;
     }
 
@@ -24,6 +24,7 @@ import android.widget.RelativeLayout;
 import android.widget.TextView;
 
 import org.andstatus.app.R;
+import org.andstatus.app.data.AvatarData;
 import org.andstatus.app.graphics.MyImageCache;
 import org.andstatus.app.util.ViewUtils;
 
@@ -128,6 +129,7 @@ public class ConversationViewAdapter extends MessageListAdapter<ConversationView
         layoutParams.leftMargin = dpToPixes(indentPixels == 0 ? 2 : 1) + indentPixels;
         avatarView.setLayoutParams(layoutParams);
         avatarView.setImageDrawable(item.getAvatar());
+        AvatarData.onUserShown(item.authorId);
         return ViewUtils.getWidthWithMargins(avatarView);
     }
 
@@ -34,7 +34,7 @@ import org.andstatus.app.R;
 import org.andstatus.app.account.MyAccount;
 import org.andstatus.app.data.DownloadStatus;
 import org.andstatus.app.data.MessageForAccount;
-import org.andstatus.app.data.MyQuery;
+import org.andstatus.app.data.MessageSnapshot;
 import org.andstatus.app.net.social.Connection;
 import org.andstatus.app.origin.Origin;
 import org.andstatus.app.timeline.Timeline;
@@ -73,6 +73,7 @@ class MessageContextMenu extends MyContextMenu {
         }
 
         MessageViewItem viewItem = (MessageViewItem) mViewItem;
+        MessageSnapshot snapshot = MessageSnapshot.get(getMsgId());
         int order = 0;
         try {
             new ContextMenuHeader(getActivity(), menu).setTitle(msg.getBodyTrimmed())
@@ -110,18 +111,18 @@ class MessageContextMenu extends MyContextMenu {
                 MessageListContextMenuItem.SENDER_MESSAGES.addTo(menu, order++,
                         String.format(
                                 getActivity().getText(R.string.menu_item_user_messages).toString(),
-                                MyQuery.userIdToWebfingerId(msg.senderId)));
+                                snapshot.actorWebFingerId));
                 if (!msg.isSender) {
                     if (msg.senderFollowed) {
                         MessageListContextMenuItem.STOP_FOLLOWING_SENDER.addTo(menu, order++,
                                 String.format(
                                         getActivity().getText(R.string.menu_item_stop_following_user).toString(),
-                                        MyQuery.userIdToWebfingerId(msg.senderId)));
+                                        snapshot.actorWebFingerId));
                     } else {
                         MessageListContextMenuItem.FOLLOW_SENDER.addTo(menu, order++,
                                 String.format(
                                         getActivity().getText(R.string.menu_item_follow_user).toString(),
-                                        MyQuery.userIdToWebfingerId(msg.senderId)));
+                                        snapshot.actorWebFingerId));
                     }
                 }
             }
@@ -131,18 +132,18 @@ class MessageContextMenu extends MyContextMenu {
                 MessageListContextMenuItem.AUTHOR_MESSAGES.addTo(menu, order++,
                         String.format(
                                 getActivity().getText(R.string.menu_item_user_messages).toString(),
-                                MyQuery.userIdToWebfingerId(msg.authorId)));
+                                snapshot.authorWebFingerId));
                 if (!msg.isAuthor) {
                     if (msg.authorFollowed) {
                         MessageListContextMenuItem.STOP_FOLLOWING_AUTHOR.addTo(menu, order++,
                                 String.format(
                                         getActivity().getText(R.string.menu_item_stop_following_user).toString(),
-                                        MyQuery.userIdToWebfingerId(msg.authorId)));
+                                        snapshot.authorWebFingerId));
                     } else {
                         MessageListContextMenuItem.FOLLOW_AUTHOR.addTo(menu, order++,
                                 String.format(
                                         getActivity().getText(R.string.menu_item_follow_user).toString(),
-                                        MyQuery.userIdToWebfingerId(msg.authorId)));
+                                        snapshot.authorWebFingerId));
                     }
                 }
             }
@@ -264,7 +265,7 @@ class MessageContextMenu extends MyContextMenu {
     private void setMessageForAccount(String method, long msgId, MyAccount myActorIn) {
         MyAccount myActor = myActorIn == null ? MyAccount.EMPTY : myActorIn;
         MyAccount currentMyAccount = menuContainer.getCurrentMyAccount();
-        long originId = MyQuery.msgIdToOriginId(msgId);
+        long originId = MessageSnapshot.get(msgId).originId;
         MyAccount ma1 = getMyContext().persistentAccounts()
                 .getAccountForThisMessage(originId, myActor, currentMyAccount, false);
         MessageForAccount msgNew = new MessageForAccount(msgId, originId, ma1);
@@ -29,10 +29,10 @@ import org.andstatus.app.data.AttachedImageFile;
 import org.andstatus.app.data.DataUpdater;
 import org.andstatus.app.data.DownloadData;
 import org.andstatus.app.data.DownloadStatus;
+import org.andstatus.app.data.MessageSnapshot;
 import org.andstatus.app.data.MyContentType;
 import org.andstatus.app.data.MyQuery;
 import org.andstatus.app.data.OidEnum;
-import org.andstatus.app.database.MsgTable;
 import org.andstatus.app.net.social.MbAttachment;
 import org.andstatus.app.net.social.MbMessage;
 import org.andstatus.app.net.social.MbUser;
@@ -140,11 +140,11 @@ public class MessageEditorData {
     static MessageEditorData load(Long msgId) {
         MessageEditorData data;
         if (msgId != 0) {
-            MyAccount ma = MyContextHolder.get().persistentAccounts().fromUserId(
-                    MyQuery.msgIdToLongColumnValue(MsgTable.ACTOR_ID, msgId));
+            MessageSnapshot msg = MessageSnapshot.get(msgId);
+            MyAccount ma = MyContextHolder.get().persistentAccounts().fromUserId(msg.actorId);
             data = new MessageEditorData(ma);
             data.msgId = msgId;
-            data.setBody(MyQuery.msgIdToStringColumnValue(MsgTable.BODY, msgId));
+            data.setBody(msg.body);
             data.image = DownloadData.getSingleForMessage(msgId, MyContentType.IMAGE, Uri.EMPTY);
             if (data.image.getStatus() == DownloadStatus.LOADED) {
                 AttachedImageFile imageFile = new AttachedImageFile(data.image.getDownloadId(),
@@ -152,9 +152,9 @@ public class MessageEditorData {
                 data.imageSize = imageFile.getSize();
                 data.imageDrawable = imageFile.getDrawableSync();
             }
-            data.inReplyToId = MyQuery.msgIdToLongColumnValue(MsgTable.IN_REPLY_TO_MSG_ID, msgId);
-            data.inReplyToBody = MyQuery.msgIdToStringColumnValue(MsgTable.BODY, data.inReplyToId);
-            data.recipientId = MyQuery.msgIdToLongColumnValue(MsgTable.RECIPIENT_ID, msgId);
+            data.inReplyToId = msg.inReplyToMsgId;
+            data.inReplyToBody = msg.inReplyToBody;
+            data.recipientId = msg.recipientId;
             MyLog.v(TAG, "Loaded " + data);
         } else {
             data = new MessageEditorData(MyContextHolder.get().persistentAccounts().getCurrentAccount());
@@ -300,7 +300,7 @@ public class MessageEditorData {
     }
 
     private void addUsersBeforeText(List<Long> toMention) {
-        toMention.add(0, MyQuery.msgIdToLongColumnValue(MsgTable.AUTHOR_ID, inReplyToId));
+        toMention.add(0, MessageSnapshot.get(inReplyToId).authorId);
         List<Long> mentioned = new ArrayList<>();
         mentioned.add(ma.getUserId());  // Don't mention an author of this message
         String mentions = "";
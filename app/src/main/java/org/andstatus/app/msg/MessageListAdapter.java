@@ -26,15 +26,14 @@ import android.widget.TextView;
 import org.andstatus.app.R;
 import org.andstatus.app.account.MyAccount;
 import org.andstatus.app.context.MyPreferences;
+import org.andstatus.app.data.AvatarData;
 import org.andstatus.app.data.DownloadStatus;
 import org.andstatus.app.util.I18n;
+import org.andstatus.app.util.LongSet;
 import org.andstatus.app.util.MyUrlSpan;
 import org.andstatus.app.util.SharedPreferencesUtil;
 import org.andstatus.app.widget.MyBaseAdapter;
 
-import java.util.HashSet;
-import java.util.Set;
-
 /**
  * @author yvolk@yurivolkov.com
  */
@@ -46,7 +45,7 @@ public abstract class MessageListAdapter<T extends MessageViewItem> extends MyBa
     protected final boolean showAttachedImages = MyPreferences.getDownloadAndDisplayAttachedImages();
     protected final boolean markReplies = SharedPreferencesUtil.getBoolean(
             MyPreferences.KEY_MARK_REPLIES_IN_TIMELINE, true);
-    protected Set<Long> preloadedImages = new HashSet<>(100);
+    protected final LongSet preloadedImages = new LongSet(100);
 
     public MessageListAdapter(MessageContextMenu contextMenu) {
         super(contextMenu.getMyContext());
@@ -63,7 +62,7 @@ public abstract class MessageListAdapter<T extends MessageViewItem> extends MyBa
         showRebloggers(view, item);
         MyUrlSpan.showText(view, R.id.message_author, item.authorName, false, false);
         showMessageBody(view, item);
-        MyUrlSpan.showText(view, R.id.message_details, item.getDetails(contextMenu.getActivity()).toString(), false, false);
+        MyUrlSpan.showText(view, R.id.message_details, item.getDetailsText(contextMenu.getActivity()), false, false);
 
         showAvatarEtc(view, item);
 
@@ -124,12 +123,13 @@ public abstract class MessageListAdapter<T extends MessageViewItem> extends MyBa
 
     protected void showMessageBody(View view, MessageViewItem item) {
         TextView body = (TextView) view.findViewById(R.id.message_body);
-        MyUrlSpan.showText(body, item.getBody(), true, true);
+        MyUrlSpan.showSpanned(body, item.getSpannedBody(), true, true);
     }
 
     protected void showAvatar(View view, MessageViewItem item) {
         ImageView avatar = (ImageView) view.findViewById(R.id.avatar_image);
         avatar.setImageDrawable(item.getAvatar());
+        AvatarData.onUserShown(item.authorId);
     }
 
     protected void showAttachedImage(View view, MessageViewItem item) {
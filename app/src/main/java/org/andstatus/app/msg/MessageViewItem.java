@@ -19,6 +19,7 @@ package org.andstatus.app.msg;
 import android.content.Context;
 import android.graphics.drawable.Drawable;
 import android.support.annotation.NonNull;
+import android.text.Spanned;
 import android.text.TextUtils;
 
 import org.andstatus.app.R;
@@ -32,8 +33,10 @@ import org.andstatus.app.data.AvatarFile;
 import org.andstatus.app.data.DownloadStatus;
 import org.andstatus.app.util.I18n;
 import org.andstatus.app.util.MyHtml;
+import org.andstatus.app.util.MyUrlSpan;
 import org.andstatus.app.util.RelativeTime;
 import org.andstatus.app.util.SharedPreferencesUtil;
+import org.andstatus.app.util.SimHash;
 import org.andstatus.app.widget.DuplicatesCollapsible;
 import org.andstatus.app.widget.DuplicationLink;
 
@@ -44,7 +47,8 @@ import java.util.Map;
 import java.util.concurrent.TimeUnit;
 
 public class MessageViewItem implements DuplicatesCollapsible<MessageViewItem>, ViewItem {
-    private static final int MIN_LENGTH_TO_COMPARE = 5;
+    /** Details show relative time, so they are rebuilt, if shown later than this after preparation */
+    static final long DETAILS_REFRESH_MS = TimeUnit.MINUTES.toMillis(1);
     private MyContext myContext = MyContextHolder.get();
     long updatedDate = 0;
     long sentDate = 0;
@@ -66,7 +70,12 @@ public class MessageViewItem implements DuplicatesCollapsible<MessageViewItem>,
     String messageSource = "";
 
     private String body = "";
-    private String cleanedBody = "";
+    private long bodyFingerprint = SimHash.EMPTY;
+    private String cleanedBody = null;
+    /** Texts, ready to be shown, see {@link #prepareForView(Context)} */
+    private volatile Spanned spannedBody = null;
+    private volatile String details = null;
+    private volatile long detailsPreparedAt = 0;
 
     boolean favorited = false;
     boolean isFavoritingAction = false;
@@ -136,7 +145,9 @@ public class MessageViewItem implements DuplicatesCollapsible<MessageViewItem>,
     public void collapse(TimelineViewItem child) {
         this.children.addAll(child.getChildren());
         child.getChildren().clear();
+        child.forgetDetails();
         this.children.add(child);
+        forgetDetails();
     }
 
     public boolean isCollapsed() {
@@ -158,10 +169,23 @@ public class MessageViewItem implements DuplicatesCollapsible<MessageViewItem>,
         }
         if (link == DuplicationLink.NONE) {
             if (Math.abs(updatedDate - other.updatedDate) < TimeUnit.HOURS.toMillis(24)) {
-                if (cleanedBody.length() < MIN_LENGTH_TO_COMPARE ||
-                        other.cleanedBody.length() < MIN_LENGTH_TO_COMPARE) {
+                long fingerprint = getBodyFingerprint();
+                long otherFingerprint = other.getBodyFingerprint();
+                if (fingerprint == SimHash.EMPTY || otherFingerprint == SimHash.EMPTY) {
                     // Too short to compare
-                } else if (cleanedBody.equals(other.cleanedBody)) {
+                } else if (getCleanedBody().length() != other.getCleanedBody().length()) {
+                    if (SimHash.areSimilar(fingerprint, otherFingerprint)) {
+                        // A longer text contains a shorter one with some additions
+                        link = getCleanedBody().length() > other.getCleanedBody().length()
+                                ? DuplicationLink.DUPLICATES : DuplicationLink.IS_DUPLICATED;
+                    } else if (getCleanedBody().contains(other.getCleanedBody())) {
+                        // Additions are too long for similar fingerprints, e.g. "RT @user: " of a short text
+                        link = DuplicationLink.DUPLICATES;
+                    } else if (other.getCleanedBody().contains(getCleanedBody())) {
+                        link = DuplicationLink.IS_DUPLICATED;
+                    }
+                } else if (getCleanedBody().equals(other.getCleanedBody())) {
+                    // Texts of the same length may differ in a word only, e.g. a date, so they should be the same
                     if (updatedDate == other.updatedDate) {
                         link = duplicatesByFavoritedAndReblogged(other);
                     } else if (updatedDate < other.updatedDate) {
@@ -169,10 +193,6 @@ public class MessageViewItem implements DuplicatesCollapsible<MessageViewItem>,
                     } else {
                         link = DuplicationLink.DUPLICATES;
                     }
-                } else if (cleanedBody.contains(other.cleanedBody)) {
-                    link = DuplicationLink.DUPLICATES;
-                } else if (other.cleanedBody.contains(cleanedBody)) {
-                    link = DuplicationLink.IS_DUPLICATED;
                 }
             }
         }
@@ -200,6 +220,47 @@ public class MessageViewItem implements DuplicatesCollapsible<MessageViewItem>,
         return !rebloggers.isEmpty();
     }
 
+    /**
+     * Html parsing, linkifying and formatting of details take time, so a loader does this
+     * in a background thread, and an adapter only shows the prepared texts
+     */
+    public void prepareForView(Context context) {
+        getSpannedBody();
+        prepareDetails(context);
+    }
+
+    @NonNull
+    public Spanned getSpannedBody() {
+        Spanned spanned = spannedBody;
+        if (spanned == null) {
+            spanned = MyUrlSpan.toSpanned(body, true);
+            spannedBody = spanned;
+        }
+        return spanned;
+    }
+
+    /** Prepared details or new ones, if the prepared are outdated, see {@link #DETAILS_REFRESH_MS} */
+    @NonNull
+    public String getDetailsText(Context context) {
+        String text = details;
+        if (text == null || System.currentTimeMillis() - detailsPreparedAt > DETAILS_REFRESH_MS) {
+            text = prepareDetails(context);
+        }
+        return text;
+    }
+
+    private String prepareDetails(Context context) {
+        detailsPreparedAt = System.currentTimeMillis();
+        String text = getDetails(context).toString();
+        details = text;
+        return text;
+    }
+
+    /** Should be called after a change, which is shown in the details */
+    void forgetDetails() {
+        details = null;
+    }
+
     public StringBuilder getDetails(Context context) {
         StringBuilder builder = new StringBuilder(RelativeTime.getDifference(context, updatedDate));
         setInReplyTo(context, builder);
@@ -258,10 +319,32 @@ public class MessageViewItem implements DuplicatesCollapsible<MessageViewItem>,
     public MessageViewItem setBody(String body) {
         this.body = body;
         this.isFavoritingAction = MyHtml.isFavoritingAction(body);
-        cleanedBody = MyHtml.getCleanedBody(body);
+        bodyFingerprint = SimHash.EMPTY;
+        cleanedBody = null;
+        spannedBody = null;
         return this;
     }
 
+    /** Calculated for the pairs of messages, which are compared as possible duplicates, only */
+    private String getCleanedBody() {
+        if (cleanedBody == null) {
+            cleanedBody = MyHtml.getCleanedBody(body);
+        }
+        return cleanedBody;
+    }
+
+    /** Stored fingerprint allows to avoid its calculation for each displayed message */
+    void setBodyFingerprint(long bodyFingerprint) {
+        this.bodyFingerprint = bodyFingerprint;
+    }
+
+    public long getBodyFingerprint() {
+        if (bodyFingerprint == SimHash.EMPTY) {
+            bodyFingerprint = SimHash.fromBody(body);
+        }
+        return bodyFingerprint;
+    }
+
     public String getBody() {
         return body;
     }
@@ -29,12 +29,19 @@ import org.andstatus.app.data.ProjectionMap;
 import org.andstatus.app.database.MsgTable;
 import org.andstatus.app.timeline.Timeline;
 import org.andstatus.app.timeline.TimelineType;
+import org.andstatus.app.util.LongMap;
 import org.andstatus.app.util.MyLog;
 
+import java.util.ArrayList;
+import java.util.List;
+
 /**
  * @author yvolk@yurivolkov.com
  */
 public class RecursiveConversationLoader<T extends ConversationItem> extends ConversationLoader<T> {
+    /** Cached messages by ids of the messages, they reply to */
+    private final LongMap<List<T>> cachedReplies = new LongMap<>();
+
     public RecursiveConversationLoader(Class<T> tClass, MyContext myContext, MyAccount ma,
                                        long selectedMessageId, boolean sync) {
         super(tClass, myContext, ma, selectedMessageId, sync);
@@ -47,6 +54,7 @@ public class RecursiveConversationLoader<T extends ConversationItem> extends Con
     }
 
     private void cacheConversation(T oMsg) {
+        cachedReplies.clear();
         long conversationId = MyQuery.msgIdToLongColumnValue(MsgTable.CONVERSATION_ID, oMsg.getMsgId());
         String selection = ProjectionMap.MSG_TABLE_ALIAS + "." +
                 (conversationId == 0 ? MsgTable._ID + "=" + oMsg.getMsgId() :
@@ -62,6 +70,7 @@ public class RecursiveConversationLoader<T extends ConversationItem> extends Con
                     T oMsg2 = newOMsg(DbUtils.getLong(cursor, BaseColumns._ID));
                     oMsg2.load(cursor);
                     cachedMessages.put(oMsg2.getMsgId(), oMsg2);
+                    addCachedReply(oMsg2);
                 }
             }
         } finally {
@@ -69,6 +78,18 @@ public class RecursiveConversationLoader<T extends ConversationItem> extends Con
         }
     }
 
+    private void addCachedReply(T oMsg) {
+        if (oMsg.inReplyToMsgId == 0) {
+            return;
+        }
+        List<T> replies = cachedReplies.get(oMsg.inReplyToMsgId);
+        if (replies == null) {
+            replies = new ArrayList<>();
+            cachedReplies.put(oMsg.inReplyToMsgId, replies);
+        }
+        replies.add(oMsg);
+    }
+
     private void findPreviousMessagesRecursively(T oMsg) {
         if (!addMessageIdToFind(oMsg.getMsgId())) {
             return;
@@ -90,12 +111,14 @@ public class RecursiveConversationLoader<T extends ConversationItem> extends Con
 
     public void findRepliesRecursively(T oMsg) {
         MyLog.v(this, "findReplies for id=" + oMsg.getMsgId());
-        for (T oMsgReply : cachedMessages.values()) {
-            if (oMsgReply.inReplyToMsgId == oMsg.getMsgId()) {
-                oMsg.mNReplies++;
-                oMsgReply.replyLevel = oMsg.replyLevel + 1;
-                findPreviousMessagesRecursively(oMsgReply);
-            }
+        List<T> replies = cachedReplies.get(oMsg.getMsgId());
+        if (replies == null) {
+            return;
+        }
+        for (T oMsgReply : replies) {
+            oMsg.mNReplies++;
+            oMsgReply.replyLevel = oMsg.replyLevel + 1;
+            findPreviousMessagesRecursively(oMsgReply);
         }
     }
 }
@@ -55,8 +55,11 @@ import org.andstatus.app.context.MySettingsActivity;
 import org.andstatus.app.data.MatchedUri;
 import org.andstatus.app.data.TimelineSearchSuggestionsProvider;
 import org.andstatus.app.origin.Origin;
+import org.andstatus.app.os.AsyncTaskLauncher;
+import org.andstatus.app.os.MyAsyncTask;
 import org.andstatus.app.service.CommandData;
 import org.andstatus.app.service.CommandEnum;
+import org.andstatus.app.service.CommandResult;
 import org.andstatus.app.service.MyServiceManager;
 import org.andstatus.app.service.MyServiceState;
 import org.andstatus.app.service.QueueViewer;
@@ -79,6 +82,8 @@ import org.andstatus.app.widget.MyBaseAdapter;
 import org.andstatus.app.widget.MySearchView;
 
 import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
 
 /**
  * @author yvolk@yurivolkov.com
@@ -92,6 +97,9 @@ public class TimelineActivity extends MessageEditorListActivity implements
     /** Last parameters, requested to load. Thread safe. They are taken by a Loader at some time */
     private volatile TimelineListParameters paramsToLoad;
     private volatile TimelineData listData;
+    /** Messages, changed after the list was loaded. They are applied to the list without reloading it */
+    private final Set<Long> changedMsgIds = new HashSet<>();
+    private boolean reloadOnContentChange = false;
 
     private MessageContextMenu contextMenu;
 
@@ -823,6 +831,7 @@ public class TimelineActivity extends MessageEditorListActivity implements
                     + "; requesting " + (isDifferentRequest ? "" : "duplicating ")
                     + params.toSummary());
             saveListPosition();
+            forgetChangedMessages();
             disableHeaderSyncButton(R.string.loading);
             disableFooterButton(R.string.loading);
             showLoading(method, getText(R.string.loading) + " "
@@ -1207,9 +1216,67 @@ public class TimelineActivity extends MessageEditorListActivity implements
             default:
                 break;
         }
+        if (needed) {
+            rememberChangedMessages(commandData.getResult());
+        }
         return needed;
     }
 
+    private void rememberChangedMessages(CommandResult result) {
+        synchronized (changedMsgIds) {
+            if (result.hasTooManyChangedMessages() || result.getChangedMessageIds().isEmpty()) {
+                reloadOnContentChange = true;
+            } else {
+                changedMsgIds.addAll(result.getChangedMessageIds());
+            }
+        }
+    }
+
+    @NonNull
+    private Set<Long> forgetChangedMessages() {
+        synchronized (changedMsgIds) {
+            Set<Long> msgIds = reloadOnContentChange ? Collections.<Long>emptySet() : new HashSet<>(changedMsgIds);
+            changedMsgIds.clear();
+            reloadOnContentChange = false;
+            return msgIds;
+        }
+    }
+
+    /** Only changed messages are queried and patched into the shown list, so it doesn't reload and jump */
+    @Override
+    protected void refreshOnContentChange() {
+        final Set<Long> msgIds = forgetChangedMessages();
+        if (msgIds.isEmpty() || !getParamsLoaded().isLoaded() || getListData().size() == 0) {
+            super.refreshOnContentChange();
+            return;
+        }
+        refreshNeededSince.set(0);
+        refreshNeededAfterForegroundCommand.set(false);
+        final TimelineListParameters params = TimelineListParameters.clone(getParamsLoaded(), WhichPage.CURRENT);
+        AsyncTaskLauncher.execute(this, true,
+                new MyAsyncTask<Void, Void, TimelineLoader>("RefreshChanged" + getInstanceId(),
+                        MyAsyncTask.PoolEnum.QUICK_UI) {
+
+                    @Override
+                    protected TimelineLoader doInBackground2(Void... voids) {
+                        TimelineLoader loader = new TimelineLoader(params, getInstanceId()).setMsgIdsToLoad(msgIds);
+                        loader.load(null);
+                        return loader;
+                    }
+
+                    @Override
+                    protected void onPostExecute2(TimelineLoader loader) {
+                        if (isLoading() || !getListData().params.isSameTimeline(params)) {
+                            MyLog.v(TimelineActivity.this, "Changes ignored, the list is being reloaded or switched");
+                        } else if (getListData().applyChanges(loader.getPage().items)) {
+                            updateList(TriState.UNKNOWN, 0, false);
+                        } else {
+                            showList(WhichPage.CURRENT);
+                        }
+                    }
+                });
+    }
+
     @Override
     protected boolean isAutoRefreshNow(boolean onStop) {
         return super.isAutoRefreshNow(onStop) && MyPreferences.isRefreshTimelineAutomatically();
@@ -72,8 +72,7 @@ public class TimelineAdapter extends MessageListAdapter<TimelineViewItem> {
                 break;
             }
             TimelineViewItem item = getItem(positionToPreload);
-            if (!preloadedImages.contains(item.getMsgId())) {
-                preloadedImages.add(item.getMsgId());
+            if (preloadedImages.add(item.getMsgId())) {
                 item.getAttachedImageFile().preloadAttachedImage(contextMenu.getActivity());
                 break;
             }
@@ -22,11 +22,16 @@ import android.support.v4.util.Pair;
 import org.andstatus.app.WhichPage;
 import org.andstatus.app.list.ListData;
 import org.andstatus.app.util.MyLog;
+import org.andstatus.app.util.SimHash;
+import org.andstatus.app.widget.DuplicationLink;
 
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.HashMap;
 import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 
 /**
@@ -233,6 +238,89 @@ public class TimelineData extends ListData {
         return TimelineViewItem.getEmpty();
     }
 
+    /**
+     * Applies changed and new messages to the loaded pages in place, without reloading unchanged items:
+     * changed items are replaced at their positions, new items are inserted by their sent dates,
+     * if they fall into the loaded range
+     * @param changedItems sorted by sent date, youngest first
+     * @return false if the changes cannot be applied, so the list should be reloaded
+     */
+    public boolean applyChanges(List<TimelineViewItem> changedItems) {
+        if (pages.isEmpty() || size() == 0) {
+            return false;
+        }
+        int replaced = 0;
+        int inserted = 0;
+        for (TimelineViewItem item : changedItems) {
+            if (replaceExisting(item)) {
+                replaced++;
+            } else if (insertNew(item)) {
+                inserted++;
+            }
+        }
+        if (inserted > 0) {
+            collapseDuplicates(isCollapseDuplicates(), 0);
+        }
+        MyLog.v(this, "Changes applied, replaced: " + replaced + ", inserted: " + inserted
+                + " of " + changedItems.size());
+        return true;
+    }
+
+    private boolean replaceExisting(TimelineViewItem item) {
+        for (TimelinePage page : pages) {
+            for (int ind = 0; ind < page.items.size(); ind++) {
+                TimelineViewItem existing = page.items.get(ind);
+                if (existing.getMsgId() == item.getMsgId()) {
+                    item.getChildren().addAll(existing.getChildren());
+                    page.items.set(ind, item);
+                    return true;
+                }
+                List<TimelineViewItem> children = existing.getChildren();
+                for (int indChild = 0; indChild < children.size(); indChild++) {
+                    if (children.get(indChild).getMsgId() == item.getMsgId()) {
+                        children.set(indChild, item);
+                        return true;
+                    }
+                }
+            }
+        }
+        return false;
+    }
+
+    /** New items, which are younger or older than the loaded pages, are added only at the ends of the timeline */
+    private boolean insertNew(TimelineViewItem item) {
+        for (int indPage = 0; indPage < pages.size(); indPage++) {
+            TimelinePage page = pages.get(indPage);
+            if (page.items.isEmpty()) {
+                continue;
+            }
+            if (item.sentDate > page.params.maxSentDateLoaded) {
+                if (indPage > 0 || !page.params.containsYoungest()) {
+                    return false;
+                }
+                return insertIntoPage(page, 0, item);
+            }
+            if (item.sentDate >= page.params.minSentDateLoaded) {
+                int ind = 0;
+                while (ind < page.items.size() && page.items.get(ind).sentDate >= item.sentDate) {
+                    ind++;
+                }
+                return insertIntoPage(page, ind, item);
+            }
+        }
+        TimelinePage lastPage = pages.get(pages.size() - 1);
+        if (!lastPage.params.containsOldest()) {
+            return false;
+        }
+        return insertIntoPage(lastPage, lastPage.items.size(), item);
+    }
+
+    private boolean insertIntoPage(TimelinePage page, int ind, TimelineViewItem item) {
+        page.items.add(ind, item);
+        page.params.rememberSentDateLoaded(item.sentDate, item.getMsgId());
+        return true;
+    }
+
     public boolean mayHaveYoungerPage() {
         return pages.size() == 0 || pages.get(0).params.mayHaveYoungerPage();
     }
@@ -269,30 +357,101 @@ public class TimelineData extends ListData {
         }
     }
 
+    /**
+     * Groups possible duplicates across all loaded pages, so cross-posted messages are found even
+     * if they are not adjacent. Items are compared with adjacent items (a longer text may contain a shorter one)
+     * and with items in the same similarity buckets (see {@link SimHash#bandOf(long, int)}),
+     * so each item is compared with a few others only
+     */
     private void innerCollapseDuplicates(long itemId, Collection<Pair<TimelinePage, TimelineViewItem>> toCollapse) {
-        Pair<TimelinePage, TimelineViewItem> parent = new Pair<>(null, null);
-        Set<Pair<TimelinePage, TimelineViewItem>> group = new HashSet<>();
+        List<Pair<TimelinePage, TimelineViewItem>> items = new ArrayList<>();
         for (TimelinePage page : pages) {
             for (TimelineViewItem item : page.items) {
-                Pair<TimelinePage, TimelineViewItem> itemPair =new Pair<>(page, item);
-                switch (item.duplicates(parent.second)) {
-                    case DUPLICATES:
-                        break;
-                    case IS_DUPLICATED:
-                        parent = itemPair;
-                        break;
-                    default:
-                        if (collapseThisGroup(itemId, parent, group, toCollapse)) {
-                            return;
-                        }
-                        group.clear();
-                        parent = itemPair;
-                        break;
+                items.add(new Pair<>(page, item));
+            }
+        }
+        int[] roots = new int[items.size()];
+        Map<Long, List<Integer>> buckets = new HashMap<>();
+        for (int ind = 0; ind < items.size(); ind++) {
+            roots[ind] = ind;
+            if (ind > 0) {
+                joinIfDuplicates(items, roots, ind - 1, ind);
+            }
+            long fingerprint = items.get(ind).second.getBodyFingerprint();
+            if (fingerprint == SimHash.EMPTY) {
+                continue;
+            }
+            for (int bandIndex = 0; bandIndex < SimHash.BANDS_COUNT; bandIndex++) {
+                Long band = SimHash.bandOf(fingerprint, bandIndex);
+                List<Integer> bucket = buckets.get(band);
+                if (bucket == null) {
+                    bucket = new ArrayList<>();
+                    buckets.put(band, bucket);
                 }
-                group.add(itemPair);
+                for (int otherInd : bucket) {
+                    joinIfDuplicates(items, roots, otherInd, ind);
+                }
+                bucket.add(ind);
+            }
+        }
+        Map<Integer, List<Pair<TimelinePage, TimelineViewItem>>> groups = new LinkedHashMap<>();
+        for (int ind = 0; ind < items.size(); ind++) {
+            int root = rootOf(roots, ind);
+            List<Pair<TimelinePage, TimelineViewItem>> group = groups.get(root);
+            if (group == null) {
+                group = new ArrayList<>();
+                groups.put(root, group);
+            }
+            group.add(items.get(ind));
+        }
+        for (List<Pair<TimelinePage, TimelineViewItem>> group : groups.values()) {
+            if (collapseGroupOfTheSameBody(itemId, group, toCollapse)) {
+                return;
+            }
+        }
+    }
+
+    private static void joinIfDuplicates(List<Pair<TimelinePage, TimelineViewItem>> items, int[] roots,
+                                         int ind1, int ind2) {
+        int root1 = rootOf(roots, ind1);
+        int root2 = rootOf(roots, ind2);
+        if (root1 != root2 && items.get(ind1).second.duplicates(items.get(ind2).second) != DuplicationLink.NONE) {
+            roots[Math.max(root1, root2)] = Math.min(root1, root2);
+        }
+    }
+
+    private static int rootOf(int[] roots, int ind) {
+        int root = ind;
+        while (roots[root] != root) {
+            roots[root] = roots[roots[root]];
+            root = roots[root];
+        }
+        return root;
+    }
+
+    /** Items of one group are in the timeline's order, and only items within the same day are duplicates */
+    private boolean collapseGroupOfTheSameBody(long itemId, List<Pair<TimelinePage, TimelineViewItem>> items,
+                                               Collection<Pair<TimelinePage, TimelineViewItem>> toCollapse) {
+        Pair<TimelinePage, TimelineViewItem> parent = new Pair<>(null, null);
+        Set<Pair<TimelinePage, TimelineViewItem>> group = new HashSet<>();
+        for (Pair<TimelinePage, TimelineViewItem> itemPair : items) {
+            switch (itemPair.second.duplicates(parent.second)) {
+                case DUPLICATES:
+                    break;
+                case IS_DUPLICATED:
+                    parent = itemPair;
+                    break;
+                default:
+                    if (collapseThisGroup(itemId, parent, group, toCollapse)) {
+                        return true;
+                    }
+                    group.clear();
+                    parent = itemPair;
+                    break;
             }
+            group.add(itemPair);
         }
-        collapseThisGroup(itemId, parent, group, toCollapse);
+        return collapseThisGroup(itemId, parent, group, toCollapse);
     }
 
     private boolean collapseThisGroup(long itemId, Pair<TimelinePage, TimelineViewItem> parent, Set<Pair<TimelinePage, TimelineViewItem>> group, Collection<Pair<TimelinePage, TimelineViewItem>> toCollapse) {
@@ -380,6 +539,7 @@ public class TimelineData extends ListData {
                 page.items.add(ind2++, child);
             }
             item.getChildren().clear();
+            item.forgetDetails();
         }
         return groupOfSelectedItem;
     }
@@ -20,6 +20,7 @@ import android.app.LoaderManager;
 import android.database.Cursor;
 import android.net.Uri;
 import android.os.Bundle;
+import android.provider.BaseColumns;
 import android.support.annotation.NonNull;
 import android.text.TextUtils;
 
@@ -28,6 +29,7 @@ import org.andstatus.app.WhichPage;
 import org.andstatus.app.account.MyAccount;
 import org.andstatus.app.context.MyContext;
 import org.andstatus.app.data.MatchedUri;
+import org.andstatus.app.data.MyProvider;
 import org.andstatus.app.data.ParsedUri;
 import org.andstatus.app.data.ProjectionMap;
 import org.andstatus.app.data.SelectedUserIds;
@@ -41,6 +43,7 @@ import org.andstatus.app.timeline.TimelineType;
 import org.andstatus.app.util.MyLog;
 import org.andstatus.app.util.SelectionAndArgs;
 
+import java.util.Collection;
 import java.util.Date;
 
 public class TimelineListParameters {
@@ -59,11 +62,17 @@ public class TimelineListParameters {
     String[] mProjection;
 
     long maxSentDate = 0;
+    /** If not 0, the page starts after the (maxSentDate, maxSentDateMsgId) row, see {@link TimelineSql#getSortOrder} */
+    long maxSentDateMsgId = 0;
 
     // These params are updated just before page loading
     volatile long minSentDate = 0;
+    volatile long minSentDateMsgId = 0;
     volatile SelectionAndArgs selectionAndArgs = new SelectionAndArgs();
     volatile String sortOrderAndLimit = "";
+    volatile boolean queryAscending = false;
+    /** 0 - no limit */
+    volatile int rowsLimit = 0;
 
     // Execution state / loaded data:
     volatile long startTime = 0;
@@ -72,7 +81,9 @@ public class TimelineListParameters {
     volatile Timeline timelineToSync = Timeline.getEmpty(MyAccount.EMPTY);
     volatile int rowsLoaded = 0;
     volatile long minSentDateLoaded = 0;
+    volatile long minSentDateLoadedMsgId = 0;
     volatile long maxSentDateLoaded = 0;
+    volatile long maxSentDateLoadedMsgId = 0;
 
     public static TimelineListParameters clone(TimelineListParameters prev, WhichPage whichPage) {
         TimelineListParameters params = new TimelineListParameters(prev.myContext);
@@ -92,15 +103,19 @@ public class TimelineListParameters {
             case OLDER:
                 if (prev.mayHaveOlderPage()) {
                     params.maxSentDate = prev.minSentDateLoaded;
+                    params.maxSentDateMsgId = prev.minSentDateLoadedMsgId;
                 } else {
                     params.maxSentDate = prev.maxSentDate;
+                    params.maxSentDateMsgId = prev.maxSentDateMsgId;
                 }
                 break;
             case YOUNGER:
                 if (prev.mayHaveYoungerPage()) {
                     params.minSentDate = prev.maxSentDateLoaded;
+                    params.minSentDateMsgId = prev.maxSentDateLoadedMsgId;
                 } else {
                     params.minSentDate = prev.minSentDate;
+                    params.minSentDateMsgId = prev.minSentDateMsgId;
                 }
                 break;
             default:
@@ -126,6 +141,16 @@ public class TimelineListParameters {
                 (maxSentDate > 0 && rowsLoaded > 0 && maxSentDate > minSentDateLoaded);
     }
 
+    /** The page has no upper limit of the sent date, and its youngest messages were not cut off by the LIMIT */
+    boolean containsYoungest() {
+        return maxSentDate == 0 && (!isSortOrderAscending() || rowsLoaded < PAGE_SIZE);
+    }
+
+    /** The page has no lower limit of the sent date, and its oldest messages were not cut off by the LIMIT */
+    boolean containsOldest() {
+        return minSentDate == 0 && rowsLoaded < PAGE_SIZE;
+    }
+
     public boolean isSortOrderAscending() {
         return maxSentDate == 0 && minSentDate > 0;
     }
@@ -194,8 +219,9 @@ public class TimelineListParameters {
         if (!timeline.equals(that.timeline)) return false;
         if (!whichPage.equals(WhichPage.CURRENT) && !that.whichPage.equals(WhichPage.CURRENT)) {
             if (minSentDate != that.minSentDate) return false;
+            if (minSentDateMsgId != that.minSentDateMsgId) return false;
         }
-        return maxSentDate == that.maxSentDate;
+        return maxSentDate == that.maxSentDate && maxSentDateMsgId == that.maxSentDateMsgId;
     }
 
     @Override
@@ -205,15 +231,19 @@ public class TimelineListParameters {
             result = 31 * result + (-1 ^ (-1 >>> 32));
         } else {
             result = 31 * result + (int) (minSentDate ^ (minSentDate >>> 32));
+            result = 31 * result + (int) (minSentDateMsgId ^ (minSentDateMsgId >>> 32));
         }
         result = 31 * result + (int) (maxSentDate ^ (maxSentDate >>> 32));
+        result = 31 * result + (int) (maxSentDateMsgId ^ (maxSentDateMsgId >>> 32));
         return result;
     }
 
     boolean restoreState(@NonNull Bundle savedInstanceState) {
         whichPage = WhichPage.CURRENT;
         minSentDate = 0;
+        minSentDateMsgId = 0;
         maxSentDate = 0;
+        maxSentDateMsgId = 0;
         return parseUri(Uri.parse(savedInstanceState.getString(IntentExtra.MATCHED_URI.key,"")), "");
     }
     
@@ -234,12 +264,17 @@ public class TimelineListParameters {
         return timeline.getMyAccount();
     }
 
-    public void rememberSentDateLoaded(long sentDate) {
-        if (minSentDateLoaded == 0 || minSentDateLoaded > sentDate) {
+    /** Remembers the edge rows of the page by (sent date, message id) */
+    public void rememberSentDateLoaded(long sentDate, long msgId) {
+        if (minSentDateLoaded == 0 || minSentDateLoaded > sentDate
+                || (minSentDateLoaded == sentDate && minSentDateLoadedMsgId > msgId)) {
             minSentDateLoaded = sentDate;
+            minSentDateLoadedMsgId = msgId;
         }
-        if (maxSentDateLoaded == 0 || maxSentDateLoaded < sentDate) {
+        if (maxSentDateLoaded == 0 || maxSentDateLoaded < sentDate
+                || (maxSentDateLoaded == sentDate && maxSentDateLoadedMsgId < msgId)) {
             maxSentDateLoaded = sentDate;
+            maxSentDateLoadedMsgId = msgId;
         }
     }
 
@@ -247,20 +282,32 @@ public class TimelineListParameters {
         switch (whichPage) {
             case CURRENT:
                 minSentDate = (new TimelineListPositionStorage(null, null, this)).getTLPosition().minSentDate;
+                minSentDateMsgId = 0;
                 break;
             default:
                 break;
         }
+        queryAscending = isSortOrderAscending();
+        rowsLimit = minSentDate > 0 && maxSentDate > 0 ? 0 : PAGE_SIZE;
         sortOrderAndLimit = buildSortOrderAndLimit();
         selectionAndArgs = buildSelectionAndArgs();
     }
 
     private String buildSortOrderAndLimit() {
-        return (isSortOrderAscending() ? MsgTable.ASC_SORT_ORDER : MsgTable.DESC_SORT_ORDER)
-                + (minSentDate > 0 && maxSentDate > 0 ? "" : " LIMIT " + PAGE_SIZE);
+        return TimelineSql.getSortOrder(queryAscending) + (rowsLimit == 0 ? "" : " LIMIT " + rowsLimit);
     }
 
     private SelectionAndArgs buildSelectionAndArgs() {
+        SelectionAndArgs sa = buildTimelineSelectionAndArgs();
+        TimelineSql.addLowerBound(sa, minSentDate > 0 ? minSentDate : 1, minSentDateMsgId);
+        if (maxSentDate > 0) {
+            TimelineSql.addUpperBound(sa, maxSentDate, maxSentDateMsgId);
+        }
+        return sa;
+    }
+
+    /** Selection of messages of the timeline, without limits of the page */
+    private SelectionAndArgs buildTimelineSelectionAndArgs() {
         SelectionAndArgs sa = new SelectionAndArgs();
 
         // TODO: Move these selections to the {@link MyProvider} ?!
@@ -303,23 +350,43 @@ public class TimelineListParameters {
             default:
                 break;
         }
-
-        sa.addSelection(ProjectionMap.MSG_TABLE_ALIAS + "." + MsgTable.SENT_DATE
-                        + " >= ?",
-                new String[]{
-                        String.valueOf(minSentDate > 0 ? minSentDate : 1)
-                });
-        if (maxSentDate > 0) {
-            sa.addSelection(ProjectionMap.MSG_TABLE_ALIAS + "." + MsgTable.SENT_DATE + " <= ?",
-                    String.valueOf(maxSentDate));
-        }
         return sa;
     }
 
-    Cursor queryDatabase() {
+    /** Prepares the query of the page, which is read by {@link #queryChunk(SelectionAndArgs, boolean, TimelineViewItem, int)} */
+    void prepareQuery() {
         prepareQueryParameters();
-        return myContext.context().getContentResolver().query(getContentUri(), mProjection,
-                selectionAndArgs.selection, selectionAndArgs.selectionArgs, sortOrderAndLimit);
+    }
+
+    /**
+     * Selection of only these messages, if they belong to the timeline. Used to refresh shown items,
+     * so the prepared query of the page is left intact
+     */
+    SelectionAndArgs selectionOfMessages(Collection<Long> msgIds) {
+        SelectionAndArgs sa = buildTimelineSelectionAndArgs();
+        sa.addSelection(ProjectionMap.MSG_TABLE_ALIAS + "." + BaseColumns._ID + " IN ("
+                + TextUtils.join(", ", msgIds) + ")");
+        TimelineSql.addLowerBound(sa, 1, 0);
+        return sa;
+    }
+
+    /**
+     * Rows of the query, which follow the last read item in the sort order
+     * @param selection e.g. {@link #selectionAndArgs} of the prepared query
+     * @param lastItem null for the first chunk
+     */
+    Cursor queryChunk(SelectionAndArgs selection, boolean ascending, TimelineViewItem lastItem, int limit) {
+        SelectionAndArgs sa = new SelectionAndArgs();
+        sa.addSelection(selection.selection, selection.selectionArgs);
+        if (lastItem != null) {
+            if (ascending) {
+                TimelineSql.addLowerBound(sa, lastItem.sentDate, lastItem.getMsgId());
+            } else {
+                TimelineSql.addUpperBound(sa, lastItem.sentDate, lastItem.getMsgId());
+            }
+        }
+        return MyProvider.queryDatabase(getContentUri(), mProjection, sa.selection, sa.selectionArgs,
+                TimelineSql.getSortOrder(ascending), String.valueOf(limit));
     }
 
     public Uri getContentUri() {
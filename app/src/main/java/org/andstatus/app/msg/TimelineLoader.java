@@ -25,14 +25,18 @@ import org.andstatus.app.WhichPage;
 import org.andstatus.app.context.MyContextHolder;
 import org.andstatus.app.context.MyPreferences;
 import org.andstatus.app.data.DbUtils;
+import org.andstatus.app.data.RowReader;
 import org.andstatus.app.timeline.Timeline;
 import org.andstatus.app.timeline.TimelineType;
 import org.andstatus.app.util.I18n;
 import org.andstatus.app.util.MyHtml;
 import org.andstatus.app.util.MyLog;
+import org.andstatus.app.util.SelectionAndArgs;
 import org.andstatus.app.util.SharedPreferencesUtil;
 
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
 
 /**
 * @author yvolk@yurivolkov.com
@@ -42,6 +46,9 @@ public class TimelineLoader extends SyncLoader<TimelineViewItem> {
     private final TimelinePage page;
 
     private final long instanceId;
+    /** If not empty, only these messages are loaded, see {@link TimelineData#applyChanges(java.util.List)} */
+    private Collection<Long> msgIdsToLoad = Collections.emptyList();
+    private volatile boolean queryFailed = false;
 
     public TimelineLoader(@NonNull TimelineListParameters params, long instanceId) {
         this.params = params;
@@ -50,13 +57,22 @@ public class TimelineLoader extends SyncLoader<TimelineViewItem> {
         this.instanceId = instanceId;
     }
 
+    TimelineLoader setMsgIdsToLoad(@NonNull Collection<Long> msgIds) {
+        msgIdsToLoad = msgIds;
+        return this;
+    }
+
     @Override
     public void load(LoadableListActivity.ProgressPublisher publisher) {
         markStart();
-        if (params.whichPage != WhichPage.EMPTY) {
-            Cursor cursor = queryDatabase();
-            checkIfReloadIsNeeded(cursor);
-            loadFromCursor(cursor);
+        if (params.whichPage == WhichPage.EMPTY) {
+            // Nothing to load
+        } else if (msgIdsToLoad.isEmpty()) {
+            params.prepareQuery();
+            getParams().rowsLoaded = loadRows(params.selectionAndArgs, params.queryAscending, params.rowsLimit);
+            checkIfReloadIsNeeded();
+        } else {
+            loadRows(params.selectionOfMessages(msgIdsToLoad), false, 0);
         }
         params.endTime = System.nanoTime();
         logExecutionStats();
@@ -72,12 +88,12 @@ public class TimelineLoader extends SyncLoader<TimelineViewItem> {
         }
     }
 
-    private Cursor queryDatabase() {
-        final String method = "queryDatabase";
+    private Cursor queryChunk(SelectionAndArgs selection, boolean ascending, TimelineViewItem lastItem, int limit) {
+        final String method = "queryChunk";
         Cursor cursor = null;
         for (int attempt = 0; attempt < 3 && !getParams().cancelled; attempt++) {
             try {
-                cursor = getParams().queryDatabase();
+                cursor = getParams().queryChunk(selection, ascending, lastItem, limit);
                 break;
             } catch (IllegalStateException e) {
                 String message = "Attempt " + attempt + " to prepare cursor";
@@ -87,11 +103,14 @@ public class TimelineLoader extends SyncLoader<TimelineViewItem> {
                 }
             }
         }
+        if (cursor == null) {
+            queryFailed = true;
+        }
         return cursor;
     }
 
-    private void checkIfReloadIsNeeded(Cursor cursor) {
-        if (noMessagesInATimeline(cursor)) {
+    private void checkIfReloadIsNeeded() {
+        if (noMessagesInATimeline()) {
             if (getParams().getTimeline().isSyncedAutomatically()) {
                 if (Timeline.getTimeline(TimelineType.HOME, getParams().getMyAccount(), 0, null).
                         getYoungestSyncedDate() == 0) {
@@ -108,58 +127,72 @@ public class TimelineLoader extends SyncLoader<TimelineViewItem> {
         }
     }
 
-    private boolean noMessagesInATimeline(Cursor cursor) {
+    private boolean noMessagesInATimeline() {
         return getParams().whichPage.isYoungest()
                 && !getParams().getTimeline().hasSearchQuery()
-                && cursor != null && !cursor.isClosed() && cursor.getCount() == 0;
+                && !queryFailed && getParams().rowsLoaded == 0;
     }
 
-    @NonNull
-    private void loadFromCursor(Cursor cursor) {
-        KeywordsFilter keywordsFilter = new KeywordsFilter(
+    /**
+     * Rows are read in chunks, see {@link RowReader}
+     * @return number of rows read
+     */
+    private int loadRows(final SelectionAndArgs selection, final boolean ascending, int rowsLimit) {
+        long startTime = System.currentTimeMillis();
+        PageRowConsumer consumer = new PageRowConsumer();
+        long rowsCount = new RowReader<TimelineViewItem>() {
+            @Override
+            protected Cursor queryChunk(TimelineViewItem lastRow, int limit) {
+                return TimelineLoader.this.queryChunk(selection, ascending, lastRow, limit);
+            }
+
+            @Override
+            protected TimelineViewItem fromCursor(Cursor cursor) {
+                return TimelineViewItem.fromCursorRow(params.getMyContext(), cursor);
+            }
+        }.read(rowsLimit, consumer);
+        MyLog.d(this, "Filtered out " + consumer.filteredOutCount + " of " + rowsCount + " rows, "
+                + (System.currentTimeMillis() - startTime) + "ms" );
+        return (int) rowsCount;
+    }
+
+    private class PageRowConsumer implements RowReader.RowConsumer<TimelineViewItem> {
+        final KeywordsFilter keywordsFilter = new KeywordsFilter(
                 SharedPreferencesUtil.getString(MyPreferences.KEY_FILTER_HIDE_MESSAGES_BASED_ON_KEYWORDS, ""));
-        boolean hideRepliesNotToMeOrFriends = getParams().getTimelineType() == TimelineType.HOME
+        final boolean hideRepliesNotToMeOrFriends = getParams().getTimelineType() == TimelineType.HOME
                 && SharedPreferencesUtil.getBoolean(MyPreferences.KEY_FILTER_HIDE_REPLIES_NOT_TO_ME_OR_FRIENDS, false);
-        KeywordsFilter searchQuery = new KeywordsFilter(getParams().getTimeline().getSearchQuery());
-
-        long startTime = System.currentTimeMillis();
-        int rowsCount = 0;
+        final KeywordsFilter searchQuery = new KeywordsFilter(getParams().getTimeline().getSearchQuery());
+        final boolean reversedOrder = getParams().isSortOrderAscending();
         int filteredOutCount = 0;
-        if (cursor != null && !cursor.isClosed()) {
-            try {
-                if (cursor.moveToFirst()) {
-                    boolean reversedOrder = getParams().isSortOrderAscending();
-                    do {
-                        rowsCount++;
-                        TimelineViewItem item = TimelineViewItem.fromCursorRow(params.getMyContext(), cursor);
-                        getParams().rememberSentDateLoaded(item.sentDate);
-                        String body = MyHtml.getBodyToSearch(item.getBody());
-                        boolean skip = keywordsFilter.matchedAny(body);
-                        if (!skip && !searchQuery.isEmpty()) {
-                            skip = !searchQuery.matchedAll(body);
-                        }
-                        if (!skip && hideRepliesNotToMeOrFriends && item.inReplyToUserId != 0) {
-                            skip = !MyContextHolder.get().persistentAccounts().isMeOrMyFriend(item.inReplyToUserId);
-                        }
-                        if (skip) {
-                            filteredOutCount++;
-                            if (MyLog.isVerboseEnabled()) {
-                                MyLog.v(this, filteredOutCount + " Filtered out: " + I18n.trimTextAt(body, 100));
-                            }
-                        } else if (reversedOrder) {
-                            page.items.add(0, item);
-                        } else {
-                            page.items.add(item);
-                        }
-                    } while (cursor.moveToNext());
+
+        @Override
+        public boolean accept(TimelineViewItem item) {
+            if (msgIdsToLoad.isEmpty()) {
+                getParams().rememberSentDateLoaded(item.sentDate, item.getMsgId());
+            }
+            String body = MyHtml.getBodyToSearch(item.getBody());
+            boolean skip = keywordsFilter.matchedAny(body);
+            if (!skip && !searchQuery.isEmpty()) {
+                skip = !searchQuery.matchedAll(body);
+            }
+            if (!skip && hideRepliesNotToMeOrFriends && item.inReplyToUserId != 0) {
+                skip = !MyContextHolder.get().persistentAccounts().isMeOrMyFriend(item.inReplyToUserId);
+            }
+            if (skip) {
+                filteredOutCount++;
+                if (MyLog.isVerboseEnabled()) {
+                    MyLog.v(TimelineLoader.this, filteredOutCount + " Filtered out: " + I18n.trimTextAt(body, 100));
+                }
+            } else {
+                item.prepareForView(params.getMyContext().context());
+                if (reversedOrder) {
+                    page.items.add(0, item);
+                } else {
+                    page.items.add(item);
                 }
-            } finally {
-                cursor.close();
             }
+            return true;
         }
-        MyLog.d(this, "Filtered out " + filteredOutCount + " of " + rowsCount + " rows, "
-                + (System.currentTimeMillis() - startTime) + "ms" );
-        getParams().rowsLoaded = rowsCount;
     }
 
     public TimelineListParameters getParams() {
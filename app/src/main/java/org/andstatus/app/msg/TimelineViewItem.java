@@ -54,6 +54,7 @@ public class TimelineViewItem extends MessageViewItem {
         item.authorName = TimelineSql.userColumnIndexToNameAtTimeline(cursor,
                 cursor.getColumnIndex(UserTable.AUTHOR_NAME), MyPreferences.getShowOrigin());
         item.setBody(MyHtml.prepareForView(DbUtils.getString(cursor, MsgTable.BODY)));
+        item.setBodyFingerprint(DbUtils.getLong(cursor, MsgTable.BODY_FINGERPRINT));
         item.inReplyToMsgId = DbUtils.getLong(cursor, MsgTable.IN_REPLY_TO_MSG_ID);
         item.inReplyToUserId = DbUtils.getLong(cursor, MsgTable.IN_REPLY_TO_USER_ID);
         item.inReplyToName = DbUtils.getString(cursor, UserTable.IN_REPLY_TO_NAME);
@@ -21,6 +21,7 @@ import android.text.TextUtils;
 
 import org.andstatus.app.account.AccountDataWriter;
 import org.andstatus.app.net.http.ConnectionException.StatusCode;
+import org.andstatus.app.os.ExecutionMetrics;
 import org.andstatus.app.util.MyLog;
 import org.andstatus.app.util.TriState;
 import org.andstatus.app.util.UrlUtils;
@@ -63,10 +64,16 @@ public abstract class HttpConnection {
     }
 
     public final JSONObject postRequest(String path, JSONObject formParams) throws ConnectionException {
+        return postRequest(path, formParams, null);
+    }
+
+    /** @param progressListener receives progress of the media upload of this request only, may be null */
+    public final JSONObject postRequest(String path, JSONObject formParams, UploadProgressListener progressListener)
+            throws ConnectionException {
         /* See https://github.com/andstatus/andstatus/issues/249 */
         if (data.getUseLegacyHttpProtocol() == TriState.UNKNOWN) {
             try {
-                return postRequestOneHttpProtocol(path, formParams, false);
+                return postRequestOneHttpProtocol(path, formParams, progressListener, false);
             } catch (ConnectionException e) {
                 if (e.getStatusCode() != StatusCode.LENGTH_REQUIRED) {
                     throw e;
@@ -74,33 +81,41 @@ public abstract class HttpConnection {
                 MyLog.v(this, "Automatic fallback to legacy HTTP", e);
             }
         }
-        return postRequestOneHttpProtocol(path, formParams, data.getUseLegacyHttpProtocol().toBoolean(true));
+        return postRequestOneHttpProtocol(path, formParams, progressListener,
+                data.getUseLegacyHttpProtocol().toBoolean(true));
     }
 
-    private JSONObject postRequestOneHttpProtocol(String path, JSONObject formParams, 
-            boolean isLegacyHttpProtocol ) throws ConnectionException {
+    private JSONObject postRequestOneHttpProtocol(String path, JSONObject formParams,
+            UploadProgressListener progressListener, boolean isLegacyHttpProtocol ) throws ConnectionException {
         if (TextUtils.isEmpty(path)) {
             throw new IllegalArgumentException("path is empty");
         }
         HttpReadResult result = new HttpReadResult(pathToUrlString(path)).setFormParams(formParams)
-                .setLegacyHttpProtocol(isLegacyHttpProtocol);
+                .setLegacyHttpProtocol(isLegacyHttpProtocol)
+                .setUploadProgressListener(progressListener);
         if( result.hasFormParams()) {
             MyLog.logNetworkLevelMessage("post_form", data.getLogName(), result.getFormParams());
         }
-        postRequest(result);
+        long startedAt = ExecutionMetrics.now();
+        try {
+            postRequest(result);
+        } finally {
+            onHttpEnded(result, startedAt);
+        }
+        RateLimits.onResponse(data.getAccountName(), result);
         MyLog.logNetworkLevelMessage("post_response", data.getLogName(), result.strResponse);
         result.parseAndThrow();
-        return result.getJsonObject();
+        return getJsonObject(result);
     }
     
     protected abstract void postRequest(HttpReadResult result) throws ConnectionException;
     
     public final JSONObject getRequest(String path) throws ConnectionException {
-        return getRequestCommon(path, true).getJsonObject();
+        return getJsonObject(getRequestCommon(path, true));
     }
 
     public final JSONObject getUnauthenticatedRequest(String path) throws ConnectionException {
-        return getRequestCommon(path, false).getJsonObject();
+        return getJsonObject(getRequestCommon(path, false));
     }
     
     private HttpReadResult getRequestCommon(String path, boolean authenticated) throws ConnectionException {
@@ -109,23 +124,54 @@ public abstract class HttpConnection {
         }
         HttpReadResult result = new HttpReadResult(pathToUrlString(path));
         result.authenticate = authenticated;
-        getRequest(result);
+        getRequestMeasured(result);
+        RateLimits.onResponse(data.getAccountName(), result);
         MyLog.logNetworkLevelMessage("get_response", data.getLogName(), result.strResponse);
         result.parseAndThrow();
         return result;
     }
     
     public final JSONArray getRequestAsArray(String path) throws ConnectionException {
-        return getRequestCommon(path, true).getJsonArray();
+        HttpReadResult result = getRequestCommon(path, true);
+        long startedAt = ExecutionMetrics.now();
+        JSONArray jsa = result.getJsonArray();
+        ExecutionMetrics.onEnded(ExecutionMetrics.Phase.PARSE, getMetricsKey(), startedAt);
+        return jsa;
     }
 
     public final void downloadFile(String url, File file) throws ConnectionException {
         HttpReadResult result = new HttpReadResult(url, file);
-        getRequest(result);
+        getRequestMeasured(result);
+        RateLimits.onResponse(data.getAccountName(), result);
         result.parseAndThrow();
     }
     
     protected abstract void getRequest(HttpReadResult result) throws ConnectionException;
+
+    private void getRequestMeasured(HttpReadResult result) throws ConnectionException {
+        long startedAt = ExecutionMetrics.now();
+        try {
+            getRequest(result);
+        } finally {
+            onHttpEnded(result, startedAt);
+        }
+    }
+
+    private void onHttpEnded(HttpReadResult result, long startedAt) {
+        ExecutionMetrics.onEnded(ExecutionMetrics.Phase.HTTP, getMetricsKey(), startedAt,
+                result.getStatusCode() == StatusCode.OK);
+    }
+
+    private JSONObject getJsonObject(HttpReadResult result) throws ConnectionException {
+        long startedAt = ExecutionMetrics.now();
+        JSONObject jso = result.getJsonObject();
+        ExecutionMetrics.onEnded(ExecutionMetrics.Phase.PARSE, getMetricsKey(), startedAt);
+        return jso;
+    }
+
+    private String getMetricsKey() {
+        return data == null || data.getAccountName() == null ? "" : data.getAccountName().getOrigin().getName();
+    }
     
     public abstract void clearAuthInformation();
 
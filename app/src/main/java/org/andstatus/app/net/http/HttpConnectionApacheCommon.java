@@ -19,16 +19,13 @@ package org.andstatus.app.net.http;
 import android.net.Uri;
 import android.text.TextUtils;
 
-import org.andstatus.app.context.MyContextHolder;
 import org.andstatus.app.data.DbUtils;
-import org.andstatus.app.data.MyContentType;
 import org.andstatus.app.util.FileUtils;
 import org.andstatus.app.util.MyLog;
 import org.andstatus.app.util.UriUtils;
 import org.json.JSONObject;
 
 import java.io.IOException;
-import java.io.InputStream;
 import java.io.UnsupportedEncodingException;
 import java.util.ArrayList;
 import java.util.Iterator;
@@ -65,7 +62,8 @@ public class HttpConnectionApacheCommon {
             if ( !result.hasFormParams()) {
                 // Nothing to do at this step
             } else if (result.getFormParams().has(HttpConnection.KEY_MEDIA_PART_URI)) {
-                httpPost.setEntity(multiPartFormEntity(result.getFormParams()));
+                httpPost.setEntity(multiPartFormEntity(result.getFormParams(),
+                        result.getUploadProgressListener()));
             } else {
                 fillSinglePartPost(httpPost, result.getFormParams());
             }
@@ -75,8 +73,15 @@ public class HttpConnectionApacheCommon {
         }
     }
 
-    public static HttpEntity multiPartFormEntity(JSONObject formParams) throws
-            ConnectionException {
+    static void setHeaders(HttpReadResult result, HttpResponse httpResponse) {
+        for (Header header : httpResponse.getAllHeaders()) {
+            result.onHeader(header.getName(), header.getValue());
+        }
+    }
+
+    /** The media part is streamed from the ContentResolver, when the entity is written */
+    public static HttpEntity multiPartFormEntity(JSONObject formParams, UploadProgressListener progressListener)
+            throws ConnectionException {
         MultipartEntityBuilder builder = MultipartEntityBuilder.create();
         Uri mediaUri = null;
         String mediaPartName = "";
@@ -95,15 +100,10 @@ public class HttpConnectionApacheCommon {
             }
         }
         if (!TextUtils.isEmpty(mediaPartName) && !UriUtils.isEmpty(mediaUri)) {
-            InputStream ins = null;
             try {
-                ins = MyContextHolder.get().context().getContentResolver().openInputStream(mediaUri);
-                ContentType mediaContentType = ContentType.create(MyContentType.uri2MimeType(mediaUri, null));
-                builder.addBinaryBody(mediaPartName, FileUtils.getBytes(ins), mediaContentType, mediaUri.getPath());
-            } catch (SecurityException | IOException e) {
+                builder.addPart(mediaPartName, new MediaContentBody(mediaUri, progressListener));
+            } catch (SecurityException e) {
                 throw ConnectionException.hardConnectionException("mediaUri='" + mediaUri + "'", e);
-            } finally {
-                DbUtils.closeSilently(ins);
             }
         }
         return builder.build();
@@ -155,6 +155,7 @@ public class HttpConnectionApacheCommon {
                 StatusLine statusLine = httpResponse.getStatusLine();
                 result.statusLine = statusLine.toString();
                 result.setStatusCode(statusLine.getStatusCode());
+                setHeaders(result, httpResponse);
                 switch (result.getStatusCode()) {
                     case OK:
                     case UNKNOWN:
@@ -59,6 +59,7 @@ public class HttpConnectionBasic extends HttpConnection implements HttpConnectio
             StatusLine statusLine = httpResponse.getStatusLine();
             result.statusLine = statusLine.toString();
             result.setStatusCode(statusLine.getStatusCode());
+            HttpConnectionApacheCommon.setHeaders(result, httpResponse);
             result.strResponse = HttpConnectionApacheCommon.readHttpResponseToString(httpResponse);
         } catch (Exception e) {
             result.e1 = e;
@@ -98,6 +98,10 @@ public class HttpConnectionMock extends HttpConnection {
         this.exception = exception;
     }
 
+    public void setNetworkDelayMs(long networkDelayMs) {
+        this.networkDelayMs = networkDelayMs;
+    }
+
     @Override
     public String pathToUrlString(String path) throws ConnectionException {
         if (data.originUrl == null) {
@@ -137,8 +141,13 @@ public class HttpConnectionMock extends HttpConnection {
         return userSecret;
     }
 
+    /** The response to the request, the same for all requests, if not overridden */
+    protected String getResponse(HttpReadResult result) {
+        return responseString;
+    }
+
     private void onRequest(String method, HttpReadResult result) {
-        result.strResponse = responseString;
+        result.strResponse = getResponse(result);
         if (result.fileResult != null && responseFileStream != null) {
             try {
                 FileUtils.readStreamToFile(responseFileStream, result.fileResult);
@@ -149,7 +158,9 @@ public class HttpConnectionMock extends HttpConnection {
         results.add(result);
         MyLog.v(this, method + " num:" + results.size() + "; path:'" + result.getUrl()
                 + "', originUrl:'" + data.originUrl + "', instanceId:" + mInstanceId );
-        MyLog.v(this, Arrays.toString(Thread.currentThread().getStackTrace()));
+        if (MyLog.isVerboseEnabled()) {
+            MyLog.v(this, Arrays.toString(Thread.currentThread().getStackTrace()));
+        }
         DbUtils.waitMs("networkDelay", networkDelayMs);
     }
 
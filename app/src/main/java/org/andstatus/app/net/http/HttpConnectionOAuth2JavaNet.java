@@ -27,14 +27,17 @@ import com.github.scribejava.core.model.Verb;
 import com.github.scribejava.core.oauth.OAuth20Service;
 
 import org.andstatus.app.context.MyPreferences;
+import org.andstatus.app.data.DbUtils;
 import org.andstatus.app.util.FileUtils;
 import org.andstatus.app.util.MyLog;
 import org.json.JSONException;
 import org.json.JSONObject;
 
-import java.io.ByteArrayOutputStream;
+import java.io.BufferedOutputStream;
 import java.io.IOException;
+import java.io.OutputStream;
 import java.net.HttpURLConnection;
+import java.net.URL;
 import java.util.Iterator;
 import java.util.Map;
 import java.util.concurrent.ExecutionException;
@@ -92,19 +95,19 @@ public class HttpConnectionOAuth2JavaNet extends HttpConnectionOAuthJavaNet {
             OAuth20Service service = getService(false);
             final OAuthRequest request = new OAuthRequest(Verb.POST, result.getUrlObj().toString());
             if (result.getFormParams().has(HttpConnection.KEY_MEDIA_PART_URI)) {
-                HttpEntity httpEntity = HttpConnectionApacheCommon.multiPartFormEntity(result.getFormParams());
-                request.addHeader(httpEntity.getContentType().getName(), httpEntity.getContentType().getValue());
-                request.setPayload(httpEntityToBytes(httpEntity));
-            } else {
-                Iterator<String> iterator = result.getFormParams().keys();
-                while (iterator.hasNext()) {
-                    String key = iterator.next();
-                    request.addBodyParameter(key, result.getFormParams().optString(key));
-                }
+                signRequest(request, service, false);
+                postMediaOauth(result, request);
+                return;
+            }
+            Iterator<String> iterator = result.getFormParams().keys();
+            while (iterator.hasNext()) {
+                String key = iterator.next();
+                request.addBodyParameter(key, result.getFormParams().optString(key));
             }
             signRequest(request, service, false);
             final Response response = service.execute(request);
             result.setStatusCode(response.getCode());
+            setHeaders(result, response);
             switch(result.getStatusCode()) {
                 case OK:
                     result.strResponse = HttpConnectionUtils.readStreamToString(response.getStream());
@@ -121,11 +124,51 @@ public class HttpConnectionOAuth2JavaNet extends HttpConnectionOAuthJavaNet {
         }
     }
 
-    byte[] httpEntityToBytes(HttpEntity httpEntity) throws IOException {
-        ByteArrayOutputStream out = new ByteArrayOutputStream();
-        httpEntity.writeTo(out);
-        out.flush();
-        return out.toByteArray();
+    /**
+     * The signed request gives us the URL and the headers only: the multipart entity is written
+     * directly to the connection in chunks, so large media is never copied into memory
+     */
+    private void postMediaOauth(HttpReadResult result, OAuthRequest signedRequest) throws IOException {
+        HttpEntity httpEntity = HttpConnectionApacheCommon.multiPartFormEntity(result.getFormParams(),
+                result.getUploadProgressListener());
+        HttpURLConnection conn = (HttpURLConnection) new URL(signedRequest.getCompleteUrl()).openConnection();
+        try {
+            conn.setConnectTimeout(MyPreferences.getConnectionTimeoutMs());
+            conn.setReadTimeout(2*MyPreferences.getConnectionTimeoutMs());
+            conn.setInstanceFollowRedirects(false);
+            conn.setDoOutput(true);
+            conn.setDoInput(true);
+            conn.setRequestMethod("POST");
+            conn.setChunkedStreamingMode(0);
+            for (Map.Entry<String, String> header : signedRequest.getHeaders().entrySet()) {
+                conn.setRequestProperty(header.getKey(), header.getValue());
+            }
+            conn.setRequestProperty(httpEntity.getContentType().getName(), httpEntity.getContentType().getValue());
+            OutputStream out = new BufferedOutputStream(conn.getOutputStream());
+            try {
+                httpEntity.writeTo(out);
+            } finally {
+                DbUtils.closeSilently(out);
+            }
+            result.setStatusCode(conn.getResponseCode());
+            HttpConnectionOAuthJavaNet.setHeaders(result, conn);
+            switch(result.getStatusCode()) {
+                case OK:
+                    result.strResponse = HttpConnectionUtils.readStreamToString(conn.getInputStream());
+                    break;
+                default:
+                    result.strResponse = HttpConnectionUtils.readStreamToString(conn.getErrorStream());
+                    throw result.getExceptionFromJsonErrorResponse();
+            }
+        } finally {
+            conn.disconnect();
+        }
+    }
+
+    private static void setHeaders(HttpReadResult result, Response response) {
+        for (Map.Entry<String, String> entry : response.getHeaders().entrySet()) {
+            result.onHeader(entry.getKey(), entry.getValue());
+        }
     }
 
     @Override
@@ -145,6 +188,7 @@ public class HttpConnectionOAuth2JavaNet extends HttpConnectionOAuthJavaNet {
                 }
                 Response response = service.execute(request);
                 result.setStatusCode(response.getCode());
+                setHeaders(result, response);
                 switch(result.getStatusCode()) {
                     case OK:
                         if (result.fileResult != null) {
@@ -18,7 +18,6 @@ package org.andstatus.app.net.http;
 
 import android.net.Uri;
 
-import org.andstatus.app.context.MyContextHolder;
 import org.andstatus.app.data.DbUtils;
 import org.andstatus.app.data.MyContentType;
 import org.andstatus.app.net.http.ConnectionException.StatusCode;
@@ -30,7 +29,6 @@ import org.json.JSONObject;
 
 import java.io.BufferedOutputStream;
 import java.io.IOException;
-import java.io.InputStream;
 import java.io.OutputStream;
 import java.io.OutputStreamWriter;
 import java.io.Writer;
@@ -127,12 +125,13 @@ public class HttpConnectionOAuthJavaNet extends HttpConnectionOAuth {
             if (!result.hasFormParams()) {
                 // Nothing to do at this step
             } else if (result.getFormParams().has(HttpConnection.KEY_MEDIA_PART_URI)) {
-                writeMedia(conn, result.getFormParams());
+                writeMedia(conn, result);
             } else {
                 writeJson(conn, result.getFormParams());
             }
                         
             result.setStatusCode(conn.getResponseCode());
+            setHeaders(result, conn);
             switch(result.getStatusCode()) {
                 case OK:
                     result.strResponse = HttpConnectionUtils.readStreamToString(conn.getInputStream());
@@ -146,28 +145,19 @@ public class HttpConnectionOAuthJavaNet extends HttpConnectionOAuth {
         }
     }
 
-    /** This method is not legacy HTTP */
-    void writeMedia(HttpURLConnection conn, JSONObject formParams)
+    /** This method is not legacy HTTP. The media is streamed, so it is never held in memory as a whole */
+    void writeMedia(HttpURLConnection conn, HttpReadResult result)
             throws IOException, JSONException {
-        Uri mediaUri = Uri.parse(formParams.getString(KEY_MEDIA_PART_URI));
+        Uri mediaUri = Uri.parse(result.getFormParams().getString(KEY_MEDIA_PART_URI));
         conn.setChunkedStreamingMode(0);
         conn.setRequestProperty("Content-Type", MyContentType.uri2MimeType(mediaUri, null));
         signConnection(conn, getConsumer(), false);
-                
-        InputStream in = MyContextHolder.get().context().getContentResolver().openInputStream(mediaUri);
+
+        OutputStream out = new BufferedOutputStream(conn.getOutputStream());
         try {
-            byte[] buffer = new byte[16384];
-            int length;
-            OutputStream out = new BufferedOutputStream(conn.getOutputStream());
-            try {
-                while ((length = in.read(buffer)) != -1) {
-                    out.write(buffer, 0, length);
-                }
-            } finally {
-                DbUtils.closeSilently(out);
-            }
+            new MediaContentBody(mediaUri, result.getUploadProgressListener()).writeTo(out);
         } finally {
-            DbUtils.closeSilently(in);
+            DbUtils.closeSilently(out);
         }
     }
 
@@ -213,6 +203,7 @@ public class HttpConnectionOAuthJavaNet extends HttpConnectionOAuth {
                 }
                 conn.connect();
                 result.setStatusCode(conn.getResponseCode());
+                setHeaders(result, conn);
                 switch(result.getStatusCode()) {
                     case OK:
                         if (result.fileResult != null) {
@@ -259,6 +250,14 @@ public class HttpConnectionOAuthJavaNet extends HttpConnectionOAuth {
         }
     }
 
+    static void setHeaders(HttpReadResult result, HttpURLConnection conn) {
+        for (Entry<String, List<String>> entry : conn.getHeaderFields().entrySet()) {
+            for (String value : entry.getValue()) {
+                result.onHeader(entry.getKey(), value);
+            }
+        }
+    }
+
     protected void signConnection(HttpURLConnection conn, OAuthConsumer consumer, boolean redirected)
             throws ConnectionException {
         if (!getCredentialsPresent() || consumer == null) {
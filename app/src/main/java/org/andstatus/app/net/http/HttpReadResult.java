@@ -19,6 +19,7 @@ package org.andstatus.app.net.http;
 import android.text.TextUtils;
 
 import org.andstatus.app.net.http.ConnectionException.StatusCode;
+import org.andstatus.app.net.social.MbRateLimitStatus;
 import org.andstatus.app.util.I18n;
 import org.andstatus.app.util.MyLog;
 import org.json.JSONArray;
@@ -48,6 +49,8 @@ public class HttpReadResult {
     private StatusCode statusCode = StatusCode.UNKNOWN;
 
     boolean redirected = false;
+    private UploadProgressListener uploadProgressListener = null;
+    private final MbRateLimitStatus rateLimitStatus = new MbRateLimitStatus();
 
     public HttpReadResult(String urlIn) throws ConnectionException {
         this (urlIn, null);
@@ -76,6 +79,14 @@ public class HttpReadResult {
         statusCode = ConnectionException.StatusCode.fromResponseCode(intStatusCodeIn);
     }
 
+    void onHeader(String name, String value) {
+        rateLimitStatus.onHeader(name, value);
+    }
+
+    public MbRateLimitStatus getRateLimitStatus() {
+        return rateLimitStatus;
+    }
+
     public StatusCode getStatusCode() {
         return statusCode;
     }
@@ -246,6 +257,15 @@ public class HttpReadResult {
         return this;
     }
 
+    UploadProgressListener getUploadProgressListener() {
+        return uploadProgressListener;
+    }
+
+    public HttpReadResult setUploadProgressListener(UploadProgressListener uploadProgressListener) {
+        this.uploadProgressListener = uploadProgressListener;
+        return this;
+    }
+
     public void resetError() {
         e1 = null;
         statusCode = StatusCode.UNKNOWN;
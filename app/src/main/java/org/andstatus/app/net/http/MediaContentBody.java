@@ -0,0 +1,120 @@
+/*
+ * Copyright (c) 2017 yvolk (Yuri Volkov), http://yurivolkov.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.andstatus.app.net.http;
+
+import android.content.res.AssetFileDescriptor;
+import android.net.Uri;
+import android.support.annotation.NonNull;
+
+import org.andstatus.app.context.MyContextHolder;
+import org.andstatus.app.data.DbUtils;
+import org.andstatus.app.data.MyContentType;
+
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+
+import cz.msebera.android.httpclient.entity.ContentType;
+import cz.msebera.android.httpclient.entity.mime.MIME;
+import cz.msebera.android.httpclient.entity.mime.content.AbstractContentBody;
+
+/**
+ * Media to be uploaded, which is read from the ContentResolver while it is being written to the connection,
+ * so the whole file is never held in memory
+ * @author yvolk@yurivolkov.com
+ */
+class MediaContentBody extends AbstractContentBody {
+    private static final int BUFFER_LENGTH = 16384;
+    /** Report the progress not more often than after this number of bytes sent */
+    private static final long PROGRESS_STEP_BYTES = 256 * 1024;
+
+    private final Uri mediaUri;
+    private final long length;
+    private final UploadProgressListener progressListener;
+
+    MediaContentBody(@NonNull Uri mediaUri, UploadProgressListener progressListener) {
+        super(ContentType.create(MyContentType.uri2MimeType(mediaUri, null)));
+        this.mediaUri = mediaUri;
+        this.length = lengthOf(mediaUri);
+        this.progressListener = progressListener;
+    }
+
+    private static long lengthOf(Uri mediaUri) {
+        AssetFileDescriptor descriptor = null;
+        try {
+            descriptor = MyContextHolder.get().context().getContentResolver().openAssetFileDescriptor(mediaUri, "r");
+            return descriptor == null ? -1 : descriptor.getLength();
+        } catch (FileNotFoundException | SecurityException e) {
+            return -1;
+        } finally {
+            if (descriptor != null) {
+                try {
+                    descriptor.close();
+                } catch (IOException e) {
+                    // Ignore
+                }
+            }
+        }
+    }
+
+    @Override
+    public String getFilename() {
+        return mediaUri.getPath();
+    }
+
+    @Override
+    public void writeTo(OutputStream out) throws IOException {
+        InputStream in = null;
+        try {
+            in = MyContextHolder.get().context().getContentResolver().openInputStream(mediaUri);
+            if (in == null) {
+                throw new FileNotFoundException("No content for mediaUri='" + mediaUri + "'");
+            }
+            byte[] buffer = new byte[BUFFER_LENGTH];
+            long bytesSent = 0;
+            long reportedAt = 0;
+            int read;
+            while ((read = in.read(buffer)) != -1) {
+                out.write(buffer, 0, read);
+                bytesSent += read;
+                if (progressListener != null && bytesSent - reportedAt >= PROGRESS_STEP_BYTES) {
+                    reportedAt = bytesSent;
+                    progressListener.onUploadProgress(bytesSent, length);
+                }
+            }
+            out.flush();
+            if (progressListener != null && bytesSent != reportedAt) {
+                progressListener.onUploadProgress(bytesSent, length);
+            }
+        } catch (SecurityException e) {
+            throw new IOException("mediaUri='" + mediaUri + "'", e);
+        } finally {
+            DbUtils.closeSilently(in);
+        }
+    }
+
+    @Override
+    public String getTransferEncoding() {
+        return MIME.ENC_BINARY;
+    }
+
+    @Override
+    public long getContentLength() {
+        return length;
+    }
+}
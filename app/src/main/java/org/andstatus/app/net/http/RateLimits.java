@@ -0,0 +1,67 @@
+/*
+ * Copyright (c) 2017 yvolk (Yuri Volkov), http://yurivolkov.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.andstatus.app.net.http;
+
+import android.support.annotation.NonNull;
+
+import org.andstatus.app.account.AccountName;
+import org.andstatus.app.net.social.MbRateLimitStatus;
+import org.andstatus.app.util.MyLog;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Latest rate limit statuses, which servers reported in the headers of their responses, per account
+ * @author yvolk@yurivolkov.com
+ */
+public final class RateLimits {
+    private static final Map<String, MbRateLimitStatus> statuses = new ConcurrentHashMap<>();
+
+    private RateLimits() {
+        // Empty
+    }
+
+    static void onResponse(AccountName accountName, HttpReadResult result) {
+        MbRateLimitStatus status = result.getRateLimitStatus();
+        if (accountName == null || status.isEmpty()) {
+            return;
+        }
+        put(accountName.toString(), status);
+        MyLog.v(RateLimits.class, accountName.getLogName() + " " + status);
+    }
+
+    public static void put(String accountName, @NonNull MbRateLimitStatus status) {
+        statuses.put(accountName, status);
+    }
+
+    /** @return empty status if nothing is known about the account */
+    @NonNull
+    public static MbRateLimitStatus get(String accountName) {
+        MbRateLimitStatus status = statuses.get(accountName);
+        return status == null || status.isExpired() ? new MbRateLimitStatus() : status;
+    }
+
+    /** @return true if no server reported its rate limit yet */
+    public static boolean isEmpty() {
+        return statuses.isEmpty();
+    }
+
+    public static void clear() {
+        statuses.clear();
+    }
+}
@@ -30,6 +30,7 @@ import org.andstatus.app.net.http.HttpConnection;
 import org.andstatus.app.net.http.HttpConnectionData;
 import org.andstatus.app.net.http.HttpConnectionMock;
 import org.andstatus.app.net.http.OAuthService;
+import org.andstatus.app.net.http.UploadProgressListener;
 import org.andstatus.app.origin.OriginConnectionData;
 import org.andstatus.app.util.MyLog;
 import org.json.JSONArray;
@@ -309,13 +310,14 @@ public abstract class Connection {
      * @param statusId      id is not empty, if we are updating existing "status"
      * @param inReplyToId   The ID of an existing status that the update is in reply to.
      * @param mediaUri   @throws ConnectionException
+     * @param progressListener receives progress of the media upload of this message, may be null
      *
      * @see <a
      *      href="https://dev.twitter.com/docs/api/1/post/statuses/update">Twitter
      *      POST statuses/update</a>
      */
-    public abstract MbActivity updateStatus(String message, String statusId, String inReplyToId, Uri mediaUri)
-            throws ConnectionException;
+    public abstract MbActivity updateStatus(String message, String statusId, String inReplyToId, Uri mediaUri,
+                                            UploadProgressListener progressListener) throws ConnectionException;
 
     /**
      * Post Direct Message
@@ -326,11 +328,12 @@ public abstract class Connection {
      * @param statusId
      * @param userId {@link UserTable#USER_OID} - The ID of the user who should receive the direct message
      * @param mediaUri
+     * @param progressListener receives progress of the media upload of this message, may be null
      * @return The sent message if successful (empty message if not)
      * @throws ConnectionException
      */
-    public abstract MbActivity postDirectMessage(String message, String statusId, String userId, Uri mediaUri)
-            throws ConnectionException;
+    public abstract MbActivity postDirectMessage(String message, String statusId, String userId, Uri mediaUri,
+                                                 UploadProgressListener progressListener) throws ConnectionException;
 
     /**
      * Post reblog ("Retweet")
@@ -444,6 +447,11 @@ public abstract class Connection {
         return http.postRequest(apiPath, formParams);
     }
 
+    public final JSONObject postRequest(String apiPath, JSONObject formParams, UploadProgressListener progressListener)
+            throws ConnectionException {
+        return http.postRequest(apiPath, formParams, progressListener);
+    }
+
     public MbConfig getConfig() throws ConnectionException {
         return MbConfig.getEmpty();
     }
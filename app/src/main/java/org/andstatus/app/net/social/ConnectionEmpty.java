@@ -20,6 +20,7 @@ import android.net.Uri;
 import android.support.annotation.NonNull;
 
 import org.andstatus.app.net.http.ConnectionException;
+import org.andstatus.app.net.http.UploadProgressListener;
 
 import java.util.ArrayList;
 import java.util.List;
@@ -62,12 +63,14 @@ public class ConnectionEmpty extends Connection {
     }
 
     @Override
-    public MbActivity updateStatus(String message, String statusId, String inReplyToId, Uri mediaUri) throws ConnectionException {
+    public MbActivity updateStatus(String message, String statusId, String inReplyToId, Uri mediaUri,
+                                   UploadProgressListener progressListener) throws ConnectionException {
         return MbActivity.EMPTY;
     }
 
     @Override
-    public MbActivity postDirectMessage(String message, String statusId, String userId, Uri mediaUri) throws ConnectionException {
+    public MbActivity postDirectMessage(String message, String statusId, String userId, Uri mediaUri,
+                                        UploadProgressListener progressListener) throws ConnectionException {
         return MbActivity.EMPTY;
     }
 
@@ -25,6 +25,7 @@ import org.andstatus.app.data.MyContentType;
 import org.andstatus.app.msg.KeywordsFilter;
 import org.andstatus.app.net.http.ConnectionException;
 import org.andstatus.app.net.http.HttpConnection;
+import org.andstatus.app.net.http.UploadProgressListener;
 import org.andstatus.app.util.MyLog;
 import org.andstatus.app.util.SharedPreferencesUtil;
 import org.andstatus.app.util.TriState;
@@ -230,7 +231,8 @@ public class ConnectionMastodon extends ConnectionTwitterLike {
 
 
     @Override
-    public MbActivity updateStatus(String message, String statusId, String inReplyToId, Uri mediaUri) throws ConnectionException {
+    public MbActivity updateStatus(String message, String statusId, String inReplyToId, Uri mediaUri,
+                                   UploadProgressListener progressListener) throws ConnectionException {
         JSONObject formParams = new JSONObject();
         JSONObject mediaObject = null;
         try {
@@ -239,7 +241,7 @@ public class ConnectionMastodon extends ConnectionTwitterLike {
                 formParams.put("in_reply_to_id", inReplyToId);
             }
             if (!UriUtils.isEmpty(mediaUri)) {
-                mediaObject = uploadMedia(mediaUri);
+                mediaObject = uploadMedia(mediaUri, progressListener);
                 if (mediaObject != null && mediaObject.has("id")) {
                     formParams.put("media_ids[]", mediaObject.get("id"));
                 }
@@ -251,13 +253,13 @@ public class ConnectionMastodon extends ConnectionTwitterLike {
         return activityFromJson(jso);
     }
 
-    private JSONObject uploadMedia(Uri mediaUri) throws ConnectionException {
+    private JSONObject uploadMedia(Uri mediaUri, UploadProgressListener progressListener) throws ConnectionException {
         JSONObject jso = null;
         try {
             JSONObject formParams = new JSONObject();
             formParams.put(HttpConnection.KEY_MEDIA_PART_NAME, "file");
             formParams.put(HttpConnection.KEY_MEDIA_PART_URI, mediaUri.toString());
-            jso = postRequest(ApiRoutineEnum.POST_WITH_MEDIA, formParams);
+            jso = postRequest(ApiRoutineEnum.POST_WITH_MEDIA, formParams, progressListener);
             if (jso != null) {
                 if (MyLog.isVerboseEnabled()) {
                     MyLog.v(this, "uploaded '" + mediaUri.toString() + "' " + jso.toString(2));
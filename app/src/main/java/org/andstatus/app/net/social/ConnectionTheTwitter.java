@@ -23,6 +23,7 @@ import android.text.TextUtils;
 import org.andstatus.app.data.MyContentType;
 import org.andstatus.app.net.http.ConnectionException;
 import org.andstatus.app.net.http.HttpConnection;
+import org.andstatus.app.net.http.UploadProgressListener;
 import org.andstatus.app.util.MyLog;
 import org.andstatus.app.util.UriUtils;
 import org.json.JSONArray;
@@ -105,15 +106,16 @@ public class ConnectionTheTwitter extends ConnectionTwitterLike {
     }
 
     @Override
-    public MbActivity updateStatus(String message, String statusId, String inReplyToId, Uri mediaUri)
-            throws ConnectionException {
+    public MbActivity updateStatus(String message, String statusId, String inReplyToId, Uri mediaUri,
+                                   UploadProgressListener progressListener) throws ConnectionException {
         if (UriUtils.isEmpty(mediaUri)) {
-            return super.updateStatus(message, statusId, inReplyToId, mediaUri);
+            return super.updateStatus(message, statusId, inReplyToId, mediaUri, progressListener);
         }
-        return updateWithMedia(message, inReplyToId, mediaUri);
+        return updateWithMedia(message, inReplyToId, mediaUri, progressListener);
     }
 
-    private MbActivity updateWithMedia(String message, String inReplyToId, Uri mediaUri) throws ConnectionException {
+    private MbActivity updateWithMedia(String message, String inReplyToId, Uri mediaUri,
+                                       UploadProgressListener progressListener) throws ConnectionException {
         JSONObject formParams = new JSONObject();
         try {
             formParams.put("status", message);
@@ -127,7 +129,7 @@ public class ConnectionTheTwitter extends ConnectionTwitterLike {
         } catch (JSONException e) {
             MyLog.e(this, e);
         }
-        JSONObject jso = postRequest(ApiRoutineEnum.POST_WITH_MEDIA, formParams);
+        JSONObject jso = postRequest(ApiRoutineEnum.POST_WITH_MEDIA, formParams, progressListener);
         return activityFromJson(jso);
     }
 
@@ -22,6 +22,7 @@ import android.text.TextUtils;
 
 import org.andstatus.app.data.DownloadStatus;
 import org.andstatus.app.net.http.ConnectionException;
+import org.andstatus.app.net.http.UploadProgressListener;
 import org.andstatus.app.util.MyLog;
 import org.andstatus.app.util.SharedPreferencesUtil;
 import org.andstatus.app.util.TriState;
@@ -509,7 +510,8 @@ public abstract class ConnectionTwitterLike extends Connection {
     }
     
     @Override
-    public MbActivity postDirectMessage(String message, String statusId, String userId, Uri mediaUri) throws ConnectionException {
+    public MbActivity postDirectMessage(String message, String statusId, String userId, Uri mediaUri,
+                                        UploadProgressListener progressListener) throws ConnectionException {
         JSONObject formParams = new JSONObject();
         try {
             formParams.put("text", message);
@@ -571,7 +573,8 @@ public abstract class ConnectionTwitterLike extends Connection {
     }
     
     @Override
-    public MbActivity updateStatus(String message, String statusId, String inReplyToId, Uri mediaUri) throws ConnectionException {
+    public MbActivity updateStatus(String message, String statusId, String inReplyToId, Uri mediaUri,
+                                   UploadProgressListener progressListener) throws ConnectionException {
         JSONObject formParams = new JSONObject();
         try {
             formParams.put("status", message);
@@ -600,6 +603,11 @@ public abstract class ConnectionTwitterLike extends Connection {
         return postRequest(getApiPath(apiRoutine), formParams);
     }
 
+    protected final JSONObject postRequest(ApiRoutineEnum apiRoutine, JSONObject formParams,
+                                           UploadProgressListener progressListener) throws ConnectionException {
+        return postRequest(getApiPath(apiRoutine), formParams, progressListener);
+    }
+
     protected String getApiPathWithMessageId(ApiRoutineEnum routineEnum, String userId) throws ConnectionException {
         return getApiPath(routineEnum).replace("%messageId%", userId);
     }
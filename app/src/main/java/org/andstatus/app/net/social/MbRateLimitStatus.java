@@ -16,6 +16,16 @@
 
 package org.andstatus.app.net.social;
 
+import android.text.TextUtils;
+
+import org.andstatus.app.util.MyLog;
+
+import java.text.ParseException;
+import java.text.SimpleDateFormat;
+import java.util.Locale;
+import java.util.TimeZone;
+import java.util.concurrent.TimeUnit;
+
 /**
  * Information of the Microblogging system 
  * of how many more requests are allowed 
@@ -24,8 +34,78 @@ package org.andstatus.app.net.social;
 public class MbRateLimitStatus {
     public int remaining = 0;
     public int limit = 0;
-    
+    /** Date when the limit will be reset, 0 if unknown */
+    public long resetDate = 0;
+    /** Date when this status was received */
+    public long updatedDate = 0;
+
     public boolean isEmpty() {
       return limit == 0 && remaining == 0;   
     }
+
+    /** @return true if the limit has already been reset since this status was received */
+    public boolean isExpired() {
+        return resetDate != 0 && System.currentTimeMillis() > resetDate;
+    }
+
+    /**
+     * Parses rate limit response headers: "x-rate-limit-*" of Twitter
+     * and "X-RateLimit-*" of Mastodon and GNU social
+     */
+    public void onHeader(String name, String value) {
+        if (TextUtils.isEmpty(name) || TextUtils.isEmpty(value)) {
+            return;
+        }
+        String key = name.toLowerCase(Locale.US).replace("x-rate-limit-", "x-ratelimit-");
+        switch (key) {
+            case "x-ratelimit-limit":
+                limit = parseInt(value);
+                break;
+            case "x-ratelimit-remaining":
+                remaining = parseInt(value);
+                break;
+            case "x-ratelimit-reset":
+                resetDate = parseResetDate(value);
+                break;
+            default:
+                return;
+        }
+        updatedDate = System.currentTimeMillis();
+    }
+
+    private static int parseInt(String value) {
+        try {
+            return Integer.parseInt(value.trim());
+        } catch (NumberFormatException e) {
+            MyLog.v(MbRateLimitStatus.class, "Couldn't parse '" + value + "'", e);
+            return 0;
+        }
+    }
+
+    /** Twitter sends seconds since epoch, Mastodon sends ISO 8601 date */
+    static long parseResetDate(String value) {
+        String trimmed = value.trim();
+        try {
+            return TimeUnit.SECONDS.toMillis(Long.parseLong(trimmed));
+        } catch (NumberFormatException e) {
+            // Not a number
+        }
+        if (trimmed.length() >= 19) {
+            SimpleDateFormat format = new SimpleDateFormat("yyyy-MM-dd'T'HH:mm:ss", Locale.US);
+            format.setTimeZone(TimeZone.getTimeZone("UTC"));
+            try {
+                return format.parse(trimmed.substring(0, 19)).getTime();
+            } catch (ParseException e) {
+                MyLog.v(MbRateLimitStatus.class, "Couldn't parse date '" + value + "'", e);
+            }
+        }
+        return 0;
+    }
+
+    @Override
+    public String toString() {
+        return "remaining:" + remaining + ", limit:" + limit
+                + (resetDate == 0 ? "" : ", reset in " + TimeUnit.MILLISECONDS.toSeconds(
+                        resetDate - System.currentTimeMillis()) + "s");
+    }
 }
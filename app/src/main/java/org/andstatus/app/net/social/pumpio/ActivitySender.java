@@ -22,6 +22,7 @@ import android.text.TextUtils;
 
 import org.andstatus.app.net.http.ConnectionException;
 import org.andstatus.app.net.http.HttpConnection;
+import org.andstatus.app.net.http.UploadProgressListener;
 import org.andstatus.app.net.social.Connection.ApiRoutineEnum;
 import org.andstatus.app.net.social.MbActivity;
 import org.andstatus.app.net.social.MbMessage;
@@ -46,6 +47,7 @@ class ActivitySender {
     String recipientId = "";
     String content = "";
     Uri mMediaUri = null;
+    UploadProgressListener mUploadProgressListener = null;
     
     static ActivitySender fromId(ConnectionPumpio connection, String objectId) {
         ActivitySender sender = new ActivitySender();
@@ -72,8 +74,9 @@ class ActivitySender {
         return this;
     }
 
-    ActivitySender setMediaUri(Uri mediaUri) {
+    ActivitySender setMediaUri(Uri mediaUri, UploadProgressListener progressListener) {
         mMediaUri = mediaUri;
+        mUploadProgressListener = progressListener;
         return this;
     }
     
@@ -216,7 +219,7 @@ class ActivitySender {
             formParams.put(HttpConnection.KEY_MEDIA_PART_URI, mMediaUri.toString());
             ConnectionAndUrl conu = connection.getConnectionAndUrl(ApiRoutineEnum.POST_WITH_MEDIA,
                     connection.getData().getAccountUserOid());
-            obj1 = connection.postRequest(conu.url, formParams);
+            obj1 = connection.postRequest(conu.url, formParams, mUploadProgressListener);
             if (obj1 == null) {
                 throw new ConnectionException("Error uploading '" + mMediaUri.toString() + "': null response returned");
             }
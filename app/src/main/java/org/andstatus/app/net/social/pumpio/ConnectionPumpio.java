@@ -27,6 +27,7 @@ import org.andstatus.app.net.http.ConnectionException;
 import org.andstatus.app.net.http.ConnectionException.StatusCode;
 import org.andstatus.app.net.http.HttpConnection;
 import org.andstatus.app.net.http.HttpConnectionData;
+import org.andstatus.app.net.http.UploadProgressListener;
 import org.andstatus.app.net.social.Connection;
 import org.andstatus.app.net.social.MbActivity;
 import org.andstatus.app.net.social.MbAttachment;
@@ -207,11 +208,12 @@ public class ConnectionPumpio extends Connection {
     }
 
     @Override
-    public MbActivity updateStatus(String messageIn, String statusId, String inReplyToId, Uri mediaUri) throws ConnectionException {
+    public MbActivity updateStatus(String messageIn, String statusId, String inReplyToId, Uri mediaUri,
+                                   UploadProgressListener progressListener) throws ConnectionException {
         String message = toHtmlIfAllowed(messageIn);
         ActivitySender sender = ActivitySender.fromContent(this, statusId, message);
         sender.setInReplyTo(inReplyToId);
-        sender.setMediaUri(mediaUri);
+        sender.setMediaUri(mediaUri, progressListener);
         return activityFromJson(sender.sendMe(ActivityType.POST));
     }
     
@@ -301,11 +303,12 @@ public class ConnectionPumpio extends Connection {
     }
     
     @Override
-    public MbActivity postDirectMessage(String messageIn, String statusId, String recipientId, Uri mediaUri) throws ConnectionException {
+    public MbActivity postDirectMessage(String messageIn, String statusId, String recipientId, Uri mediaUri,
+                                        UploadProgressListener progressListener) throws ConnectionException {
         String message = toHtmlIfAllowed(messageIn);
         ActivitySender sender = ActivitySender.fromContent(this, statusId, message);
         sender.setRecipient(recipientId);
-        sender.setMediaUri(mediaUri);
+        sender.setMediaUri(mediaUri, progressListener);
         return activityFromJson(sender.sendMe(ActivityType.POST));
     }
 
@@ -30,13 +30,16 @@ import org.andstatus.app.util.MyLog;
 
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.concurrent.ConcurrentHashMap;
 
 public class PersistentOrigins {
     private final MyContext myContext;
-    private final Map<String,Origin> mOrigins = new ConcurrentHashMap<String, Origin>();
+    /** Immutable maps, which are replaced on initialization, so they are read without locking */
+    private volatile Map<String,Origin> mOrigins = Collections.emptyMap();
+    private volatile Map<Long,Origin> originsById = Collections.emptyMap();
     
     private PersistentOrigins(MyContextImpl myContext) {
         this.myContext = myContext;
@@ -49,17 +52,21 @@ public class PersistentOrigins {
     public PersistentOrigins initialize(SQLiteDatabase db) {
         String sql = "SELECT * FROM " + OriginTable.TABLE_NAME;
         Cursor cursor = null;
+        Map<String, Origin> byName = new HashMap<>();
+        Map<Long, Origin> byId = new HashMap<>();
         try {
             cursor = db.rawQuery(sql, null);
-            mOrigins.clear();
             while (cursor.moveToNext()) {
                 Origin origin = new Origin.Builder(cursor).build();
-                mOrigins.put(origin.name, origin);
+                byName.put(origin.name, origin);
+                byId.put(origin.id, origin);
             }
         } finally {
             DbUtils.closeSilently(cursor);
         }
-        
+        originsById = Collections.unmodifiableMap(byId);
+        mOrigins = Collections.unmodifiableMap(byName);
+
         MyLog.v(this, "Initialized " + mOrigins.size() + " origins");
         return this;
     }
@@ -73,12 +80,8 @@ public class PersistentOrigins {
      */
     @NonNull
     public Origin fromId(long originId) {
-        for (Origin origin : mOrigins.values()) {
-            if (origin.id == originId) {
-                return origin;
-            }
-        }
-        return Origin.getEmpty();
+        Origin origin = originsById.get(originId);
+        return origin == null ? Origin.getEmpty() : origin;
     }
     
     /**
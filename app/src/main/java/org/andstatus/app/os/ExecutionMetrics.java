@@ -0,0 +1,300 @@
+/*
+ * Copyright (c) 2017 yvolk (Yuri Volkov), http://yurivolkov.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.andstatus.app.os;
+
+import android.content.SharedPreferences;
+import android.text.TextUtils;
+
+import org.andstatus.app.context.MyContextHolder;
+import org.andstatus.app.util.MyLog;
+import org.andstatus.app.util.SharedPreferencesUtil;
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Durations of commands and of their phases, by command type and by origin,
+ * so we could see whether a slow sync is caused by the network, by parsing or by the database.
+ * The metrics are accumulated across launches of the application: they are saved to {@link SharedPreferences}
+ * not more often than once in {@link #SAVE_PERIOD_MS}, and are shown in the {@link org.andstatus.app.service.QueueViewer}
+ * @author yvolk@yurivolkov.com
+ */
+public class ExecutionMetrics {
+    public enum Phase {
+        COMMAND,
+        HTTP,
+        PARSE,
+        DB_WRITE
+    }
+
+    /** Upper bounds of the histogram buckets, milliseconds. The last bucket has no upper bound */
+    private static final long[] BUCKET_BOUNDS_MS = {10, 30, 100, 300, 1000, 3000, 10000, 30000};
+
+    private static final ConcurrentHashMap<String, Histogram> histograms = new ConcurrentHashMap<>();
+    private static final String PREFERENCES_NAME = "execution_metrics";
+    private static final String KEY_HISTOGRAMS = "histograms";
+    static final long SAVE_PERIOD_MS = TimeUnit.MINUTES.toMillis(1);
+    private static final AtomicLong savedAt = new AtomicLong(now());
+    private static final AtomicBoolean restored = new AtomicBoolean();
+
+    private ExecutionMetrics() {
+        // Empty
+    }
+
+    static class Histogram {
+        final String key;
+        private long count = 0;
+        private long errorsCount = 0;
+        private long totalMs = 0;
+        private long maxMs = 0;
+        private final long[] buckets = new long[BUCKET_BOUNDS_MS.length + 1];
+
+        Histogram(String key) {
+            this.key = key;
+        }
+
+        synchronized void add(long durationMs, boolean ok) {
+            count++;
+            if (!ok) {
+                errorsCount++;
+            }
+            totalMs += durationMs;
+            if (maxMs < durationMs) {
+                maxMs = durationMs;
+            }
+            int ind = 0;
+            while (ind < BUCKET_BOUNDS_MS.length && durationMs >= BUCKET_BOUNDS_MS[ind]) {
+                ind++;
+            }
+            buckets[ind]++;
+        }
+
+        /** @return upper bound of the bucket, where the percentile falls, or max duration for the last bucket */
+        synchronized long getPercentileMs(int percent) {
+            long threshold = (count * percent + 99) / 100;
+            long sum = 0;
+            for (int ind = 0; ind < BUCKET_BOUNDS_MS.length; ind++) {
+                sum += buckets[ind];
+                if (sum >= threshold) {
+                    return Math.min(BUCKET_BOUNDS_MS[ind], maxMs);
+                }
+            }
+            return maxMs;
+        }
+
+        synchronized long getCount() {
+            return count;
+        }
+
+        /** Raw counters, see {@link #addState(JSONObject)} */
+        synchronized JSONObject toState() throws JSONException {
+            JSONObject jso = new JSONObject();
+            jso.put("count", count);
+            jso.put("errors", errorsCount);
+            jso.put("totalMs", totalMs);
+            jso.put("maxMs", maxMs);
+            JSONArray jsa = new JSONArray();
+            for (long bucket : buckets) {
+                jsa.put(bucket);
+            }
+            jso.put("buckets", jsa);
+            return jso;
+        }
+
+        /** Adds counters of the saved state to the current ones */
+        synchronized void addState(JSONObject jso) {
+            JSONArray jsa = jso.optJSONArray("buckets");
+            if (jsa == null || jsa.length() != buckets.length) {
+                return;
+            }
+            count += jso.optLong("count");
+            errorsCount += jso.optLong("errors");
+            totalMs += jso.optLong("totalMs");
+            maxMs = Math.max(maxMs, jso.optLong("maxMs"));
+            for (int ind = 0; ind < buckets.length; ind++) {
+                buckets[ind] += jsa.optLong(ind);
+            }
+        }
+
+        synchronized JSONObject toJson() throws JSONException {
+            JSONObject jso = new JSONObject();
+            jso.put("count", count);
+            jso.put("errors", errorsCount);
+            jso.put("avgMs", count == 0 ? 0 : totalMs / count);
+            jso.put("p50Ms", getPercentileMs(50));
+            jso.put("p90Ms", getPercentileMs(90));
+            jso.put("maxMs", maxMs);
+            return jso;
+        }
+
+        synchronized String toInfo() {
+            return key + ": " + count + (errorsCount > 0 ? " (" + errorsCount + " failed)" : "")
+                    + ", avg " + (count == 0 ? 0 : totalMs / count) + "ms"
+                    + ", p50 <" + getPercentileMs(50) + "ms"
+                    + ", p90 <" + getPercentileMs(90) + "ms"
+                    + ", max " + maxMs + "ms";
+        }
+    }
+
+    public static long now() {
+        return System.currentTimeMillis();
+    }
+
+    public static void onEnded(Phase phase, String key, long startedAt) {
+        onEnded(phase, key, startedAt, true);
+    }
+
+    public static void onEnded(Phase phase, String key, long startedAt, boolean ok) {
+        long durationMs = Math.max(0, now() - startedAt);
+        getHistogram(phase, key).add(durationMs, ok);
+        long saved = savedAt.get();
+        if (now() - saved >= SAVE_PERIOD_MS && savedAt.compareAndSet(saved, now())) {
+            save();
+        }
+    }
+
+    static Histogram getHistogram(Phase phase, String key) {
+        restore();
+        return getHistogram(phase.name() + " " + (TextUtils.isEmpty(key) ? "?" : key));
+    }
+
+    private static Histogram getHistogram(String fullKey) {
+        Histogram histogram = histograms.get(fullKey);
+        if (histogram == null) {
+            histogram = new Histogram(fullKey);
+            Histogram previous = histograms.putIfAbsent(fullKey, histogram);
+            if (previous != null) {
+                histogram = previous;
+            }
+        }
+        return histogram;
+    }
+
+    public static String getInfo() {
+        restore();
+        List<String> lines = new ArrayList<>();
+        for (Histogram histogram : histograms.values()) {
+            if (histogram.getCount() > 0) {
+                lines.add(histogram.toInfo());
+            }
+        }
+        if (lines.isEmpty()) {
+            return "Execution metrics: no data\n";
+        }
+        Collections.sort(lines);
+        StringBuilder builder = new StringBuilder("Execution metrics:\n");
+        for (String line : lines) {
+            builder.append(line + "\n");
+        }
+        return builder.toString();
+    }
+
+    /** The same as {@link #getInfo()}, but machine-readable, keyed by the phase and the key */
+    public static JSONObject toJson() {
+        JSONObject jso = new JSONObject();
+        for (Histogram histogram : histograms.values()) {
+            if (histogram.getCount() > 0) {
+                try {
+                    jso.put(histogram.key, histogram.toJson());
+                } catch (JSONException e) {
+                    MyLog.d(ExecutionMetrics.class, "toJson " + histogram.key, e);
+                }
+            }
+        }
+        return jso;
+    }
+
+    public static void forget() {
+        histograms.clear();
+        SharedPreferences sp = getSharedPreferences();
+        if (sp != null) {
+            sp.edit().remove(KEY_HISTOGRAMS).apply();
+        }
+    }
+
+    /** Saves the metrics asynchronously, so they are not lost, when the application is killed */
+    public static void save() {
+        SharedPreferences sp = getSharedPreferences();
+        if (sp == null || !restored.get()) {
+            return;
+        }
+        JSONObject jso = new JSONObject();
+        for (Histogram histogram : histograms.values()) {
+            if (histogram.getCount() > 0) {
+                try {
+                    jso.put(histogram.key, histogram.toState());
+                } catch (JSONException e) {
+                    MyLog.d(ExecutionMetrics.class, "save " + histogram.key, e);
+                }
+            }
+        }
+        sp.edit().putString(KEY_HISTOGRAMS, jso.toString()).apply();
+    }
+
+    /** Adds the saved metrics to the current ones once, when the application context is available */
+    private static void restore() {
+        if (restored.get()) {
+            return;
+        }
+        SharedPreferences sp = getSharedPreferences();
+        if (sp == null || !restored.compareAndSet(false, true)) {
+            return;
+        }
+        String saved = sp.getString(KEY_HISTOGRAMS, "");
+        if (TextUtils.isEmpty(saved)) {
+            return;
+        }
+        try {
+            JSONObject jso = new JSONObject(saved);
+            Iterator<String> keys = jso.keys();
+            while (keys.hasNext()) {
+                String key = keys.next();
+                JSONObject state = jso.optJSONObject(key);
+                if (state != null) {
+                    getHistogram(key).addState(state);
+                }
+            }
+        } catch (JSONException e) {
+            MyLog.d(ExecutionMetrics.class, "restore", e);
+        }
+    }
+
+    private static SharedPreferences getSharedPreferences() {
+        return MyContextHolder.get().context() == null ? null
+                : SharedPreferencesUtil.getSharedPreferences(PREFERENCES_NAME);
+    }
+
+    /** Writes current metrics to a file in the log directory, if logging to a file is enabled */
+    public static boolean export() {
+        if (histograms.isEmpty() || !MyLog.isLogToFileEnabled()) {
+            return false;
+        }
+        String filename = MyLog.uniqueDateTimeFormatted() + "_metrics.txt";
+        boolean ok = MyLog.writeStringToFile(getInfo(), filename);
+        MyLog.v(ExecutionMetrics.class, "Metrics " + (ok ? "exported to " : "were not exported to ") + filename);
+        return ok;
+    }
+}
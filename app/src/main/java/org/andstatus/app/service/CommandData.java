@@ -55,6 +55,10 @@ import java.util.Queue;
  * @author yvolk@yurivolkov.com
  */
 public class CommandData implements Comparable<CommandData> {
+    /** After timelines (4) and avatars (9) */
+    static final int PREFETCH_PRIORITY = 10;
+    /** Before timelines: images, which are shown now, are waited for */
+    static final int VISIBLE_DOWNLOAD_PRIORITY = 3;
     private final long commandId;
     private final CommandEnum command;
     private final long createdDate;
@@ -62,6 +66,9 @@ public class CommandData implements Comparable<CommandData> {
 
     private volatile boolean mInForeground = false;
     private volatile boolean mManuallyLaunched = false;
+    /** The item is shown to a user now. Unlike {@link #mInForeground}, the command is still rate limited.
+     * Not saved to the database: after restart the item is not shown any more */
+    private volatile boolean mVisible = false;
 
     /** {@link MyAccount} for this command. Invalid account if command is not Account
      * specific e.g. {@link CommandEnum#DELETE_COMMAND}
@@ -185,6 +192,7 @@ public class CommandData implements Comparable<CommandData> {
                 commandData.description = BundleUtils.getString(bundle, IntentExtra.COMMAND_DESCRIPTION);
                 commandData.mInForeground = bundle.getBoolean(IntentExtra.IN_FOREGROUND.key);
                 commandData.mManuallyLaunched = bundle.getBoolean(IntentExtra.MANUALLY_LAUNCHED.key);
+                commandData.mVisible = bundle.getBoolean(IntentExtra.VISIBLE.key);
                 commandData.commandResult = bundle.getParcelable(IntentExtra.COMMAND_RESULT.key);
                 break;
         }
@@ -212,6 +220,7 @@ public class CommandData implements Comparable<CommandData> {
         BundleUtils.putNotEmpty(bundle, IntentExtra.COMMAND_DESCRIPTION, description);
         bundle.putBoolean(IntentExtra.IN_FOREGROUND.key, mInForeground);
         bundle.putBoolean(IntentExtra.MANUALLY_LAUNCHED.key, mManuallyLaunched);
+        bundle.putBoolean(IntentExtra.VISIBLE.key, mVisible);
         bundle.putParcelable(IntentExtra.COMMAND_RESULT.key, commandResult);
         return bundle;
     }
@@ -286,6 +295,9 @@ public class CommandData implements Comparable<CommandData> {
         if (mManuallyLaunched) {
             builder.append("manual,");
         }
+        if (mVisible) {
+            builder.append("visible,");
+        }
         builder.append("created:"
                 + RelativeTime.getDifference(MyContextHolder.get().context(), getCreatedDate())
                 + ",");
@@ -333,14 +345,50 @@ public class CommandData implements Comparable<CommandData> {
         int greater;
         if (this.commandId == another.commandId) {
             return 0;
-        } else if (another.command.getPriority() == this.command.getPriority()) {
+        } else if (another.getPriority() == this.getPriority()) {
             greater = this.commandId > another.commandId ? 1 : -1;
         } else {
-            greater = this.command.getPriority() > another.command.getPriority() ? 1 : -1;
+            greater = this.getPriority() > another.getPriority() ? 1 : -1;
         }
         return greater;
     }
 
+    /** less value of the priority means higher priority, see {@link CommandEnum#getPriority()} */
+    int getPriority() {
+        if (isPrefetch()) {
+            return PREFETCH_PRIORITY;
+        }
+        if (isVisibleDownload()) {
+            return VISIBLE_DOWNLOAD_PRIORITY;
+        }
+        return command.getPriority();
+    }
+
+    /** Avatars and attached images, requested for what is shown now, see {@link org.andstatus.app.data.DownloadData#requestDownload(boolean)} */
+    boolean isVisibleDownload() {
+        switch (command) {
+            case FETCH_AVATAR:
+            case FETCH_ATTACHMENT:
+                return mVisible;
+            default:
+                return false;
+        }
+    }
+
+    /**
+     * Messages, which are requested not by a user, but in advance, see {@link ConversationPrefetcher}.
+     * They wait for the timelines and avatars
+     */
+    boolean isPrefetch() {
+        switch (command) {
+            case GET_STATUS:
+            case GET_CONVERSATION:
+                return !mInForeground && !mManuallyLaunched;
+            default:
+                return false;
+        }
+    }
+
     public CommandEnum getCommand() {
         return command;
     }
@@ -506,6 +554,15 @@ public class CommandData implements Comparable<CommandData> {
         return this;
     }
 
+    public boolean isVisible() {
+        return mVisible;
+    }
+
+    public CommandData setVisible(boolean visible) {
+        mVisible = visible;
+        return this;
+    }
+
     public boolean executedMoreSecondsAgoThan(long predefinedPeriodSeconds) {
         return RelativeTime.moreSecondsAgoThan(getResult().getLastExecutedDate(),
                 predefinedPeriodSeconds);
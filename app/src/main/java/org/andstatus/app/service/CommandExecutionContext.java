@@ -9,9 +9,13 @@ import org.andstatus.app.net.social.Connection;
 import org.andstatus.app.timeline.Timeline;
 import org.andstatus.app.util.MyLog;
 
+import java.util.concurrent.atomic.AtomicInteger;
+
 public class CommandExecutionContext {
+    static final int AVATARS_TO_REQUEST_MAX = 20;
     private CommandData commandData;
     private MyContext myContext;
+    private final AtomicInteger avatarsRequested = new AtomicInteger();
 
     public CommandExecutionContext(CommandData commandData) {
         this(MyContextHolder.get(), commandData);
@@ -57,6 +61,15 @@ public class CommandExecutionContext {
         return commandData.getResult();
     }
 
+    /**
+     * Limits avatars, downloaded in the background during one command, e.g. for new users of a timeline.
+     * Other avatars are downloaded, when their users are shown.
+     * Call it only for an avatar, which needs a download, see {@link org.andstatus.app.data.DownloadData#isDownloadNeeded()}
+     */
+    public boolean mayRequestAvatarDownload() {
+        return avatarsRequested.incrementAndGet() <= AVATARS_TO_REQUEST_MAX;
+    }
+
     @Override
     public String toString() {
         return MyLog.formatKeyValue(this, getMyAccount().toString() + ", " + commandData.toString());
@@ -33,12 +33,12 @@ import org.andstatus.app.net.social.Connection;
 import org.andstatus.app.net.social.MbUser;
 import org.andstatus.app.timeline.TimelineSyncTracker;
 import org.andstatus.app.timeline.TimelineType;
+import org.andstatus.app.util.LongSet;
 import org.andstatus.app.util.MyLog;
 import org.andstatus.app.util.RelativeTime;
 
 import java.util.ArrayList;
 import java.util.List;
-import java.util.Set;
 
 /**
  * @author yvolk@yurivolkov.com
@@ -122,20 +122,22 @@ public class CommandExecutorFollowers extends CommandExecutorStrategy {
                     + " and " + Connection.ApiRoutineEnum.GET_FOLLOWERS_IDS);
         }
 
-        Set<Long> userIdsOld = MyQuery.getFollowersIds(userId);
+        LongSet userIdsOld = MyQuery.getFollowersIds(userId);
         execContext.getResult().incrementDownloadedCount();
         broadcastProgress(execContext.getContext().getText(R.string.followers).toString()
                 + ": " + userIdsOld.size() + " -> " + usersNew.size(), false);
 
         if (updateNewUsersAndTheirLatestMessages(usersNew)) return;
 
+        List<FriendshipValues> friendships = new ArrayList<>();
         for (MbUser mbUser : usersNew) {
             userIdsOld.remove(mbUser.userId);
-            FriendshipValues.setFollowed(mbUser.userId, userId);
+            friendships.add(newFriendship(mbUser.userId, userId, true));
         }
-        for (long userIdOld : userIdsOld) {
-            FriendshipValues.setNotFollowed(userIdOld, userId);
+        for (long userIdOld : userIdsOld.toArray()) {
+            friendships.add(newFriendship(userIdOld, userId, false));
         }
+        FriendshipValues.update(execContext.getMyContext().getDatabase(), friendships);
     }
 
     private void syncFriends() throws ConnectionException {
@@ -153,20 +155,28 @@ public class CommandExecutorFollowers extends CommandExecutorStrategy {
                             + " and " + Connection.ApiRoutineEnum.GET_FRIENDS_IDS);
         }
 
-        Set<Long> userIdsOld = MyQuery.getFriendsIds(userId);
+        LongSet userIdsOld = MyQuery.getFriendsIds(userId);
         execContext.getResult().incrementDownloadedCount();
         broadcastProgress(execContext.getContext().getText(R.string.friends).toString()
                 + ": " + userIdsOld.size() + " -> " + usersNew.size(), false);
 
         if (updateNewUsersAndTheirLatestMessages(usersNew)) return;
 
+        List<FriendshipValues> friendships = new ArrayList<>();
         for (MbUser mbUser : usersNew) {
             userIdsOld.remove(mbUser.userId);
-            FriendshipValues.setFollowed(userId, mbUser.userId);
+            friendships.add(newFriendship(userId, mbUser.userId, true));
         }
-        for (long userIdOld : userIdsOld) {
-            FriendshipValues.setNotFollowed(userId, userIdOld);
+        for (long userIdOld : userIdsOld.toArray()) {
+            friendships.add(newFriendship(userId, userIdOld, false));
         }
+        FriendshipValues.update(execContext.getMyContext().getDatabase(), friendships);
+    }
+
+    private static FriendshipValues newFriendship(long followerId, long friendId, boolean followed) {
+        FriendshipValues friendship = new FriendshipValues(followerId, friendId);
+        friendship.setFollowed(followed);
+        return friendship;
     }
 
     private boolean getUsersForOids(List<String> userOidsNew, List<MbUser> usersNew) {
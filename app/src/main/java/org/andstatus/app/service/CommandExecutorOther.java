@@ -21,6 +21,7 @@ import android.net.Uri;
 import android.support.annotation.NonNull;
 import android.text.TextUtils;
 
+import org.andstatus.app.R;
 import org.andstatus.app.appwidget.AppWidgets;
 import org.andstatus.app.data.DataUpdater;
 import org.andstatus.app.data.DownloadData;
@@ -33,6 +34,8 @@ import org.andstatus.app.database.MsgOfUserTable;
 import org.andstatus.app.database.MsgTable;
 import org.andstatus.app.net.http.ConnectionException;
 import org.andstatus.app.net.http.ConnectionException.StatusCode;
+import org.andstatus.app.net.http.UploadProgressListener;
+import org.andstatus.app.net.social.Connection;
 import org.andstatus.app.net.social.MbActivity;
 import org.andstatus.app.net.social.MbActivityType;
 import org.andstatus.app.net.social.MbMessage;
@@ -353,6 +356,17 @@ class CommandExecutorOther extends CommandExecutorStrategy{
         MyLog.d(this, method + (noErrors() ? " succeeded" : " failed"));
     }
 
+    private UploadProgressListener newUploadProgressListener() {
+        final String attachments = execContext.getContext().getText(R.string.attachments).toString();
+        return new UploadProgressListener() {
+            @Override
+            public void onUploadProgress(long bytesSent, long bytesTotal) {
+                broadcastProgress(attachments + ": " + (bytesTotal > 0
+                        ? (bytesSent * 100 / bytesTotal) + "%" : (bytesSent / 1024) + "KB"), true);
+            }
+        };
+    }
+
     private void updateStatus(long msgId) {
         final String method = "updateStatus";
         MbActivity activity = null;
@@ -373,17 +387,17 @@ class CommandExecutorOther extends CommandExecutorStrategy{
                 throw ConnectionException.hardConnectionException(
                         "Wrong message status: " + statusStored, null);
             }
+            Connection connection = execContext.getMyAccount().getConnection();
+            UploadProgressListener progressListener = mediaUri.equals(Uri.EMPTY) ? null : newUploadProgressListener();
             if (recipientUserId == 0) {
                 long replyToMsgId = MyQuery.msgIdToLongColumnValue(
                         MsgTable.IN_REPLY_TO_MSG_ID, msgId);
                 String replyToMsgOid = getMsgOid(method, replyToMsgId, false);
-                activity = execContext.getMyAccount().getConnection()
-                        .updateStatus(status.trim(), oid, replyToMsgOid, mediaUri);
+                activity = connection.updateStatus(status.trim(), oid, replyToMsgOid, mediaUri, progressListener);
             } else {
                 String recipientOid = MyQuery.idToOid(OidEnum.USER_OID, recipientUserId, 0);
                 // Currently we don't use Screen Name, I guess id is enough.
-                activity = execContext.getMyAccount().getConnection()
-                        .postDirectMessage(status.trim(), oid, recipientOid, mediaUri);
+                activity = connection.postDirectMessage(status.trim(), oid, recipientOid, mediaUri, progressListener);
             }
             logIfEmptyMessage(method, msgId, activity.getMessage());
         } catch (ConnectionException e) {
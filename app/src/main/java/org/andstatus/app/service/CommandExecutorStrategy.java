@@ -18,6 +18,7 @@ package org.andstatus.app.service;
 
 import org.andstatus.app.context.MyContextHolder;
 import org.andstatus.app.net.http.ConnectionException;
+import org.andstatus.app.os.ExecutionMetrics;
 import org.andstatus.app.util.I18n;
 import org.andstatus.app.util.MyLog;
 import org.andstatus.app.util.RelativeTime;
@@ -33,12 +34,23 @@ class CommandExecutorStrategy implements CommandExecutorParent {
                 .setParent(parent);
         commandData.getResult().prepareForLaunch();
         logLaunch(strategy);
+        long startedAt = ExecutionMetrics.now();
         // This may cause recursive calls to executors...
         strategy.execute();
         commandData.getResult().afterExecutionEnded();
+        onExecutionEnded(commandData, startedAt);
         logEnd(strategy);
     }
 
+    private static void onExecutionEnded(CommandData commandData, long startedAt) {
+        boolean ok = !commandData.getResult().hasError();
+        ExecutionMetrics.onEnded(ExecutionMetrics.Phase.COMMAND, commandData.getCommand().save(), startedAt, ok);
+        if (commandData.getTimeline().getOrigin().isValid()) {
+            ExecutionMetrics.onEnded(ExecutionMetrics.Phase.COMMAND,
+                    "origin " + commandData.getTimeline().getOrigin().getName(), startedAt, ok);
+        }
+    }
+
     private static void logLaunch(CommandExecutorStrategy strategy) {
         if (strategy.execContext.getCommandData().getCommand() == CommandEnum.UPDATE_STATUS) {
             MyLog.onSendingMessageStart();
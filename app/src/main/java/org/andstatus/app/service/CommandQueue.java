@@ -60,7 +60,7 @@ public class CommandQueue {
             }
             boolean has = false;
             for (CommandData commandData : queue) {
-                if (commandData.isInForeground()) {
+                if (commandData.isInForeground() || commandData.isVisibleDownload()) {
                     has = true;
                     break;
                 }
@@ -255,6 +255,47 @@ public class CommandQueue {
         return size;
     }
 
+    /**
+     * If an equal command is in the queue already, it gets the foreground, "manually launched" and visible flags
+     * of the new command and is re-sorted, so e.g. a prefetched message, which was requested by a user,
+     * is not executed after all background work
+     * @return true if the equal command is in the queue
+     */
+    public boolean promoteIfQueued(QueueType queueType, CommandData commandData) {
+        Queue<CommandData> queue = get(queueType);
+        for (CommandData queued : queue) {
+            if (!queued.equals(commandData)) {
+                continue;
+            }
+            boolean toForeground = commandData.isInForeground() && !queued.isInForeground();
+            boolean toManual = commandData.isManuallyLaunched() && !queued.isManuallyLaunched();
+            boolean toVisible = commandData.isVisible() && !queued.isVisible();
+            if (!toForeground && !toManual && !toVisible) {
+                return true;
+            }
+            if (!queue.remove(queued)) {
+                // It was polled for execution just now
+                return false;
+            }
+            if (toForeground) {
+                queued.setInForeground(true);
+            }
+            if (toManual) {
+                queued.setManuallyLaunched(true);
+            }
+            if (toVisible) {
+                queued.setVisible(true);
+            }
+            if (!queue.offer(queued)) {
+                MyLog.e(this, queueType.name() + " is full?");
+                return false;
+            }
+            MyLog.v(this, "Promoted in " + queueType.name() + " " + queued);
+            return true;
+        }
+        return false;
+    }
+
     public void addToQueue(QueueType queueType, CommandData commandData) {
         if (!get(queueType).contains(commandData)
                 && !get(queueType).offer(commandData)) {
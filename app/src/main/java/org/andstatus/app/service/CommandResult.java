@@ -28,6 +28,10 @@ import org.andstatus.app.database.CommandTable;
 import org.andstatus.app.util.MyLog;
 import org.andstatus.app.util.RelativeTime;
 
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.Set;
+
 /**
  * Result of the command execution
  * See also {@link android.content.SyncStats}
@@ -35,6 +39,8 @@ import org.andstatus.app.util.RelativeTime;
  */
 public final class CommandResult implements Parcelable {
     static final int INITIAL_NUMBER_OF_RETRIES = 10;
+    /** If more messages were changed, timelines are reloaded instead of being updated incrementally */
+    static final int MAX_CHANGED_MESSAGES = 100;
     
     private long lastExecutedDate = 0;
     private int executionCount = 0;
@@ -59,6 +65,10 @@ public final class CommandResult implements Parcelable {
     private int directedAdded = 0;
     private int downloadedCount = 0;
 
+    // Ids of inserted or updated messages, so that shown timelines could refresh only these rows
+    private final Set<Long> changedMessageIds = new LinkedHashSet<>();
+    private boolean tooManyChangedMessages = false;
+
     public CommandResult() {
     }
 
@@ -91,6 +101,13 @@ public final class CommandResult implements Parcelable {
         mentionsAdded += oneStepResult.mentionsAdded;
         directedAdded += oneStepResult.directedAdded;
         downloadedCount += oneStepResult.downloadedCount;
+        if (oneStepResult.tooManyChangedMessages) {
+            setTooManyChangedMessages();
+        } else {
+            for (long msgId : oneStepResult.changedMessageIds) {
+                onMessageChanged(msgId);
+            }
+        }
     }
     
     public static final Creator<CommandResult> CREATOR = new Creator<CommandResult>() {
@@ -119,6 +136,13 @@ public final class CommandResult implements Parcelable {
         dest.writeInt(remainingHits);
         dest.writeInt(downloadedCount);
         dest.writeString(progress);
+        dest.writeInt(tooManyChangedMessages ? 1 : 0);
+        long[] msgIds = new long[changedMessageIds.size()];
+        int ind = 0;
+        for (long msgId : changedMessageIds) {
+            msgIds[ind++] = msgId;
+        }
+        dest.writeLongArray(msgIds);
     }
     
     public CommandResult(Parcel parcel) {
@@ -134,6 +158,13 @@ public final class CommandResult implements Parcelable {
         remainingHits = parcel.readInt();
         downloadedCount = parcel.readInt();
         progress = parcel.readString();
+        tooManyChangedMessages = parcel.readInt() != 0;
+        long[] msgIds = parcel.createLongArray();
+        if (msgIds != null) {
+            for (long msgId : msgIds) {
+                changedMessageIds.add(msgId);
+            }
+        }
     }
 
     public void toContentValues(ContentValues values) {
@@ -220,6 +251,9 @@ public final class CommandResult implements Parcelable {
         if (downloadedCount > 0) {
             message.append("downloaded:" + downloadedCount + ", ");
         }
+        if (tooManyChangedMessages || !changedMessageIds.isEmpty()) {
+            message.append("changed:" + (tooManyChangedMessages ? "many" : changedMessageIds.size()) + ", ");
+        }
         if (messagesAdded > 0) {
             message.append("messages:" + messagesAdded + ", ");
         }
@@ -294,6 +328,30 @@ public final class CommandResult implements Parcelable {
     public int getDownloadedCount() {
         return downloadedCount;
     }
+
+    public void onMessageChanged(long msgId) {
+        if (msgId == 0 || tooManyChangedMessages) {
+            return;
+        }
+        changedMessageIds.add(msgId);
+        if (changedMessageIds.size() > MAX_CHANGED_MESSAGES) {
+            setTooManyChangedMessages();
+        }
+    }
+
+    private void setTooManyChangedMessages() {
+        tooManyChangedMessages = true;
+        changedMessageIds.clear();
+    }
+
+    /** @return empty if nothing was changed or if too many messages were changed */
+    public Set<Long> getChangedMessageIds() {
+        return Collections.unmodifiableSet(changedMessageIds);
+    }
+
+    public boolean hasTooManyChangedMessages() {
+        return tooManyChangedMessages;
+    }
     
     public int getMessagesAdded() {
         return messagesAdded;
@@ -342,6 +400,8 @@ public final class CommandResult implements Parcelable {
         mentionsAdded = 0;
         directedAdded = 0;
         downloadedCount = 0;
+        changedMessageIds.clear();
+        tooManyChangedMessages = false;
 
         progress = "";
     }
@@ -0,0 +1,116 @@
+/*
+ * Copyright (c) 2017 yvolk (Yuri Volkov), http://yurivolkov.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.andstatus.app.service;
+
+import android.database.Cursor;
+import android.database.sqlite.SQLiteDatabase;
+import android.text.TextUtils;
+
+import org.andstatus.app.account.MyAccount;
+import org.andstatus.app.data.DbUtils;
+import org.andstatus.app.data.DownloadStatus;
+import org.andstatus.app.database.MsgTable;
+import org.andstatus.app.net.social.Connection;
+import org.andstatus.app.util.LongSet;
+import org.andstatus.app.util.MyLog;
+
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * After a timeline sync, requests the missing parents of the downloaded replies, so that a conversation
+ * is opened from the local database, without waiting for the Internet.
+ * One background {@link CommandEnum#GET_CONVERSATION} per conversation is queued,
+ * or {@link CommandEnum#GET_STATUS} of the parent, if the conversation is not known or not supported.
+ * These commands have low priority in the queue, see {@link CommandData#isPrefetch()}
+ * @author yvolk@yurivolkov.com
+ */
+class ConversationPrefetcher {
+    /** Limits the number of requests, added by one sync */
+    static final int COMMANDS_PER_SYNC_MAX = 20;
+
+    private final CommandExecutionContext execContext;
+
+    ConversationPrefetcher(CommandExecutionContext execContext) {
+        this.execContext = execContext;
+    }
+
+    /**
+     * @param replyIds ids of the replies to check, e.g. of the replies, downloaded by the sync.
+     *                 The query is bounded by the primary key, so it doesn't scan the messages table
+     * @return number of the commands queued
+     */
+    int prefetch(Collection<Long> replyIds) {
+        final String method = "prefetch";
+        MyAccount ma = execContext.getMyAccount();
+        SQLiteDatabase db = execContext.getMyContext().getDatabase();
+        if (replyIds.isEmpty() || !ma.isValidAndSucceeded() || db == null) {
+            return 0;
+        }
+        boolean conversationSupported = ma.getConnection()
+                .isApiSupported(Connection.ApiRoutineEnum.GET_CONVERSATION);
+        String sql = "SELECT reply." + MsgTable._ID
+                + ", reply." + MsgTable.CONVERSATION_OID
+                + ", parent." + MsgTable._ID
+                + ", parent." + MsgTable.MSG_OID
+                + " FROM " + MsgTable.TABLE_NAME + " AS reply"
+                + " INNER JOIN " + MsgTable.TABLE_NAME + " AS parent"
+                + " ON reply." + MsgTable.IN_REPLY_TO_MSG_ID + "=parent." + MsgTable._ID
+                + " WHERE reply." + MsgTable._ID + " IN (" + TextUtils.join(", ", replyIds) + ")"
+                + " AND reply." + MsgTable.ORIGIN_ID + "=" + ma.getOriginId()
+                + " AND parent." + MsgTable.MSG_STATUS + "!=" + DownloadStatus.LOADED.save()
+                + " ORDER BY reply." + MsgTable.SENT_DATE + " DESC";
+        Set<String> conversationOids = new HashSet<>();
+        LongSet parentIds = new LongSet();
+        int queued = 0;
+        Cursor cursor = null;
+        try {
+            cursor = db.rawQuery(sql, null);
+            while (cursor.moveToNext() && queued < COMMANDS_PER_SYNC_MAX) {
+                long replyId = cursor.getLong(0);
+                String conversationOid = cursor.getString(1);
+                long parentId = cursor.getLong(2);
+                String parentOid = cursor.getString(3);
+                if (!parentIds.add(parentId)) {
+                    continue;
+                }
+                CommandData commandData;
+                if (conversationSupported && !TextUtils.isEmpty(conversationOid)) {
+                    if (!conversationOids.add(conversationOid)) {
+                        continue;
+                    }
+                    commandData = CommandData.newItemCommand(CommandEnum.GET_CONVERSATION, ma, replyId);
+                } else if (!TextUtils.isEmpty(parentOid)) {
+                    commandData = CommandData.newItemCommand(CommandEnum.GET_STATUS, ma, parentId);
+                } else {
+                    continue;
+                }
+                MyServiceManager.sendCommand(commandData);
+                queued++;
+            }
+        } catch (Exception e) {
+            MyLog.i(this, method + "; SQL:'" + sql + "'", e);
+        } finally {
+            DbUtils.closeSilently(cursor);
+        }
+        if (queued > 0) {
+            MyLog.v(this, method + "; queued " + queued + " commands for " + ma.getAccountName());
+        }
+        return queued;
+    }
+}
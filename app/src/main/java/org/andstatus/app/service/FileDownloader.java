@@ -71,7 +71,9 @@ public abstract class FileDownloader {
             return;
         }
         data.onNewDownload();
-        downloadFile();
+        if (!data.reuseFileOfTheSameUri()) {
+            downloadFile();
+        }
         data.saveToDatabase();
         if (!data.isError()) {
             onSuccessfulLoad();
@@ -102,11 +104,8 @@ public abstract class FileDownloader {
         }
         if (data.isError()) {
             fileTemp.delete();
-        }
-        DownloadFile fileNew = new DownloadFile(data.getFilenameNew());
-        fileNew.delete();
-        if (!data.isError() && !fileTemp.getFile().renameTo(fileNew.getFile())) {
-            data.softErrorLogged(method + ", Couldn't rename file " + fileTemp + " to " + fileNew, null);
+        } else {
+            data.onFileDownloaded(fileTemp);
         }
     }
 
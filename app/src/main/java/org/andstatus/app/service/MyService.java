@@ -32,8 +32,10 @@ import org.andstatus.app.context.MyContext;
 import org.andstatus.app.context.MyContextHolder;
 import org.andstatus.app.context.MyPreferences;
 import org.andstatus.app.data.DbUtils;
+import org.andstatus.app.data.DbWriter;
 import org.andstatus.app.notification.CommandsQueueNotifier;
 import org.andstatus.app.os.AsyncTaskLauncher;
+import org.andstatus.app.os.ExecutionMetrics;
 import org.andstatus.app.os.MyAsyncTask;
 import org.andstatus.app.timeline.TimelineType;
 import org.andstatus.app.util.MyLog;
@@ -88,6 +90,7 @@ public class MyService extends Service {
     @GuardedBy("wakeLockLock")
     private PowerManager.WakeLock mWakeLock = null;
     private final CommandQueue queues = new CommandQueue(this);
+    private final RateLimitScheduler rateLimitScheduler = new RateLimitScheduler();
 
     private static final long RETRY_QUEUE_PROCESSING_PERIOD_SECONDS = 900; 
     private final AtomicLong mRetryQueueProcessedAt = new AtomicLong();
@@ -203,7 +206,7 @@ public class MyService extends Service {
                 break;
 
         }
-        if (queues.get(QueueType.CURRENT).contains(commandData)) {
+        if (queues.promoteIfQueued(QueueType.CURRENT, commandData)) {
             MyLog.v(this, "Didn't add to Main queue. Already found " + commandData);
         } else {
             commandData.getResult().prepareForLaunch();
@@ -421,7 +424,8 @@ public class MyService extends Service {
     }
     
     private boolean isAnythingToRetryNow() {
-        if (!RelativeTime.moreSecondsAgoThan(mRetryQueueProcessedAt.get(),
+        if (!rateLimitScheduler.isAnyDeferralOver()
+                && !RelativeTime.moreSecondsAgoThan(mRetryQueueProcessedAt.get(),
                         RETRY_QUEUE_PROCESSING_PERIOD_SECONDS)) {
             return false;
         }
@@ -479,6 +483,9 @@ public class MyService extends Service {
                 }
                 latestProcessedStartId = mLatestProcessedStartId;
                 queues.save();
+                DbWriter.flush();
+                ExecutionMetrics.save();
+                ExecutionMetrics.export();
                 mInitialized = false;
                 mIsStopping = false;
                 mForcedToStop = false;
@@ -613,12 +620,16 @@ public class MyService extends Service {
                 if (commandData != null) {
                     commandData = findInErrorQueue(commandData);
                 }
-                if (commandData != null && !commandData.isInForeground()
+                if (commandData != null && !commandData.isInForeground() && !commandData.isVisibleDownload()
                         && myContext.isInForeground()
                         && !MyPreferences.isSyncWhileUsingApplicationEnabled()) {
                     tempQueue.add(commandData);
                     commandData = null;
                 }
+                if (commandData != null && rateLimitScheduler.shouldDefer(myContext, commandData)) {
+                    queues.addToQueue(QueueType.RETRY, commandData);
+                    commandData = null;
+                }
             } while (commandData == null);
             while (!tempQueue.isEmpty()) {
                 CommandData cd = tempQueue.poll();
@@ -637,6 +648,7 @@ public class MyService extends Service {
                     + " " + commandData);
             if (commandData != null) {
                 commandData.setManuallyLaunched(false);
+                rateLimitScheduler.onExecuting(myContext, commandData);
             }
             return commandData;
         }
@@ -644,14 +656,21 @@ public class MyService extends Service {
         private static final long MIN_RETRY_PERIOD_SECONDS = 900; 
         private void moveCommandsFromRetryToMainQueue() {
             for (CommandData cd : queues.get(QueueType.RETRY)) {
-                if (cd.executedMoreSecondsAgoThan(MIN_RETRY_PERIOD_SECONDS)) {
+                if (isTimeToRetry(cd)) {
                     addToMainQueue(cd);
                     queues.get(QueueType.RETRY).remove(cd);
                     MyLog.v(this, "Moved from Retry to Main queue: " + cd);
                 }
             }
+            rateLimitScheduler.forgetDeferralsOver();
             mRetryQueueProcessedAt.set(System.currentTimeMillis());
         }
+
+        /** A command, deferred by the rate limit, waits for its own deferral only */
+        private boolean isTimeToRetry(CommandData cd) {
+            return rateLimitScheduler.isDeferred(cd) ? rateLimitScheduler.isDeferralOver(cd)
+                    : cd.executedMoreSecondsAgoThan(MIN_RETRY_PERIOD_SECONDS);
+        }
         
         private CommandData findInRetryQueue(CommandData cdIn) {
             CommandData cdOut = cdIn;
@@ -659,7 +678,7 @@ public class MyService extends Service {
                 for (CommandData cd : queues.get(QueueType.RETRY)) {
                     if (cd.equals(cdIn)) {
                         cd.resetRetries();
-                        if (cdIn.isManuallyLaunched() || cd.executedMoreSecondsAgoThan(MIN_RETRY_PERIOD_SECONDS)) {
+                        if (cdIn.isManuallyLaunched() || isTimeToRetry(cd)) {
                             cdOut = cd;
                             queues.get(QueueType.RETRY).remove(cd);
                             MyLog.v(this, "Returned from Retry queue: " + cd);
@@ -28,6 +28,7 @@ import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
 
 public class MyServiceCommandsRunner implements MyServiceEventsListener {
 
@@ -87,6 +88,8 @@ public class MyServiceCommandsRunner implements MyServiceEventsListener {
             }
         }
 
+        ma.adaptSyncFrequency(TimeUnit.MILLISECONDS.toSeconds(
+                myContext.persistentTimelines().getShortestSyncFrequencyMs(ma)));
         MyLog.v(this, method + " ended, " + (syncResult.hasError() ? "has error" : "ok"));
     }
 
@@ -20,6 +20,7 @@ import android.content.Intent;
 import android.os.Bundle;
 import android.view.ContextMenu;
 import android.view.ContextMenu.ContextMenuInfo;
+import android.view.Menu;
 import android.view.MenuInflater;
 import android.view.MenuItem;
 import android.view.View;
@@ -28,6 +29,8 @@ import org.andstatus.app.LoadableListActivity;
 import org.andstatus.app.R;
 import org.andstatus.app.SyncLoader;
 import org.andstatus.app.WhichPage;
+import org.andstatus.app.os.ExecutionMetrics;
+import org.andstatus.app.util.DialogFactory;
 import org.andstatus.app.util.MyLog;
 import org.andstatus.app.widget.MyBaseAdapter;
 
@@ -65,6 +68,23 @@ public class QueueViewer extends LoadableListActivity {
         return new QueueViewerListAdapter(this, getLoaded().getList());
     }
 
+    @Override
+    public boolean onCreateOptionsMenu(Menu menu) {
+        getMenuInflater().inflate(R.menu.queue_viewer, menu);
+        return super.onCreateOptionsMenu(menu);
+    }
+
+    @Override
+    public boolean onOptionsItemSelected(MenuItem item) {
+        switch (item.getItemId()) {
+            case R.id.menuItemExecutionMetrics:
+                DialogFactory.showOkAlertDialog(this, this, R.string.execution_metrics, ExecutionMetrics.getInfo());
+                return true;
+            default:
+                return super.onOptionsItemSelected(item);
+        }
+    }
+
     private QueueData queueData = null;
 
     @Override
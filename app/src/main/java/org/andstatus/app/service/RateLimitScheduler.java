@@ -0,0 +1,256 @@
+/*
+ * Copyright (c) 2017 yvolk (Yuri Volkov), http://yurivolkov.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.andstatus.app.service;
+
+import org.andstatus.app.account.MyAccount;
+import org.andstatus.app.context.MyContext;
+import org.andstatus.app.data.MyQuery;
+import org.andstatus.app.database.UserTable;
+import org.andstatus.app.net.http.RateLimits;
+import org.andstatus.app.net.social.MbRateLimitStatus;
+import org.andstatus.app.util.MyLog;
+
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.WeakHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Paces execution of low priority background commands of each account with a token bucket,
+ * which follows the rate limit, reported by a server, see {@link TokenBucket}.
+ * The requests are kept for timelines and for commands, launched by a user.
+ * A deferred command may be executed again, when its bucket has a token
+ * @author yvolk@yurivolkov.com
+ */
+class RateLimitScheduler {
+    /** Percent of the limit, reserved for high priority commands */
+    static final int RESERVED_PERCENT = 20;
+    static final int MIN_RESERVED = 3;
+    /** Deferral period, if a server didn't tell us the reset time */
+    static final long DEFER_SECONDS_DEFAULT = 300;
+
+    private final Object lock = new Object();
+    /** Token buckets of low priority commands per account */
+    private final Map<String, TokenBucket> buckets = new HashMap<>();
+    /** Deferred commands and the dates, when they may be executed */
+    private final Map<CommandData, Long> deferredTill = new HashMap<>();
+    /** Names of accounts, which execute the commands, are resolved once per command */
+    private final Map<CommandData, String> accountNames = new WeakHashMap<>();
+
+    /**
+     * The requests, which remain till the reset time of the limit (without the reserved ones),
+     * are spread evenly over the time till the reset: the bucket is refilled at that rate
+     * and holds a few tokens only, so background work is paced instead of using up the limit at once.
+     * High priority commands take tokens too, they are never deferred, but they slow down the background work.
+     * The bucket is rebuilt from each new rate limit status, keeping its tokens
+     */
+    static class TokenBucket {
+        static final int CAPACITY_MAX = 5;
+        final MbRateLimitStatus status;
+        final long resetDate;
+        final double capacity;
+        final double tokensPerMs;
+        private double tokens;
+        private long refilledAt;
+
+        TokenBucket(MbRateLimitStatus status, TokenBucket previous, long now) {
+            this.status = status;
+            resetDate = status.resetDate > now ? status.resetDate
+                    : now + TimeUnit.SECONDS.toMillis(DEFER_SECONDS_DEFAULT);
+            int available = Math.max(0, status.remaining - reserved(status));
+            capacity = Math.min(CAPACITY_MAX, available);
+            tokensPerMs = available / (double) (resetDate - now);
+            tokens = previous == null ? capacity : Math.min(previous.getTokens(now), capacity);
+            refilledAt = now;
+        }
+
+        double getTokens(long now) {
+            if (now > refilledAt) {
+                tokens = Math.min(capacity, tokens + (now - refilledAt) * tokensPerMs);
+                refilledAt = now;
+            }
+            return tokens;
+        }
+
+        boolean tryTake(long now) {
+            if (getTokens(now) < 1) {
+                return false;
+            }
+            tokens -= 1;
+            return true;
+        }
+
+        /** A high priority command may take the token, which the bucket doesn't have yet */
+        void take(long now) {
+            getTokens(now);
+            tokens -= 1;
+        }
+
+        long nextTokenDate(long now) {
+            if (capacity < 1 || tokensPerMs <= 0) {
+                return resetDate;
+            }
+            return Math.min(resetDate, now + (long) Math.ceil((1 - getTokens(now)) / tokensPerMs));
+        }
+    }
+
+    /** @return true if the command was deferred till its bucket has a token */
+    boolean shouldDefer(MyContext myContext, CommandData commandData) {
+        if (!isPaced(commandData) || RateLimits.isEmpty()) {
+            return false;
+        }
+        String accountName = getAccountName(myContext, commandData);
+        MbRateLimitStatus status = RateLimits.get(accountName);
+        if (status.isEmpty()) {
+            return false;
+        }
+        long now = System.currentTimeMillis();
+        long till;
+        synchronized (lock) {
+            TokenBucket bucket = getBucket(accountName, status, now);
+            if (bucket.tryTake(now)) {
+                deferredTill.remove(commandData);
+                return false;
+            }
+            till = bucket.nextTokenDate(now);
+            deferredTill.put(commandData, till);
+        }
+        MyLog.v(this, "Deferred " + commandData.getCommand() + " of " + accountName + " for "
+                + TimeUnit.MILLISECONDS.toSeconds(till - now) + "s; " + status);
+        return true;
+    }
+
+    /** @return true if the command was deferred. Only its deferral decides, when it may be executed again */
+    boolean isDeferred(CommandData commandData) {
+        synchronized (lock) {
+            return deferredTill.containsKey(commandData);
+        }
+    }
+
+    /** @return true if the command was deferred, and it may be executed now */
+    boolean isDeferralOver(CommandData commandData) {
+        synchronized (lock) {
+            Long till = deferredTill.get(commandData);
+            return till != null && till <= System.currentTimeMillis();
+        }
+    }
+
+    /** @return true if any deferred command may be executed now */
+    boolean isAnyDeferralOver() {
+        long now = System.currentTimeMillis();
+        synchronized (lock) {
+            for (Long till : deferredTill.values()) {
+                if (till <= now) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    /** Forgets the deferrals, which are over. Their commands are expected to be moved to the main queue */
+    void forgetDeferralsOver() {
+        long now = System.currentTimeMillis();
+        synchronized (lock) {
+            for (Iterator<Long> iterator = deferredTill.values().iterator(); iterator.hasNext(); ) {
+                if (iterator.next() <= now) {
+                    iterator.remove();
+                }
+            }
+        }
+    }
+
+    /** A paced command took its token in {@link #shouldDefer(MyContext, CommandData)}, other commands take it now */
+    void onExecuting(MyContext myContext, CommandData commandData) {
+        synchronized (lock) {
+            deferredTill.remove(commandData);
+        }
+        if (isPaced(commandData) || RateLimits.isEmpty()) {
+            return;
+        }
+        String accountName = getAccountName(myContext, commandData);
+        MbRateLimitStatus status = RateLimits.get(accountName);
+        if (status.isEmpty()) {
+            return;
+        }
+        long now = System.currentTimeMillis();
+        synchronized (lock) {
+            getBucket(accountName, status, now).take(now);
+        }
+    }
+
+    private static boolean isPaced(CommandData commandData) {
+        return !commandData.isInForeground() && !commandData.isManuallyLaunched()
+                && (isLowPriority(commandData.getCommand()) || commandData.isPrefetch());
+    }
+
+    private String getAccountName(MyContext myContext, CommandData commandData) {
+        synchronized (lock) {
+            String accountName = accountNames.get(commandData);
+            if (accountName != null) {
+                return accountName;
+            }
+        }
+        String accountName = getMyAccount(myContext, commandData).getAccountName();
+        synchronized (lock) {
+            accountNames.put(commandData, accountName);
+        }
+        return accountName;
+    }
+
+    /** The account, which will execute the command, see {@link CommandExecutionContext#getMyAccount()}
+     * and {@link AvatarDownloader} for commands of a user without a timeline's origin */
+    static MyAccount getMyAccount(MyContext myContext, CommandData commandData) {
+        MyAccount ma = commandData.getTimeline().getMyAccountToSync(myContext);
+        if (!ma.isValid() && commandData.getUserId() != 0) {
+            long originId = MyQuery.userIdToLongColumnValue(UserTable.ORIGIN_ID, commandData.getUserId());
+            if (originId != 0) {
+                ma = myContext.persistentAccounts().getFirstSucceededForOriginId(originId);
+            }
+        }
+        return ma;
+    }
+
+    private TokenBucket getBucket(String accountName, MbRateLimitStatus status, long now) {
+        TokenBucket bucket = buckets.get(accountName);
+        if (bucket == null || bucket.status != status) {
+            bucket = new TokenBucket(status, bucket, now);
+            buckets.put(accountName, bucket);
+        }
+        return bucket;
+    }
+
+    static int reserved(MbRateLimitStatus status) {
+        return Math.max(MIN_RESERVED, status.limit * RESERVED_PERCENT / 100);
+    }
+
+    /** Refreshing of users, their avatars and followers may wait till the limit is reset */
+    static boolean isLowPriority(CommandEnum command) {
+        switch (command) {
+            case FETCH_AVATAR:
+            case GET_USER:
+            case GET_FOLLOWERS:
+            case GET_FRIENDS:
+            case GET_OPEN_INSTANCES:
+            case GET_OLDER_TIMELINE:
+                return true;
+            default:
+                return false;
+        }
+    }
+}
@@ -53,6 +53,8 @@ abstract class TimelineDownloader extends CommandExecutorStrategy {
             onSyncEnded();
         } catch (SQLiteConstraintException e) {
             MyLog.e(this, execContext.getTimeline().toString(), e);
+            execContext.getResult().incrementParseExceptions();
+            onSyncEnded();
         }
     }
 
@@ -16,6 +16,7 @@
 
 package org.andstatus.app.service;
 
+import android.support.annotation.NonNull;
 import android.text.TextUtils;
 
 import org.andstatus.app.context.MyPreferences;
@@ -25,19 +26,44 @@ import org.andstatus.app.data.OidEnum;
 import org.andstatus.app.net.http.ConnectionException;
 import org.andstatus.app.net.http.ConnectionException.StatusCode;
 import org.andstatus.app.net.social.MbActivity;
+import org.andstatus.app.net.social.MbMessage;
 import org.andstatus.app.net.social.TimelinePosition;
+import org.andstatus.app.timeline.Timeline;
 import org.andstatus.app.timeline.TimelineSyncTracker;
 import org.andstatus.app.util.MyLog;
 import org.andstatus.app.util.RelativeTime;
 
+import java.util.Collections;
 import java.util.Date;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
 class TimelineDownloaderOther extends TimelineDownloader {
     private static final int YOUNGER_MESSAGES_TO_DOWNLOAD_MAX = 200;
     private static final int OLDER_MESSAGES_TO_DOWNLOAD_MAX = 40;
     private static final int LATEST_MESSAGES_TO_DOWNLOAD_MAX = 20;
+    /** Pages, downloaded ahead of the database writes */
+    private static final int PAGES_AHEAD_MAX = 2;
+    /** Threads of the network stage are reused by next syncs. Concurrent syncs get their own threads */
+    private static final ExecutorService networkStage = Executors.newCachedThreadPool(new ThreadFactory() {
+        private final AtomicInteger counter = new AtomicInteger();
+
+        @Override
+        public Thread newThread(@NonNull Runnable runnable) {
+            Thread thread = new Thread(runnable, "PageFetcher-" + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        }
+    });
 
     @Override
     public void download() throws ConnectionException {
@@ -72,50 +98,191 @@ class TimelineDownloaderOther extends TimelineDownloader {
         }
         int toDownload = downloadingLatest ? LATEST_MESSAGES_TO_DOWNLOAD_MAX :
                 (isSyncYounger() ? YOUNGER_MESSAGES_TO_DOWNLOAD_MAX : OLDER_MESSAGES_TO_DOWNLOAD_MAX);
-        TimelinePosition previousPosition = syncTracker.getPreviousPosition();
+        PageFetcher fetcher = new PageFetcher(userOid, toDownload, new PositionLookahead(syncTracker, isSyncYounger()));
         syncTracker.onTimelineDownloaded();
 
-        DataUpdater di = new DataUpdater(execContext);
-        for (int loopCounter=0; loopCounter < 100; loopCounter++ ) {
-            try {
-                int limit = execContext.getMyAccount().getConnection().fixedDownloadLimit(
-                        toDownload, getTimeline().getTimelineType().getConnectionApiRoutine());
-                List<MbActivity> activities;
-                switch (getTimeline().getTimelineType()) {
-                    case SEARCH:
-                        activities = execContext.getMyAccount().getConnection().search(
-                                isSyncYounger() ? previousPosition : TimelinePosition.EMPTY,
-                                isSyncYounger() ? TimelinePosition.EMPTY : previousPosition,
-                                limit, getTimeline().getSearchQuery());
-                        break;
-                    default:
-                        activities = execContext.getMyAccount().getConnection().getTimeline(
-                                getTimeline().getTimelineType().getConnectionApiRoutine(),
-                                isSyncYounger() ? previousPosition : TimelinePosition.EMPTY,
-                                isSyncYounger() ? TimelinePosition.EMPTY : previousPosition,
-                                limit, userOid);
-                        break;
-                }
-                for (MbActivity activity : activities) {
-                    toDownload--;
+        DataUpdater di = newDataUpdater();
+        Set<Long> replyIds = new HashSet<>();
+        Future<?> fetching = networkStage.submit(fetcher);
+        try {
+            Page page;
+            do {
+                page = takePage(fetcher.pages);
+                for (MbActivity activity : page.activities) {
                     syncTracker.onNewMsg(activity.getTimelinePosition(), activity.getTimelineDate());
                     di.onActivity(activity, false);
+                    MbMessage message = activity.getMessage();
+                    if (message.msgId != 0 && message.getInReplyTo().nonEmpty()) {
+                        replyIds.add(message.msgId);
+                    }
                 }
-                if (toDownload <= 0 || activities.isEmpty() || previousPosition.equals(syncTracker.getPreviousPosition())) {
-                    break;
-                }
-                previousPosition = syncTracker.getPreviousPosition();
-            } catch (ConnectionException e) {
-                if (e.getStatusCode() != StatusCode.NOT_FOUND) {
-                    throw e;
-                }
-                if (previousPosition.isEmpty()) {
-                    throw ConnectionException.hardConnectionException("No last position", e);
+            } while (!page.isLast());
+            page.rethrow();
+        } finally {
+            fetching.cancel(true);
+            // Items, stored before an error, count too: the next sync won't see them as new
+            syncTracker.onSyncEnded();
+        }
+        di.saveLum();
+        if (!replyIds.isEmpty() && !isStopping()) {
+            new ConversationPrefetcher(execContext).prefetch(replyIds);
+        }
+    }
+
+    /** The database writer of the downloaded activities */
+    DataUpdater newDataUpdater() {
+        return new DataUpdater(execContext);
+    }
+
+    private Page takePage(BlockingQueue<Page> pages) throws ConnectionException {
+        try {
+            return pages.take();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new ConnectionException("Interrupted while waiting for a timeline page", e);
+        }
+    }
+
+    /**
+     * The network stage: requests pages of the timeline and passes them to the database writer,
+     * so the next page is requested and parsed, while the previous one is being stored
+     */
+    private class PageFetcher implements Runnable {
+        final BlockingQueue<Page> pages = new ArrayBlockingQueue<>(PAGES_AHEAD_MAX);
+        private final String userOid;
+        private int toDownload;
+        private final PositionLookahead lookahead;
+
+        PageFetcher(String userOid, int toDownload, PositionLookahead lookahead) {
+            this.userOid = userOid;
+            this.toDownload = toDownload;
+            this.lookahead = lookahead;
+        }
+
+        @Override
+        public void run() {
+            try {
+                fetchPages();
+                pages.put(Page.END);
+            } catch (InterruptedException e) {
+                MyLog.v(TimelineDownloaderOther.this, "Page fetching was cancelled");
+            } catch (Throwable e) {
+                // Any failure, including an Error, ends the download, so the writer doesn't wait forever
+                putFailure(e);
+            }
+        }
+
+        private void putFailure(Throwable e) {
+            try {
+                pages.put(new Page(Collections.<MbActivity>emptyList(), e));
+            } catch (InterruptedException e2) {
+                MyLog.v(TimelineDownloaderOther.this, "Page fetching was cancelled", e);
+            }
+        }
+
+        private void fetchPages() throws ConnectionException, InterruptedException {
+            TimelinePosition previousPosition = lookahead.get();
+            for (int loopCounter=0; loopCounter < 100; loopCounter++ ) {
+                try {
+                    List<MbActivity> activities = fetchPage(previousPosition);
+                    for (MbActivity activity : activities) {
+                        toDownload--;
+                        lookahead.onNewMsg(activity.getTimelinePosition(), activity.getTimelineDate());
+                    }
+                    pages.put(new Page(activities, null));
+                    if (toDownload <= 0 || activities.isEmpty() || previousPosition.equals(lookahead.get())) {
+                        break;
+                    }
+                    previousPosition = lookahead.get();
+                } catch (ConnectionException e) {
+                    if (e.getStatusCode() != StatusCode.NOT_FOUND) {
+                        throw e;
+                    }
+                    if (previousPosition.isEmpty()) {
+                        throw ConnectionException.hardConnectionException("No last position", e);
+                    }
+                    MyLog.d(this, "The timeline was not found, last position='" + previousPosition +"'", e);
+                    previousPosition = TimelinePosition.EMPTY;
                 }
-                MyLog.d(this, "The timeline was not found, last position='" + previousPosition +"'", e);
-                previousPosition = TimelinePosition.EMPTY;
             }
         }
-        di.saveLum();
+
+        private List<MbActivity> fetchPage(TimelinePosition previousPosition) throws ConnectionException {
+            int limit = execContext.getMyAccount().getConnection().fixedDownloadLimit(
+                    toDownload, getTimeline().getTimelineType().getConnectionApiRoutine());
+            switch (getTimeline().getTimelineType()) {
+                case SEARCH:
+                    return execContext.getMyAccount().getConnection().search(
+                            isSyncYounger() ? previousPosition : TimelinePosition.EMPTY,
+                            isSyncYounger() ? TimelinePosition.EMPTY : previousPosition,
+                            limit, getTimeline().getSearchQuery());
+                default:
+                    return execContext.getMyAccount().getConnection().getTimeline(
+                            getTimeline().getTimelineType().getConnectionApiRoutine(),
+                            isSyncYounger() ? previousPosition : TimelinePosition.EMPTY,
+                            isSyncYounger() ? TimelinePosition.EMPTY : previousPosition,
+                            limit, userOid);
+            }
+        }
+    }
+
+    /** Activities of one page, or the end of the download: normal, or caused by the exception */
+    private static class Page {
+        static final Page END = new Page(Collections.<MbActivity>emptyList(), null);
+        final List<MbActivity> activities;
+        final Throwable exception;
+
+        Page(List<MbActivity> activities, Throwable exception) {
+            this.activities = activities;
+            this.exception = exception;
+        }
+
+        boolean isLast() {
+            return this == END || exception != null;
+        }
+
+        void rethrow() throws ConnectionException {
+            if (exception instanceof ConnectionException) {
+                throw (ConnectionException) exception;
+            } else if (exception instanceof RuntimeException) {
+                throw (RuntimeException) exception;
+            } else if (exception instanceof Error) {
+                throw (Error) exception;
+            } else if (exception != null) {
+                throw new ConnectionException("Failed to fetch a timeline page", exception);
+            }
+        }
+    }
+
+    /**
+     * Position of the next page, which is tracked by the network stage the same way, as the {@link TimelineSyncTracker}
+     * tracks it in the timeline. The timeline itself is changed by the writer only, when activities are stored,
+     * so the saved position never runs ahead of the stored messages
+     */
+    private static class PositionLookahead {
+        private final boolean isSyncYounger;
+        private long itemDate;
+        private String position;
+
+        PositionLookahead(TimelineSyncTracker syncTracker, boolean isSyncYounger) {
+            this.isSyncYounger = isSyncYounger;
+            itemDate = syncTracker.getPreviousItemDate();
+            position = syncTracker.getPreviousPosition().getPosition();
+        }
+
+        void onNewMsg(TimelinePosition newPosition, long newDate) {
+            if (newPosition == null || newPosition.isEmpty() || newDate <= 0) {
+                return;
+            }
+            if (isSyncYounger ? Timeline.isNewYoungestItem(itemDate, position, newDate, newPosition.getPosition())
+                    : Timeline.isNewOldestItem(itemDate, position, newDate, newPosition.getPosition())) {
+                itemDate = newDate;
+                position = newPosition.getPosition();
+            }
+        }
+
+        TimelinePosition get() {
+            return new TimelinePosition(position);
+        }
     }
 }
@@ -24,6 +24,7 @@ import android.support.annotation.NonNull;
 import org.andstatus.app.account.MyAccount;
 import org.andstatus.app.context.MyContext;
 import org.andstatus.app.data.DbUtils;
+import org.andstatus.app.data.DbWriter;
 import org.andstatus.app.database.TimelineTable;
 import org.andstatus.app.origin.Origin;
 import org.andstatus.app.util.MyLog;
@@ -31,17 +32,39 @@ import org.andstatus.app.util.TriState;
 
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
 import java.util.List;
-import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.ConcurrentMap;
+import java.util.Map;
 
 /**
  * @author yvolk@yurivolkov.com
  */
 public class PersistentTimelines {
-    private final ConcurrentMap<Long, Timeline> timelines = new ConcurrentHashMap<>();
+    /** Budget of timelines of one account to be synced automatically at once */
+    static final int AUTO_SYNC_TIMELINES_MAX = 6;
+    /** Replaced on any change of the set of timelines, so it is read without locking */
+    private volatile Snapshot snapshot = new Snapshot(Collections.<Timeline>emptyList());
     private final MyContext myContext;
 
+    /** Immutable set of timelines, indexed by ID and by the key, see {@link Timeline#equals(Object)} */
+    private static class Snapshot {
+        final Map<Long, Timeline> byId = new HashMap<>();
+        final Map<Timeline, Timeline> byKey = new HashMap<>();
+        final Collection<Timeline> values;
+
+        Snapshot(Collection<Timeline> timelines) {
+            for (Timeline timeline : timelines) {
+                byId.put(timeline.getId(), timeline);
+                if (!byKey.containsKey(timeline)) {
+                    byKey.put(timeline, timeline);
+                }
+            }
+            values = Collections.unmodifiableCollection(byId.values());
+        }
+    }
+
     public static PersistentTimelines newEmpty(MyContext myContext) {
         return new PersistentTimelines(myContext);
     }
@@ -53,7 +76,8 @@ public class PersistentTimelines {
     public PersistentTimelines initialize() {
         final String method = "initialize";
         Context context = myContext.context();
-        timelines.clear();
+        List<Timeline> timelines = new ArrayList<>();
+        DbWriter.flush();
         SQLiteDatabase db = myContext.getDatabase();
         if (db == null) {
             MyLog.d(context, method + "; Database is unavailable");
@@ -67,7 +91,7 @@ public class PersistentTimelines {
                     if (!timeline.isValid()) {
                         MyLog.e(context, method + "; invalid skipped " + timeline);
                     } else {
-                        timelines.put(timeline.getId(), timeline);
+                        timelines.add(timeline);
                         if (MyLog.isVerboseEnabled() && timelines.size() < 5) {
                             MyLog.v(context, method + "; " + timeline);
                         }
@@ -78,12 +102,20 @@ public class PersistentTimelines {
             }
             MyLog.v(this, "Timelines initialized, " + timelines.size() + " timelines");
         }
+        synchronized (this) {
+            snapshot = new Snapshot(timelines);
+        }
         return this;
     }
 
+    /** Rebuilds the index by keys, e.g. after a change of an account, which is a part of the key */
+    public synchronized void reindex() {
+        snapshot = new Snapshot(snapshot.values);
+    }
+
     @NonNull
     public Timeline fromId(long id) {
-        Timeline timeline = timelines.get(id);
+        Timeline timeline = snapshot.byId.get(id);
         if (timeline == null) {
             timeline = Timeline.getEmpty(MyAccount.EMPTY);
         }
@@ -110,41 +142,65 @@ public class PersistentTimelines {
 
     @NonNull
     Timeline fromNewTimeLine(Timeline newTimeline) {
-        Timeline found = newTimeline;
-        for (Timeline timeline : values()) {
-            if (newTimeline.getId() == 0) {
-                if (timeline.equals(newTimeline)) {
-                    found = timeline;
-                    break;
-                }
-            } else if (timeline.getId() == newTimeline.getId()) {
-                found = timeline;
-                break;
-            }
-        }
-        return found;
+        Snapshot current = snapshot;
+        Timeline found = newTimeline.getId() == 0
+                ? current.byKey.get(newTimeline)
+                : current.byId.get(newTimeline.getId());
+        return found == null ? newTimeline : found;
     }
 
     public Collection<Timeline> values() {
-        return timelines.values();
+        return snapshot.values;
     }
 
+    /**
+     * @return timelines, which are due to be synced, the most overdue first,
+     * no more than {@link #AUTO_SYNC_TIMELINES_MAX} at once
+     */
     @NonNull
     public List<Timeline> toAutoSyncForAccount(MyAccount ma) {
         List<Timeline> timelines = new ArrayList<>();
         if (ma.isValidAndSucceeded()) {
             for (Timeline timeline : values()) {
-                if (timeline.isSyncedAutomatically() &&
-                        ((!timeline.getTimelineType().isAtOrigin() && timeline.getMyAccount().equals(ma)) ||
-                                timeline.getTimelineType().isAtOrigin() && timeline.getOrigin().equals(ma.getOrigin())) &&
-                        timeline.isTimeToAutoSync()) {
+                if (isSyncedAutomaticallyFor(timeline, ma) && timeline.isTimeToAutoSync()) {
                     timelines.add(timeline);
                 }
             }
         }
+        if (timelines.size() > AUTO_SYNC_TIMELINES_MAX) {
+            final long now = System.currentTimeMillis();
+            Collections.sort(timelines, new Comparator<Timeline>() {
+                @Override
+                public int compare(Timeline lhs, Timeline rhs) {
+                    return Double.compare(overdueRatio(rhs, now), overdueRatio(lhs, now));
+                }
+            });
+            return new ArrayList<>(timelines.subList(0, AUTO_SYNC_TIMELINES_MAX));
+        }
         return timelines;
     }
 
+    /** @return the shortest sync period among the timelines of the account, which are synced automatically */
+    public long getShortestSyncFrequencyMs(MyAccount ma) {
+        long frequencyMs = ma.getEffectiveSyncFrequencySeconds() * 1000;
+        for (Timeline timeline : values()) {
+            if (isSyncedAutomaticallyFor(timeline, ma)) {
+                frequencyMs = Math.min(frequencyMs, timeline.getSyncFrequencyMs());
+            }
+        }
+        return frequencyMs;
+    }
+
+    private static boolean isSyncedAutomaticallyFor(Timeline timeline, MyAccount ma) {
+        return timeline.isSyncedAutomatically() &&
+                ((!timeline.getTimelineType().isAtOrigin() && timeline.getMyAccount().equals(ma)) ||
+                        timeline.getTimelineType().isAtOrigin() && timeline.getOrigin().equals(ma.getOrigin()));
+    }
+
+    private static double overdueRatio(Timeline timeline, long now) {
+        return (now - timeline.getSyncSucceededDate()) / (double) Math.max(timeline.getSyncFrequencyMs(), 1);
+    }
+
     @NonNull
     public List<Timeline> getFiltered(boolean isForSelector,
                                       TriState isTimelineCombined,
@@ -186,25 +242,36 @@ public class PersistentTimelines {
                 toRemove.add(timeline);
             }
         }
-        for (Timeline timeline : toRemove) {
-            timelines.remove(timeline.getId());
-        }
+        remove(toRemove);
     }
 
     public void delete(Timeline timeline) {
         if (myContext.isReady()) {
             timeline.delete();
+            remove(Collections.singletonList(timeline));
+        }
+    }
+
+    private synchronized void remove(Collection<Timeline> toRemove) {
+        if (toRemove.isEmpty()) {
+            return;
+        }
+        Map<Long, Timeline> timelines = new HashMap<>(snapshot.byId);
+        for (Timeline timeline : toRemove) {
             timelines.remove(timeline.getId());
         }
+        snapshot = new Snapshot(timelines.values());
     }
 
     public void saveChanged() {
         new TimelineSaver(myContext).executeNotOnUiThread();
     }
 
-    public void addNew(Timeline timeline) {
-        if (timeline.getId() != 0) {
-            timelines.putIfAbsent(timeline.getId(), timeline);
+    public synchronized void addNew(Timeline timeline) {
+        if (timeline.getId() != 0 && !snapshot.byId.containsKey(timeline.getId())) {
+            List<Timeline> timelines = new ArrayList<>(snapshot.values);
+            timelines.add(timeline);
+            snapshot = new Snapshot(timelines);
         }
     }
 
@@ -29,6 +29,7 @@ import org.andstatus.app.context.MyContext;
 import org.andstatus.app.context.MyContextHolder;
 import org.andstatus.app.context.MyPreferences;
 import org.andstatus.app.data.DbUtils;
+import org.andstatus.app.data.DbWriter;
 import org.andstatus.app.data.MyQuery;
 import org.andstatus.app.data.ParsedUri;
 import org.andstatus.app.data.SqlWhere;
@@ -44,6 +45,7 @@ import org.andstatus.app.util.MyLog;
 import org.andstatus.app.util.StringUtils;
 
 import java.util.Date;
+import java.util.concurrent.TimeUnit;
 
 /**
  * @author yvolk@yurivolkov.com
@@ -107,6 +109,9 @@ public class Timeline implements Comparable<Timeline> {
     private volatile long newItemsCount = 0;
     private volatile long countSince = System.currentTimeMillis();
 
+    /** Smoothed arrival rate of new items, observed during syncs. Negative if not observed yet */
+    private volatile double newItemsPerHour = -1;
+
     /** Accumulated numbers for statistics. They are reset by a user's request */
     private volatile long syncedTimesCountTotal = 0;
     private volatile long syncFailedTimesCountTotal = 0;
@@ -236,6 +241,7 @@ public class Timeline implements Comparable<Timeline> {
         timeline.downloadedItemsCount = DbUtils.getLong(cursor, TimelineTable.DOWNLOADED_ITEMS_COUNT);
         timeline.newItemsCount = DbUtils.getLong(cursor, TimelineTable.NEW_ITEMS_COUNT);
         timeline.countSince = DbUtils.getLong(cursor, TimelineTable.COUNT_SINCE);
+        timeline.newItemsPerHour = DbUtils.getDouble(cursor, TimelineTable.NEW_ITEMS_PER_HOUR);
         timeline.syncedTimesCountTotal = DbUtils.getLong(cursor, TimelineTable.SYNCED_TIMES_COUNT_TOTAL);
         timeline.syncFailedTimesCountTotal = DbUtils.getLong(cursor, TimelineTable.SYNC_FAILED_TIMES_COUNT_TOTAL);
         timeline.downloadedItemsCountTotal = DbUtils.getLong(cursor, TimelineTable.DOWNLOADED_ITEMS_COUNT_TOTAL);
@@ -446,6 +452,7 @@ public class Timeline implements Comparable<Timeline> {
         values.put(TimelineTable.DOWNLOADED_ITEMS_COUNT, downloadedItemsCount);
         values.put(TimelineTable.NEW_ITEMS_COUNT, newItemsCount);
         values.put(TimelineTable.COUNT_SINCE, countSince);
+        values.put(TimelineTable.NEW_ITEMS_PER_HOUR, newItemsPerHour);
         values.put(TimelineTable.SYNCED_TIMES_COUNT_TOTAL, syncedTimesCountTotal);
         values.put(TimelineTable.SYNC_FAILED_TIMES_COUNT_TOTAL, syncFailedTimesCountTotal);
         values.put(TimelineTable.DOWNLOADED_ITEMS_COUNT_TOTAL, downloadedItemsCountTotal);
@@ -616,11 +623,18 @@ public class Timeline implements Comparable<Timeline> {
         ContentValues contentValues = new ContentValues();
         toContentValues(contentValues);
         if (getId() == 0) {
-            id = DbUtils.addRowWithRetry(myContext, TimelineTable.TABLE_NAME, contentValues, 3);
+            id = DbWriter.insertNow(myContext, TimelineTable.TABLE_NAME, contentValues);
             MyLog.v(this, "Added " + this +
                     (myContext.isTestRun() ? " from " + MyLog.getStackTrace(new Throwable()) : ""));
         } else {
-            DbUtils.updateRowWithRetry(myContext, TimelineTable.TABLE_NAME, getId(), contentValues, 3);
+            // Positions and counters are saved often, e.g. on every page load, so updates are coalesced
+            DbWriter.submit(new DbWriter.RowUpdate(myContext, TimelineTable.TABLE_NAME, getId(), contentValues) {
+                @Override
+                protected void onFailed() {
+                    // The next save will repeat the update
+                    changed = true;
+                }
+            });
         }
         changed = false;
         return getId();
@@ -760,7 +774,7 @@ public class Timeline implements Comparable<Timeline> {
      * @return true if it's time to auto update this timeline
      */
     public boolean isTimeToAutoSync() {
-        long syncFrequencyMs = myAccount.getEffectiveSyncFrequencySeconds() * 1000;
+        long syncFrequencyMs = getSyncFrequencyMs();
         // This correction is needed to take into account that we remembered time, when sync ended,
         // and not time, when Android initiated it.
         long correctionForExecutionTime = syncFrequencyMs / 10;
@@ -776,6 +790,36 @@ public class Timeline implements Comparable<Timeline> {
         return blnOut;
     }
 
+    /** Sync period of the account, adapted to the arrival rate of new items in this timeline */
+    public long getSyncFrequencyMs() {
+        return TimelineSyncFrequency.getFrequencyMs(myAccount.getEffectiveSyncFrequencySeconds() * 1000,
+                getNewItemsPerHour());
+    }
+
+    /**
+     * @return Arrival rate of new items, observed during recent syncs,
+     * or an average since {@link #countSince} if it wasn't observed yet. Negative if unknown
+     */
+    public double getNewItemsPerHour() {
+        if (newItemsPerHour >= 0) {
+            return newItemsPerHour;
+        }
+        long periodMs = System.currentTimeMillis() - countSince;
+        if (syncedTimesCount < 2 || periodMs < TimeUnit.HOURS.toMillis(1)) {
+            return -1;
+        }
+        return newItemsCount * (double) TimeUnit.HOURS.toMillis(1) / periodMs;
+    }
+
+    /** @param previousSyncedDate when younger items of this timeline were synced before */
+    void onNewItemsObserved(int newItems, long previousSyncedDate) {
+        if (previousSyncedDate > 0) {
+            newItemsPerHour = TimelineSyncFrequency.smoothRate(newItemsPerHour, newItems,
+                    System.currentTimeMillis() - previousSyncedDate);
+            changed = true;
+        }
+    }
+
     public void forgetPositionsAndDates() {
         if (!TextUtils.isEmpty(youngestPosition)) {
             youngestPosition = "";
@@ -814,20 +858,32 @@ public class Timeline implements Comparable<Timeline> {
         if (newDate <= 0 || TextUtils.isEmpty(newPosition)) {
             return;
         }
-        if (youngestItemDate < newDate ||
-                ( youngestItemDate == newDate && StringUtils.isNewFilledValue(youngestPosition, newPosition))) {
+        if (isNewYoungestItem(youngestItemDate, youngestPosition, newDate, newPosition)) {
             youngestItemDate = newDate;
             youngestPosition = newPosition;
             changed = true;
         }
-        if (oldestItemDate == 0 || oldestItemDate > newDate ||
-                (oldestItemDate == newDate && StringUtils.isNewFilledValue(oldestPosition, newPosition))) {
+        if (isNewOldestItem(oldestItemDate, oldestPosition, newDate, newPosition)) {
             oldestItemDate = newDate;
             oldestPosition = newPosition;
             changed = true;
         }
     }
 
+    /** The new item becomes the youngest item of a timeline. The rule is shared with the page lookahead of a download */
+    public static boolean isNewYoungestItem(long youngestItemDate, String youngestPosition, long newDate,
+                                            String newPosition) {
+        return youngestItemDate < newDate ||
+                ( youngestItemDate == newDate && StringUtils.isNewFilledValue(youngestPosition, newPosition));
+    }
+
+    /** The new item becomes the oldest item of a timeline */
+    public static boolean isNewOldestItem(long oldestItemDate, String oldestPosition, long newDate,
+                                          String newPosition) {
+        return oldestItemDate == 0 || oldestItemDate > newDate ||
+                (oldestItemDate == newDate && StringUtils.isNewFilledValue(oldestPosition, newPosition));
+    }
+
     public String getYoungestPosition() {
         return youngestPosition;
     }
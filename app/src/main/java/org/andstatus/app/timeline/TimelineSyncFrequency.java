@@ -0,0 +1,85 @@
+/*
+ * Copyright (c) 2017 yvolk (Yuri Volkov), http://yurivolkov.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.andstatus.app.timeline;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Adapts the sync period of a timeline to the observed arrival rate of its new items:
+ * quiet timelines are synced less often, busy ones - more often than the period of the account
+ * @author yvolk@yurivolkov.com
+ */
+public class TimelineSyncFrequency {
+    /** A quiet timeline is synced not less often than once per this number of account's periods */
+    static final int MAX_BACKOFF_FACTOR = 8;
+    /** Expected number of new items per account's period, above which a timeline is considered busy */
+    static final double BUSY_ITEMS_PER_PERIOD = 10;
+    /** A busy timeline is synced not more often than this number of times per account's period */
+    static final int MAX_SPEEDUP_FACTOR = 4;
+    static final long MIN_FREQUENCY_MS = TimeUnit.MINUTES.toMillis(1);
+    /** Weight of the latest observation in the smoothed arrival rate */
+    static final double SMOOTHING_FACTOR = 0.3;
+
+    private TimelineSyncFrequency() {
+        // Empty
+    }
+
+    /**
+     * @param baseFrequencyMs sync period of the account
+     * @param newItemsPerHour observed arrival rate, negative if unknown
+     */
+    public static long getFrequencyMs(long baseFrequencyMs, double newItemsPerHour) {
+        if (newItemsPerHour < 0 || baseFrequencyMs <= 0) {
+            return baseFrequencyMs;
+        }
+        double expectedItems = newItemsPerHour * baseFrequencyMs / TimeUnit.HOURS.toMillis(1);
+        if (expectedItems >= BUSY_ITEMS_PER_PERIOD) {
+            return Math.max(baseFrequencyMs / getSpeedupFactor(expectedItems),
+                    Math.min(MIN_FREQUENCY_MS, baseFrequencyMs));
+        }
+        if (expectedItems >= 1) {
+            return baseFrequencyMs;
+        }
+        return (long) (baseFrequencyMs / Math.max(expectedItems, 1.0 / MAX_BACKOFF_FACTOR));
+    }
+
+    /**
+     * Halves the period for each doubling of the expected items, so that a busy timeline gets
+     * about {@link #BUSY_ITEMS_PER_PERIOD} items per sync. Steps keep the period stable,
+     * while the arrival rate fluctuates
+     */
+    private static int getSpeedupFactor(double expectedItems) {
+        int factor = 2;
+        while (factor < MAX_SPEEDUP_FACTOR && expectedItems >= BUSY_ITEMS_PER_PERIOD * factor) {
+            factor *= 2;
+        }
+        return factor;
+    }
+
+    /** @return new smoothed arrival rate (items per hour) */
+    static double smoothRate(double previousItemsPerHour, int newItems, long periodMs) {
+        if (periodMs <= 0) {
+            return previousItemsPerHour;
+        }
+        double itemsPerHour = newItems * (double) TimeUnit.HOURS.toMillis(1)
+                / Math.max(periodMs, MIN_FREQUENCY_MS);
+        if (previousItemsPerHour < 0) {
+            return itemsPerHour;
+        }
+        return SMOOTHING_FACTOR * itemsPerHour + (1 - SMOOTHING_FACTOR) * previousItemsPerHour;
+    }
+}
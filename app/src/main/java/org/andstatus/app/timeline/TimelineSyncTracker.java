@@ -27,10 +27,15 @@ public class TimelineSyncTracker {
 
     private final Timeline timeline;
     private final boolean isSyncYounger;
+    private final long previousSyncedDate;
+    private final long previousYoungestItemDate;
+    private int newItemsCount = 0;
 
     public TimelineSyncTracker(Timeline timeline, boolean syncYounger) {
         this.timeline = timeline;
         this.isSyncYounger = syncYounger;
+        previousSyncedDate = timeline.getYoungestSyncedDate();
+        previousYoungestItemDate = timeline.getYoungestItemDate();
     }
     
     public TimelinePosition getPreviousPosition() {
@@ -57,6 +62,16 @@ public class TimelineSyncTracker {
                 && timelineItemPosition.isPresent()
                 && (timelineItemDate > 0)) {
             timeline.onNewMsg(timelineItemDate, timelineItemPosition.getPosition());
+            if (isSyncYounger && timelineItemDate > previousYoungestItemDate) {
+                newItemsCount++;
+            }
+        }
+    }
+
+    /** Items, younger than previously downloaded, were counted, so we know how busy the timeline is */
+    public void onSyncEnded() {
+        if (isSyncYounger && previousYoungestItemDate > 0) {
+            timeline.onNewItemsObserved(newItemsCount, previousSyncedDate);
         }
     }
     
@@ -17,6 +17,7 @@
 package org.andstatus.app.user;
 
 import android.content.Context;
+import android.provider.BaseColumns;
 import android.support.annotation.NonNull;
 import android.support.annotation.Nullable;
 import android.text.TextUtils;
@@ -30,10 +31,10 @@ import android.widget.ImageView;
 
 import org.andstatus.app.R;
 import org.andstatus.app.context.MyContextHolder;
+import org.andstatus.app.data.AvatarData;
 import org.andstatus.app.data.AvatarFile;
 import org.andstatus.app.database.UserTable;
 import org.andstatus.app.origin.Origin;
-import org.andstatus.app.util.CollectionsUtil;
 import org.andstatus.app.util.I18n;
 import org.andstatus.app.util.MyLog;
 import org.andstatus.app.util.MyUrlSpan;
@@ -41,13 +42,18 @@ import org.andstatus.app.util.MyUrlSpan;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 public class UserAutoCompleteAdapter extends BaseAdapter implements Filterable {
+    private static final int MAX_SUGGESTIONS = 50;
     private final Origin origin;
     private final LayoutInflater mInflater;
 
     private ArrayFilter mFilter;
     private List<UserListViewItem> items = new ArrayList<>();
+    /** Users, loaded for suggestions, by their ids */
+    private final Map<Long, UserListViewItem> loadedItems = new ConcurrentHashMap<>();
 
     public UserAutoCompleteAdapter(@NonNull Context context, @NonNull Origin origin) {
         this.origin = origin;
@@ -88,6 +94,9 @@ public class UserAutoCompleteAdapter extends BaseAdapter implements Filterable {
                 I18n.trimTextAt(item.mbUser.getDescription(), 80).toString(), false, false);
         ((ImageView) view.findViewById(R.id.avatar_image)).setImageDrawable(
                 item == null ? AvatarFile.getDefaultDrawable() : item.avatarDrawable);
+        if (item != null) {
+            AvatarData.onUserShown(item.getUserId());
+        }
         return view;
     }
 
@@ -111,7 +120,6 @@ public class UserAutoCompleteAdapter extends BaseAdapter implements Filterable {
             if (!TextUtils.isEmpty(prefix)) {
                 final String prefixString = prefix.toString().toLowerCase();
                 filteredValues = loadFiltered(prefixString);
-                CollectionsUtil.sort(filteredValues);
             }
             final FilterResults results = new FilterResults();
             results.values = filteredValues;
@@ -123,21 +131,43 @@ public class UserAutoCompleteAdapter extends BaseAdapter implements Filterable {
             if (!origin.isValid()) {
                 return Collections.emptyList();
             }
+            List<Long> userIds = UserPrefixIndex.getIndex(MyContextHolder.get(), origin.getId())
+                    .getUserIds(prefixString, MAX_SUGGESTIONS);
+            final List<Long> notLoaded = new ArrayList<>();
+            for (Long userId : userIds) {
+                if (!loadedItems.containsKey(userId)) {
+                    notLoaded.add(userId);
+                }
+            }
+            if (!notLoaded.isEmpty()) {
+                load(notLoaded);
+            }
+            // Keep the order of the index
+            List<UserListViewItem> filteredValues = new ArrayList<>();
+            for (Long userId : userIds) {
+                UserListViewItem viewItem = loadedItems.get(userId);
+                if (viewItem != null) {
+                    filteredValues.add(viewItem);
+                    MyLog.v(this, "filtered: " + viewItem.mbUser);
+                }
+            }
+            return filteredValues;
+        }
+
+        /** Typing a longer prefix usually finds the same users, so each user is loaded once */
+        private void load(final List<Long> userIds) {
             UserListLoader loader = new UserListLoader(UserListType.USERS,
                     MyContextHolder.get().persistentAccounts().getFirstSucceededForOrigin(origin), origin, 0, "") {
                 @NonNull
                 @Override
                 protected String getSelection() {
-                    return UserTable.TABLE_NAME + "." + UserTable.ORIGIN_ID + "=" + origin.getId() + " AND "
-                            + UserTable.TABLE_NAME + "." + UserTable.WEBFINGER_ID + " LIKE '" + prefixString + "%'";
+                    return UserTable.TABLE_NAME + "." + BaseColumns._ID + " IN (" + TextUtils.join(", ", userIds) + ")";
                 }
             };
             loader.load(null);
-            List<UserListViewItem> filteredValues = loader.getList();
-            for (UserListViewItem viewItem : filteredValues) {
-                MyLog.v(this, "filtered: " + viewItem.mbUser);
+            for (UserListViewItem viewItem : loader.getList()) {
+                loadedItems.put(viewItem.getUserId(), viewItem);
             }
-            return filteredValues;
         }
 
         @Override
@@ -14,7 +14,9 @@ import org.andstatus.app.context.MyContextHolder;
 import org.andstatus.app.data.AvatarFile;
 import org.andstatus.app.data.DbUtils;
 import org.andstatus.app.data.MatchedUri;
+import org.andstatus.app.data.MyProvider;
 import org.andstatus.app.data.MyQuery;
+import org.andstatus.app.data.RowReader;
 import org.andstatus.app.data.SqlWhere;
 import org.andstatus.app.data.UserListSql;
 import org.andstatus.app.database.UserTable;
@@ -24,9 +26,11 @@ import org.andstatus.app.service.CommandData;
 import org.andstatus.app.service.CommandEnum;
 import org.andstatus.app.service.MyServiceManager;
 import org.andstatus.app.util.MyLog;
+import org.andstatus.app.util.SelectionAndArgs;
 import org.andstatus.app.util.StringUtils;
 
 public class UserListLoader extends SyncLoader<UserListViewItem> {
+    static final int MAX_USERS = 400;
     protected final UserListType mUserListType;
     private String searchQuery = "";
     protected final MyAccount ma;
@@ -94,19 +98,50 @@ public class UserListLoader extends SyncLoader<UserListViewItem> {
                         oUser.mbUser.getUserName()));
     }
 
+    /** Rows are read in chunks, see {@link RowReader} */
     protected void loadInternal() {
         // TODO: Why only MyAccount's ID ??
-        Uri mContentUri = MatchedUri.getUserListUri(ma.getUserId(), mUserListType, ma.getOriginId(), mCentralItemId,
-                searchQuery);
-        Cursor c = null;
-        try {
-            c = MyContextHolder.get().context().getContentResolver()
-                    .query(mContentUri, UserListSql.getListProjection(), getSelection(), null, null);
-            while ( c != null && c.moveToNext()) {
-                populateItem(c);
+        final Uri mContentUri = MatchedUri.getUserListUri(ma.getUserId(), mUserListType, ma.getOriginId(),
+                mCentralItemId, searchQuery);
+        final String[] projection = UserListSql.getListProjection();
+        final String selection = getSelection();
+        new RowReader<UserRow>() {
+            @Override
+            protected Cursor queryChunk(UserRow lastRow, int limit) {
+                SelectionAndArgs sa = new SelectionAndArgs();
+                sa.addSelection(selection);
+                if (lastRow != null) {
+                    UserListSql.addLowerBound(sa, lastRow.userName, lastRow.userId);
+                }
+                return MyProvider.queryDatabase(mContentUri, projection, sa.selection, sa.selectionArgs,
+                        UserListSql.getSortOrder(), String.valueOf(limit));
+            }
+
+            @Override
+            protected UserRow fromCursor(Cursor cursor) {
+                populateItem(cursor);
+                return new UserRow(cursor);
             }
-        } finally {
-            DbUtils.closeSilently(c);
+        }.read(MAX_USERS, new RowReader.RowConsumer<UserRow>() {
+            @Override
+            public boolean accept(UserRow row) {
+                // The item was added to the list, when it was populated
+                return true;
+            }
+        });
+    }
+
+    /**
+     * Sort key of a row as it is stored: the next chunk starts after it,
+     * while a user name of the item may be normalized, see {@link MbUser#setUserName(String)}
+     */
+    private static class UserRow {
+        final String userName;
+        final long userId;
+
+        UserRow(Cursor cursor) {
+            userName = DbUtils.getString(cursor, UserTable.USERNAME);
+            userId = DbUtils.getLong(cursor, BaseColumns._ID);
         }
     }
 
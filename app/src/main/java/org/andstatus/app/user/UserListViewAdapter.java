@@ -24,6 +24,7 @@ import android.widget.ImageView;
 import org.andstatus.app.R;
 import org.andstatus.app.context.MyPreferences;
 import org.andstatus.app.context.UserInTimeline;
+import org.andstatus.app.data.AvatarData;
 import org.andstatus.app.util.MyUrlSpan;
 import org.andstatus.app.widget.MyBaseAdapter;
 
@@ -106,6 +107,7 @@ class UserListViewAdapter extends MyBaseAdapter {
     private void showAvatar(UserListViewItem item, View view) {
         ImageView avatar = (ImageView) view.findViewById(R.id.avatar_image);
         avatar.setImageDrawable(item.getAvatar());
+        AvatarData.onUserShown(item.getUserId());
     }
 
     private void showMyFollowers(View view, UserListViewItem item) {
@@ -113,7 +115,7 @@ class UserListViewAdapter extends MyBaseAdapter {
         if (!item.myFollowers.isEmpty()) {
             int count = 0;
             builder.append(contextMenu.getActivity().getText(R.string.followed_by));
-            for (long userId : item.myFollowers) {
+            for (long userId : item.myFollowers.toArray()) {
                 if (count == 0) {
                     builder.append(" ");
                 } else {
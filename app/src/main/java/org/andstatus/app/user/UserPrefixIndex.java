@@ -0,0 +1,259 @@
+/*
+ * Copyright (c) 2017 yvolk (Yuri Volkov), http://yurivolkov.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.andstatus.app.user;
+
+import android.database.Cursor;
+import android.database.sqlite.SQLiteDatabase;
+import android.provider.BaseColumns;
+import android.support.annotation.NonNull;
+import android.text.TextUtils;
+
+import org.andstatus.app.account.MyAccount;
+import org.andstatus.app.context.MyContext;
+import org.andstatus.app.data.DbUtils;
+import org.andstatus.app.database.MsgTable;
+import org.andstatus.app.database.UserTable;
+import org.andstatus.app.util.MyLog;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+
+/**
+ * In-memory index of user names, WebFinger IDs and words of real names of one origin
+ * for quick lookup of users by a prefix, e.g. while typing a mention.
+ * Built lazily on the first lookup and updated when users and messages are saved.
+ * @author yvolk@yurivolkov.com
+ */
+public class UserPrefixIndex {
+    /** Separates an indexed word from a user id in a key, sorted before any other character */
+    private static final char KEY_SEPARATOR = '\u0000';
+    private static final char KEY_MAX_CHAR = '\uffff';
+    private static final String WORD_SEPARATORS_REGEX = "\\s+";
+
+    private static final Map<Long, UserPrefixIndex> indexes = new ConcurrentHashMap<>();
+
+    private final long originId;
+    private final ConcurrentSkipListMap<String, Long> keys = new ConcurrentSkipListMap<>();
+    private final Map<Long, List<String>> keysOfUsers = new ConcurrentHashMap<>();
+    /** Number of messages, exchanged between my accounts and a user */
+    private final Map<Long, Integer> interactions = new ConcurrentHashMap<>();
+
+    private UserPrefixIndex(long originId) {
+        this.originId = originId;
+    }
+
+    @NonNull
+    public static UserPrefixIndex getIndex(@NonNull MyContext myContext, long originId) {
+        UserPrefixIndex index = indexes.get(originId);
+        if (index == null) {
+            synchronized (indexes) {
+                index = indexes.get(originId);
+                if (index == null) {
+                    index = new UserPrefixIndex(originId);
+                    index.load(myContext);
+                    indexes.put(originId, index);
+                }
+            }
+        }
+        return index;
+    }
+
+    /** Updates the index, if it was loaded already */
+    public static void onUserUpdated(long originId, long userId, String userName, String webFingerId, String realName) {
+        UserPrefixIndex index = indexes.get(originId);
+        if (index != null && userId != 0) {
+            index.put(userId, userName, webFingerId, realName);
+        }
+    }
+
+    /** Counts the interaction of a new message, if the index was loaded already */
+    public static void onMessageAdded(@NonNull MyContext myContext, long originId, long authorId,
+                                      long inReplyToUserId) {
+        UserPrefixIndex index = indexes.get(originId);
+        if (index == null || authorId == 0 || inReplyToUserId == 0 || authorId == inReplyToUserId) {
+            return;
+        }
+        if (myContext.persistentAccounts().isAccountUserId(inReplyToUserId)) {
+            index.incrementInteractions(authorId);
+        } else if (myContext.persistentAccounts().isAccountUserId(authorId)) {
+            index.incrementInteractions(inReplyToUserId);
+        }
+    }
+
+    private void incrementInteractions(long userId) {
+        synchronized (interactions) {
+            interactions.put(userId, getInteractionsCount(userId) + 1);
+        }
+    }
+
+    public static void forget() {
+        indexes.clear();
+    }
+
+    private void load(MyContext myContext) {
+        SQLiteDatabase db = myContext.getDatabase();
+        if (db == null) {
+            return;
+        }
+        long startedAt = System.currentTimeMillis();
+        String sql = "SELECT " + BaseColumns._ID + ", " + UserTable.USERNAME + ", " + UserTable.WEBFINGER_ID
+                + ", " + UserTable.REAL_NAME
+                + " FROM " + UserTable.TABLE_NAME
+                + " WHERE " + UserTable.ORIGIN_ID + "=" + originId;
+        Cursor cursor = null;
+        try {
+            cursor = db.rawQuery(sql, null);
+            while (cursor.moveToNext()) {
+                put(cursor.getLong(0), cursor.getString(1), cursor.getString(2), cursor.getString(3));
+            }
+        } finally {
+            DbUtils.closeSilently(cursor);
+        }
+        loadInteractions(myContext, db);
+        MyLog.v(this, "Loaded " + keysOfUsers.size() + " users, " + interactions.size() + " with interactions, in "
+                + (System.currentTimeMillis() - startedAt) + "ms");
+    }
+
+    private void loadInteractions(MyContext myContext, SQLiteDatabase db) {
+        StringBuilder myUserIds = new StringBuilder();
+        for (MyAccount ma : myContext.persistentAccounts().list()) {
+            if (ma.getOriginId() == originId) {
+                myUserIds.append(myUserIds.length() == 0 ? "" : ", ").append(ma.getUserId());
+            }
+        }
+        if (myUserIds.length() == 0) {
+            return;
+        }
+        String myIn = " IN (" + myUserIds + ")";
+        String sql = "SELECT CASE WHEN " + MsgTable.AUTHOR_ID + myIn
+                + " THEN " + MsgTable.IN_REPLY_TO_USER_ID + " ELSE " + MsgTable.AUTHOR_ID + " END AS other_id,"
+                + " COUNT(*)"
+                + " FROM " + MsgTable.TABLE_NAME
+                + " WHERE " + MsgTable.ORIGIN_ID + "=" + originId
+                + " AND ((" + MsgTable.AUTHOR_ID + myIn + " AND " + MsgTable.IN_REPLY_TO_USER_ID + " NOT NULL)"
+                + " OR " + MsgTable.IN_REPLY_TO_USER_ID + myIn + ")"
+                + " GROUP BY other_id";
+        Cursor cursor = null;
+        try {
+            cursor = db.rawQuery(sql, null);
+            while (cursor.moveToNext()) {
+                interactions.put(cursor.getLong(0), cursor.getInt(1));
+            }
+        } finally {
+            DbUtils.closeSilently(cursor);
+        }
+    }
+
+    private void put(long userId, String userName, String webFingerId, String realName) {
+        Set<String> words = new LinkedHashSet<>();
+        addWord(words, userName);
+        addWord(words, webFingerId);
+        if (!TextUtils.isEmpty(realName)) {
+            for (String word : realName.split(WORD_SEPARATORS_REGEX)) {
+                addWord(words, word);
+            }
+        }
+        List<String> userKeys = new ArrayList<>();
+        for (String word : words) {
+            userKeys.add(word + KEY_SEPARATOR + userId);
+        }
+        List<String> oldKeys = keysOfUsers.put(userId, userKeys);
+        if (oldKeys != null) {
+            for (String key : oldKeys) {
+                keys.remove(key);
+            }
+        }
+        for (String key : userKeys) {
+            keys.put(key, userId);
+        }
+    }
+
+    private static void addWord(Set<String> words, String word) {
+        if (!TextUtils.isEmpty(word)) {
+            words.add(word.toLowerCase(Locale.getDefault()));
+        }
+    }
+
+    /**
+     * @return Ids of users, whose names start with the prefix,
+     * users, who interact with my accounts more often, first
+     */
+    @NonNull
+    public List<Long> getUserIds(String prefix, int maxCount) {
+        if (TextUtils.isEmpty(prefix)) {
+            return Collections.emptyList();
+        }
+        if (maxCount < 1) {
+            return Collections.emptyList();
+        }
+        String lowerPrefix = prefix.toLowerCase(Locale.getDefault());
+        // The worst of the best found users is at the head, so it is replaced by a better one
+        PriorityQueue<RankedUser> best = new PriorityQueue<>(maxCount + 1, new Comparator<RankedUser>() {
+            @Override
+            public int compare(RankedUser lhs, RankedUser rhs) {
+                if (lhs.interactions != rhs.interactions) {
+                    return lhs.interactions < rhs.interactions ? -1 : 1;
+                }
+                return lhs.order == rhs.order ? 0 : (lhs.order > rhs.order ? -1 : 1);
+            }
+        });
+        Set<Long> found = new HashSet<>();
+        int order = 0;
+        for (Long userId : keys.subMap(lowerPrefix, lowerPrefix + KEY_MAX_CHAR).values()) {
+            if (found.add(userId)) {
+                best.add(new RankedUser(userId, getInteractionsCount(userId), order++));
+                if (best.size() > maxCount) {
+                    best.poll();
+                }
+            }
+        }
+        Long[] userIds = new Long[best.size()];
+        for (int i = userIds.length - 1; i >= 0; i--) {
+            userIds[i] = best.poll().userId;
+        }
+        return Arrays.asList(userIds);
+    }
+
+    private static class RankedUser {
+        final long userId;
+        final int interactions;
+        /** Order of the index, for users with the same number of interactions */
+        final int order;
+
+        RankedUser(long userId, int interactions, int order) {
+            this.userId = userId;
+            this.interactions = interactions;
+            this.order = order;
+        }
+    }
+
+    private int getInteractionsCount(long userId) {
+        Integer count = interactions.get(userId);
+        return count == null ? 0 : count;
+    }
+}
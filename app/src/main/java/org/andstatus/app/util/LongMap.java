@@ -0,0 +1,194 @@
+/*
+ * Copyright (c) 2017 yvolk (Yuri Volkov), http://yurivolkov.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.andstatus.app.util;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Map of primitive long keys, e.g. of ids, to objects, without boxing of the keys.
+ * Open addressing with linear probing, see {@link LongSet}. Not thread safe
+ * @author yvolk@yurivolkov.com
+ */
+public class LongMap<V> {
+    /** 0 marks a free slot, so the value of the 0 key is kept separately */
+    private long[] keys;
+    private Object[] values;
+    private boolean hasZero = false;
+    private V zeroValue = null;
+    private int size = 0;
+    private int mask;
+    private int resizeAt;
+
+    public LongMap() {
+        this(0);
+    }
+
+    public LongMap(int expectedSize) {
+        allocate(LongSet.capacityFor(expectedSize));
+    }
+
+    private void allocate(int capacity) {
+        keys = new long[capacity];
+        values = new Object[capacity];
+        mask = capacity - 1;
+        resizeAt = capacity / 4 * 3;
+    }
+
+    /** @return the previous value or null */
+    public V put(long key, V value) {
+        if (key == 0) {
+            V previous = zeroValue;
+            hasZero = true;
+            zeroValue = value;
+            return previous;
+        }
+        int ind = LongSet.hash(key) & mask;
+        while (keys[ind] != 0) {
+            if (keys[ind] == key) {
+                V previous = valueAt(ind);
+                values[ind] = value;
+                return previous;
+            }
+            ind = (ind + 1) & mask;
+        }
+        keys[ind] = key;
+        values[ind] = value;
+        if (++size > resizeAt) {
+            rehash(keys.length * 2);
+        }
+        return null;
+    }
+
+    public V get(long key) {
+        if (key == 0) {
+            return zeroValue;
+        }
+        int ind = indexOf(key);
+        return ind < 0 ? null : valueAt(ind);
+    }
+
+    public boolean containsKey(long key) {
+        return key == 0 ? hasZero : indexOf(key) >= 0;
+    }
+
+    /** @return the removed value or null */
+    public V remove(long key) {
+        if (key == 0) {
+            V previous = zeroValue;
+            hasZero = false;
+            zeroValue = null;
+            return previous;
+        }
+        int ind = indexOf(key);
+        if (ind < 0) {
+            return null;
+        }
+        V previous = valueAt(ind);
+        closeGap(ind);
+        size--;
+        return previous;
+    }
+
+    public int size() {
+        return size + (hasZero ? 1 : 0);
+    }
+
+    public boolean isEmpty() {
+        return size() == 0;
+    }
+
+    public void clear() {
+        Arrays.fill(keys, 0);
+        Arrays.fill(values, null);
+        hasZero = false;
+        zeroValue = null;
+        size = 0;
+    }
+
+    /** Values in no particular order */
+    public List<V> values() {
+        List<V> list = new ArrayList<>(size());
+        if (hasZero) {
+            list.add(zeroValue);
+        }
+        for (int ind = 0; ind < keys.length; ind++) {
+            if (keys[ind] != 0) {
+                list.add(valueAt(ind));
+            }
+        }
+        return list;
+    }
+
+    @SuppressWarnings("unchecked")
+    private V valueAt(int ind) {
+        return (V) values[ind];
+    }
+
+    private int indexOf(long key) {
+        int ind = LongSet.hash(key) & mask;
+        while (keys[ind] != 0) {
+            if (keys[ind] == key) {
+                return ind;
+            }
+            ind = (ind + 1) & mask;
+        }
+        return -1;
+    }
+
+    private void closeGap(int gap) {
+        int ind = gap;
+        while (true) {
+            ind = (ind + 1) & mask;
+            long key = keys[ind];
+            if (key == 0) {
+                break;
+            }
+            int home = LongSet.hash(key) & mask;
+            if (((ind - home) & mask) >= ((ind - gap) & mask)) {
+                keys[gap] = key;
+                values[gap] = values[ind];
+                gap = ind;
+            }
+        }
+        keys[gap] = 0;
+        values[gap] = null;
+    }
+
+    private void rehash(int capacity) {
+        long[] oldKeys = keys;
+        Object[] oldValues = values;
+        allocate(capacity);
+        for (int oldInd = 0; oldInd < oldKeys.length; oldInd++) {
+            long key = oldKeys[oldInd];
+            if (key != 0) {
+                int ind = LongSet.hash(key) & mask;
+                while (keys[ind] != 0) {
+                    ind = (ind + 1) & mask;
+                }
+                keys[ind] = key;
+                values[ind] = oldValues[oldInd];
+            }
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "LongMap{size=" + size() + "}";
+    }
+}
@@ -99,7 +99,37 @@ public class MyUrlSpan extends URLSpan {
 
     public static void showText(TextView textView, String text, boolean linkify, boolean showIfEmpty) {
         if (textView == null) return;
-        if (TextUtils.isEmpty(text)) {
+        showSpanned(textView, toSpanned(text, linkify), linkify, showIfEmpty);
+    }
+
+    /**
+     * Parses Html and adds links, which doesn't need a View,
+     * so this may be done in a background thread, see {@link #showSpanned(TextView, Spanned, boolean, boolean)}
+     */
+    @NonNull
+    public static Spanned toSpanned(String textIn, boolean linkify) {
+        if (TextUtils.isEmpty(textIn)) {
+            return new SpannableString("");
+        }
+        String text = textIn;
+        // Android 6 bug, see https://github.com/andstatus/andstatus/issues/334
+        // Setting setMovementMethod to not null causes a crash if text is SOFT_HYPHEN only:
+        if (text.contains(SOFT_HYPHEN)) {
+            text = text.replace(SOFT_HYPHEN, "-");
+        }
+        SpannableString spannable = SpannableString.valueOf(
+                MyHtml.hasHtmlMarkup(text) ? Html.fromHtml(text) : text);
+        if (linkify && !hasUrlSpans(spannable)) {
+            Linkify.addLinks(spannable, Linkify.WEB_URLS);
+        }
+        fixUrlSpans(spannable);
+        return spannable;
+    }
+
+    /** @param spanned prepared by {@link #toSpanned(String, boolean)} */
+    public static void showSpanned(TextView textView, Spanned spanned, boolean linkify, boolean showIfEmpty) {
+        if (textView == null) return;
+        if (TextUtils.isEmpty(spanned)) {
             textView.setText("");
             ViewUtils.showView(textView, showIfEmpty);
         } else {
@@ -108,17 +138,7 @@ public class MyUrlSpan extends URLSpan {
                 textView.setFocusableInTouchMode(true);
                 textView.setLinksClickable(true);
             }
-            // Android 6 bug, see https://github.com/andstatus/andstatus/issues/334
-            // Setting setMovementMethod to not null causes a crash if text is SOFT_HYPHEN only:
-            if (text.contains(SOFT_HYPHEN)) {
-                text = text.replace(SOFT_HYPHEN, "-");
-            }
-            Spanned spanned = MyHtml.hasHtmlMarkup(text) ? Html.fromHtml(text) : new SpannableString(text);
             textView.setText(spanned);
-            if (linkify && !hasUrlSpans(spanned)) {
-                Linkify.addLinks(textView, Linkify.WEB_URLS);
-            }
-            fixUrlSpans(textView);
             if (linkify) {
                 setOnTouchListener(textView);
             }
@@ -201,10 +221,7 @@ public class MyUrlSpan extends URLSpan {
         return has;
     }
 
-    private static void fixUrlSpans(TextView textView) {
-        CharSequence text = textView.getText();
-        SpannableString spannable = SpannableString.class.isAssignableFrom(text.getClass())
-                ? (SpannableString) text : SpannableString.valueOf(text);
+    private static void fixUrlSpans(Spannable spannable) {
         URLSpan[] spans = spannable.getSpans(0, spannable.length(), URLSpan.class);
         for (URLSpan span : spans) {
             int start = spannable.getSpanStart(span);
@@ -212,7 +229,6 @@ public class MyUrlSpan extends URLSpan {
             spannable.removeSpan(span);
             spannable.setSpan(new MyUrlSpan(span.getURL()), start, end, 0);
         }
-        textView.setText(spannable);
     }
 
     public static URLSpan[] getUrlSpans(View view) {
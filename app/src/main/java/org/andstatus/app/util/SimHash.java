@@ -0,0 +1,108 @@
+/*
+ * Copyright (c) 2017 yvolk (Yuri Volkov), http://yurivolkov.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.andstatus.app.util;
+
+import android.text.TextUtils;
+
+/**
+ * 64-bit similarity fingerprint of a text: texts, which differ in a few words only,
+ * have fingerprints, which differ in a few bits only.
+ * See <a href="https://en.wikipedia.org/wiki/SimHash">SimHash</a>
+ * @author yvolk@yurivolkov.com
+ */
+public class SimHash {
+    /** Zero means that the fingerprint is unknown, e.g. the text is too short */
+    public static final long EMPTY = 0;
+    /** Messages with fingerprints, that differ in not more bits, are considered duplicates */
+    public static final int MAX_DISTANCE_OF_SIMILAR = 3;
+    /** Fingerprints of similar texts have at least one equal band: the bands are more than the differing bits */
+    public static final int BANDS_COUNT = MAX_DISTANCE_OF_SIMILAR + 1;
+    private static final int BAND_BITS = Long.SIZE / BANDS_COUNT;
+    private static final int MIN_TEXT_LENGTH = 5;
+    private static final String TOKEN_SEPARATORS_REGEX = "[^\\p{L}\\p{N}@#]+";
+
+    private SimHash() {
+        // Empty
+    }
+
+    /** The fingerprint of a message body, see {@link MyHtml#getCleanedBody(String)} */
+    public static long fromBody(String body) {
+        return of(MyHtml.getCleanedBody(body));
+    }
+
+    /** @param text Cleaned text: without markup and in lower case */
+    public static long of(String text) {
+        if (TextUtils.isEmpty(text) || text.length() < MIN_TEXT_LENGTH) {
+            return EMPTY;
+        }
+        int[] weights = new int[Long.SIZE];
+        int tokensCount = 0;
+        for (String token : text.split(TOKEN_SEPARATORS_REGEX)) {
+            if (token.length() == 0) {
+                continue;
+            }
+            tokensCount++;
+            long hash = hashOf(token);
+            for (int bit = 0; bit < Long.SIZE; bit++) {
+                weights[bit] += ((hash >>> bit) & 1L) == 1L ? 1 : -1;
+            }
+        }
+        if (tokensCount == 0) {
+            return EMPTY;
+        }
+        long fingerprint = 0;
+        for (int bit = 0; bit < Long.SIZE; bit++) {
+            if (weights[bit] > 0) {
+                fingerprint |= 1L << bit;
+            }
+        }
+        return fingerprint == EMPTY ? 1 : fingerprint;
+    }
+
+    public static int distance(long fingerprint1, long fingerprint2) {
+        return Long.bitCount(fingerprint1 ^ fingerprint2);
+    }
+
+    public static boolean areSimilar(long fingerprint1, long fingerprint2) {
+        return fingerprint1 != EMPTY && fingerprint2 != EMPTY
+                && distance(fingerprint1, fingerprint2) <= MAX_DISTANCE_OF_SIMILAR;
+    }
+
+    /**
+     * A key of similarity buckets: texts, which fingerprints are similar, have an equal key for some band index
+     * @param bandIndex 0 ... {@link #BANDS_COUNT} - 1
+     */
+    public static long bandOf(long fingerprint, int bandIndex) {
+        long bandMask = (1L << BAND_BITS) - 1;
+        return ((fingerprint >>> (bandIndex * BAND_BITS)) & bandMask) | ((long) bandIndex << BAND_BITS);
+    }
+
+    /** FNV-1a, followed by the finalizer of MurmurHash3 to spread the bits */
+    private static long hashOf(String token) {
+        long hash = 0xcbf29ce484222325L;
+        for (int ind = 0; ind < token.length(); ind++) {
+            hash ^= token.charAt(ind);
+            hash *= 0x100000001b3L;
+        }
+        hash ^= hash >>> 33;
+        hash *= 0xff51afd7ed558ccdL;
+        hash ^= hash >>> 33;
+        hash *= 0xc4ceb9fe1a85ec53L;
+        hash ^= hash >>> 33;
+        return hash;
+    }
+}
@@ -0,0 +1,71 @@
+/*
+ * Copyright (c) 2017 yvolk (Yuri Volkov), http://yurivolkov.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.andstatus.app.util;
+
+import java.util.Arrays;
+
+/**
+ * Immutable sorted array of distinct primitive longs: the most compact set of ids (8 bytes per id),
+ * which is searched by a binary search. For sets, which are built once and then only read
+ * @author yvolk@yurivolkov.com
+ */
+public class SortedLongs {
+    public static final SortedLongs EMPTY = new SortedLongs(new long[0]);
+    private final long[] values;
+
+    private SortedLongs(long[] values) {
+        this.values = values;
+    }
+
+    /** The values may be in any order and may repeat, the array is not changed */
+    public static SortedLongs of(long[] values) {
+        if (values.length == 0) {
+            return EMPTY;
+        }
+        long[] sorted = Arrays.copyOf(values, values.length);
+        Arrays.sort(sorted);
+        int count = 1;
+        for (int ind = 1; ind < sorted.length; ind++) {
+            if (sorted[ind] != sorted[count - 1]) {
+                sorted[count++] = sorted[ind];
+            }
+        }
+        return new SortedLongs(count == sorted.length ? sorted : Arrays.copyOf(sorted, count));
+    }
+
+    public boolean contains(long value) {
+        return Arrays.binarySearch(values, value) >= 0;
+    }
+
+    public int size() {
+        return values.length;
+    }
+
+    public boolean isEmpty() {
+        return values.length == 0;
+    }
+
+    /** @return value at the index in the ascending order */
+    public long get(int index) {
+        return values[index];
+    }
+
+    @Override
+    public String toString() {
+        return "SortedLongs{size=" + values.length + "}";
+    }
+}